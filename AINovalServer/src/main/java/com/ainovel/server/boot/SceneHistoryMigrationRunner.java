@@ -0,0 +1,51 @@
+package com.ainovel.server.boot;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.ainovel.server.service.SceneRevisionService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+
+/**
+ * 将场景文档中内嵌的旧历史记录迁移到 scene_revisions 集合。
+ * 应用就绪后在后台分批执行，不阻塞启动；进度游标保存在 migration_markers 中，重启后从游标续跑。
+ * 迁移是幂等的（修订ID由场景ID和序号确定），未迁移完的场景在写入时按需迁移，不会丢失历史。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SceneHistoryMigrationRunner {
+
+    private final SceneRevisionService sceneRevisionService;
+
+    @Value("${ainovel.version-control.migrate-on-startup:true}")
+    private boolean migrateOnStartup;
+
+    private volatile Disposable migration;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateInBackground() {
+        if (!migrateOnStartup) {
+            log.info("已禁用场景历史迁移");
+            return;
+        }
+        migration = sceneRevisionService.migrateAllEmbeddedHistories()
+                .subscribe(
+                        migrated -> log.info("场景内嵌历史迁移完成，本次迁移场景数: {}", migrated),
+                        e -> log.error("场景内嵌历史迁移失败，下次启动将从游标续跑，期间场景写入时按需迁移", e));
+    }
+
+    @PreDestroy
+    public void stop() {
+        Disposable current = migration;
+        if (current != null) {
+            current.dispose();
+        }
+    }
+}
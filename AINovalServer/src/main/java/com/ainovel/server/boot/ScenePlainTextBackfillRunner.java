@@ -0,0 +1,40 @@
+package com.ainovel.server.boot;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.ainovel.server.service.impl.content.ScenePlainTextProjection;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 为已有场景补齐纯文本投影。
+ * 在后台执行：补齐完成前读取方会按需实时转换，不影响正确性。
+ */
+@Component
+@Order(6)
+@RequiredArgsConstructor
+@Slf4j
+public class ScenePlainTextBackfillRunner implements ApplicationRunner {
+
+    private final ScenePlainTextProjection scenePlainTextProjection;
+
+    @Value("${ainovel.performance.scene-plain-text.backfill-on-startup:true}")
+    private boolean backfillOnStartup;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!backfillOnStartup) {
+            log.info("已禁用场景纯文本投影补齐");
+            return;
+        }
+        scenePlainTextProjection.backfill()
+                .subscribe(
+                        count -> { },
+                        e -> log.error("场景纯文本投影补齐失败，将在场景写入或读取时按需生成", e));
+    }
+}
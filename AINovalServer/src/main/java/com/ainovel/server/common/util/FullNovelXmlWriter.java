@@ -0,0 +1,297 @@
+package com.ainovel.server.common.util;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import com.ainovel.server.domain.model.Scene;
+
+/**
+ * 完整小说文本的流式 XML 写入器：
+ * - 场景按小说顺序逐个追加，章节变化时闭合上一章，直接写入缓冲区，不构建中间对象图
+ * - 输出结构与 PromptTemplateModel.FullNovelText 经 XmlMapper（缩进两空格、省略空值）序列化的结果一致
+ * - 可设置字符预算：超出预算时截断当前场景并停止，{@link #append} 返回 false 以便上游停止读取
+ * - 缓冲区取自一个小的对象池，{@link #close()} 时归还（超过保留上限的大缓冲区直接丢弃）
+ *
+ * 非线程安全，一个写入器只用于一次渲染。
+ */
+public final class FullNovelXmlWriter implements AutoCloseable {
+
+    private static final int POOL_SIZE = 8;
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+    private static final BlockingQueue<StringBuilder> BUFFER_POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * 截断时至少保留的场景正文字符数，剩余预算不足时整个场景省略
+     */
+    private static final int MIN_TRUNCATED_CONTENT = 200;
+
+    private static final String TRUNCATION_NOTICE = "      <!-- 后续内容超出长度预算，已省略 -->\n";
+
+    /**
+     * 闭合所有打开标签需要的最大字符数（章节 + 卷 + 根元素 + 截断提示）
+     */
+    private static final int CLOSING_RESERVE = "    </chapter>\n  </act>\n</full_novel_text>".length()
+            + TRUNCATION_NOTICE.length();
+
+    private final String title;
+    private final String description;
+    private final Map<String, Integer> chapterOrderMap;
+    private final boolean includeIds;
+    private final int maxChars;
+
+    private StringBuilder buffer;
+    private String currentChapterId;
+    private int sceneNumber;
+    private int fallbackChapterNumber = 1;
+    private int sceneCount;
+    private boolean exhausted;
+
+    /**
+     * @param chapterOrderMap 章节ID -> 章节序号（见 ChapterOrderUtil），不在映射中的章节按出现顺序编号
+     * @param includeIds      是否输出章节/场景ID
+     * @param maxChars        输出字符预算，<=0 表示不限制
+     */
+    public FullNovelXmlWriter(String title, String description, Map<String, Integer> chapterOrderMap,
+                              boolean includeIds, int maxChars) {
+        this.title = title;
+        this.description = description;
+        this.chapterOrderMap = chapterOrderMap != null ? chapterOrderMap : Map.of();
+        this.includeIds = includeIds;
+        this.maxChars = maxChars > 0 ? maxChars : Integer.MAX_VALUE;
+    }
+
+    /**
+     * 追加一个场景；同一章节的场景需要连续传入
+     *
+     * @return 是否可以继续追加（预算用尽后返回 false）
+     */
+    public boolean append(Scene scene) {
+        if (exhausted) {
+            return false;
+        }
+        if (!isValid(scene)) {
+            return true;
+        }
+        if (buffer == null) {
+            buffer = acquire();
+            openDocument();
+        }
+        int mark = buffer.length();
+        String previousChapterId = currentChapterId;
+        if (!scene.getChapterId().equals(currentChapterId)) {
+            closeChapter();
+            openChapter(scene.getChapterId());
+        }
+
+        String content = ScenePlainTextUtil.plainTextOf(scene);
+        int sceneOverhead = sceneOverhead(scene);
+        int remaining = maxChars - CLOSING_RESERVE - buffer.length() - sceneOverhead;
+        if (remaining < escapedLength(content)) {
+            // 预算不足以放下整个场景：保留能放下的开头部分（至少 MIN_TRUNCATED_CONTENT 个字符），否则省略
+            String truncated = truncateToBudget(content, remaining);
+            if (truncated.length() < MIN_TRUNCATED_CONTENT && !(sceneCount == 0 && !truncated.isEmpty())) {
+                // 撤销本场景（以及可能刚写入的章节切换），上一章保持打开
+                buffer.setLength(mark);
+                currentChapterId = previousChapterId;
+            } else {
+                writeScene(scene, truncated);
+            }
+            exhausted = true;
+            return false;
+        }
+        writeScene(scene, content);
+        return true;
+    }
+
+    /**
+     * 结束写入并返回完整XML；没有任何有效场景时返回空字符串
+     */
+    public String finish() {
+        if (buffer == null || sceneCount == 0) {
+            return "";
+        }
+        if (exhausted) {
+            buffer.append(TRUNCATION_NOTICE);
+        }
+        closeChapter();
+        buffer.append("  </act>\n");
+        buffer.append("</full_novel_text>");
+        return buffer.toString();
+    }
+
+    /**
+     * 是否因预算用尽而截断
+     */
+    public boolean isTruncated() {
+        return exhausted;
+    }
+
+    public int getSceneCount() {
+        return sceneCount;
+    }
+
+    @Override
+    public void close() {
+        if (buffer != null) {
+            release(buffer);
+            buffer = null;
+        }
+    }
+
+    // ==================== 写入 ====================
+
+    private void openDocument() {
+        buffer.append("<full_novel_text>\n");
+        appendElement("  ", "title", title);
+        appendElement("  ", "description", description);
+        buffer.append("  <act number=\"1\">\n");
+        buffer.append("    <title>第一幕</title>\n");
+    }
+
+    private void openChapter(String chapterId) {
+        Integer mapped = chapterOrderMap.get(chapterId);
+        int chapterNumber = mapped != null ? mapped : fallbackChapterNumber++;
+        buffer.append("    <chapter number=\"").append(chapterNumber).append('"');
+        if (includeIds) {
+            appendAttribute("id", chapterId);
+        }
+        buffer.append(">\n");
+        buffer.append("      <title>第").append(chapterNumber).append("章</title>\n");
+        currentChapterId = chapterId;
+        sceneNumber = 1;
+    }
+
+    private void closeChapter() {
+        if (currentChapterId != null) {
+            buffer.append("    </chapter>\n");
+            currentChapterId = null;
+        }
+    }
+
+    private void writeScene(Scene scene, String content) {
+        buffer.append("      <scene");
+        if (scene.getTitle() != null && !scene.getTitle().isEmpty()) {
+            appendAttribute("title", scene.getTitle());
+        }
+        buffer.append(" number=\"").append(sceneNumber++).append('"');
+        if (includeIds) {
+            appendAttribute("id", scene.getId());
+        }
+        if (content.isEmpty()) {
+            buffer.append("/>\n");
+        } else {
+            buffer.append(">\n");
+            appendElement("        ", "content", content);
+            buffer.append("      </scene>\n");
+        }
+        sceneCount++;
+    }
+
+    private void appendElement(String indent, String name, String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        buffer.append(indent).append('<').append(name).append('>');
+        escapeText(text, text.length());
+        buffer.append("</").append(name).append(">\n");
+    }
+
+    private void appendAttribute(String name, String value) {
+        buffer.append(' ').append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&' -> buffer.append("&amp;");
+                case '<' -> buffer.append("&lt;");
+                case '"' -> buffer.append("&quot;");
+                default -> buffer.append(c);
+            }
+        }
+        buffer.append('"');
+    }
+
+    private void escapeText(String text, int end) {
+        for (int i = 0; i < end; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> buffer.append("&amp;");
+                case '<' -> buffer.append("&lt;");
+                case '>' -> buffer.append("&gt;");
+                default -> buffer.append(c);
+            }
+        }
+    }
+
+    // ==================== 预算 ====================
+
+    /**
+     * 场景除正文外的标签长度（含章节开头，按上限估算）
+     */
+    private int sceneOverhead(Scene scene) {
+        int titleLength = scene.getTitle() != null ? scene.getTitle().length() + 10 : 0;
+        int idLength = includeIds && scene.getId() != null ? scene.getId().length() + 6 : 0;
+        return "      <scene number=\"\">\n        <content></content>\n      </scene>\n".length() + 10
+                + titleLength + idLength;
+    }
+
+    private static int escapedLength(String text) {
+        int length = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '&') {
+                length += 4;
+            } else if (c == '<' || c == '>') {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 截取转义后长度不超过 budget 的最长前缀，不拆开代理对
+     */
+    private static String truncateToBudget(String text, int budget) {
+        if (budget <= 0) {
+            return "";
+        }
+        int used = 0;
+        int end = 0;
+        while (end < text.length()) {
+            char c = text.charAt(end);
+            int cost = c == '&' ? 5 : (c == '<' || c == '>') ? 4 : 1;
+            if (used + cost > budget) {
+                break;
+            }
+            used += cost;
+            end++;
+        }
+        if (end > 0 && end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    private static boolean isValid(Scene scene) {
+        return scene != null
+                && scene.getId() != null && !scene.getId().trim().isEmpty()
+                && scene.getChapterId() != null && !scene.getChapterId().trim().isEmpty()
+                && ScenePlainTextUtil.hasText(scene);
+    }
+
+    // ==================== 缓冲池 ====================
+
+    private static StringBuilder acquire() {
+        StringBuilder sb = BUFFER_POOL.poll();
+        return sb != null ? sb : new StringBuilder(INITIAL_CAPACITY);
+    }
+
+    private static void release(StringBuilder sb) {
+        if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+            return;
+        }
+        sb.setLength(0);
+        BUFFER_POOL.offer(sb);
+    }
+}
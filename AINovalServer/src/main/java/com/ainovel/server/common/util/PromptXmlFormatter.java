@@ -9,6 +9,8 @@ import com.ainovel.server.domain.model.NovelSettingItem;
 import com.ainovel.server.domain.model.NovelSnippet;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import com.fasterxml.jackson.annotation.JsonInclude;
 
 import java.util.List;
@@ -238,7 +240,7 @@ public class PromptXmlFormatter {
                         List<PromptTemplateModel.NovelOutline.Scene> xmlScenes = sortedScenes.stream()
                                 .map(scene -> {
                                     String content = scene.getContent() != null ? 
-                                            RichTextUtil.deltaJsonToPlainText(scene.getContent()) : null;
+                                            ScenePlainTextUtil.plainTextOf(scene) : null;
                                     log.debug("场景 {} - 标题: {}, 内容长度: {}", 
                                              scene.getId(), scene.getTitle(), 
                                              content != null ? content.length() : 0);
@@ -386,7 +388,7 @@ public class PromptXmlFormatter {
                             .summary(ensureTextIsWrappedWithNewlines(scene.getSummary() != null ?
                                     RichTextUtil.deltaJsonToPlainText(scene.getSummary()) : null))
                             .content(ensureTextIsWrappedWithNewlines(scene.getContent() != null ? 
-                                    RichTextUtil.deltaJsonToPlainText(scene.getContent()) : null))
+                                    ScenePlainTextUtil.plainTextOf(scene) : null))
                             .build())
                     .collect(Collectors.toList());
 
@@ -427,7 +429,7 @@ public class PromptXmlFormatter {
                     .summary(ensureTextIsWrappedWithNewlines(scene.getSummary() != null ?
                             RichTextUtil.deltaJsonToPlainText(scene.getSummary()) : null))
                     .content(ensureTextIsWrappedWithNewlines(scene.getContent() != null ? 
-                            RichTextUtil.deltaJsonToPlainText(scene.getContent()) : null))
+                            ScenePlainTextUtil.plainTextOf(scene) : null))
                     .build();
 
             String result = xmlMapper.writeValueAsString(xmlScene);
@@ -606,7 +608,7 @@ public class PromptXmlFormatter {
                         AtomicInteger sceneNumber = new AtomicInteger(1);
                         List<PromptTemplateModel.FullNovelText.SceneContent> xmlScenes = sortedScenes.stream()
                                 .map(scene -> {
-                                    String content = RichTextUtil.deltaJsonToPlainText(scene.getContent());
+                                    String content = ScenePlainTextUtil.plainTextOf(scene);
                                     log.debug("场景 {} - 标题: {}, 内容长度: {}", 
                                              scene.getId(), scene.getTitle(), 
                                              content != null ? content.length() : 0);
@@ -694,7 +696,7 @@ public class PromptXmlFormatter {
                         java.util.concurrent.atomic.AtomicInteger sceneNumber = new java.util.concurrent.atomic.AtomicInteger(1);
                         java.util.List<com.ainovel.server.common.util.PromptTemplateModel.FullNovelText.SceneContent> xmlScenes = sortedScenes.stream()
                                 .map(scene -> {
-                                    String content = RichTextUtil.deltaJsonToPlainText(scene.getContent());
+                                    String content = ScenePlainTextUtil.plainTextOf(scene);
                                     com.ainovel.server.common.util.PromptTemplateModel.FullNovelText.SceneContent.SceneContentBuilder builder =
                                             com.ainovel.server.common.util.PromptTemplateModel.FullNovelText.SceneContent.builder()
                                                     .title(scene.getTitle())
@@ -744,6 +746,32 @@ public class PromptXmlFormatter {
         }
     }
 
+    /**
+     * 流式渲染完整小说文本：场景按顺序到达时直接写入池化缓冲区，输出结构与
+     * {@link #formatFullNovelTextUsingChapterOrderMap} 一致。
+     * 达到字符预算后截断并取消上游读取，超长小说不会被完整加载后再丢弃。
+     *
+     * @param orderedScenes   按章节顺序、章节内按 sequence 排好序的场景流
+     * @param chapterOrderMap 章节ID -> 章节序号
+     * @param maxChars        字符预算，<=0 表示不限制
+     */
+    public Mono<String> renderFullNovelText(String title, String description,
+                                            Flux<Scene> orderedScenes,
+                                            Map<String, Integer> chapterOrderMap,
+                                            boolean includeIds, int maxChars) {
+        return Mono.using(
+                () -> new FullNovelXmlWriter(title, description, chapterOrderMap, includeIds, maxChars),
+                writer -> orderedScenes
+                        .takeWhile(writer::append)
+                        .then(Mono.fromCallable(() -> {
+                            String result = writer.finish();
+                            log.info("完整小说文本流式渲染完成 - 标题: {}, 场景数: {}, XML长度: {}, 是否截断: {}",
+                                    title, writer.getSceneCount(), result.length(), writer.isTruncated());
+                            return result;
+                        })),
+                FullNovelXmlWriter::close);
+    }
+
     /**
      * 🚀 检查字符串是否包含XML内容
      */
@@ -928,7 +956,7 @@ public class PromptXmlFormatter {
                         AtomicInteger sceneNumber = new AtomicInteger(1);
                         List<PromptTemplateModel.FullNovelText.SceneContent> xmlScenes = sortedScenes.stream()
                                 .map(scene -> {
-                                    String content = RichTextUtil.deltaJsonToPlainText(scene.getContent());
+                                    String content = ScenePlainTextUtil.plainTextOf(scene);
                                     
                                     return PromptTemplateModel.FullNovelText.SceneContent.builder()
                                             .title(scene.getTitle())
@@ -0,0 +1,109 @@
+package com.ainovel.server.common.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.ainovel.server.domain.model.SceneRevision.DeltaOp;
+import com.github.difflib.DiffUtils;
+import com.github.difflib.patch.AbstractDelta;
+import com.github.difflib.patch.Patch;
+
+/**
+ * 场景内容增量工具：
+ * - 将场景内容（通常为单行的 Quill Delta JSON）切分为可比较的片段
+ * - 基于 java-diff-utils 计算片段级差异
+ * - 在基准内容上应用差异重建目标内容
+ *
+ * 切分是无损的：所有片段按顺序拼接即为原文，因此应用差异时无需额外的分隔符。
+ */
+public final class SceneContentDeltaUtil {
+
+    private SceneContentDeltaUtil() {}
+
+    /**
+     * 将内容切分为片段。在换行、JSON转义换行（\n）、Delta操作分隔（},）以及中文句末标点之后断开。
+     */
+    public static List<String> tokenize(String content) {
+        List<String> tokens = new ArrayList<>();
+        if (content == null || content.isEmpty()) {
+            return tokens;
+        }
+        int start = 0;
+        int length = content.length();
+        for (int i = 0; i < length; i++) {
+            char c = content.charAt(i);
+            boolean boundary = c == '\n' || c == '。' || c == '！' || c == '？'
+                    || (c == 'n' && i > 0 && content.charAt(i - 1) == '\\')
+                    || (c == ',' && i > 0 && content.charAt(i - 1) == '}');
+            if (boundary) {
+                tokens.add(content.substring(start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < length) {
+            tokens.add(content.substring(start));
+        }
+        return tokens;
+    }
+
+    /**
+     * 计算从基准片段到目标片段的差异
+     */
+    public static List<DeltaOp> diff(List<String> baseTokens, List<String> targetTokens) {
+        Patch<String> patch = DiffUtils.diff(baseTokens, targetTokens);
+        List<DeltaOp> ops = new ArrayList<>(patch.getDeltas().size());
+        for (AbstractDelta<String> delta : patch.getDeltas()) {
+            ops.add(DeltaOp.builder()
+                    .position(delta.getSource().getPosition())
+                    .size(delta.getSource().size())
+                    .tokens(new ArrayList<>(delta.getTarget().getLines()))
+                    .build());
+        }
+        return ops;
+    }
+
+    /**
+     * 在基准片段上应用差异，返回重建后的完整内容
+     */
+    public static String apply(List<String> baseTokens, List<DeltaOp> ops) {
+        StringBuilder sb = new StringBuilder();
+        int cursor = 0;
+        if (ops != null && !ops.isEmpty()) {
+            List<DeltaOp> sorted = new ArrayList<>(ops);
+            sorted.sort(Comparator.comparingInt(DeltaOp::getPosition));
+            for (DeltaOp op : sorted) {
+                int position = Math.min(op.getPosition(), baseTokens.size());
+                for (int i = cursor; i < position; i++) {
+                    sb.append(baseTokens.get(i));
+                }
+                if (op.getTokens() != null) {
+                    for (String token : op.getTokens()) {
+                        sb.append(token);
+                    }
+                }
+                cursor = Math.max(cursor, position + op.getSize());
+            }
+        }
+        for (int i = cursor; i < baseTokens.size(); i++) {
+            sb.append(baseTokens.get(i));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 估算差异的负载字符数，用于判断是否值得改存完整快照
+     */
+    public static int payloadLength(List<DeltaOp> ops) {
+        int total = 0;
+        for (DeltaOp op : ops) {
+            total += 16;
+            if (op.getTokens() != null) {
+                for (String token : op.getTokens()) {
+                    total += token.length();
+                }
+            }
+        }
+        return total;
+    }
+}
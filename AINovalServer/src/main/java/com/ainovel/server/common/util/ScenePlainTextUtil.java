@@ -0,0 +1,105 @@
+package com.ainovel.server.common.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import com.ainovel.server.domain.model.Scene;
+
+/**
+ * 场景纯文本投影工具：
+ * - 场景写入时把 Quill Delta 正文转换一次纯文本，连同长度和正文指纹一起保存在场景上
+ * - 读取方通过 {@link #plainTextOf} / {@link #plainTextLengthOf} 取用，指纹与当前正文一致时直接返回投影，
+ *   否则（旧数据、投影字段未被查询出来、正文在内存中被改写）退回实时转换
+ * - 列表查询不取出 plainText，此时长度仍可由 plainTextLength 直接得到
+ *
+ * 指纹为正文 UTF-8 字节的 SHA-256（十六进制），不同正文碰撞到同一指纹的概率可以忽略。
+ */
+public final class ScenePlainTextUtil {
+
+    private ScenePlainTextUtil() {}
+
+    /**
+     * 正文指纹；null 与空字符串视为相同
+     */
+    public static String sourceHashOf(String content) {
+        String normalized = content == null ? "" : content;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // 每个 JRE 都必须提供 SHA-256
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 投影是否与当前正文对应
+     */
+    public static boolean isFresh(Scene scene) {
+        return scene.getPlainText() != null && isLengthFresh(scene);
+    }
+
+    /**
+     * 纯文本长度是否与当前正文对应（不要求 plainText 被查询出来）
+     */
+    private static boolean isLengthFresh(Scene scene) {
+        return scene.getPlainTextLength() != null
+                && scene.getPlainTextSourceHash() != null
+                && scene.getPlainTextSourceHash().equals(sourceHashOf(scene.getContent()));
+    }
+
+    /**
+     * 需要时重新计算投影（写入前调用）
+     *
+     * @return 同一个场景对象
+     */
+    public static Scene refresh(Scene scene) {
+        if (scene == null || isFresh(scene)) {
+            return scene;
+        }
+        String plain = convert(scene.getContent());
+        scene.setPlainText(plain);
+        scene.setPlainTextLength(plain.length());
+        scene.setPlainTextSourceHash(sourceHashOf(scene.getContent()));
+        return scene;
+    }
+
+    /**
+     * 场景正文的纯文本
+     */
+    public static String plainTextOf(Scene scene) {
+        if (scene == null) {
+            return "";
+        }
+        if (isFresh(scene)) {
+            return scene.getPlainText();
+        }
+        return convert(scene.getContent());
+    }
+
+    /**
+     * 场景正文纯文本的字符数
+     */
+    public static int plainTextLengthOf(Scene scene) {
+        if (scene == null) {
+            return 0;
+        }
+        if (isLengthFresh(scene)) {
+            return scene.getPlainTextLength();
+        }
+        return convert(scene.getContent()).length();
+    }
+
+    /**
+     * 场景正文是否有非空白文字
+     */
+    public static boolean hasText(Scene scene) {
+        return scene != null && scene.getContent() != null && !plainTextOf(scene).trim().isEmpty();
+    }
+
+    private static String convert(String content) {
+        return content == null || content.isEmpty() ? "" : RichTextUtil.deltaJsonToPlainText(content);
+    }
+}
@@ -0,0 +1,87 @@
+package com.ainovel.server.common.util;
+
+/**
+ * 字数统计工具：
+ * - 单次遍历、不分配中间字符串
+ * - 跳过HTML标签（与原先的 "<[^>]*>" 去除规则一致）
+ * - 中文按字计数（CJK统一汉字 0x4E00-0x9FA5）
+ * - 英文按空白或非ASCII字符分隔的词计数
+ * - 阅读时间按每分钟300字估算，非空内容最少1分钟
+ *
+ * 统计口径与原 MetadataService/NovelService 中基于正则的实现保持一致，
+ * 以便增量维护的字数与全量重算的结果可以直接比较。
+ */
+public final class WordCountUtil {
+
+    /**
+     * 每分钟阅读字数
+     */
+    public static final int WORDS_PER_MINUTE = 300;
+
+    private WordCountUtil() {}
+
+    /**
+     * 计算文本内容的字数
+     */
+    public static int countWords(CharSequence content) {
+        if (content == null) {
+            return 0;
+        }
+        int length = content.length();
+        int chineseCount = 0;
+        int englishWordCount = 0;
+        boolean inWord = false;
+        // 之后不再有 '>' 时，'<' 按普通字符处理，避免反复向后查找
+        boolean noMoreTagEnd = false;
+
+        for (int i = 0; i < length; i++) {
+            char c = content.charAt(i);
+            if (c == '<' && !noMoreTagEnd) {
+                int end = indexOf(content, '>', i + 1);
+                if (end >= 0) {
+                    // 标签被整体移除，不打断前后的单词
+                    i = end;
+                    continue;
+                }
+                noMoreTagEnd = true;
+            }
+            if (c < 0x80) {
+                if (isAsciiWhitespace(c)) {
+                    inWord = false;
+                } else if (!inWord) {
+                    inWord = true;
+                    englishWordCount++;
+                }
+            } else {
+                inWord = false;
+                if (c >= 0x4E00 && c <= 0x9FA5) {
+                    chineseCount++;
+                }
+            }
+        }
+        return chineseCount + englishWordCount;
+    }
+
+    /**
+     * 根据字数估算阅读时间（分钟）
+     */
+    public static int readTimeMinutes(int wordCount) {
+        if (wordCount <= 0) {
+            return 0;
+        }
+        return Math.max(1, wordCount / WORDS_PER_MINUTE);
+    }
+
+    private static boolean isAsciiWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B;
+    }
+
+    private static int indexOf(CharSequence content, char target, int from) {
+        for (int i = from, n = content.length(); i < n; i++) {
+            if (content.charAt(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
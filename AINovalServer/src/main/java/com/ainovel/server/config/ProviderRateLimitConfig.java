@@ -1,7 +1,11 @@
 package com.ainovel.server.config;
 
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Duration;
@@ -35,6 +39,18 @@ public class ProviderRateLimitConfig {
     @Builder.Default
     private final ConcurrentHashMap<String, Object> metrics = new ConcurrentHashMap<>();
     
+    // 限流键只由上面的不可变字段决定，首次计算后缓存，避免每次取许可都重新拼接
+    @Builder.Default
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final AtomicReference<String> rateLimiterKeyRef = new AtomicReference<>();
+    @Builder.Default
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final ConcurrentHashMap<String, String> scopedRateLimiterKeys = new ConcurrentHashMap<>(4);
+    
     /**
      * 获取当前有效的限流速率
      */
@@ -55,9 +71,29 @@ public class ProviderRateLimitConfig {
      * 获取限流器键值
      */
     public String getRateLimiterKey() {
-        RateLimitDimensionEnum.RateLimitKeyContext context = RateLimitDimensionEnum.RateLimitKeyContext.of(
-                provider.getCode(), userId, modelName, taskType);
-        return dimension.generateKey(context);
+        String key = rateLimiterKeyRef.get();
+        if (key == null) {
+            RateLimitDimensionEnum.RateLimitKeyContext context = RateLimitDimensionEnum.RateLimitKeyContext.of(
+                    provider.getCode(), userId, modelName, taskType);
+            key = dimension.generateKey(context);
+            rateLimiterKeyRef.compareAndSet(null, key);
+        }
+        return key;
+    }
+    
+    /**
+     * 获取带前缀的限流键（各限流策略在计数引擎中的键），同样只拼接一次
+     */
+    public String getScopedRateLimiterKey(String prefix) {
+        String key = scopedRateLimiterKeys.get(prefix);
+        if (key == null) {
+            key = prefix + getRateLimiterKey();
+            String existing = scopedRateLimiterKeys.putIfAbsent(prefix, key);
+            if (existing != null) {
+                key = existing;
+            }
+        }
+        return key;
     }
     
     /**
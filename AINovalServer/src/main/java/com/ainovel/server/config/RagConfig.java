@@ -36,6 +36,9 @@ public class RagConfig {
     @Value("${rag.retriever.min-score:0.6}")
     private double minScore;
 
+    @Value("${rag.embedding.concurrency:4}")
+    private int embeddingConcurrency;
+
     /**
      * 配置文档拆分器
      *
@@ -55,8 +58,8 @@ public class RagConfig {
      */
     @Bean
     public EmbeddingModel embeddingModel(EmbeddingService embeddingService) {
-        log.info("配置EmbeddingModel适配器");
-        return new LangChain4jEmbeddingModel(embeddingService);
+        log.info("配置EmbeddingModel适配器，批量并发数：{}", embeddingConcurrency);
+        return new LangChain4jEmbeddingModel(embeddingService, embeddingConcurrency);
     }
 
     /**
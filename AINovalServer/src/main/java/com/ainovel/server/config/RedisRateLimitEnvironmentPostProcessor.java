@@ -0,0 +1,49 @@
+package com.ainovel.server.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+/**
+ * Redis 自动配置开关
+ *
+ * spring-boot-starter-data-redis-reactive 始终在类路径上（供 {@code RedisRateLimitEngine} 使用），
+ * 为避免单机部署也创建 Redis 连接工厂、模板与健康检查，除非 task.ratelimiter.type=redis，
+ * 否则把 Redis 相关自动配置追加到 spring.autoconfigure.exclude 中
+ */
+public class RedisRateLimitEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    static final String RATE_LIMITER_TYPE_PROPERTY = "task.ratelimiter.type";
+    static final String EXCLUDE_PROPERTY = "spring.autoconfigure.exclude";
+    static final String PROPERTY_SOURCE_NAME = "redisRateLimitAutoConfigurationExclusions";
+
+    static final List<String> REDIS_AUTO_CONFIGURATIONS = List.of(
+            "org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.redis.RedisReactiveAutoConfiguration",
+            "org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration");
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if ("redis".equalsIgnoreCase(environment.getProperty(RATE_LIMITER_TYPE_PROPERTY))) {
+            return;
+        }
+        // 保留已有的排除项，只追加 Redis 相关的自动配置
+        List<String> exclusions = new ArrayList<>(Binder.get(environment)
+                .bind(EXCLUDE_PROPERTY, Bindable.listOf(String.class))
+                .orElse(List.of()));
+        for (String autoConfiguration : REDIS_AUTO_CONFIGURATIONS) {
+            if (!exclusions.contains(autoConfiguration)) {
+                exclusions.add(autoConfiguration);
+            }
+        }
+        environment.getPropertySources().addFirst(new MapPropertySource(PROPERTY_SOURCE_NAME,
+                Map.of(EXCLUDE_PROPERTY, String.join(",", exclusions))));
+    }
+}
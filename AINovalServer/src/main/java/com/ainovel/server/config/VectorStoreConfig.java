@@ -10,6 +10,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
 import com.ainovel.server.service.vectorstore.ChromaVectorStore;
+import com.ainovel.server.service.vectorstore.EmbeddingStoreIdentity;
 import com.ainovel.server.service.vectorstore.VectorStore;
 
 import dev.langchain4j.data.segment.TextSegment;
@@ -53,11 +54,28 @@ public class VectorStoreConfig {
         return new ChromaVectorStore(chromaUrl, collectionName, maxRetries, retryDelayMs);
     }
     
+    /**
+     * LangChain4j嵌入存储的身份，场景增量索引状态据此判断是否可以复用
+     * @param collectionNamePrefix 集合名前缀
+     * @param segmentCollection 片段集合名；未配置时每次启动使用随机集合名（重启后不会再被访问，视为非持久）
+     * @return 存储身份
+     */
+    @Bean
+    public EmbeddingStoreIdentity embeddingStoreIdentity(
+            @Value("${vectorstore.chroma.collection:ainovel}") String collectionNamePrefix,
+            @Value("${vectorstore.chroma.segment-collection:}") String segmentCollection) {
+
+        if (segmentCollection != null && !segmentCollection.isBlank()) {
+            return new EmbeddingStoreIdentity("chroma", segmentCollection, true);
+        }
+        String collectionName = collectionNamePrefix + "_" + UUID.randomUUID().toString().substring(0, 8);
+        return new EmbeddingStoreIdentity("chroma", collectionName, false);
+    }
+
     /**
      * 创建LangChain4j的Chroma嵌入存储
      * @param chromaUrl Chroma服务URL
-     * @param collectionName 集合名称
-     * @param useRandomCollection 是否使用随机集合名
+     * @param identity 存储身份（含集合名称）
      * @param timeout 超时设置
      * @param logRequests 是否记录请求日志
      * @param logResponses 是否记录响应日志
@@ -66,18 +84,15 @@ public class VectorStoreConfig {
     @Bean
     public EmbeddingStore<TextSegment> chromaEmbeddingStore(
             @Value("${vectorstore.chroma.url:http://localhost:18000}") String chromaUrl,
-            @Value("${vectorstore.chroma.collection:ainovel}") String collectionNamePrefix,
-            @Value("true") boolean useRandomCollection,
+            EmbeddingStoreIdentity identity,
             @Value("${vectorstore.chroma.timeout-seconds:5}") int timeoutSeconds,
             @Value("${vectorstore.chroma.log-requests:false}") boolean logRequests,
             @Value("${vectorstore.chroma.log-responses:false}") boolean logResponses) {
 
-        String collectionName = useRandomCollection
-                ? collectionNamePrefix + "_" + UUID.randomUUID().toString().substring(0, 8)
-                : collectionNamePrefix;
+        String collectionName = identity.name();
 
-        log.info("配置LangChain4j Chroma嵌入存储，URL: {}, 集合: {}, 超时: {}秒", 
-                chromaUrl, collectionName, timeoutSeconds);
+        log.info("配置LangChain4j Chroma嵌入存储，URL: {}, 集合: {}, 持久: {}, 超时: {}秒",
+                chromaUrl, collectionName, identity.persistent(), timeoutSeconds);
 
         return ChromaEmbeddingStore.builder()
                 .baseUrl(chromaUrl)
@@ -1,28 +1,49 @@
 package com.ainovel.server.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.ainovel.server.service.vectorstore.EmbeddedEmbeddingStore;
+import com.ainovel.server.service.vectorstore.EmbeddedVectorStore;
+import com.ainovel.server.service.vectorstore.EmbeddingStoreIdentity;
 import com.ainovel.server.service.vectorstore.VectorStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 /**
  * Fallback configuration when Chroma is disabled.
+ * Uses the embedded vector store unless vectorstore.embedded.enabled=false, in which case RAG storage is a no-op.
+ * The LangChain4j EmbeddingStore used by scene indexing and RAG retrieval is backed by a second embedded store,
+ * so indexed segments survive restarts; only with the embedded store disabled does it fall back to in-memory.
  */
 @Configuration
 @ConditionalOnProperty(name = "vectorstore.chroma.enabled", havingValue = "false")
 public class VectorStoreFallbackConfig {
 
+    // Embedded in-process vector store: per-novel partitions persisted to memory-mapped files
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "vectorstore.embedded.enabled", havingValue = "true", matchIfMissing = true)
+    public VectorStore embeddedVectorStore(
+            @Value("${vectorstore.embedded.path:./data/vectorstore}") String path,
+            @Value("${vectorstore.embedded.dimension:384}") int dimension) {
+        return new EmbeddedVectorStore(Paths.get(path), dimension, new ObjectMapper());
+    }
+
     // Provide a no-op VectorStore to satisfy business services depending on our interface
     @Bean
+    @ConditionalOnProperty(name = "vectorstore.embedded.enabled", havingValue = "false")
     public VectorStore noopVectorStore() {
         return new VectorStore() {
             @Override
@@ -67,8 +88,33 @@ public class VectorStoreFallbackConfig {
         };
     }
 
+    // Segment store for IndexingService and the RAG content retriever, kept in its own directory
+    // so that purging a novel's segments never touches knowledge chunks in the store above
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "vectorstore.embedded.enabled", havingValue = "true", matchIfMissing = true)
+    public EmbeddingStore<TextSegment> embeddedEmbeddingStore(
+            @Value("${vectorstore.embedded.segment-path:./data/vectorstore-segments}") String path,
+            @Value("${vectorstore.embedded.segment-dimension:${vectorstore.embedded.dimension:384}}") int dimension) {
+        return new EmbeddedEmbeddingStore(new EmbeddedVectorStore(Paths.get(path), dimension, new ObjectMapper()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "vectorstore.embedded.enabled", havingValue = "true", matchIfMissing = true)
+    public EmbeddingStoreIdentity embeddedEmbeddingStoreIdentity(
+            @Value("${vectorstore.embedded.segment-path:./data/vectorstore-segments}") String path) {
+        return new EmbeddingStoreIdentity("embedded", Paths.get(path).toAbsolutePath().normalize().toString(), true);
+    }
+
+    // The in-memory store loses everything on restart, so scene index states must not be reused against it
+    @Bean
+    @ConditionalOnProperty(name = "vectorstore.embedded.enabled", havingValue = "false")
+    public EmbeddingStoreIdentity inMemoryEmbeddingStoreIdentity() {
+        return new EmbeddingStoreIdentity("in-memory", UUID.randomUUID().toString(), false);
+    }
+
     // Provide a minimal EmbeddingStore so RagConfig can still build ContentRetriever without Chroma
     @Bean
+    @ConditionalOnProperty(name = "vectorstore.embedded.enabled", havingValue = "false")
     public EmbeddingStore<TextSegment> fallbackEmbeddingStore() {
         return new InMemoryEmbeddingStore<>();
     }
@@ -447,6 +447,24 @@ public class AdminLLMObservabilityController {
                         .body(ApiResponse.error("清理日志失败")));
     }
 
+    /**
+     * 重建调用量预聚合数据
+     */
+    @PostMapping("/statistics/rollups/rebuild")
+    @Operation(summary = "重建调用量预聚合", description = "清空并按现有LLM调用日志重建统计所用的小时/天预聚合数据")
+    public Mono<ResponseEntity<ApiResponse<Map<String, Object>>>> rebuildUsageRollups(@CurrentUser String adminId) {
+        log.info("管理员 {} 重建LLM调用量预聚合数据", adminId);
+        
+        return llmTraceService.rebuildUsageRollups()
+                .map(count -> {
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("traceCount", count);
+                    return ResponseEntity.ok(ApiResponse.success(response));
+                })
+                .onErrorReturn(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(ApiResponse.error("重建预聚合数据失败")));
+    }
+
     /**
      * 获取系统健康状态
      */
@@ -1,6 +1,7 @@
 package com.ainovel.server.controller;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -255,6 +256,20 @@ public class AdminModelConfigController {
                 });
     }
     
+    /**
+     * 获取配置下各API Key的健康统计
+     * 返回成功率、延迟、连续失败次数与当前轮询权重，不含Key明文
+     */
+    @GetMapping("/{id}/key-stats")
+    public Mono<ResponseEntity<ApiResponse<List<Map<String, Object>>>>> getApiKeyStats(@PathVariable String id) {
+        return publicModelConfigService.getApiKeyStats(id)
+                .map(stats -> ResponseEntity.ok(ApiResponse.success(stats)))
+                .onErrorResume(e -> {
+                    log.error("获取API Key健康统计失败: {}", id, e);
+                    return Mono.just(ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage())));
+                });
+    }
+    
     /**
      * 状态请求DTO
      */
@@ -11,6 +11,7 @@ import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -42,6 +43,24 @@ public class Scene {
 
     private String content;
 
+    /**
+     * 正文的纯文本投影，写入时由 ScenePlainTextUtil 维护，供提示词组装等读取方直接使用
+     */
+    @JsonIgnore
+    private String plainText;
+
+    /**
+     * 纯文本字符数
+     */
+    @JsonIgnore
+    private Integer plainTextLength;
+
+    /**
+     * 生成投影时正文的指纹（SHA-256 十六进制），用于判断投影是否仍与正文对应
+     */
+    @JsonIgnore
+    private String plainTextSourceHash;
+
     private String summary;
 
     /**
@@ -71,6 +90,10 @@ public class Scene {
 
     private int version;
 
+    /**
+     * 旧版内嵌历史记录，仅用于读取尚未迁移的数据。
+     * 历史版本现在以增量形式保存在 scene_revisions 集合中，见 {@link SceneRevision}。
+     */
     @Builder.Default
     private List<HistoryEntry> history = new ArrayList<>();
 
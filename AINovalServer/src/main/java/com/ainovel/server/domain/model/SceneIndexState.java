@@ -0,0 +1,67 @@
+package com.ainovel.server.domain.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 场景向量索引状态
+ *
+ * 记录场景每个已嵌入片段的内容哈希和在向量存储中的ID，重新索引时只嵌入哈希发生变化的片段，
+ * 并删除已不存在的片段对应的向量。文档ID与场景ID相同。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "scene_index_states")
+public class SceneIndexState {
+
+    @Id
+    private String id;
+
+    @Indexed
+    private String novelId;
+
+    /**
+     * 写入这些向量的嵌入存储标识（{@code EmbeddingStoreIdentity#key()}），与当前存储不一致时状态作废
+     */
+    private String storeKey;
+
+    /**
+     * 已索引的片段，顺序与场景内容中的片段顺序一致
+     */
+    @Builder.Default
+    private List<ChunkEntry> chunks = new ArrayList<>();
+
+    private LocalDateTime updatedAt;
+
+    /**
+     * 已索引的片段
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ChunkEntry {
+
+        /**
+         * 片段内容哈希（SHA-256）
+         */
+        private String hash;
+
+        /**
+         * 向量存储中的嵌入ID
+         */
+        private String embeddingId;
+    }
+}
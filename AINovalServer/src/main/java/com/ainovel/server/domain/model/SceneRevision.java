@@ -0,0 +1,97 @@
+package com.ainovel.server.domain.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 场景修订记录（只追加的增量历史存储）
+ *
+ * 每条记录对应一次场景内容变更前的版本。为了控制存储体积，大部分修订只保存相对于
+ * 上一个有内容修订的差异（delta），并按固定间隔保存完整快照（snapshot），
+ * 重建某个版本时从最近的快照开始依次应用差异即可。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "scene_revisions")
+@CompoundIndexes({
+    @CompoundIndex(name = "scene_revision_idx", def = "{'sceneId': 1, 'revision': 1}", unique = true)
+})
+public class SceneRevision {
+
+    @Id
+    private String id;
+
+    private String sceneId;
+
+    @Indexed
+    private String novelId;
+
+    /**
+     * 修订序号，从0开始，与历史记录索引一一对应
+     */
+    private int revision;
+
+    /**
+     * 是否为完整快照
+     */
+    private boolean snapshot;
+
+    /**
+     * 是否为无内容的标记记录（例如"恢复到历史版本"的说明记录）
+     */
+    private boolean marker;
+
+    /**
+     * 完整内容，仅快照记录保存
+     */
+    private String content;
+
+    /**
+     * 相对上一个有内容修订的差异，仅增量记录保存
+     */
+    @Builder.Default
+    private List<DeltaOp> delta = new ArrayList<>();
+
+    /**
+     * 该版本内容的字符长度
+     */
+    private Integer contentLength;
+
+    private String updatedBy;
+
+    private String reason;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS")
+    private LocalDateTime updatedAt;
+
+    /**
+     * 差异操作：将基准内容中从 position 开始的 size 个片段替换为 tokens
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DeltaOp {
+
+        private int position;
+        private int size;
+        @Builder.Default
+        private List<String> tokens = new ArrayList<>();
+    }
+}
@@ -82,6 +82,12 @@ public class User {
     @Builder.Default
     private Long totalCreditsUsed = 0L;
     
+    /**
+     * 已扣减、尚未写入 credit_settlements 结算记录的批次ID（与扣减在同一次更新中写入，结算记录落库后移除）
+     */
+    @Builder.Default
+    private List<String> settlingCreditBatchIds = new ArrayList<>();
+    
     /**
      * 当前有效订阅ID
      */
@@ -0,0 +1,39 @@
+package com.ainovel.server.domain.model.billing;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 积分结算记录：某个结算批次对某个用户的一次合并扣减
+ *
+ * 每个 (batchId, userId) 只有一条，写入后永久保留，作为批次重放时是否已扣减的依据
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "credit_settlements")
+@CompoundIndex(name = "batch_user_unique", def = "{'batchId': 1, 'userId': 1}", unique = true)
+public class CreditSettlement {
+    @Id
+    private String id;
+
+    private String batchId;
+    private String userId;
+    private Long amount;
+
+    @Builder.Default
+    private Instant settledAt = Instant.now();
+
+    public static String idOf(String batchId, String userId) {
+        return batchId + ":" + userId;
+    }
+}
@@ -33,7 +33,7 @@ public class CreditTransaction {
     private Long creditsDeducted;
 
     @Indexed
-    private String status; // PENDING, DEDUCTED, FAILED, COMPENSATED, ADJUSTED
+    private String status; // PENDING, SETTLING, DEDUCTED, FAILED, COMPENSATED, ADJUSTED
     private String errorMessage;
 
     // 计费模式：ACTUAL=基于真实用量；ESTIMATED=基于估算；ADJUSTMENT=差额调整
@@ -41,6 +41,9 @@ public class CreditTransaction {
     // 向后兼容标识（可选）：是否为估算
     private Boolean estimated;
 
+    // 批量结算批次ID（CreditLedger 落账时写入，用于故障后按批次重放）
+    private String settlementBatchId;
+
     // 冲正支持：若为冲正记录，指向被冲正的原交易traceId
     private String reversalOfTraceId;
     // 审计：操作人/原因
@@ -126,6 +126,13 @@ public class LLMTrace {
     @Builder.Default
     private Instant createdAt = Instant.now();
 
+    /**
+     * 请求/响应消息正文的外部存储位置；为空表示正文仍内联在本文档中。
+     * 不为空时 request.messages 与 response.message 在集合中为空，按需由 TracePayloadStore 加载
+     */
+    @Indexed(sparse = true)
+    private String payloadRef;
+
     /**
      * 调用类型枚举
      */
@@ -0,0 +1,100 @@
+package com.ainovel.server.domain.model.observability;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * LLM调用量预聚合数据
+ * 按小时/天、用户、提供商、模型、业务类型维度累计调用次数、错误数、Token 和延迟分布，
+ * 统计类接口只读取这些计数，耗时与原始追踪记录的数量无关。
+ *
+ * 计数在追踪记录保存时以 $inc 增量维护，同一 traceId 的重复保存只累计与上次保存的差值。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "llm_usage_rollups")
+@CompoundIndexes({
+    @CompoundIndex(name = "granularity_bucket_idx", def = "{'granularity': 1, 'bucketStart': 1}"),
+    @CompoundIndex(name = "user_granularity_bucket_idx", def = "{'userId': 1, 'granularity': 1, 'bucketStart': 1}")
+})
+public class LLMUsageRollup {
+
+    /**
+     * 时间粒度
+     */
+    public enum Granularity {
+        HOUR,
+        DAY
+    }
+
+    /**
+     * 由粒度、桶起始时间和各维度拼接而成，保证同一维度组合只有一条记录
+     */
+    @Id
+    private String id;
+
+    private Granularity granularity;
+
+    /**
+     * 时间桶起始时间（按服务器时区对齐到整点/零点）
+     */
+    private Instant bucketStart;
+
+    private String userId;
+    private String provider;
+    private String model;
+    private String businessType;
+
+    /**
+     * 调用次数与失败次数
+     */
+    private long calls;
+    private long errors;
+
+    /**
+     * Token 使用量
+     */
+    private long inputTokens;
+    private long outputTokens;
+    private long totalTokens;
+
+    /**
+     * 总耗时（performance.totalDurationMs）统计
+     */
+    private long latencyCount;
+    private long latencySumMs;
+    private Long latencyMinMs;
+    private Long latencyMaxMs;
+
+    /**
+     * 超过 5 秒的慢调用次数
+     */
+    private long slowCalls;
+
+    /**
+     * 请求延迟与首 Token 延迟统计
+     */
+    private long requestLatencyCount;
+    private long requestLatencySumMs;
+    private long firstTokenLatencyCount;
+    private long firstTokenLatencySumMs;
+
+    /**
+     * 总耗时分位数草图：桶序号 -> 次数（分桶规则见 LatencySketch，按桶相加即可合并）
+     */
+    @Builder.Default
+    private Map<String, Long> latencySketch = new HashMap<>();
+}
@@ -1,5 +1,7 @@
 package com.ainovel.server.repository;
 
+import java.util.Collection;
+
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
@@ -70,4 +72,12 @@ public interface BackgroundTaskRepository extends ReactiveMongoRepository<Backgr
      * @return 符合条件的任务流
      */
     Flux<BackgroundTask> findByStatusAndExecutionNodeId(TaskStatus status, String executionNodeId);
-} 
\ No newline at end of file
+    
+    /**
+     * 查找处于指定状态之一的任务，支持分页（用于本地队列启动恢复）
+     * @param statuses 任务状态集合
+     * @param pageable 分页与排序参数
+     * @return 符合条件的任务流
+     */
+    Flux<BackgroundTask> findByStatusIn(Collection<TaskStatus> statuses, Pageable pageable);
+} 
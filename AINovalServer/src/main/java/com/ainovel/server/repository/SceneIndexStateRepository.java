@@ -0,0 +1,23 @@
+package com.ainovel.server.repository;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.ainovel.server.domain.model.SceneIndexState;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 场景向量索引状态仓库
+ */
+@Repository
+public interface SceneIndexStateRepository extends ReactiveMongoRepository<SceneIndexState, String> {
+
+    /**
+     * 删除小说下所有场景的索引状态
+     *
+     * @param novelId 小说ID
+     * @return 操作完成指示
+     */
+    Mono<Void> deleteByNovelId(String novelId);
+}
@@ -2,6 +2,7 @@ package com.ainovel.server.repository;
 
 import java.util.List;
 
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -12,6 +13,8 @@ import reactor.core.publisher.Mono;
 
 /**
  * 场景仓库接口
+ * 列表查询统一排除旧版内嵌的 history 字段，历史版本请通过 SceneRevisionService 读取；
+ * 纯文本投影 plainText 与正文等长，列表查询同样不取出，需要整段纯文本的渲染路径使用 {@link #findWithPlainTextByChapterIdIn}
  */
 @Repository
 public interface SceneRepository extends ReactiveMongoRepository<Scene, String> {
@@ -21,6 +24,7 @@ public interface SceneRepository extends ReactiveMongoRepository<Scene, String>
      * @param novelId 小说ID
      * @return 场景列表
      */
+    @Query(value = "{ 'novelId': ?0 }", fields = "{ 'history': 0, 'plainText': 0 }")
     Flux<Scene> findByNovelId(String novelId);
 
     /**
@@ -28,6 +32,7 @@ public interface SceneRepository extends ReactiveMongoRepository<Scene, String>
      * @param chapterId 章节ID
      * @return 场景列表
      */
+    @Query(value = "{ 'chapterId': ?0 }", fields = "{ 'history': 0, 'plainText': 0 }")
     Flux<Scene> findByChapterId(String chapterId);
 
     /**
@@ -35,6 +40,7 @@ public interface SceneRepository extends ReactiveMongoRepository<Scene, String>
      * @param chapterId 章节ID
      * @return 排序后的场景列表
      */
+    @Query(value = "{ 'chapterId': ?0 }", fields = "{ 'history': 0, 'plainText': 0 }", sort = "{ 'sequence': 1 }")
     Flux<Scene> findByChapterIdOrderBySequenceAsc(String chapterId);
 
     /**
@@ -42,6 +48,7 @@ public interface SceneRepository extends ReactiveMongoRepository<Scene, String>
      * @param novelId 小说ID
      * @return 排序后的场景列表
      */
+    @Query(value = "{ 'novelId': ?0 }", fields = "{ 'history': 0, 'plainText': 0 }", sort = "{ 'chapterId': 1, 'sequence': 1 }")
     Flux<Scene> findByNovelIdOrderByChapterIdAscSequenceAsc(String novelId);
 
     /**
@@ -49,14 +56,24 @@ public interface SceneRepository extends ReactiveMongoRepository<Scene, String>
      * @param chapterIds 章节ID列表
      * @return 场景列表
      */
+    @Query(value = "{ 'chapterId': { $in: ?0 } }", fields = "{ 'history': 0, 'plainText': 0 }")
     Flux<Scene> findByChapterIdIn(List<String> chapterIds);
 
+    /**
+     * 根据章节ID列表查找场景，保留纯文本投影（用于全文渲染）
+     * @param chapterIds 章节ID列表
+     * @return 场景列表
+     */
+    @Query(value = "{ 'chapterId': { $in: ?0 } }", fields = "{ 'history': 0 }")
+    Flux<Scene> findWithPlainTextByChapterIdIn(List<String> chapterIds);
+
     /**
      * 根据小说ID和场景类型查找场景
      * @param novelId 小说ID
      * @param sceneType 场景类型
      * @return 场景列表
      */
+    @Query(value = "{ 'novelId': ?0, 'sceneType': ?1 }", fields = "{ 'history': 0, 'plainText': 0 }")
     Flux<Scene> findByNovelIdAndSceneType(String novelId, String sceneType);
 
     /**
@@ -0,0 +1,72 @@
+package com.ainovel.server.repository;
+
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+
+import com.ainovel.server.domain.model.SceneRevision;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 场景修订记录仓库接口
+ */
+@Repository
+public interface SceneRevisionRepository extends ReactiveMongoRepository<SceneRevision, String> {
+
+    /**
+     * 按修订序号升序获取场景的全部修订
+     * @param sceneId 场景ID
+     * @return 修订列表
+     */
+    Flux<SceneRevision> findBySceneIdOrderByRevisionAsc(String sceneId);
+
+    /**
+     * 获取场景的最新修订
+     * @param sceneId 场景ID
+     * @return 最新修订
+     */
+    Mono<SceneRevision> findFirstBySceneIdOrderByRevisionDesc(String sceneId);
+
+    /**
+     * 获取不晚于指定序号的最近一个快照
+     * @param sceneId 场景ID
+     * @param revision 修订序号
+     * @return 快照修订
+     */
+    Mono<SceneRevision> findFirstBySceneIdAndSnapshotTrueAndRevisionLessThanEqualOrderByRevisionDesc(String sceneId, int revision);
+
+    /**
+     * 获取指定序号区间（闭区间）内的修订
+     * @param sceneId 场景ID
+     * @param from 起始序号
+     * @param to 结束序号
+     * @return 修订列表
+     */
+    @Query(value = "{ 'sceneId': ?0, 'revision': { $gte: ?1, $lte: ?2 } }", sort = "{ 'revision': 1 }")
+    Flux<SceneRevision> findRevisionRange(String sceneId, int from, int to);
+
+    /**
+     * 删除场景的所有修订
+     * @param sceneId 场景ID
+     * @return 操作结果
+     */
+    Mono<Void> deleteBySceneId(String sceneId);
+
+    /**
+     * 批量删除多个场景的修订
+     * @param sceneIds 场景ID列表
+     * @return 操作结果
+     */
+    Mono<Void> deleteBySceneIdIn(List<String> sceneIds);
+
+    /**
+     * 删除小说的所有修订
+     * @param novelId 小说ID
+     * @return 操作结果
+     */
+    Mono<Void> deleteByNovelId(String novelId);
+}
@@ -36,6 +36,17 @@ public interface CreditService {
      */
     Mono<Long> getUserCredits(String userId);
     
+    /**
+     * 获取用户可用积分（用于调用前的余额预检查）
+     * 已扣除尚未落账的待结算积分，通常直接由内存中的余额缓存给出
+     * 
+     * @param userId 用户ID
+     * @return 可用积分
+     */
+    default Mono<Long> getAvailableCredits(String userId) {
+        return getUserCredits(userId);
+    }
+    
     /**
      * 计算AI功能调用的积分成本
      * 
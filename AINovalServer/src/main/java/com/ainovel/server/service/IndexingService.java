@@ -77,4 +77,21 @@ public interface IndexingService {
      * @return 是否成功标记为取消
      */
     boolean cancelIndexingTask(String taskId);
+
+    /**
+     * 获取正在进行的小说索引任务的进度
+     *
+     * @param taskId 任务ID（小说ID）
+     * @return 索引进度，任务不存在或已结束时返回null
+     */
+    IndexingProgress getIndexingProgress(String taskId);
+
+    /**
+     * 索引进度
+     *
+     * @param totalSegments 待索引的片段总数
+     * @param processedSegments 已处理的片段数
+     * @param storedSegments 已写入向量存储的片段数
+     */
+    record IndexingProgress(int totalSegments, int processedSegments, int storedSegments) {}
 }
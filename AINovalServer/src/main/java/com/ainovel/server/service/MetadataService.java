@@ -28,12 +28,29 @@ public interface MetadataService {
 
     /**
      * 计算并更新小说的元数据（如总字数、阅读时间等）
+     * 基于场景已保存的字数在数据库端求和，仅为缺失字数的场景重新统计内容，且只在结果变化时写入
      *
      * @param novelId 小说ID
      * @return 更新后的小说
      */
     Mono<Novel> updateNovelMetadata(String novelId);
 
+    /**
+     * 将场景字数的变化量原子累加到小说元数据（$inc），并同步维护阅读时间与最后编辑时间
+     *
+     * @param novelId 小说ID
+     * @param delta 字数变化量
+     * @return 操作完成指示
+     */
+    Mono<Void> applyWordCountDelta(String novelId, int delta);
+
+    /**
+     * 扫描所有小说，仅对场景字数之和与小说元数据不一致的小说执行修复
+     *
+     * @return 修复的小说数量
+     */
+    Mono<Long> repairDriftedWordCounts();
+
     /**
      * 根据场景内容变更触发小说元数据更新
      *
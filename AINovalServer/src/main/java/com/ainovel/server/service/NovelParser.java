@@ -1,7 +1,9 @@
 package com.ainovel.server.service;
 
 import com.ainovel.server.domain.dto.ParsedNovelData;
+import com.ainovel.server.domain.dto.ParsedSceneData;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.stream.Stream;
@@ -19,6 +21,18 @@ public interface NovelParser {
      * @return 解析后的小说数据
      */
     ParsedNovelData parseStream(Stream<String> lines);
+
+    /**
+     * 以流的方式逐章解析，每解析完一个章节立即发出，不在内存中保留整本小说
+     * 默认实现退化为整体解析后再逐个发出，解析器可覆盖以实现真正的增量解析
+     *
+     * @param lines 文本行流
+     * @return 按顺序发出的章节数据
+     */
+    default Flux<ParsedSceneData> parseAsFlux(Stream<String> lines) {
+        return Mono.fromCallable(() -> parseStream(lines))
+                .flatMapIterable(ParsedNovelData::getScenes);
+    }
     
     /**
      * 获取支持的文件扩展名
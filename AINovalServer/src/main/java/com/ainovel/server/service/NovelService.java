@@ -424,6 +424,16 @@ public interface NovelService {
      */
     Flux<Scene> findScenesByNovelIdInOrder(String novelId);
 
+    /**
+     * 按小说结构顺序流式获取场景（不含历史版本）
+     * 按章节分批查询并逐批下发，下游取消订阅后不再查询后续章节，适合带长度预算的全文渲染
+     *
+     * @param novel 小说（使用其结构确定章节顺序）
+     * @param chapterBatchSize 每批查询的章节数
+     * @return 按卷顺序 -> 章节顺序 -> 场景sequence排列的场景流
+     */
+    Flux<Scene> streamScenesInOrder(Novel novel, int chapterBatchSize);
+
     /**
      * 获取小说结构包含索引（章节/场景包含关系），异步缓存。
      */
@@ -1,6 +1,7 @@
 package com.ainovel.server.service;
 
 import java.util.List;
+import java.util.Map;
 
 import com.ainovel.server.controller.AdminModelConfigController.CreditRateUpdate;
 import com.ainovel.server.domain.model.AIFeatureType;
@@ -148,6 +149,25 @@ public interface PublicModelConfigService {
      * @return 解密后的API Key
      */
     Mono<String> getActiveDecryptedApiKey(String provider, String modelId);
+
+    /**
+     * 上报一次使用公共模型API Key的调用结果，用于Key轮询时按成功率与延迟调整权重
+     * 
+     * @param provider 提供商
+     * @param modelId 模型ID
+     * @param apiKey 调用时使用的（解密后的）API Key
+     * @param success 调用是否成功
+     * @param latencyMillis 调用耗时（毫秒）
+     */
+    void reportApiKeyResult(String provider, String modelId, String apiKey, boolean success, long latencyMillis);
+
+    /**
+     * 获取配置下各API Key当前的健康统计（成功率、延迟、权重等，不含Key明文）
+     * 
+     * @param configId 配置ID
+     * @return 每个Key一项统计
+     */
+    Mono<List<Map<String, Object>>> getApiKeyStats(String configId);
     
     /**
      * 为配置添加API Key
@@ -0,0 +1,93 @@
+package com.ainovel.server.service;
+
+import java.util.List;
+
+import com.ainovel.server.domain.model.Scene;
+import com.ainovel.server.domain.model.Scene.HistoryEntry;
+import com.ainovel.server.domain.model.SceneRevision;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 场景修订服务接口 负责场景历史版本的增量存储与重建
+ */
+public interface SceneRevisionService {
+
+    /**
+     * 追加一条修订，记录场景变更前的内容
+     *
+     * @param scene 场景（用于获取场景ID和小说ID）
+     * @param previousContent 变更前的内容
+     * @param updatedBy 操作人
+     * @param reason 变更原因
+     * @return 保存的修订
+     */
+    Mono<SceneRevision> appendRevision(Scene scene, String previousContent, String updatedBy, String reason);
+
+    /**
+     * 追加一条不含内容的标记修订
+     *
+     * @param scene 场景
+     * @param updatedBy 操作人
+     * @param reason 说明
+     * @return 保存的修订
+     */
+    Mono<SceneRevision> appendMarker(Scene scene, String updatedBy, String reason);
+
+    /**
+     * 重建场景的全部历史记录
+     *
+     * @param sceneId 场景ID
+     * @return 历史记录列表，索引与修订序号一致
+     */
+    Mono<List<HistoryEntry>> getHistory(String sceneId);
+
+    /**
+     * 重建指定序号的历史版本
+     *
+     * @param sceneId 场景ID
+     * @param revision 修订序号
+     * @return 历史记录，序号无效时返回IllegalArgumentException
+     */
+    Mono<HistoryEntry> getRevision(String sceneId, int revision);
+
+    /**
+     * 将场景文档中内嵌的旧历史记录迁移到修订集合，并从场景文档中移除
+     *
+     * @param scene 包含内嵌历史记录的场景
+     * @return 操作完成指示
+     */
+    Mono<Void> migrateEmbeddedHistory(Scene scene);
+
+    /**
+     * 迁移所有仍包含内嵌历史记录的场景。
+     * 按 _id 分批处理，每批完成后把游标写入 migration_markers，中断后从游标续跑；全部完成后不再扫描
+     *
+     * @return 本次迁移的场景数量
+     */
+    Mono<Long> migrateAllEmbeddedHistories();
+
+    /**
+     * 删除场景的所有修订
+     *
+     * @param sceneId 场景ID
+     * @return 操作完成指示
+     */
+    Mono<Void> deleteBySceneId(String sceneId);
+
+    /**
+     * 删除多个场景的所有修订
+     *
+     * @param sceneIds 场景ID列表
+     * @return 操作完成指示
+     */
+    Mono<Void> deleteBySceneIds(List<String> sceneIds);
+
+    /**
+     * 删除小说的所有修订
+     *
+     * @param novelId 小说ID
+     * @return 操作完成指示
+     */
+    Mono<Void> deleteByNovelId(String novelId);
+}
@@ -42,4 +42,13 @@ public interface TokenEstimationService {
      * @return 估算的Token数量
      */
     Mono<Long> estimateTokensByWordCount(Integer wordCount, String modelName);
+
+    /**
+     * 使用进程内分词器计算文本的Token数量
+     *
+     * @param text 文本
+     * @param modelName 模型名称（用于选择分词词表）
+     * @return Token数量
+     */
+    Mono<Long> estimateTextTokens(String text, String modelName);
 } 
\ No newline at end of file
@@ -105,4 +105,11 @@ public interface AIModelProvider {
      * @return API端点
      */
     String getApiEndpoint();
+
+    /**
+     * 释放实例持有的底层资源（HTTP 客户端、连接池等）
+     * 由提供商实例池在实例被淘汰时调用；默认无需释放
+     */
+    default void close() {
+    }
 }
\ No newline at end of file
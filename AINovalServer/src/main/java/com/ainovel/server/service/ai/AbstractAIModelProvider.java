@@ -1,18 +1,26 @@
 package com.ainovel.server.service.ai;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+import org.springframework.http.client.reactive.ClientHttpConnector;
+
 import com.ainovel.server.domain.model.AIRequest;
 import com.ainovel.server.domain.model.AIResponse;
 import com.ainovel.server.domain.model.AIResponse.TokenUsage;
+import com.ainovel.server.service.ai.http.OutboundHttpClientRegistry;
 
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 /**
  * 抽象AI模型提供商基类
  */
+@Slf4j
 public abstract class AbstractAIModelProvider implements AIModelProvider {
     
     @Getter
@@ -33,6 +41,12 @@ public abstract class AbstractAIModelProvider implements AIModelProvider {
     protected int proxyPort;
     
     protected boolean proxyEnabled;
+
+    // 是否通过 setProxy 为当前实例单独指定了代理（此时不走共享出站连接池）
+    private boolean customProxy;
+
+    // 不走共享出站连接池时本实例独占的连接池；重建客户端、切回共享连接池或实例释放时销毁
+    private ConnectionProvider ownedConnections;
     
     /**
      * 构造函数
@@ -58,6 +72,7 @@ public abstract class AbstractAIModelProvider implements AIModelProvider {
         this.proxyHost = host;
         this.proxyPort = port;
         this.proxyEnabled = true;
+        this.customProxy = true;
     }
     
     /**
@@ -65,6 +80,55 @@ public abstract class AbstractAIModelProvider implements AIModelProvider {
      */
     public void disableProxy() {
         this.proxyEnabled = false;
+        this.customProxy = false;
+    }
+
+    /**
+     * 共享出站连接池的 WebClient 连接器（按上游主机共享连接，统一应用 ProxyConfig）
+     * 实例单独指定了代理或处于 Spring 容器外时返回 null，调用方按原逻辑自建客户端
+     *
+     * @param baseUrl 上游地址
+     * @param responseTimeout 响应超时，null 表示不限制
+     */
+    protected ClientHttpConnector sharedConnector(String baseUrl, Duration responseTimeout) {
+        OutboundHttpClientRegistry registry = OutboundHttpClientRegistry.current();
+        if (registry == null || customProxy) {
+            return null;
+        }
+        releaseOwnedConnections();
+        return registry.connector(baseUrl, responseTimeout);
+    }
+
+    /**
+     * 本实例独占连接池的 HTTP 客户端，供 {@link #sharedConnector} 返回 null 时自建 WebClient 使用
+     * 每次调用都会替换（并销毁）上一次创建的连接池，进行中的请求在销毁超时内仍可完成
+     */
+    protected synchronized HttpClient ownedHttpClient() {
+        releaseOwnedConnections();
+        ownedConnections = ConnectionProvider.builder("ai-" + providerName + "-" + modelName)
+                .maxIdleTime(Duration.ofSeconds(60))
+                .disposeTimeout(Duration.ofSeconds(60))
+                .build();
+        return HttpClient.create(ownedConnections);
+    }
+
+    /**
+     * 销毁本实例独占的连接池（共享出站连接池由注册表管理，不在此释放）
+     */
+    @Override
+    public void close() {
+        releaseOwnedConnections();
+    }
+
+    private synchronized void releaseOwnedConnections() {
+        if (ownedConnections == null) {
+            return;
+        }
+        ConnectionProvider connections = ownedConnections;
+        ownedConnections = null;
+        connections.disposeLater().subscribe(
+                null,
+                e -> log.warn("释放提供商连接池失败: provider={}, model={}, error={}", providerName, modelName, e.getMessage()));
     }
     
     /**
@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
@@ -60,7 +61,10 @@ public class AnthropicModelProvider extends AbstractAIModelProvider {
                 .defaultHeader("anthropic-version", "2023-06-01")
                 .defaultHeader("Content-Type", "application/json");
         
-        if (proxyEnabled) {
+        ClientHttpConnector sharedConnector = sharedConnector(getApiEndpoint(DEFAULT_API_ENDPOINT), null);
+        if (sharedConnector != null) {
+            builder.clientConnector(sharedConnector);
+        } else if (proxyEnabled) {
             try {
                 // 配置SSL上下文
                 SslContext sslContext = SslContextBuilder
@@ -69,7 +73,7 @@ public class AnthropicModelProvider extends AbstractAIModelProvider {
                         .build();
                 
                 // 配置HTTP客户端
-                HttpClient httpClient = HttpClient.create()
+                HttpClient httpClient = ownedHttpClient()
                         .secure(t -> t.sslContext(sslContext))
                         .proxy(spec -> spec
                                 .type(ProxyProvider.Proxy.HTTP)
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
@@ -54,11 +55,13 @@ public class GeminiModelProvider extends AbstractAIModelProvider {
      * 初始化WebClient
      */
     private void initWebClient() {
-        HttpClient httpClient = HttpClient.create()
+        ClientHttpConnector sharedConnector = sharedConnector(this.apiUrl, Duration.ofSeconds(5));
+        // 不走共享连接池时使用本实例独占的连接池，实例释放（close）时随之销毁
+        HttpClient httpClient = sharedConnector != null ? null : ownedHttpClient()
                 .responseTimeout(Duration.ofSeconds(5)) // 设置响应超时
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000); // 设置连接超时
         
-        if (proxyEnabled) {
+        if (sharedConnector == null && proxyEnabled) {
             try {
                 // 配置SSL上下文
                 SslContext sslContext = SslContextBuilder
@@ -82,7 +85,7 @@ public class GeminiModelProvider extends AbstractAIModelProvider {
         
         this.webClient = WebClient.builder()
                 .baseUrl(this.apiUrl)
-                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .clientConnector(sharedConnector != null ? sharedConnector : new ReactorClientHttpConnector(httpClient))
                 .build();
     }
     
@@ -10,6 +10,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
@@ -105,11 +106,13 @@ public class GrokModelProvider extends AbstractAIModelProvider {
      * 初始化WebClient
      */
     private void initWebClient() {
-        HttpClient httpClient = HttpClient.create()
+        ClientHttpConnector sharedConnector = sharedConnector(getApiEndpoint(DEFAULT_API_ENDPOINT), Duration.ofSeconds(120));
+        // 不走共享连接池时使用本实例独占的连接池，实例释放（close）时随之销毁
+        HttpClient httpClient = sharedConnector != null ? null : ownedHttpClient()
                 .responseTimeout(Duration.ofSeconds(120)) // 设置响应超时
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 10000); // 设置连接超时
         
-        if (proxyEnabled) {
+        if (sharedConnector == null && proxyEnabled) {
             try {
                 // 先检查是否有ProxyConfig
                 if (proxyConfig != null && proxyConfig.isEnabled()) {
@@ -153,7 +156,7 @@ public class GrokModelProvider extends AbstractAIModelProvider {
         
         this.webClient = WebClient.builder()
                 .baseUrl(baseUrl)
-                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .clientConnector(sharedConnector != null ? sharedConnector : new ReactorClientHttpConnector(httpClient))
                 .build();
         
         log.info("Grok Provider: WebClient已初始化，基础URL: {}", baseUrl);
@@ -554,10 +557,13 @@ public class GrokModelProvider extends AbstractAIModelProvider {
             String baseUrl = apiEndpoint != null && !apiEndpoint.trim().isEmpty() ?
                     apiEndpoint : DEFAULT_API_ENDPOINT;
             
-            // 创建WebClient
-            WebClient tempWebClient = WebClient.builder()
-                    .baseUrl(baseUrl)
-                    .build();
+            // 创建WebClient（优先复用共享连接池）
+            WebClient.Builder tempBuilder = WebClient.builder().baseUrl(baseUrl);
+            ClientHttpConnector sharedConnector = sharedConnector(baseUrl, null);
+            if (sharedConnector != null) {
+                tempBuilder.clientConnector(sharedConnector);
+            }
+            WebClient tempWebClient = tempBuilder.build();
             
             // 调用X.AI API获取模型列表
             return tempWebClient.get()
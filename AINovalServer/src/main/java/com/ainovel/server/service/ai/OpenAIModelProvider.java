@@ -8,6 +8,7 @@ import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
@@ -61,7 +62,10 @@ public class OpenAIModelProvider extends AbstractAIModelProvider {
                 .defaultHeader("Authorization", "Bearer " + apiKey)
                 .defaultHeader("Content-Type", "application/json");
         
-        if (proxyEnabled) {
+        ClientHttpConnector sharedConnector = sharedConnector(getApiEndpoint(DEFAULT_API_ENDPOINT), null);
+        if (sharedConnector != null) {
+            builder.clientConnector(sharedConnector);
+        } else if (proxyEnabled) {
             try {
                 // 配置SSL上下文
                 SslContext sslContext = SslContextBuilder
@@ -70,7 +74,7 @@ public class OpenAIModelProvider extends AbstractAIModelProvider {
                         .build();
                 
                 // 配置HTTP客户端
-                HttpClient httpClient = HttpClient.create()
+                HttpClient httpClient = ownedHttpClient()
                         .secure(t -> t.sslContext(sslContext))
                         .proxy(spec -> spec
                                 .type(ProxyProvider.Proxy.HTTP)
@@ -334,6 +334,11 @@ public class TracingAIModelProviderDecorator implements AIModelProvider, ToolCal
         return decoratedProvider.isProxyEnabled();
     }
 
+    @Override
+    public void close() {
+        decoratedProvider.close();
+    }
+
     @Override
     public Flux<ModelInfo> listModels() {
         return decoratedProvider.listModels();
@@ -19,6 +19,7 @@ import com.ainovel.server.service.ai.langchain4j.ZhipuLangChain4jModelProvider;
 import com.ainovel.server.service.ai.langchain4j.QwenLangChain4jModelProvider;
 import com.ainovel.server.service.ai.observability.ChatModelListenerManager;
 import com.ainovel.server.service.ai.observability.TraceContextManager;
+import com.ainovel.server.task.TaskExecutionRuntime;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
@@ -37,16 +38,19 @@ public class AIModelProviderFactory {
     private final ApplicationEventPublisher eventPublisher;
     private final ChatModelListenerManager listenerManager;
     private final TraceContextManager traceContextManager;
+    private final TaskExecutionRuntime executionRuntime;
 
     @Autowired
     public AIModelProviderFactory(ProxyConfig proxyConfig, 
                                  ApplicationEventPublisher eventPublisher,
                                  ChatModelListenerManager listenerManager,
-                                 TraceContextManager traceContextManager) {
+                                 TraceContextManager traceContextManager,
+                                 TaskExecutionRuntime executionRuntime) {
         this.proxyConfig = proxyConfig;
         this.eventPublisher = eventPublisher;
         this.listenerManager = listenerManager;
         this.traceContextManager = traceContextManager;
+        this.executionRuntime = executionRuntime;
         
         log.info("🚀 AIModelProviderFactory 初始化完成，监听器管理器: {}", listenerManager.getListenerInfo());
     }
@@ -100,6 +104,11 @@ public class AIModelProviderFactory {
             default -> throw new IllegalArgumentException("不支持的AI提供商: " + providerName);
         };
 
+        // LangChain4j 的同步调用按任务执行模式调度（虚拟线程模式下受提供商并发限制）
+        if (concreteProvider instanceof LangChain4jModelProvider langChain4jProvider) {
+            langChain4jProvider.setExecutionRuntime(executionRuntime);
+        }
+
         // 仅对 REST 适配的 Gemini 实现设置代理，避免 LangChain4j 构造器已注入 ProxyConfig 时重复初始化
         if ("gemini-rest".equalsIgnoreCase(providerName) && proxyConfig != null && proxyConfig.isEnabled()) {
             try {
@@ -131,7 +140,8 @@ public class AIModelProviderFactory {
         String p = providerName != null ? providerName.toLowerCase() : "";
         if ("gemini".equals(p) || "gemini-rest".equals(p)) {
             // 工具调用分支：强制使用 LangChain4j Gemini Provider（函数调用直连）
-            AIModelProvider concrete = new GeminiLangChain4jModelProvider(modelName, apiKey, apiEndpoint, proxyConfig, listenerManager);
+            GeminiLangChain4jModelProvider concrete = new GeminiLangChain4jModelProvider(modelName, apiKey, apiEndpoint, proxyConfig, listenerManager);
+            concrete.setExecutionRuntime(executionRuntime);
             TracingAIModelProviderDecorator decorated = new TracingAIModelProviderDecorator(
                     concrete, eventPublisher, traceContextManager, true /* is LangChain4j */);
             log.debug("工具调用分支: 使用 LangChain4j Gemini Provider 包装追踪: {}", modelName);
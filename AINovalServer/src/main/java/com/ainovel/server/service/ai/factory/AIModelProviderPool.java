@@ -0,0 +1,166 @@
+package com.ainovel.server.service.ai.factory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ainovel.server.service.ai.AIModelProvider;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * AI模型提供商实例池
+ *
+ * - 按（类型、提供商、模型、端点、API Key 指纹）复用 {@link AIModelProviderFactory} 创建的实例，
+ *   避免每次请求都重新构建 LangChain4j 模型与 HTTP 客户端（以及随之而来的 TLS 握手）
+ * - 池容量与空闲时间有上限；实例被淘汰后先移出池，再经过宽限期才调用 {@link AIModelProvider#close()} 释放底层资源，
+ *   淘汰前已取走该实例的长时流式调用、后台任务在宽限期内可继续使用（调用方不归还实例，无法精确计数）
+ * - 键中只保存 API Key 的 SHA-256 指纹，不保存明文
+ * - 池中实例会被多个请求并发使用，调用方不应修改其状态（如代理设置）
+ */
+@Slf4j
+@Component
+public class AIModelProviderPool {
+
+    private static final String KIND_DEFAULT = "default";
+    private static final String KIND_TOOL_CALL = "tool";
+
+    private final AIModelProviderFactory providerFactory;
+    private final boolean enabled;
+    private final Duration closeGrace;
+
+    /** 已淘汰、等待宽限期结束后关闭的实例 */
+    private final Set<AIModelProvider> retiring = ConcurrentHashMap.newKeySet();
+    private volatile boolean shuttingDown;
+
+    /** key=类型|提供商|模型|端点|Key指纹 -> 提供商实例 */
+    private final Cache<String, AIModelProvider> providers;
+
+    public AIModelProviderPool(
+            AIModelProviderFactory providerFactory,
+            @Value("${ainovel.performance.provider-pool.enabled:true}") boolean enabled,
+            @Value("${ainovel.performance.provider-pool.max-size:512}") long maxSize,
+            @Value("${ainovel.performance.provider-pool.idle-timeout-minutes:30}") long idleTimeoutMinutes,
+            @Value("${ainovel.performance.provider-pool.close-grace-minutes:30}") long closeGraceMinutes) {
+        this.providerFactory = providerFactory;
+        this.enabled = enabled;
+        this.closeGrace = Duration.ofMinutes(Math.max(0, closeGraceMinutes));
+        this.providers = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxSize))
+                .expireAfterAccess(Duration.ofMinutes(Math.max(1, idleTimeoutMinutes)))
+                .removalListener(this::onRemoval)
+                .build();
+        log.info("AI模型提供商实例池初始化: enabled={}, maxSize={}, idleTimeout={}min, closeGrace={}min",
+                enabled, maxSize, idleTimeoutMinutes, closeGraceMinutes);
+    }
+
+    /**
+     * 获取（或创建并缓存）经过追踪装饰的提供商实例
+     */
+    public AIModelProvider acquire(String providerName, String modelName, String apiKey, String apiEndpoint) {
+        if (!enabled) {
+            return providerFactory.createProvider(providerName, modelName, apiKey, apiEndpoint);
+        }
+        String key = poolKey(KIND_DEFAULT, providerName, modelName, apiKey, apiEndpoint);
+        return providers.get(key, k -> {
+            log.debug("提供商实例池未命中，创建实例: {}:{}", providerName, modelName);
+            return providerFactory.createProvider(providerName, modelName, apiKey, apiEndpoint);
+        });
+    }
+
+    /**
+     * 获取（或创建并缓存）工具调用专用的提供商实例
+     */
+    public AIModelProvider acquireToolCall(String providerName, String modelName, String apiKey, String apiEndpoint) {
+        if (!enabled) {
+            return providerFactory.createToolCallProvider(providerName, modelName, apiKey, apiEndpoint);
+        }
+        String key = poolKey(KIND_TOOL_CALL, providerName, modelName, apiKey, apiEndpoint);
+        return providers.get(key, k -> {
+            log.debug("提供商实例池未命中，创建工具调用实例: {}:{}", providerName, modelName);
+            return providerFactory.createToolCallProvider(providerName, modelName, apiKey, apiEndpoint);
+        });
+    }
+
+    /**
+     * 淘汰全部实例（如切换提供商实现后）
+     */
+    public void invalidateAll() {
+        providers.invalidateAll();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 停机时不再等待宽限期，池中与等待关闭的实例立即释放
+        shuttingDown = true;
+        providers.invalidateAll();
+        providers.cleanUp();
+        for (AIModelProvider provider : retiring) {
+            if (retiring.remove(provider)) {
+                closeProvider(provider, RemovalCause.EXPLICIT);
+            }
+        }
+    }
+
+    private void onRemoval(String key, AIModelProvider provider, RemovalCause cause) {
+        if (provider == null) {
+            return;
+        }
+        if (shuttingDown || closeGrace.isZero()) {
+            closeProvider(provider, cause);
+            return;
+        }
+        retiring.add(provider);
+        Mono.delay(closeGrace).subscribe(ignored -> {
+            if (retiring.remove(provider)) {
+                closeProvider(provider, cause);
+            }
+        });
+    }
+
+    private void closeProvider(AIModelProvider provider, RemovalCause cause) {
+        try {
+            provider.close();
+            log.debug("提供商实例已释放: provider={}, model={}, cause={}",
+                    provider.getProviderName(), provider.getModelName(), cause);
+        } catch (Exception e) {
+            log.warn("释放提供商实例失败: provider={}, model={}, error={}",
+                    provider.getProviderName(), provider.getModelName(), e.getMessage());
+        }
+    }
+
+    private static String poolKey(String kind, String providerName, String modelName, String apiKey, String apiEndpoint) {
+        return kind + "|" + normalize(providerName) + "|" + (modelName != null ? modelName : "")
+                + "|" + (apiEndpoint != null ? apiEndpoint.trim() : "") + "|" + keyFingerprint(apiKey);
+    }
+
+    private static String normalize(String providerName) {
+        return providerName != null ? providerName.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static String keyFingerprint(String apiKey) {
+        if (apiKey == null || apiKey.isEmpty()) {
+            return "-";
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(apiKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
@@ -10,6 +10,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpConnector;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
@@ -69,11 +70,13 @@ public class GoogleGenAIGeminiModelProvider extends AbstractAIModelProvider {
     }
 
     private void initWebClient() {
-        HttpClient httpClient = HttpClient.create()
+        ClientHttpConnector sharedConnector = sharedConnector(this.baseUrl, Duration.ofSeconds(120));
+        // 不走共享连接池时使用本实例独占的连接池，实例释放（close）时随之销毁
+        HttpClient httpClient = sharedConnector != null ? null : ownedHttpClient()
                 .responseTimeout(Duration.ofSeconds(120))
                 .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 10000);
 
-        if (proxyEnabled && proxyHost != null && proxyPort > 0) {
+        if (sharedConnector == null && proxyEnabled && proxyHost != null && proxyPort > 0) {
             try {
                 SslContext sslContext = SslContextBuilder
                         .forClient()
@@ -95,7 +98,7 @@ public class GoogleGenAIGeminiModelProvider extends AbstractAIModelProvider {
 
         this.webClient = WebClient.builder()
                 .baseUrl(this.baseUrl)
-                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .clientConnector(sharedConnector != null ? sharedConnector : new ReactorClientHttpConnector(httpClient))
                 .build();
         log.info("GoogleGenAIGemini: WebClient已初始化，基础URL: {}", this.baseUrl);
     }
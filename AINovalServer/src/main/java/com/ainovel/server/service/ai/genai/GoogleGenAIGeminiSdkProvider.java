@@ -43,6 +43,19 @@ public class GoogleGenAIGeminiSdkProvider extends AbstractAIModelProvider {
         this.client = builder.build();
     }
 
+    /**
+     * 关闭 SDK 客户端持有的 HTTP 连接
+     */
+    @Override
+    public void close() {
+        super.close();
+        try {
+            client.close();
+        } catch (Exception e) {
+            log.warn("GoogleGenAIGeminiSdkProvider: 关闭SDK客户端失败: {}", e.getMessage());
+        }
+    }
+
     @Override
     public void setProxy(String host, int port) {
         // SDK 当前未直接暴露代理配置；保持开关状态，回退由工厂/外层控制
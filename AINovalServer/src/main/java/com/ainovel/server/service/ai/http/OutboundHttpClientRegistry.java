@@ -0,0 +1,292 @@
+package com.ainovel.server.service.ai.http;
+
+import java.net.SocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.ainovel.server.config.ProxyConfig;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.netty.http.Http11SslContextSpec;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.transport.ProxyProvider;
+
+/**
+ * 出站 LLM 流量的共享 HTTP 客户端注册表
+ *
+ * - 按上游主机（scheme://host:port）各建一个 {@link ConnectionProvider}，同一主机的所有提供商实例共享连接、
+ *   keep-alive 与 TLS 会话；最大连接数、等待队列长度与等待超时可配置
+ * - HTTPS 上游通过 ALPN 协商 HTTP/2，上游不支持时自动回落到 HTTP/1.1
+ * - 统一应用 {@link ProxyConfig}（HTTP / SOCKS5、认证、信任所有证书）
+ * - 连接池使用情况以 llm.http.pool.* 指标导出（活跃、空闲、等待获取、饱和度）
+ *
+ * 提供商实例不是 Spring Bean，可通过 {@link #current()} 取得注册表；返回 null 时（非 Spring 环境）
+ * 调用方应回退到自建客户端。
+ */
+@Slf4j
+@Component
+public class OutboundHttpClientRegistry {
+
+    private static volatile OutboundHttpClientRegistry current;
+
+    private final ProxyConfig proxyConfig;
+    private final MeterRegistry meterRegistry;
+    private final int maxConnections;
+    private final int pendingAcquireMaxCount;
+    private final Duration pendingAcquireTimeout;
+    private final Duration maxIdleTime;
+    private final Duration maxLifeTime;
+    private final int connectTimeoutMillis;
+    private final boolean http2Enabled;
+    private final boolean metricsEnabled;
+
+    /** key=scheme://host:port -> 连接池 */
+    private final Map<String, ConnectionProvider> connectionProviders = new ConcurrentHashMap<>();
+
+    /** key=scheme://host:port -> 绑定连接池的 HTTP 客户端 */
+    private final Map<String, HttpClient> clients = new ConcurrentHashMap<>();
+
+    /** key=连接池名|远端地址 -> 连接池实时指标 */
+    private final Map<String, ConnectionPoolMetrics> poolMetrics = new ConcurrentHashMap<>();
+
+    @Autowired
+    public OutboundHttpClientRegistry(ProxyConfig proxyConfig,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${ainovel.performance.outbound-http.max-connections:200}") int maxConnections,
+                                      @Value("${ainovel.performance.outbound-http.pending-acquire-max-count:1000}") int pendingAcquireMaxCount,
+                                      @Value("${ainovel.performance.outbound-http.pending-acquire-timeout-ms:45000}") long pendingAcquireTimeoutMs,
+                                      @Value("${ainovel.performance.outbound-http.max-idle-time-seconds:60}") long maxIdleTimeSeconds,
+                                      @Value("${ainovel.performance.outbound-http.max-life-time-seconds:600}") long maxLifeTimeSeconds,
+                                      @Value("${ainovel.performance.outbound-http.connect-timeout-ms:10000}") int connectTimeoutMillis,
+                                      @Value("${ainovel.performance.outbound-http.http2-enabled:true}") boolean http2Enabled,
+                                      @Value("${ainovel.performance.outbound-http.metrics-enabled:true}") boolean metricsEnabled) {
+        this.proxyConfig = proxyConfig;
+        this.meterRegistry = meterRegistry;
+        this.maxConnections = Math.max(1, maxConnections);
+        this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+        this.pendingAcquireTimeout = Duration.ofMillis(Math.max(1, pendingAcquireTimeoutMs));
+        this.maxIdleTime = Duration.ofSeconds(Math.max(1, maxIdleTimeSeconds));
+        this.maxLifeTime = Duration.ofSeconds(Math.max(1, maxLifeTimeSeconds));
+        this.connectTimeoutMillis = Math.max(1, connectTimeoutMillis);
+        this.http2Enabled = http2Enabled;
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    @PostConstruct
+    public void register() {
+        current = this;
+        log.info("出站HTTP连接池注册表初始化: maxConnections={}, pendingAcquireMaxCount={}, http2={}, proxy={}",
+                maxConnections, pendingAcquireMaxCount, http2Enabled, proxyEnabled() ? proxyConfig.getProxyAddress() : "disabled");
+    }
+
+    /**
+     * 当前生效的注册表；Spring 容器外或容器关闭后返回 null
+     */
+    public static OutboundHttpClientRegistry current() {
+        return current;
+    }
+
+    /**
+     * 获取指定上游共享连接池的 HTTP 客户端
+     *
+     * @param baseUrl 上游地址（只取 scheme、host、port）
+     */
+    public HttpClient httpClient(String baseUrl) {
+        return clients.computeIfAbsent(hostKey(baseUrl), this::createClient);
+    }
+
+    /**
+     * 获取指定上游共享连接池的 HTTP 客户端，并设置响应超时（两次读操作之间的最长间隔）
+     */
+    public HttpClient httpClient(String baseUrl, Duration responseTimeout) {
+        HttpClient client = httpClient(baseUrl);
+        return responseTimeout != null ? client.responseTimeout(responseTimeout) : client;
+    }
+
+    /**
+     * WebClient 使用的连接器
+     */
+    public ClientHttpConnector connector(String baseUrl, Duration responseTimeout) {
+        return new ReactorClientHttpConnector(httpClient(baseUrl, responseTimeout));
+    }
+
+    /**
+     * 预置了 baseUrl 与共享连接器的 WebClient 构建器
+     */
+    public WebClient.Builder webClientBuilder(String baseUrl) {
+        return WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(connector(baseUrl, null));
+    }
+
+    /**
+     * LangChain4j 模型使用的 HTTP 客户端构建器（底层共享同一主机的连接池）
+     */
+    public ReactorNettyHttpClientBuilder langChain4jHttpClientBuilder(String baseUrl) {
+        return new ReactorNettyHttpClientBuilder(httpClient(baseUrl));
+    }
+
+    /**
+     * 各连接池当前使用情况快照，key=连接池名|远端地址
+     */
+    public Map<String, PoolSnapshot> poolSnapshots() {
+        Map<String, PoolSnapshot> snapshots = new LinkedHashMap<>();
+        poolMetrics.forEach((key, metrics) -> snapshots.put(key, PoolSnapshot.of(metrics)));
+        return snapshots;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (current == this) {
+            current = null;
+        }
+        connectionProviders.values().forEach(ConnectionProvider::dispose);
+        connectionProviders.clear();
+        clients.clear();
+        poolMetrics.clear();
+    }
+
+    private HttpClient createClient(String hostKey) {
+        String poolName = "llm-" + hostKey.replaceFirst("^[a-z]+://", "");
+        ConnectionProvider pool = connectionProviders.computeIfAbsent(hostKey, k -> ConnectionProvider.builder(poolName)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(maxIdleTime)
+                .metrics(metricsEnabled, () -> this::registerPoolMetrics)
+                .build());
+
+        HttpClient client = HttpClient.create(pool)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis)
+                .keepAlive(true);
+
+        boolean trustAll = proxyConfig != null && proxyConfig.isTrustAllCerts();
+        if (hostKey.startsWith("https://")) {
+            if (http2Enabled) {
+                Http2SslContextSpec spec = Http2SslContextSpec.forClient();
+                Http2SslContextSpec sslSpec = trustAll
+                        ? spec.configure(builder -> builder.trustManager(InsecureTrustManagerFactory.INSTANCE))
+                        : spec;
+                client = client.protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                        .secure(ssl -> ssl.sslContext(sslSpec));
+            } else {
+                Http11SslContextSpec spec = Http11SslContextSpec.forClient();
+                Http11SslContextSpec sslSpec = trustAll
+                        ? spec.configure(builder -> builder.trustManager(InsecureTrustManagerFactory.INSTANCE))
+                        : spec;
+                client = client.secure(ssl -> ssl.sslContext(sslSpec));
+            }
+        }
+
+        if (proxyEnabled()) {
+            ProxyProvider.Proxy type = "socks".equalsIgnoreCase(proxyConfig.getType())
+                    ? ProxyProvider.Proxy.SOCKS5
+                    : ProxyProvider.Proxy.HTTP;
+            String username = proxyConfig.getUsername();
+            String password = proxyConfig.getPassword();
+            client = client.proxy(spec -> {
+                ProxyProvider.Builder builder = spec.type(type)
+                        .host(proxyConfig.getHost())
+                        .port(proxyConfig.getPort());
+                if (StringUtils.hasText(username)) {
+                    builder.username(username).password(u -> password);
+                }
+            });
+        }
+
+        log.info("创建出站HTTP连接池: pool={}, maxConnections={}, http2={}, proxy={}",
+                poolName, maxConnections, http2Enabled && hostKey.startsWith("https://"), proxyEnabled());
+        return client;
+    }
+
+    private void registerPoolMetrics(String poolName, String id, SocketAddress remoteAddress, ConnectionPoolMetrics metrics) {
+        String remote = String.valueOf(remoteAddress);
+        poolMetrics.put(poolName + "|" + remote, metrics);
+        if (meterRegistry == null) {
+            return;
+        }
+        Tags tags = Tags.of("pool", poolName, "remote", remote);
+        Gauge.builder("llm.http.pool.active", metrics, ConnectionPoolMetrics::acquiredSize)
+                .description("出站LLM连接池中正在使用的连接数")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("llm.http.pool.idle", metrics, ConnectionPoolMetrics::idleSize)
+                .description("出站LLM连接池中的空闲连接数")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("llm.http.pool.pending", metrics, ConnectionPoolMetrics::pendingAcquireSize)
+                .description("等待获取出站LLM连接的请求数")
+                .tags(tags)
+                .register(meterRegistry);
+        Gauge.builder("llm.http.pool.saturation", metrics, m -> PoolSnapshot.of(m).saturation())
+                .description("出站LLM连接池饱和度（正在使用的连接数 / 最大连接数）")
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    private boolean proxyEnabled() {
+        return proxyConfig != null && proxyConfig.isEnabled()
+                && StringUtils.hasText(proxyConfig.getHost()) && proxyConfig.getPort() > 0;
+    }
+
+    /**
+     * 连接池按 scheme://host:port 划分；无法解析的地址共用一个默认池
+     */
+    static String hostKey(String baseUrl) {
+        if (!StringUtils.hasText(baseUrl)) {
+            return "default";
+        }
+        try {
+            URI uri = URI.create(baseUrl.trim());
+            String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : "https";
+            String host = uri.getHost();
+            if (host == null) {
+                return "default";
+            }
+            int port = uri.getPort() > 0 ? uri.getPort() : ("http".equals(scheme) ? 80 : 443);
+            return scheme + "://" + host.toLowerCase(Locale.ROOT) + ":" + port;
+        } catch (IllegalArgumentException e) {
+            return "default";
+        }
+    }
+
+    /**
+     * 连接池使用情况快照
+     */
+    public record PoolSnapshot(int active, int idle, int pending, int maxConnections, int maxPending) {
+
+        static PoolSnapshot of(ConnectionPoolMetrics metrics) {
+            return new PoolSnapshot(metrics.acquiredSize(), metrics.idleSize(), metrics.pendingAcquireSize(),
+                    metrics.maxAllocatedSize(), metrics.maxPendingAcquireSize());
+        }
+
+        public double saturation() {
+            return maxConnections > 0 ? (double) active / maxConnections : 0.0;
+        }
+    }
+}
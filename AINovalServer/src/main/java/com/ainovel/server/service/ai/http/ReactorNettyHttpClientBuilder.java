@@ -0,0 +1,50 @@
+package com.ainovel.server.service.ai.http;
+
+import java.time.Duration;
+
+import dev.langchain4j.http.client.HttpClientBuilder;
+import reactor.netty.http.client.HttpClient;
+
+/**
+ * 基于共享 Reactor Netty 客户端的 LangChain4j HTTP 客户端构建器
+ *
+ * LangChain4j 模型构建时会写入连接/读取超时，这里只在共享客户端上叠加超时配置，
+ * 连接池仍是 {@link OutboundHttpClientRegistry} 中按主机共享的那一个。
+ */
+public class ReactorNettyHttpClientBuilder implements HttpClientBuilder {
+
+    private final HttpClient sharedClient;
+    private Duration connectTimeout;
+    private Duration readTimeout;
+
+    public ReactorNettyHttpClientBuilder(HttpClient sharedClient) {
+        this.sharedClient = sharedClient;
+    }
+
+    @Override
+    public Duration connectTimeout() {
+        return connectTimeout;
+    }
+
+    @Override
+    public ReactorNettyHttpClientBuilder connectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    @Override
+    public Duration readTimeout() {
+        return readTimeout;
+    }
+
+    @Override
+    public ReactorNettyHttpClientBuilder readTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+        return this;
+    }
+
+    @Override
+    public ReactorNettyLangChain4jHttpClient build() {
+        return new ReactorNettyLangChain4jHttpClient(sharedClient, connectTimeout, readTimeout);
+    }
+}
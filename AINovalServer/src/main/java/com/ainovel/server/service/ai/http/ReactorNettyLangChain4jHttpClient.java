@@ -0,0 +1,196 @@
+package com.ainovel.server.service.ai.http;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import dev.langchain4j.http.client.HttpException;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEvent;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.ByteBufFlux;
+import reactor.netty.http.client.HttpClient;
+
+/**
+ * 以共享 Reactor Netty 连接池实现的 LangChain4j HTTP 客户端
+ *
+ * - 同步调用在调用线程上阻塞等待结果；LangChain4jModelProvider 经 TaskExecutionRuntime 把同步调用调度到
+ *   boundedElastic 或虚拟线程，不在事件循环线程上调用
+ * - 流式调用按字节增量解码 SSE（以换行切分后再按 UTF-8 解码，多字节字符不会被分片截断），
+ *   事件语义与 LangChain4j 默认的 SSE 解析器一致
+ */
+@Slf4j
+public class ReactorNettyLangChain4jHttpClient implements dev.langchain4j.http.client.HttpClient {
+
+    private final HttpClient client;
+
+    public ReactorNettyLangChain4jHttpClient(HttpClient sharedClient, Duration connectTimeout, Duration readTimeout) {
+        HttpClient configured = sharedClient;
+        if (connectTimeout != null) {
+            configured = configured.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis());
+        }
+        if (readTimeout != null) {
+            configured = configured.responseTimeout(readTimeout);
+        }
+        this.client = configured;
+    }
+
+    @Override
+    public SuccessfulHttpResponse execute(HttpRequest request) throws HttpException {
+        // 在调用线程上阻塞等待；LangChain4jModelProvider 的同步调用经 TaskExecutionRuntime 调度到
+        // boundedElastic 或虚拟线程上，不会在事件循环线程上走到这里
+        RawResponse raw = send(request)
+                .responseSingle((response, body) -> body.asString(StandardCharsets.UTF_8)
+                        .defaultIfEmpty("")
+                        .map(text -> new RawResponse(response.status().code(), toHeaderMap(response.responseHeaders()), text)))
+                .block();
+        if (raw == null) {
+            throw new IllegalStateException("上游未返回响应: " + request.url());
+        }
+        if (raw.statusCode() < 200 || raw.statusCode() >= 300) {
+            throw new HttpException(raw.statusCode(), raw.body());
+        }
+        return SuccessfulHttpResponse.builder()
+                .statusCode(raw.statusCode())
+                .headers(raw.headers())
+                .body(raw.body())
+                .build();
+    }
+
+    @Override
+    public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+        send(request)
+                .response((response, body) -> {
+                    int status = response.status().code();
+                    if (status < 200 || status >= 300) {
+                        return body.aggregate().asString(StandardCharsets.UTF_8)
+                                .defaultIfEmpty("")
+                                .flatMapMany(text -> Flux.<byte[]>error(new HttpException(status, text)));
+                    }
+                    listener.onOpen(SuccessfulHttpResponse.builder()
+                            .statusCode(status)
+                            .headers(toHeaderMap(response.responseHeaders()))
+                            .build());
+                    ServerSentEventDecoder decoder = new ServerSentEventDecoder(listener);
+                    return body.asByteArray()
+                            .doOnNext(decoder::feed)
+                            .doOnComplete(decoder::flush);
+                })
+                .subscribe(
+                        chunk -> { },
+                        error -> {
+                            log.debug("LangChain4j 流式请求失败: url={}, error={}", request.url(), error.getMessage());
+                            listener.onError(error);
+                        },
+                        listener::onClose);
+    }
+
+    private HttpClient.ResponseReceiver<?> send(HttpRequest request) {
+        HttpClient.RequestSender sender = client
+                .headers(headers -> request.headers().forEach((name, values) -> {
+                    if (values != null) {
+                        values.forEach(value -> headers.add(name, value));
+                    }
+                }))
+                .request(HttpMethod.valueOf(request.method().name()))
+                .uri(request.url());
+        String body = request.body();
+        if (body == null) {
+            return sender;
+        }
+        return sender.send(ByteBufFlux.fromString(Mono.just(body), StandardCharsets.UTF_8, ByteBufAllocator.DEFAULT));
+    }
+
+    private static Map<String, List<String>> toHeaderMap(HttpHeaders headers) {
+        Map<String, List<String>> map = new LinkedHashMap<>();
+        for (String name : headers.names()) {
+            map.put(name, headers.getAll(name));
+        }
+        return map;
+    }
+
+    private record RawResponse(int statusCode, Map<String, List<String>> headers, String body) {
+    }
+
+    /**
+     * 增量 SSE 解码器：按行累积字节，空行派发事件
+     */
+    static final class ServerSentEventDecoder {
+
+        private final ServerSentEventListener listener;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        private final StringBuilder data = new StringBuilder();
+        private String event;
+
+        ServerSentEventDecoder(ServerSentEventListener listener) {
+            this.listener = listener;
+        }
+
+        void feed(byte[] chunk) {
+            for (byte b : chunk) {
+                if (b == '\n') {
+                    onLine(currentLine());
+                } else {
+                    line.write(b);
+                }
+            }
+        }
+
+        void flush() {
+            if (line.size() > 0) {
+                onLine(currentLine());
+            }
+            dispatch();
+        }
+
+        private String currentLine() {
+            String text = line.toString(StandardCharsets.UTF_8);
+            line.reset();
+            return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+        }
+
+        private void onLine(String text) {
+            if (text.isEmpty()) {
+                dispatch();
+                return;
+            }
+            if (text.startsWith(":")) {
+                return;
+            }
+            int colon = text.indexOf(':');
+            String field = colon >= 0 ? text.substring(0, colon) : text;
+            String value = colon >= 0 ? text.substring(colon + 1) : "";
+            if (value.startsWith(" ")) {
+                value = value.substring(1);
+            }
+            if ("data".equals(field)) {
+                if (!data.isEmpty()) {
+                    data.append('\n');
+                }
+                data.append(value);
+            } else if ("event".equals(field)) {
+                event = value;
+            }
+        }
+
+        private void dispatch() {
+            if (!data.isEmpty()) {
+                listener.onEvent(new ServerSentEvent(event, data.toString()));
+            }
+            data.setLength(0);
+            event = null;
+        }
+    }
+}
@@ -144,8 +144,7 @@ public class AnthropicLangChain4jModelProvider extends LangChain4jModelProvider
                 apiEndpoint : DEFAULT_API_ENDPOINT;
 
         // 创建WebClient
-        WebClient webClient = WebClient.builder()
-                .baseUrl(baseUrl)
+        WebClient webClient = webClientBuilder(baseUrl)
                 .build();
 
         // 调用Anthropic API获取模型列表
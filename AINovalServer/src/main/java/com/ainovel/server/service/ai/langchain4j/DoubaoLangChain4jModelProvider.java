@@ -72,6 +72,9 @@ public class DoubaoLangChain4jModelProvider extends LangChain4jModelProvider {
             if (!listeners.isEmpty()) {
                 chatBuilder.listeners(listeners);
             }
+            if (hasReactorHttpClient()) {
+                chatBuilder.httpClientBuilder(reactorHttpClientBuilder(baseUrl));
+            }
             this.chatModel = chatBuilder.build();
 
             var streamingBuilder = OpenAiStreamingChatModel.builder()
@@ -84,6 +87,9 @@ public class DoubaoLangChain4jModelProvider extends LangChain4jModelProvider {
             if (!listeners.isEmpty()) {
                 streamingBuilder.listeners(listeners);
             }
+            if (hasReactorHttpClient()) {
+                streamingBuilder.httpClientBuilder(reactorHttpClientBuilder(baseUrl));
+            }
             this.streamingChatModel = streamingBuilder.build();
 
             log.info("Doubao(Ark) 模型初始化成功: {} @ {}", modelName, baseUrl);
@@ -341,8 +341,7 @@ public class GeminiLangChain4jModelProvider extends LangChain4jModelProvider {
                 apiEndpoint : DEFAULT_API_ENDPOINT;
 
         // 创建WebClient
-        WebClient webClient = WebClient.builder()
-                .baseUrl(baseUrl)
+        WebClient webClient = webClientBuilder(baseUrl)
                 .build();
 
         // 调用Gemini API获取模型列表
@@ -28,13 +28,19 @@ import java.net.URI;
 import java.io.IOException;
 // duplicate imports removed
 
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
 import com.ainovel.server.config.ProxyConfig;
 import com.ainovel.server.domain.model.AIRequest;
 import com.ainovel.server.domain.model.AIResponse;
 import com.ainovel.server.domain.model.ModelInfo;
 import com.ainovel.server.service.ai.AIModelProvider;
 import com.ainovel.server.service.ai.capability.ToolCallCapable;
+import com.ainovel.server.service.ai.http.OutboundHttpClientRegistry;
+import com.ainovel.server.service.ai.http.ReactorNettyHttpClientBuilder;
 import com.ainovel.server.service.ai.observability.ChatModelListenerManager;
+import com.ainovel.server.task.TaskExecutionRuntime;
 
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.data.message.AiMessage;
@@ -48,11 +54,16 @@ import dev.langchain4j.model.chat.request.ChatRequest;
 import dev.langchain4j.model.chat.response.ChatResponse;
 import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
 import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.http.client.HttpClientBuilder;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.transport.ProxyProvider;
 import reactor.util.retry.Retry;
 
 /**
@@ -87,6 +98,13 @@ public abstract class LangChain4jModelProvider implements AIModelProvider, ToolC
 
     private ProxyConfig proxyConfig;
 
+    // 是否通过 setProxy 为当前实例单独指定了代理（此时不走共享出站连接池）
+    private boolean customProxy;
+
+    // 单独指定代理时本实例独占的 HTTP 客户端及其连接池；代理变更或实例释放时销毁
+    private HttpClient ownedClient;
+    private ConnectionProvider ownedConnections;
+
     // LangChain4j模型实例
     protected ChatLanguageModel chatModel;
     protected StreamingChatLanguageModel streamingChatModel;
@@ -95,6 +113,9 @@ public abstract class LangChain4jModelProvider implements AIModelProvider, ToolC
     @Getter
     protected final ChatModelListenerManager listenerManager;
 
+    // 任务执行运行时 - 由工厂注入，用于虚拟线程模式下的同步调用调度与提供商并发限制
+    private TaskExecutionRuntime executionRuntime;
+
     /**
      * 构造函数
      *
@@ -176,6 +197,29 @@ public abstract class LangChain4jModelProvider implements AIModelProvider, ToolC
         return listenerManager != null && listenerManager.hasListener(listenerClass);
     }
 
+    /**
+     * 释放模型实例（由提供商实例池在淘汰时调用）
+     * 走共享出站连接池的模型没有独占连接，单独指定代理时的独占连接池在此销毁；Anthropic、Google AI Gemini 模型不接受自定义 HttpClientBuilder，
+     * 内部各自持有 JDK HttpClient，随本实例一起被回收。这里只关闭实现了 AutoCloseable 的模型，不清空模型引用：
+     * 实例池在淘汰后经过宽限期才调用本方法，仍持有本实例的长时调用不会因字段被置空而出现空指针
+     */
+    @Override
+    public void close() {
+        closeQuietly(chatModel);
+        closeQuietly(streamingChatModel);
+        releaseOwnedProxyClient();
+    }
+
+    private void closeQuietly(Object model) {
+        if (model instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                log.warn("关闭{}模型客户端失败: model={}, error={}", providerName, modelName, e.getMessage());
+            }
+        }
+    }
+
     /**
      * 设置HTTP代理
      *
@@ -187,6 +231,8 @@ public abstract class LangChain4jModelProvider implements AIModelProvider, ToolC
         this.proxyHost = host;
         this.proxyPort = port;
         this.proxyEnabled = true;
+        this.customProxy = true;
+        releaseOwnedProxyClient();
 
         // 重新初始化模型以应用代理设置
         initModels();
@@ -200,6 +246,8 @@ public abstract class LangChain4jModelProvider implements AIModelProvider, ToolC
         this.proxyEnabled = false;
         this.proxyHost = null;
         this.proxyPort = 0;
+        this.customProxy = false;
+        releaseOwnedProxyClient();
 
         // 重新初始化模型以应用代理设置
         initModels();
@@ -295,6 +343,84 @@ public abstract class LangChain4jModelProvider implements AIModelProvider, ToolC
         }
     }
 
+    /**
+     * 设置任务执行运行时
+     *
+     * @param executionRuntime 任务执行运行时
+     */
+    public void setExecutionRuntime(TaskExecutionRuntime executionRuntime) {
+        this.executionRuntime = executionRuntime;
+    }
+
+    /**
+     * 是否可以使用 Reactor Netty 的 LangChain4j HTTP 客户端：实例单独指定了代理，或共享出站连接池可用（Spring 容器外不可用）
+     */
+    protected boolean hasReactorHttpClient() {
+        return customProxy || OutboundHttpClientRegistry.current() != null;
+    }
+
+    /**
+     * LangChain4j HTTP 客户端构建器
+     * - 默认使用共享出站连接池，同一上游主机的所有模型实例共用连接池
+     * - 通过 {@link #setProxy} 单独指定了代理时使用本实例独占、经该代理出站的客户端
+     * 调用前需先确认 {@link #hasReactorHttpClient()}
+     */
+    protected HttpClientBuilder reactorHttpClientBuilder(String baseUrl) {
+        if (customProxy) {
+            return new ReactorNettyHttpClientBuilder(ownedProxyClient());
+        }
+        return OutboundHttpClientRegistry.current().langChain4jHttpClientBuilder(baseUrl);
+    }
+
+    /**
+     * 列模型等辅助请求使用的 WebClient 构建器；单独指定代理时使用独占客户端，有共享连接池时复用，否则新建
+     */
+    protected WebClient.Builder webClientBuilder(String baseUrl) {
+        if (customProxy) {
+            return WebClient.builder().baseUrl(baseUrl).clientConnector(new ReactorClientHttpConnector(ownedProxyClient()));
+        }
+        OutboundHttpClientRegistry registry = OutboundHttpClientRegistry.current();
+        return registry != null ? registry.webClientBuilder(baseUrl) : WebClient.builder().baseUrl(baseUrl);
+    }
+
+    /**
+     * 经 setProxy 指定代理出站的独占客户端；同一代理设置下的模型（对话、流式、列模型）共用一个连接池
+     */
+    private synchronized HttpClient ownedProxyClient() {
+        if (ownedClient == null) {
+            ownedConnections = ConnectionProvider.builder("lc4j-" + providerName + "-" + modelName)
+                    .maxIdleTime(Duration.ofSeconds(60))
+                    .disposeTimeout(Duration.ofSeconds(60))
+                    .build();
+            String host = proxyHost;
+            int port = proxyPort;
+            ownedClient = HttpClient.create(ownedConnections)
+                    .proxy(spec -> spec.type(ProxyProvider.Proxy.HTTP).host(host).port(port));
+        }
+        return ownedClient;
+    }
+
+    /**
+     * 销毁独占客户端的连接池，进行中的请求在销毁超时内仍可完成
+     */
+    private synchronized void releaseOwnedProxyClient() {
+        if (ownedConnections == null) {
+            return;
+        }
+        ConnectionProvider connections = ownedConnections;
+        ownedConnections = null;
+        ownedClient = null;
+        connections.disposeLater().subscribe(
+                null,
+                e -> log.warn("释放{}模型代理连接池失败: model={}, error={}", providerName, modelName, e.getMessage()));
+    }
+
+    private <T> Mono<T> limitBlockingCall(Mono<T> blockingCall) {
+        return executionRuntime != null
+                ? executionRuntime.limitBlockingModelCall(providerName, blockingCall)
+                : blockingCall.subscribeOn(Schedulers.boundedElastic());
+    }
+
     @Override
     public Mono<AIResponse> generateContent(AIRequest request) {
         if (isApiKeyEmpty()) {
@@ -305,75 +431,67 @@ public abstract class LangChain4jModelProvider implements AIModelProvider, ToolC
             return Mono.error(new RuntimeException("模型未初始化"));
         }
 
-        // 使用defer延迟执行
-        return Mono.defer(() -> {
-            // 创建一个临时对象作为锁
-            final Object syncLock = new Object();
-            final AIResponse[] responseHolder = new AIResponse[1];
-            final Throwable[] errorHolder = new Throwable[1];
-
+        // 使用defer延迟执行；虚拟线程模式下同步调用切到虚拟线程并受提供商并发限制
+        return limitBlockingCall(Mono.defer(() -> {
             log.info("开始生成内容, 模型: {}, userId: {}", modelName, request.getUserId());
 
             // 记录开始时间
             final long startTime = System.currentTimeMillis();
 
             try {
-                // 使用同步块保证完整执行
-                synchronized (syncLock) {
-                    // 转换请求为LangChain4j格式
-                    List<ChatMessage> messages = convertToLangChain4jMessages(request);
-
-                    // 🚀 检查是否有工具规范，使用专门字段
-                    ChatResponse response;
-                    if (request.getToolSpecifications() != null && !request.getToolSpecifications().isEmpty()) {
-                        
-                        // 安全转换工具规范列表
-                        List<ToolSpecification> toolSpecs = new ArrayList<>();
-                        for (Object obj : request.getToolSpecifications()) {
-                            if (obj instanceof ToolSpecification) {
-                                toolSpecs.add((ToolSpecification) obj);
-                            }
+                // 转换请求为LangChain4j格式
+                List<ChatMessage> messages = convertToLangChain4jMessages(request);
+
+                // 🚀 检查是否有工具规范，使用专门字段
+                ChatResponse response;
+                if (request.getToolSpecifications() != null && !request.getToolSpecifications().isEmpty()) {
+                    
+                    // 安全转换工具规范列表
+                    List<ToolSpecification> toolSpecs = new ArrayList<>();
+                    for (Object obj : request.getToolSpecifications()) {
+                        if (obj instanceof ToolSpecification) {
+                            toolSpecs.add((ToolSpecification) obj);
                         }
+                    }
+                    
+                    if (!toolSpecs.isEmpty()) {
+                        log.debug("使用工具规范进行AI调用, 工具数量: {}", toolSpecs.size());
                         
-                        if (!toolSpecs.isEmpty()) {
-                            log.debug("使用工具规范进行AI调用, 工具数量: {}", toolSpecs.size());
+                        try {
+                            // 🚀 构建带工具的请求（无原生toolChoice可用，保持由请求参数强制）
+                            ChatRequest chatRequest = ChatRequest.builder()
+                                .messages(messages)
+                                .toolSpecifications(toolSpecs)
+                                .build();
                             
-                            try {
-                                // 🚀 构建带工具的请求（无原生toolChoice可用，保持由请求参数强制）
-                                ChatRequest chatRequest = ChatRequest.builder()
-                                    .messages(messages)
-                                    .toolSpecifications(toolSpecs)
-                                    .build();
-                                
-                                response = chatModel.chat(chatRequest);
-                            } catch (NullPointerException e) {
-                                // 🚀 Gemini工具调用响应解析错误 - 这是LangChain4j的已知问题
-                                log.error("Gemini工具调用出现NPE，这是LangChain4j解析Gemini响应的已知问题。错误: {}", e.getMessage());
-                                log.debug("NPE详细信息", e);
-                                throw new RuntimeException("Gemini模型工具调用功能暂时不可用，建议使用其他模型（如GPT-4、Claude等）进行设定生成。" +
-                                    "技术详情：LangChain4j在解析Gemini工具调用响应时遇到空指针异常。", e);
-                            } catch (Exception e) {
-                                // 🚀 其他工具调用错误
-                                log.error("工具调用失败: {}", e.getMessage());
-                                log.debug("工具调用错误详细信息", e);
-                                throw new RuntimeException("模型工具调用功能出现错误，请检查模型配置或尝试其他模型。错误: " + e.getMessage(), e);
-                            }
-                        } else {
-                            // 工具规范列表为空，使用普通聊天
-                            response = chatModel.chat(messages);
+                            response = chatModel.chat(chatRequest);
+                        } catch (NullPointerException e) {
+                            // 🚀 Gemini工具调用响应解析错误 - 这是LangChain4j的已知问题
+                            log.error("Gemini工具调用出现NPE，这是LangChain4j解析Gemini响应的已知问题。错误: {}", e.getMessage());
+                            log.debug("NPE详细信息", e);
+                            throw new RuntimeException("Gemini模型工具调用功能暂时不可用，建议使用其他模型（如GPT-4、Claude等）进行设定生成。" +
+                                "技术详情：LangChain4j在解析Gemini工具调用响应时遇到空指针异常。", e);
+                        } catch (Exception e) {
+                            // 🚀 其他工具调用错误
+                            log.error("工具调用失败: {}", e.getMessage());
+                            log.debug("工具调用错误详细信息", e);
+                            throw new RuntimeException("模型工具调用功能出现错误，请检查模型配置或尝试其他模型。错误: " + e.getMessage(), e);
                         }
                     } else {
-                        // 普通的聊天调用（无工具）
+                        // 工具规范列表为空，使用普通聊天
                         response = chatModel.chat(messages);
                     }
+                } else {
+                    // 普通的聊天调用（无工具）
+                    response = chatModel.chat(messages);
+                }
 
-                    // 转换响应并保存到holder
-                    responseHolder[0] = convertToAIResponse(response, request);
-                    // 如果转换后为错误状态，则抛出异常以与流式行为保持一致
-                    if (responseHolder[0] != null && "error".equalsIgnoreCase(responseHolder[0].getStatus())) {
-                        String reason = responseHolder[0].getErrorReason() != null ? responseHolder[0].getErrorReason() : "生成内容失败";
-                        throw new RuntimeException(reason);
-                    }
+                // 转换响应
+                AIResponse aiResponse = convertToAIResponse(response, request);
+                // 如果转换后为错误状态，则抛出异常以与流式行为保持一致
+                if (aiResponse != null && "error".equalsIgnoreCase(aiResponse.getStatus())) {
+                    String reason = aiResponse.getErrorReason() != null ? aiResponse.getErrorReason() : "生成内容失败";
+                    throw new RuntimeException(reason);
                 }
 
                 // 记录完成时间
@@ -381,17 +499,15 @@ public abstract class LangChain4jModelProvider implements AIModelProvider, ToolC
                         System.currentTimeMillis() - startTime, modelName, request.getUserId());
 
                 // 返回结果
-                return Mono.justOrEmpty(responseHolder[0])
+                return Mono.justOrEmpty(aiResponse)
                         .switchIfEmpty(Mono.error(new RuntimeException("生成的响应为空")));
 
             } catch (Exception e) {
                 log.error("生成内容时出错, 模型: {}, userId: {}, 错误: {}",
                         modelName, request.getUserId(), e.getMessage(), e);
-                // 保存错误
-                errorHolder[0] = e;
                 return Mono.error(new RuntimeException("生成内容时出错: " + e.getMessage(), e));
             }
-        })
+        }))
         .doOnCancel(() -> {
             // 请求被取消时的处理
             log.warn("AI内容生成请求被取消, 模型: {}, userId: {}, 但模型可能仍在后台继续生成",
@@ -679,20 +795,23 @@ public abstract class LangChain4jModelProvider implements AIModelProvider, ToolC
             return Mono.just(false);
         }
 
-        if (chatModel == null) {
+        ChatLanguageModel model = chatModel;
+        if (model == null) {
             return Mono.just(false);
         }
 
-        // 尝试发送一个简单请求来验证API密钥
-        try {
-            List<ChatMessage> messages = new ArrayList<>();
-            messages.add(new UserMessage("测试"));
-            chatModel.chat(messages);
-            return Mono.just(true);
-        } catch (Exception e) {
-            log.error("验证API密钥时出错", e);
-            return Mono.just(false);
-        }
+        // 尝试发送一个简单请求来验证API密钥；同步调用放到弹性线程池执行，不占用事件循环线程
+        return Mono.fromCallable(() -> {
+                    List<ChatMessage> messages = new ArrayList<>();
+                    messages.add(new UserMessage("测试"));
+                    model.chat(messages);
+                    return true;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    log.error("验证API密钥时出错", e);
+                    return Mono.just(false);
+                });
     }
 
     /**
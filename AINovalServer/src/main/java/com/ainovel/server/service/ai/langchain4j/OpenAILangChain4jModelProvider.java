@@ -92,6 +92,9 @@ public class OpenAILangChain4jModelProvider extends LangChain4jModelProvider {
             if (!listeners.isEmpty()) {
                 chatBuilder.listeners(listeners);
             }
+            if (hasReactorHttpClient()) {
+                chatBuilder.httpClientBuilder(reactorHttpClientBuilder(baseUrl));
+            }
             this.chatModel = chatBuilder.build();
 
             // 创建流式模型
@@ -106,6 +109,9 @@ public class OpenAILangChain4jModelProvider extends LangChain4jModelProvider {
             if (!listeners.isEmpty()) {
                 streamingBuilder.listeners(listeners);
             }
+            if (hasReactorHttpClient()) {
+                streamingBuilder.httpClientBuilder(reactorHttpClientBuilder(baseUrl));
+            }
             this.streamingChatModel = streamingBuilder.build();
 
             log.info("OpenAI模型初始化成功: {}", modelName);
@@ -216,8 +222,7 @@ public class OpenAILangChain4jModelProvider extends LangChain4jModelProvider {
                 .codecs(cfg -> cfg.defaultCodecs().maxInMemorySize(5 * 1024 * 1024)) // 5MB
                 .build();
 
-        WebClient webClient = WebClient.builder()
-                .baseUrl(baseUrl)
+        WebClient webClient = webClientBuilder(baseUrl)
                 .exchangeStrategies(strategies)
                 .build();
 
@@ -119,6 +119,9 @@ public class OpenRouterLangChain4jModelProvider extends LangChain4jModelProvider
             if (!listeners.isEmpty()) {
                 chatBuilder.listeners(listeners);
             }
+            if (hasReactorHttpClient()) {
+                chatBuilder.httpClientBuilder(reactorHttpClientBuilder(baseUrl));
+            }
             this.chatModel = chatBuilder.build();
 
             // 创建流式模型
@@ -133,6 +136,9 @@ public class OpenRouterLangChain4jModelProvider extends LangChain4jModelProvider
             if (!listeners.isEmpty()) {
                 streamingBuilder.listeners(listeners);
             }
+            if (hasReactorHttpClient()) {
+                streamingBuilder.httpClientBuilder(reactorHttpClientBuilder(baseUrl));
+            }
             this.streamingChatModel = streamingBuilder.build();
 
             log.info("OpenRouter模型初始化成功: {}", modelName);
@@ -225,8 +231,7 @@ public class OpenRouterLangChain4jModelProvider extends LangChain4jModelProvider
                 .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(5 * 1024 * 1024)) // 5MB
                 .build();
         
-        WebClient webClient = WebClient.builder()
-                .baseUrl("https://openrouter.ai/api")
+        WebClient webClient = webClientBuilder("https://openrouter.ai/api")
                 .exchangeStrategies(strategies)
                 .build();
 
@@ -59,6 +59,9 @@ public class QwenLangChain4jModelProvider extends LangChain4jModelProvider {
                     .logRequests(true)
                     .logResponses(true);
             if (!listeners.isEmpty()) chatBuilder.listeners(listeners);
+            if (hasReactorHttpClient()) {
+                chatBuilder.httpClientBuilder(reactorHttpClientBuilder(baseUrl));
+            }
             this.chatModel = chatBuilder.build();
 
             var streamingBuilder = OpenAiStreamingChatModel.builder()
@@ -69,6 +72,9 @@ public class QwenLangChain4jModelProvider extends LangChain4jModelProvider {
                     .logRequests(true)
                     .logResponses(true);
             if (!listeners.isEmpty()) streamingBuilder.listeners(listeners);
+            if (hasReactorHttpClient()) {
+                streamingBuilder.httpClientBuilder(reactorHttpClientBuilder(baseUrl));
+            }
             this.streamingChatModel = streamingBuilder.build();
 
             log.info("Qwen(DashScope OpenAI-Compat) 模型初始化成功: {} @ {}", modelName, baseUrl);
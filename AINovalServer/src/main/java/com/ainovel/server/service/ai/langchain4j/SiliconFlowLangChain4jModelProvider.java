@@ -83,6 +83,9 @@ public class SiliconFlowLangChain4jModelProvider extends LangChain4jModelProvide
             if (!listeners.isEmpty()) {
                 chatBuilder.listeners(listeners);
             }
+            if (hasReactorHttpClient()) {
+                chatBuilder.httpClientBuilder(reactorHttpClientBuilder(baseUrl));
+            }
             this.chatModel = chatBuilder.build();
 
             // 创建流式模型
@@ -97,6 +100,9 @@ public class SiliconFlowLangChain4jModelProvider extends LangChain4jModelProvide
             if (!listeners.isEmpty()) {
                 streamingBuilder.listeners(listeners);
             }
+            if (hasReactorHttpClient()) {
+                streamingBuilder.httpClientBuilder(reactorHttpClientBuilder(baseUrl));
+            }
             this.streamingChatModel = streamingBuilder.build();
 
             log.info("SiliconFlow模型初始化成功: {}", modelName);
@@ -195,8 +201,7 @@ public class SiliconFlowLangChain4jModelProvider extends LangChain4jModelProvide
                 apiEndpoint : DEFAULT_API_ENDPOINT;
 
         // 创建WebClient
-        WebClient webClient = WebClient.builder()
-                .baseUrl(baseUrl)
+        WebClient webClient = webClientBuilder(baseUrl)
                 .build();
 
         // 调用SiliconFlow API获取模型列表
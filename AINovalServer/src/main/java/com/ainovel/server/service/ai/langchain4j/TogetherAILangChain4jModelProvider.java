@@ -88,6 +88,9 @@ public class TogetherAILangChain4jModelProvider extends LangChain4jModelProvider
             if (!listeners.isEmpty()) {
                 chatBuilder.listeners(listeners);
             }
+            if (hasReactorHttpClient()) {
+                chatBuilder.httpClientBuilder(reactorHttpClientBuilder(baseUrl));
+            }
             this.chatModel = chatBuilder.build();
 
             // 创建流式模型
@@ -102,6 +105,9 @@ public class TogetherAILangChain4jModelProvider extends LangChain4jModelProvider
             if (!listeners.isEmpty()) {
                 streamingBuilder.listeners(listeners);
             }
+            if (hasReactorHttpClient()) {
+                streamingBuilder.httpClientBuilder(reactorHttpClientBuilder(baseUrl));
+            }
             this.streamingChatModel = streamingBuilder.build();
 
             log.info("TogetherAI模型初始化成功: {}", modelName);
@@ -148,8 +154,7 @@ public class TogetherAILangChain4jModelProvider extends LangChain4jModelProvider
                 apiEndpoint : DEFAULT_API_ENDPOINT;
 
         // 创建WebClient
-        WebClient webClient = WebClient.builder()
-                .baseUrl(baseUrl)
+        WebClient webClient = webClientBuilder(baseUrl)
                 .build();
 
         // 调用TogetherAI API获取模型列表
@@ -60,6 +60,9 @@ public class ZhipuLangChain4jModelProvider extends LangChain4jModelProvider {
                     .logRequests(true)
                     .logResponses(true);
             if (!listeners.isEmpty()) chatBuilder.listeners(listeners);
+            if (hasReactorHttpClient()) {
+                chatBuilder.httpClientBuilder(reactorHttpClientBuilder(baseUrl));
+            }
             this.chatModel = chatBuilder.build();
 
             var streamingBuilder = OpenAiStreamingChatModel.builder()
@@ -70,6 +73,9 @@ public class ZhipuLangChain4jModelProvider extends LangChain4jModelProvider {
                     .logRequests(true)
                     .logResponses(true);
             if (!listeners.isEmpty()) streamingBuilder.listeners(listeners);
+            if (hasReactorHttpClient()) {
+                streamingBuilder.httpClientBuilder(reactorHttpClientBuilder(baseUrl));
+            }
             this.streamingChatModel = streamingBuilder.build();
 
             log.info("Zhipu(GLM) 模型初始化成功: {} @ {}", modelName, baseUrl);
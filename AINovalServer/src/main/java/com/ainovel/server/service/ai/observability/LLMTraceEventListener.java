@@ -4,14 +4,13 @@ import com.ainovel.server.service.ai.observability.events.LLMTraceEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 import reactor.core.scheduler.Schedulers;
 
 /**
  * LLM追踪事件监听器
- * 异步处理追踪事件，避免影响主业务流程
+ * 追踪记录放入写缓冲后立即返回，由缓冲合并后批量写库，避免影响主业务流程
  */
 @Component
 @Slf4j
@@ -19,14 +18,18 @@ import reactor.core.scheduler.Schedulers;
 public class LLMTraceEventListener {
 
     private final LLMTraceService traceService;
+    private final LLMTraceWriteBuffer writeBuffer;
 
     /**
-     * 异步处理LLM追踪事件
-     * 使用虚拟线程进行非阻塞IO操作
+     * 处理LLM追踪事件
+     * 写缓冲开启时只做内存入队（不再占用 llmTraceExecutor 线程）；关闭时退回逐条异步保存
      */
-    @Async("llmTraceExecutor")
     @EventListener
     public void handleLLMTraceEvent(LLMTraceEvent event) {
+        if (writeBuffer.isEnabled()) {
+            writeBuffer.offer(event.getTrace());
+            return;
+        }
         traceService.save(event.getTrace())
                 .subscribeOn(Schedulers.boundedElastic()) // 使用弹性调度器处理IO
                 .subscribe(
@@ -36,4 +39,4 @@ public class LLMTraceEventListener {
                                 event.getTrace().getTraceId(), error)
                 );
     }
-}
\ No newline at end of file
+}
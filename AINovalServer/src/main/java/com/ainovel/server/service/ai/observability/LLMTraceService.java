@@ -4,12 +4,17 @@ import com.ainovel.server.common.response.PagedResponse;
 import com.ainovel.server.common.response.CursorPageResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import com.ainovel.server.domain.model.observability.LLMTrace;
+import com.ainovel.server.domain.model.observability.LLMUsageRollup;
 import com.ainovel.server.repository.LLMTraceRepository;
+import com.ainovel.server.service.ai.observability.payload.TracePayloadStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
@@ -24,6 +29,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * LLM链路追踪服务
@@ -35,6 +41,8 @@ import java.util.Map;
 public class LLMTraceService {
 
     private final LLMTraceRepository repository;
+    private final LLMUsageRollupService rollupService;
+    private final TracePayloadStore payloadStore;
     @Autowired(required = false)
     private ReactiveMongoTemplate mongoTemplate;
 
@@ -50,6 +58,7 @@ public class LLMTraceService {
         // 如果没有 traceId，直接使用普通保存（无法进行 upsert）
         if (trace.getTraceId() == null || trace.getTraceId().isBlank()) {
             return repository.save(trace)
+                    .flatMap(saved -> recordRollup(null, saved).thenReturn(saved))
                     .doOnSuccess(saved -> log.debug("LLM追踪记录已保存(无traceId): objectId={}, provider={}, model={}",
                             saved.getId(), saved.getProvider(), saved.getModel()))
                     .doOnError(error -> log.error("保存LLM追踪记录失败(无traceId): provider={}, model={}", 
@@ -75,7 +84,7 @@ public class LLMTraceService {
 
     /**
      * 🔧 新增：基于 traceId 的原子 upsert 操作
-     * 使用 MongoDB 的原子操作避免竞态条件
+     * 使用 MongoDB 的原子操作避免竞态条件；同时取回旧文档的统计字段，按差值更新调用量预聚合
      */
     private Mono<LLMTrace> upsertByTraceId(LLMTrace trace) {
         if (mongoTemplate == null) {
@@ -87,8 +96,50 @@ public class LLMTraceService {
         // 构建查询条件：根据 traceId 查找
         Query query = new Query(Criteria.where("traceId").is(trace.getTraceId()));
         
-        // 构建更新操作：设置所有字段（完整替换，除了保持原有的 _id）
-        Update update = new Update()
+        // 执行原子 upsert 操作，返回更新前文档中参与统计的字段（新插入时为空）
+        Query previousQuery = new Query(Criteria.where("traceId").is(trace.getTraceId()));
+        previousQuery.fields().include(LLMUsageRollupService.CONTRIBUTION_FIELDS);
+        return externalizePayload(trace)
+                .flatMap(payloadRef -> mongoTemplate.findAndModify(previousQuery,
+                                buildUpsertUpdate(trace, payloadRef.orElse(null)),
+                                FindAndModifyOptions.options().upsert(true).returnNew(false), LLMTrace.class)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty()))
+                .flatMap(previous -> recordRollup(previous.orElse(null), trace)
+                        // 获取操作后的完整文档
+                        .then(mongoTemplate.findOne(query, LLMTrace.class)))
+                .flatMap(payloadStore::hydrate)
+                .switchIfEmpty(Mono.error(new RuntimeException("Upsert 操作失败：无法获取操作后的文档")));
+    }
+
+    /**
+     * 构建按 traceId upsert 的更新操作：设置所有字段（完整替换，除了保持原有的 _id）
+     *
+     * @param payloadRef 正文外置后的引用；不为空时文档中只保存去掉消息正文的请求/响应
+     */
+    private Update buildUpsertUpdate(LLMTrace trace, String payloadRef) {
+        if (trace.getCreatedAt() == null) {
+            trace.setCreatedAt(Instant.now());
+        }
+        LLMTrace.Request request = trace.getRequest();
+        LLMTrace.Response response = trace.getResponse();
+        if (payloadRef != null) {
+            // 复制后再去掉正文，事件中的追踪对象保持不变
+            if (request != null) {
+                request = LLMTrace.Request.builder()
+                        .timestamp(request.getTimestamp())
+                        .messages(new ArrayList<>())
+                        .parameters(request.getParameters())
+                        .build();
+            }
+            if (response != null) {
+                response = LLMTrace.Response.builder()
+                        .timestamp(response.getTimestamp())
+                        .metadata(response.getMetadata())
+                        .build();
+            }
+        }
+        return new Update()
                 .set("traceId", trace.getTraceId())
                 .set("userId", trace.getUserId())
                 .set("sessionId", trace.getSessionId())
@@ -97,25 +148,100 @@ public class LLMTraceService {
                 .set("model", trace.getModel())
                 .set("type", trace.getType())
                 .set("businessType", trace.getBusinessType())
-                .set("request", trace.getRequest())
-                .set("response", trace.getResponse())
+                .set("request", request)
+                .set("response", response)
                 .set("error", trace.getError())
                 .set("performance", trace.getPerformance())
-                .set("createdAt", trace.getCreatedAt() != null ? trace.getCreatedAt() : java.time.Instant.now());
-
-        // 执行原子 upsert 操作
-        return mongoTemplate.upsert(query, update, LLMTrace.class)
-                .flatMap(updateResult -> {
-                    // 获取操作后的完整文档
-                    if (updateResult.getUpsertedId() != null) {
-                        // 新插入的文档，根据新生成的 _id 查询
-                        return mongoTemplate.findById(updateResult.getUpsertedId().asObjectId().getValue(), LLMTrace.class);
-                    } else {
-                        // 更新的现有文档，根据 traceId 查询
-                        return mongoTemplate.findOne(query, LLMTrace.class);
-                    }
-                })
-                .switchIfEmpty(Mono.error(new RuntimeException("Upsert 操作失败：无法获取操作后的文档")));
+                .set("createdAt", trace.getCreatedAt())
+                .set("payloadRef", payloadRef);
+    }
+
+    /**
+     * 将较大的消息正文写入外部存储；写入失败时退回内联保存，不影响追踪记录本身
+     */
+    private Mono<Optional<String>> externalizePayload(LLMTrace trace) {
+        return payloadStore.externalize(trace)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .onErrorResume(e -> {
+                    log.warn("LLM追踪正文外置失败，改为内联保存: traceId={}, error={}", trace.getTraceId(), e.getMessage());
+                    return Mono.just(Optional.empty());
+                });
+    }
+
+    /**
+     * 批量保存追踪记录（写缓冲刷新时调用）
+     * 一次查询取回已有记录的统计字段，一次 bulk upsert 写入全部记录，调用量预聚合按整批合并后更新。
+     * 同一批次内的 traceId 应已去重。
+     *
+     * @param traces 待保存的追踪记录
+     * @return 写入的记录数
+     */
+    public Mono<Integer> saveBatch(List<LLMTrace> traces) {
+        if (traces == null || traces.isEmpty()) {
+            return Mono.just(0);
+        }
+        List<LLMTrace> withTraceId = new ArrayList<>();
+        List<LLMTrace> withoutTraceId = new ArrayList<>();
+        for (LLMTrace trace : traces) {
+            if (trace.getTraceId() == null || trace.getTraceId().isBlank()) {
+                withoutTraceId.add(trace);
+            } else {
+                withTraceId.add(trace);
+            }
+        }
+
+        Mono<Void> insertPlain = withoutTraceId.isEmpty() ? Mono.empty()
+                : repository.saveAll(withoutTraceId).then(recordRollups(List.of(), withoutTraceId));
+        if (withTraceId.isEmpty() || mongoTemplate == null) {
+            Mono<Void> upsertOneByOne = Flux.fromIterable(withTraceId).concatMap(this::save).then();
+            return insertPlain.then(upsertOneByOne).thenReturn(traces.size());
+        }
+
+        List<String> traceIds = withTraceId.stream().map(LLMTrace::getTraceId).toList();
+        Query previousQuery = new Query(Criteria.where("traceId").in(traceIds));
+        previousQuery.fields().include(LLMUsageRollupService.CONTRIBUTION_FIELDS).include("traceId");
+
+        // 正文先写入外部存储（小于阈值的保持内联），再与历史记录一起批量写库
+        Mono<Map<String, String>> payloadRefs = Flux.fromIterable(withTraceId)
+                .flatMap(trace -> externalizePayload(trace)
+                        .filter(Optional::isPresent)
+                        .map(ref -> Map.entry(trace.getTraceId(), ref.get())), 8)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, HashMap::new);
+
+        Mono<Void> upsertBulk = Mono.zip(payloadRefs, mongoTemplate.find(previousQuery, LLMTrace.class)
+                        // 历史上可能存在重复 traceId 的记录，upsert 只会更新其中一条，扣减时每个 traceId 只取一条
+                        .collectMap(LLMTrace::getTraceId, previous -> previous, HashMap::new))
+                .flatMap(tuple -> {
+                    Map<String, String> refs = tuple.getT1();
+                    Map<String, LLMTrace> previousByTraceId = tuple.getT2();
+                    ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LLMTrace.class);
+                    withTraceId.forEach(trace -> bulk.upsert(
+                            new Query(Criteria.where("traceId").is(trace.getTraceId())),
+                            buildUpsertUpdate(trace, refs.get(trace.getTraceId()))));
+                    return bulk.execute()
+                            .then(recordRollups(new ArrayList<>(previousByTraceId.values()), withTraceId));
+                });
+        return insertPlain.then(upsertBulk).thenReturn(traces.size());
+    }
+
+    /**
+     * 更新调用量预聚合；失败只记录日志，不影响追踪记录本身的保存
+     */
+    private Mono<Void> recordRollup(LLMTrace previous, LLMTrace current) {
+        return rollupService.applyChange(previous, current)
+                .onErrorResume(e -> {
+                    log.warn("更新LLM调用量预聚合失败: traceId={}, error={}", current.getTraceId(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> recordRollups(List<LLMTrace> previous, List<LLMTrace> current) {
+        return rollupService.applyChanges(previous, current)
+                .onErrorResume(e -> {
+                    log.warn("批量更新LLM调用量预聚合失败: count={}, error={}", current.size(), e.getMessage());
+                    return Mono.empty();
+                });
     }
 
     /**
@@ -258,7 +384,8 @@ public class LLMTraceService {
      * 根据ID查询单个追踪记录
      */
     public Mono<LLMTrace> findTraceById(String traceId) {
-        return repository.findByTraceId(traceId);
+        return repository.findByTraceId(traceId)
+                .flatMap(payloadStore::hydrate);
     }
 
     /**
@@ -266,6 +393,7 @@ public class LLMTraceService {
      */
     public Mono<LLMTrace> findFirstByTraceId(String traceId) {
         return repository.findFirstByTraceId(traceId)
+                .flatMap(payloadStore::hydrate)
                 .doOnSuccess(trace -> {
                     if (trace != null) {
                         log.debug("找到第一个匹配的trace记录: traceId={}, objectId={}", traceId, trace.getId());
@@ -449,86 +577,58 @@ public class LLMTraceService {
     }
 
     /**
-     * 统计趋势数据（按小时或天聚合）
+     * 统计趋势数据（按小时或天聚合），读取调用量预聚合数据
      */
     public Mono<Map<String, Object>> getTrends(String metric, String groupBy,
                                                String businessType, String model, String provider,
                                                String interval,
                                                LocalDateTime startTime, LocalDateTime endTime) {
-        Flux<LLMTrace> traces;
-        if (startTime != null && endTime != null) {
-            traces = findTracesByTimeRange(startTime, endTime, Pageable.unpaged());
-        } else {
-            traces = repository.findAll();
-        }
+        boolean daily = "day".equalsIgnoreCase(interval);
+        LLMUsageRollup.Granularity granularity = daily ? LLMUsageRollup.Granularity.DAY : LLMUsageRollup.Granularity.HOUR;
+        LLMUsageRollupService.Filter filter = new LLMUsageRollupService.Filter(null, provider, model, businessType);
+        Flux<LLMUsageRollup> rollups = startTime != null && endTime != null
+                ? rollupService.findRollups(granularity, filter, startTime, endTime)
+                : rollupService.findRollups(granularity, filter, null, null);
+
+        return rollupService.aggregate(rollups, rollup -> trendBucketKey(rollup.getBucketStart(), daily))
+                .map(buckets -> buildTrendResponse(buckets, metric, interval));
+    }
 
-        return traces
-                .filter(t -> businessType == null || businessType.equals(t.getBusinessType()))
-                .filter(t -> model == null || model.equals(t.getModel()))
-                .filter(t -> provider == null || provider.equals(t.getProvider()))
-                .collectList()
-                .map(list -> buildTrendResponse(list, metric, groupBy, interval));
+    private static String trendBucketKey(Instant bucketStart, boolean daily) {
+        java.time.ZonedDateTime zdt = bucketStart.atZone(java.time.ZoneId.systemDefault());
+        return daily
+                ? String.format("%04d-%02d-%02d", zdt.getYear(), zdt.getMonthValue(), zdt.getDayOfMonth())
+                : String.format("%04d-%02d-%02d %02d:00", zdt.getYear(), zdt.getMonthValue(), zdt.getDayOfMonth(), zdt.getHour());
     }
 
-    private Map<String, Object> buildTrendResponse(List<LLMTrace> list, String metric, String groupBy, String interval) {
+    private Map<String, Object> buildTrendResponse(Map<String, LLMUsageRollupService.Totals> buckets, String metric, String interval) {
         Map<String, Object> result = new HashMap<>();
         List<Map<String, Object>> series = new ArrayList<>();
 
-        // 分桶
-        Map<String, List<LLMTrace>> buckets = new HashMap<>();
-        for (LLMTrace t : list) {
-            java.time.ZonedDateTime zdt = t.getCreatedAt().atZone(java.time.ZoneId.systemDefault());
-            String key = "day".equalsIgnoreCase(interval)
-                    ? String.format("%04d-%02d-%02d", zdt.getYear(), zdt.getMonthValue(), zdt.getDayOfMonth())
-                    : String.format("%04d-%02d-%02d %02d:00", zdt.getYear(), zdt.getMonthValue(), zdt.getDayOfMonth(), zdt.getHour());
-            buckets.computeIfAbsent(key, k -> new ArrayList<>()).add(t);
-        }
-
         List<String> sortedKeys = new ArrayList<>(buckets.keySet());
         sortedKeys.sort(String::compareTo);
 
         for (String key : sortedKeys) {
-            List<LLMTrace> bucket = buckets.get(key);
+            LLMUsageRollupService.Totals bucket = buckets.get(key);
             Map<String, Object> point = new HashMap<>();
             point.put("timestamp", key);
 
             switch (metric == null ? "successRate" : metric) {
-                case "avgLatency": {
-                    double avg = bucket.stream()
-                            .filter(t -> t.getPerformance() != null && t.getPerformance().getTotalDurationMs() != null)
-                            .mapToLong(t -> t.getPerformance().getTotalDurationMs())
-                            .average().orElse(0);
-                    point.put("value", avg);
+                case "avgLatency":
+                    point.put("value", bucket.getAvgLatencyMs());
                     break;
-                }
-                case "p90Latency": {
-                    point.put("value", percentileLatency(bucket, 90));
+                case "p90Latency":
+                    point.put("value", bucket.latencyPercentile(90));
                     break;
-                }
-                case "p95Latency": {
-                    point.put("value", percentileLatency(bucket, 95));
+                case "p95Latency":
+                    point.put("value", bucket.latencyPercentile(95));
                     break;
-                }
-                case "tokens": {
-                    int tokens = bucket.stream()
-                            .mapToInt(t -> {
-                                try {
-                                    return t.getResponse() != null && t.getResponse().getMetadata() != null
-                                            && t.getResponse().getMetadata().getTokenUsage() != null
-                                            && t.getResponse().getMetadata().getTokenUsage().getTotalTokenCount() != null
-                                            ? t.getResponse().getMetadata().getTokenUsage().getTotalTokenCount() : 0;
-                                } catch (Exception e) { return 0; }
-                            })
-                            .sum();
-                    point.put("value", tokens);
+                case "tokens":
+                    point.put("value", bucket.getTotalTokens());
                     break;
-                }
                 case "successRate":
-                default: {
-                    long total = bucket.size();
-                    long success = bucket.stream().filter(t -> t.getError() == null).count();
-                    point.put("value", total == 0 ? 0 : (double) success / total * 100);
-                }
+                default:
+                    point.put("value", bucket.getSuccessRate());
             }
 
             series.add(point);
@@ -540,57 +640,23 @@ public class LLMTraceService {
         return result;
     }
 
-    private double percentileLatency(List<LLMTrace> traces, int percentile) {
-        List<Long> values = traces.stream()
-                .filter(t -> t.getPerformance() != null && t.getPerformance().getTotalDurationMs() != null)
-                .map(t -> t.getPerformance().getTotalDurationMs())
-                .sorted()
-                .toList();
-        if (values.isEmpty()) return 0;
-        int index = (int) Math.ceil(percentile / 100.0 * values.size()) - 1;
-        if (index < 0) index = 0;
-        if (index >= values.size()) index = values.size() - 1;
-        return values.get(index);
-    }
-
     /**
      * 获取统计概览
      */
     public Mono<Map<String, Object>> getOverviewStatistics(LocalDateTime startTime, LocalDateTime endTime) {
-        Flux<LLMTrace> traces;
-        if (startTime != null && endTime != null) {
-            traces = findTracesByTimeRange(startTime, endTime, Pageable.unpaged());
-        } else {
-            traces = repository.findAll();
-        }
-
-        return traces.collectList()
-                .map(traceList -> {
+        return rollupService.total(rollupService.findRollupsInRange(LLMUsageRollupService.Filter.all(), startTime, endTime))
+                .map(totals -> {
                     Map<String, Object> stats = new HashMap<>();
-                    stats.put("totalCalls", traceList.size());
-                    
-                    long successfulCalls = traceList.stream().filter(t -> t.getError() == null).count();
-                    long failedCalls = traceList.stream().filter(t -> t.getError() != null).count();
-                    
-                    stats.put("successfulCalls", successfulCalls);
-                    stats.put("failedCalls", failedCalls);
-                    stats.put("successRate", traceList.isEmpty() ? 0.0 : (double) successfulCalls / traceList.size() * 100);
-                    
-                    if (!traceList.isEmpty()) {
-                        double avgLatency = traceList.stream()
-                                .filter(trace -> trace.getPerformance() != null && trace.getPerformance().getRequestLatencyMs() != null)
-                                .mapToLong(trace -> trace.getPerformance().getRequestLatencyMs())
-                                .average()
-                                .orElse(0.0);
-                        stats.put("averageLatency", avgLatency);
-                        
-                        int totalTokens = traceList.stream()
-                                .filter(t -> t.getResponse() != null && t.getResponse().getMetadata() != null && t.getResponse().getMetadata().getTokenUsage() != null)
-                                .mapToInt(t -> t.getResponse().getMetadata().getTokenUsage().getTotalTokenCount())
-                                .sum();
-                        stats.put("totalTokens", totalTokens);
+                    stats.put("totalCalls", totals.getCalls());
+                    stats.put("successfulCalls", totals.getSuccessfulCalls());
+                    stats.put("failedCalls", totals.getErrors());
+                    stats.put("successRate", totals.getSuccessRate());
+
+                    if (totals.getCalls() > 0) {
+                        stats.put("averageLatency", totals.getAvgRequestLatencyMs());
+                        stats.put("totalTokens", totals.getTotalTokens());
                     }
-                    
+
                     return stats;
                 });
     }
@@ -599,41 +665,23 @@ public class LLMTraceService {
      * 获取提供商统计
      */
     public Mono<Map<String, Object>> getProviderStatistics(LocalDateTime startTime, LocalDateTime endTime) {
-        Flux<LLMTrace> traces;
-        if (startTime != null && endTime != null) {
-            traces = findTracesByTimeRange(startTime, endTime, Pageable.unpaged());
-        } else {
-            traces = repository.findAll();
-        }
-
-        return traces.collectList()
-                .map(traceList -> {
+        return rollupService.aggregate(
+                        rollupService.findRollupsInRange(LLMUsageRollupService.Filter.all(), startTime, endTime),
+                        LLMUsageRollup::getProvider)
+                .map(byProvider -> {
                     Map<String, Object> providerStats = new HashMap<>();
                     Map<String, Long> callsByProvider = new HashMap<>();
                     Map<String, Long> errorsByProvider = new HashMap<>();
                     Map<String, Double> avgDurationByProvider = new HashMap<>();
 
-                    // 按提供商分组统计
-                    traceList.forEach(trace -> {
-                        String provider = trace.getProvider();
-                        callsByProvider.merge(provider, 1L, Long::sum);
-                        
-                        if (trace.getError() != null) {
-                            errorsByProvider.merge(provider, 1L, Long::sum);
+                    byProvider.forEach((provider, totals) -> {
+                        callsByProvider.put(provider, totals.getCalls());
+                        if (totals.getErrors() > 0) {
+                            errorsByProvider.put(provider, totals.getErrors());
                         }
+                        avgDurationByProvider.put(provider, totals.getAvgLatencyMs());
                     });
 
-                    // 计算平均延迟
-                    for (String provider : callsByProvider.keySet()) {
-                        double avgDuration = traceList.stream()
-                                .filter(trace -> provider.equals(trace.getProvider()))
-                                .filter(trace -> trace.getPerformance() != null && trace.getPerformance().getTotalDurationMs() != null)
-                                .mapToLong(trace -> trace.getPerformance().getTotalDurationMs())
-                                .average()
-                                .orElse(0.0);
-                        avgDurationByProvider.put(provider, avgDuration);
-                    }
-
                     providerStats.put("callsByProvider", callsByProvider);
                     providerStats.put("errorsByProvider", errorsByProvider);
                     providerStats.put("avgDurationByProvider", avgDurationByProvider);
@@ -646,38 +694,21 @@ public class LLMTraceService {
      * 获取模型统计
      */
     public Mono<Map<String, Object>> getModelStatistics(LocalDateTime startTime, LocalDateTime endTime) {
-        Flux<LLMTrace> traces;
-        if (startTime != null && endTime != null) {
-            traces = findTracesByTimeRange(startTime, endTime, Pageable.unpaged());
-        } else {
-            traces = repository.findAll();
-        }
-
-        return traces.collectList()
-                .map(traceList -> {
+        return rollupService.aggregate(
+                        rollupService.findRollupsInRange(LLMUsageRollupService.Filter.all(), startTime, endTime),
+                        LLMUsageRollup::getModel)
+                .map(byModel -> {
                     Map<String, Object> modelStats = new HashMap<>();
                     Map<String, Long> callsByModel = new HashMap<>();
                     Map<String, Long> errorsByModel = new HashMap<>();
-                    Map<String, Integer> tokensByModel = new HashMap<>();
+                    Map<String, Long> tokensByModel = new HashMap<>();
 
-                    // 按模型分组统计
-                    traceList.forEach(trace -> {
-                        String model = trace.getModel();
-                        callsByModel.merge(model, 1L, Long::sum);
-                        
-                        if (trace.getError() != null) {
-                            errorsByModel.merge(model, 1L, Long::sum);
-                        }
-
-                        // 统计Token使用量
-                        if (trace.getResponse() != null && 
-                            trace.getResponse().getMetadata() != null && 
-                            trace.getResponse().getMetadata().getTokenUsage() != null) {
-                            Integer tokens = trace.getResponse().getMetadata().getTokenUsage().getTotalTokenCount();
-                            if (tokens != null) {
-                                tokensByModel.merge(model, tokens, Integer::sum);
-                            }
+                    byModel.forEach((model, totals) -> {
+                        callsByModel.put(model, totals.getCalls());
+                        if (totals.getErrors() > 0) {
+                            errorsByModel.put(model, totals.getErrors());
                         }
+                        tokensByModel.put(model, totals.getTotalTokens());
                     });
 
                     modelStats.put("callsByModel", callsByModel);
@@ -692,39 +723,20 @@ public class LLMTraceService {
      * 获取用户统计
      */
     public Mono<Map<String, Object>> getUserStatistics(LocalDateTime startTime, LocalDateTime endTime) {
-        Flux<LLMTrace> traces;
-        if (startTime != null && endTime != null) {
-            traces = findTracesByTimeRange(startTime, endTime, Pageable.unpaged());
-        } else {
-            traces = repository.findAll();
-        }
-
-        return traces.collectList()
-                .map(traceList -> {
+        return rollupService.aggregate(
+                        rollupService.findRollupsInRange(LLMUsageRollupService.Filter.all(), startTime, endTime),
+                        LLMUsageRollup::getUserId)
+                .map(byUser -> {
                     Map<String, Object> userStats = new HashMap<>();
                     Map<String, Long> callsByUser = new HashMap<>();
-                    Map<String, Integer> tokensByUser = new HashMap<>();
+                    Map<String, Long> tokensByUser = new HashMap<>();
                     Map<String, Long> errorsByUser = new HashMap<>();
 
-                    // 按用户分组统计
-                    traceList.forEach(trace -> {
-                        String userId = trace.getUserId();
-                        if (userId != null) {
-                            callsByUser.merge(userId, 1L, Long::sum);
-                            
-                            if (trace.getError() != null) {
-                                errorsByUser.merge(userId, 1L, Long::sum);
-                            }
-
-                            // 统计Token使用量
-                            if (trace.getResponse() != null && 
-                                trace.getResponse().getMetadata() != null && 
-                                trace.getResponse().getMetadata().getTokenUsage() != null) {
-                                Integer tokens = trace.getResponse().getMetadata().getTokenUsage().getTotalTokenCount();
-                                if (tokens != null) {
-                                    tokensByUser.merge(userId, tokens, Integer::sum);
-                                }
-                            }
+                    byUser.forEach((userId, totals) -> {
+                        callsByUser.put(userId, totals.getCalls());
+                        tokensByUser.put(userId, totals.getTotalTokens());
+                        if (totals.getErrors() > 0) {
+                            errorsByUser.put(userId, totals.getErrors());
                         }
                     });
 
@@ -741,60 +753,42 @@ public class LLMTraceService {
      * 获取指定用户按功能类型聚合的调用与Token统计
      */
     public Mono<Map<String, Object>> getUserFeatureStatistics(String userId, LocalDateTime startTime, LocalDateTime endTime) {
-        Flux<LLMTrace> traces;
-        if (startTime != null && endTime != null) {
-            traces = findTracesByTimeRange(startTime, endTime, Pageable.unpaged())
-                .filter(t -> userId.equals(t.getUserId()));
-        } else {
-            traces = repository.findByUserIdOrderByCreatedAtDesc(userId, Pageable.unpaged());
-        }
-
-        return traces.collectList().map(list -> {
-            Map<String, Long> callsByFeature = new HashMap<>();
-            Map<String, Integer> tokensByFeature = new HashMap<>();
-
-            list.forEach(t -> {
-                String feature = t.getBusinessType() != null ? t.getBusinessType() : "UNKNOWN";
-                callsByFeature.merge(feature, 1L, Long::sum);
-                if (t.getResponse() != null && t.getResponse().getMetadata() != null && t.getResponse().getMetadata().getTokenUsage() != null) {
-                    Integer tokens = t.getResponse().getMetadata().getTokenUsage().getTotalTokenCount();
-                    if (tokens != null) tokensByFeature.merge(feature, tokens, Integer::sum);
-                }
-            });
+        return rollupService.aggregate(
+                        rollupService.findRollupsInRange(LLMUsageRollupService.Filter.ofUser(userId), startTime, endTime),
+                        rollup -> rollup.getBusinessType() != null ? rollup.getBusinessType() : "UNKNOWN")
+                .map(byFeature -> {
+                    Map<String, Long> callsByFeature = new HashMap<>();
+                    Map<String, Long> tokensByFeature = new HashMap<>();
+
+                    byFeature.forEach((feature, totals) -> {
+                        callsByFeature.put(feature, totals.getCalls());
+                        tokensByFeature.put(feature, totals.getTotalTokens());
+                    });
 
-            Map<String, Object> res = new HashMap<>();
-            res.put("callsByFeature", callsByFeature);
-            res.put("tokensByFeature", tokensByFeature);
-            return res;
-        });
+                    Map<String, Object> res = new HashMap<>();
+                    res.put("callsByFeature", callsByFeature);
+                    res.put("tokensByFeature", tokensByFeature);
+                    return res;
+                });
     }
 
     /**
      * 获取指定用户日维度Token消耗
      */
     public Mono<Map<String, Integer>> getUserDailyTokens(String userId, LocalDateTime startTime, LocalDateTime endTime) {
-        Flux<LLMTrace> traces;
-        if (startTime != null && endTime != null) {
-            traces = findTracesByTimeRange(startTime, endTime, Pageable.unpaged())
-                .filter(t -> userId.equals(t.getUserId()));
-        } else {
-            traces = repository.findByUserIdOrderByCreatedAtDesc(userId, Pageable.unpaged());
-        }
-
-        return traces.collectList().map(list -> {
-            Map<String, Integer> daily = new HashMap<>();
-            list.forEach(t -> {
-                if (t.getResponse() != null && t.getResponse().getMetadata() != null && t.getResponse().getMetadata().getTokenUsage() != null
-                    && t.getRequest() != null && t.getRequest().getTimestamp() != null) {
-                    Integer tokens = t.getResponse().getMetadata().getTokenUsage().getTotalTokenCount();
-                    if (tokens != null) {
-                        String day = t.getRequest().getTimestamp().atZone(java.time.ZoneId.systemDefault()).toLocalDate().toString();
-                        daily.merge(day, tokens, Integer::sum);
-                    }
-                }
-            });
-            return daily;
-        });
+        Flux<LLMUsageRollup> rollups = rollupService.findRollups(LLMUsageRollup.Granularity.DAY,
+                LLMUsageRollupService.Filter.ofUser(userId), startTime, endTime);
+        return rollupService.aggregate(rollups,
+                        rollup -> rollup.getBucketStart().atZone(java.time.ZoneId.systemDefault()).toLocalDate().toString())
+                .map(byDay -> {
+                    Map<String, Integer> daily = new HashMap<>();
+                    byDay.forEach((day, totals) -> {
+                        if (totals.getTotalTokens() > 0) {
+                            daily.put(day, (int) Math.min(Integer.MAX_VALUE, totals.getTotalTokens()));
+                        }
+                    });
+                    return daily;
+                });
     }
 
     /**
@@ -860,79 +854,39 @@ public class LLMTraceService {
     }
 
     /**
-     * 获取性能统计
+     * 获取性能统计：合并时间范围内各时间桶的延迟草图求分位数，不再加载和排序原始延迟样本
      */
     public Mono<Map<String, Object>> getPerformanceStatistics(LocalDateTime startTime, LocalDateTime endTime) {
-        Flux<LLMTrace> traces;
-        if (startTime != null && endTime != null) {
-            traces = findTracesByTimeRange(startTime, endTime, Pageable.unpaged());
-        } else {
-            traces = repository.findAll();
-        }
-
-        return traces.collectList()
-                .map(traceList -> {
+        return rollupService.total(rollupService.findRollupsInRange(LLMUsageRollupService.Filter.all(), startTime, endTime))
+                .map(totals -> {
                     Map<String, Object> perfStats = new HashMap<>();
-                    
-                    // 过滤有效性能数据
-                    List<LLMTrace> validTraces = traceList.stream()
-                            .filter(trace -> trace.getPerformance() != null && trace.getPerformance().getTotalDurationMs() != null)
-                            .toList();
 
-                    if (!validTraces.isEmpty()) {
+                    if (totals.getLatencyCount() > 0) {
                         // 总耗时统计
-                        double avgTotalDuration = validTraces.stream()
-                                .mapToLong(trace -> trace.getPerformance().getTotalDurationMs())
-                                .average()
-                                .orElse(0.0);
-                        long maxTotalDuration = validTraces.stream()
-                                .mapToLong(trace -> trace.getPerformance().getTotalDurationMs())
-                                .max()
-                                .orElse(0L);
-                        long minTotalDuration = validTraces.stream()
-                                .mapToLong(trace -> trace.getPerformance().getTotalDurationMs())
-                                .min()
-                                .orElse(0L);
-
-                        perfStats.put("avgTotalDuration", avgTotalDuration);
-                        perfStats.put("maxTotalDuration", maxTotalDuration);
-                        perfStats.put("minTotalDuration", minTotalDuration);
+                        perfStats.put("avgTotalDuration", totals.getAvgLatencyMs());
+                        perfStats.put("maxTotalDuration", totals.getLatencyMaxMs() != null ? totals.getLatencyMaxMs() : 0L);
+                        perfStats.put("minTotalDuration", totals.getLatencyMinMs() != null ? totals.getLatencyMinMs() : 0L);
+                        perfStats.put("p50TotalDuration", totals.latencyPercentile(50));
+                        perfStats.put("p90TotalDuration", totals.latencyPercentile(90));
+                        perfStats.put("p95TotalDuration", totals.latencyPercentile(95));
+                        perfStats.put("p99TotalDuration", totals.latencyPercentile(99));
 
                         // 请求延迟统计
-                        List<LLMTrace> requestLatencyTraces = validTraces.stream()
-                                .filter(trace -> trace.getPerformance().getRequestLatencyMs() != null)
-                                .toList();
-                        
-                        if (!requestLatencyTraces.isEmpty()) {
-                            double avgRequestLatency = requestLatencyTraces.stream()
-                                    .mapToLong(trace -> trace.getPerformance() != null ? trace.getPerformance().getRequestLatencyMs() : 0L)
-                                    .average()
-                                    .orElse(0.0);
-                            perfStats.put("avgRequestLatency", avgRequestLatency);
+                        if (totals.getRequestLatencyCount() > 0) {
+                            perfStats.put("avgRequestLatency", totals.getAvgRequestLatencyMs());
                         }
 
                         // 首token延迟统计
-                        List<LLMTrace> firstTokenTraces = validTraces.stream()
-                                .filter(trace -> trace.getPerformance().getFirstTokenLatencyMs() != null)
-                                .toList();
-                        
-                        if (!firstTokenTraces.isEmpty()) {
-                            double avgFirstTokenLatency = firstTokenTraces.stream()
-                                    .mapToLong(trace -> trace.getPerformance() != null ? trace.getPerformance().getFirstTokenLatencyMs() : 0L)
-                                    .average()
-                                    .orElse(0.0);
-                            perfStats.put("avgFirstTokenLatency", avgFirstTokenLatency);
+                        if (totals.getFirstTokenLatencyCount() > 0) {
+                            perfStats.put("avgFirstTokenLatency", totals.getAvgFirstTokenLatencyMs());
                         }
 
                         // 性能分布
-                        long slowCalls = validTraces.stream()
-                                .filter(trace -> trace.getPerformance().getTotalDurationMs() > 5000) // >5s
-                                .count();
-                        perfStats.put("slowCalls", slowCalls);
-                        perfStats.put("slowCallsRate", (double) slowCalls / validTraces.size() * 100);
+                        perfStats.put("slowCalls", totals.getSlowCalls());
+                        perfStats.put("slowCallsRate", (double) totals.getSlowCalls() / totals.getLatencyCount() * 100);
                     }
 
-                    perfStats.put("totalCallsWithPerformanceData", validTraces.size());
+                    perfStats.put("totalCallsWithPerformanceData", totals.getLatencyCount());
                     
                     return perfStats;
                 });
@@ -942,7 +896,9 @@ public class LLMTraceService {
      * 导出追踪记录
      */
     public Mono<List<LLMTrace>> exportTraces(Map<String, Object> filterCriteria) {
-        return repository.findAll().collectList();
+        return repository.findAll()
+                .flatMapSequential(payloadStore::hydrate, 8)
+                .collectList();
     }
 
     /**
@@ -950,7 +906,22 @@ public class LLMTraceService {
      */
     public Mono<Long> cleanupOldTraces(LocalDateTime beforeTime) {
         Instant before = beforeTime.atZone(java.time.ZoneId.systemDefault()).toInstant();
-        return repository.deleteByCreatedAtBefore(before);
+        // 正文按写入日期分目录，只删除整天早于截止时间的部分，避免删掉仍被引用的正文
+        return repository.deleteByCreatedAtBefore(before)
+                .flatMap(deleted -> payloadStore.deleteBefore(beforeTime.toLocalDate())
+                        .doOnNext(files -> log.info("清理LLM追踪正文: {} 个目录/归档文件", files))
+                        .onErrorResume(e -> {
+                            log.warn("清理LLM追踪正文失败: {}", e.getMessage());
+                            return Mono.just(0);
+                        })
+                        .thenReturn(deleted));
+    }
+
+    /**
+     * 按现有追踪记录重建调用量预聚合数据
+     */
+    public Mono<Long> rebuildUsageRollups() {
+        return rollupService.rebuild();
     }
 
     /**
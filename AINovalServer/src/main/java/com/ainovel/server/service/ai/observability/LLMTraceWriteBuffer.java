@@ -0,0 +1,286 @@
+package com.ainovel.server.service.ai.observability;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ainovel.server.domain.model.observability.LLMTrace;
+import com.ainovel.server.service.billing.BillingKeys;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * LLM追踪记录写缓冲（write-behind）
+ *
+ * - 追踪事件只放入内存缓冲，按 traceId 合并：同一调用在刷新前的多次保存只写最后一个版本
+ * - 缓冲条数达到 flush-size 或每隔 flush-interval-ms 刷新一次，每批一次 bulk upsert（见 {@link LLMTraceService#saveBatch}）
+ * - 缓冲达到 capacity 后，普通的成功调用按 overflow-sample-rate 采样保留，其余丢弃并计数；
+ *   出错的调用和需要流式后扣费的调用（对账依赖其追踪记录）始终保留
+ *
+ * - 写库失败的批次不丢弃：其中的记录按指数退避（retry-backoff-ms 起，最长 1 分钟）重新排队，最多重试 max-retries 次；
+ *   重试期间同一 traceId 有新版本入缓冲时以新版本为准，旧版本不再重写
+ *
+ * 入缓冲是 O(1) 的内存操作，生成链路不再等待追踪写库。
+ * 指标：llm.trace.buffer.depth、llm.trace.buffer.flush（刷新耗时）、llm.trace.buffer.dropped、
+ * llm.trace.buffer.coalesced、llm.trace.buffer.flush.failed（写库失败次数）、llm.trace.buffer.retry.exhausted（重试耗尽后丢弃）
+ */
+@Slf4j
+@Component
+public class LLMTraceWriteBuffer {
+
+    private final LLMTraceService traceService;
+    private final boolean enabled;
+    private final int capacity;
+    private final int flushSize;
+    private final double overflowSampleRate;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final Map<String, LLMTrace> pending = new ConcurrentHashMap<>();
+    /** 写库失败、等待退避后重试的记录 */
+    private final Map<String, RetryEntry> retries = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    private final Timer flushTimer;
+    private final Counter droppedCounter;
+    private final Counter coalescedCounter;
+    private final Counter flushFailedCounter;
+    private final Counter retryExhaustedCounter;
+
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 60_000L;
+
+    private record RetryEntry(LLMTrace trace, int attempts, long notBeforeMillis) {
+    }
+
+    private record Drained(String key, LLMTrace trace, int attempts) {
+    }
+
+    @Autowired
+    public LLMTraceWriteBuffer(LLMTraceService traceService,
+                               MeterRegistry meterRegistry,
+                               @Value("${observability.llmtrace.write-buffer.enabled:true}") boolean enabled,
+                               @Value("${observability.llmtrace.write-buffer.capacity:5000}") int capacity,
+                               @Value("${observability.llmtrace.write-buffer.flush-size:200}") int flushSize,
+                               @Value("${observability.llmtrace.write-buffer.overflow-sample-rate:0.1}") double overflowSampleRate,
+                               @Value("${observability.llmtrace.write-buffer.max-retries:5}") int maxRetries,
+                               @Value("${observability.llmtrace.write-buffer.retry-backoff-ms:1000}") long retryBackoffMillis) {
+        this.traceService = traceService;
+        this.enabled = enabled;
+        this.capacity = Math.max(1, capacity);
+        this.flushSize = Math.max(1, Math.min(flushSize, this.capacity));
+        this.overflowSampleRate = Math.max(0.0, Math.min(1.0, overflowSampleRate));
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryBackoffMillis = Math.max(0L, retryBackoffMillis);
+
+        Gauge.builder("llm.trace.buffer.depth", this, buffer -> buffer.pending.size() + buffer.retries.size())
+                .description("LLM追踪写缓冲中待写入的记录数")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("llm.trace.buffer.flush")
+                .description("LLM追踪写缓冲每批刷新耗时")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("llm.trace.buffer.dropped")
+                .description("缓冲已满时被丢弃的LLM追踪记录数")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("llm.trace.buffer.coalesced")
+                .description("按traceId合并掉的重复保存次数")
+                .register(meterRegistry);
+        this.flushFailedCounter = Counter.builder("llm.trace.buffer.flush.failed")
+                .description("写库失败的LLM追踪记录数")
+                .register(meterRegistry);
+        this.retryExhaustedCounter = Counter.builder("llm.trace.buffer.retry.exhausted")
+                .description("重试次数耗尽后丢弃的LLM追踪记录数")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 放入缓冲
+     *
+     * @param trace 追踪记录
+     * @return 是否被保留（缓冲已满且未被采样时返回false）
+     */
+    public boolean offer(LLMTrace trace) {
+        if (trace == null) {
+            return false;
+        }
+        String key = trace.getTraceId() != null && !trace.getTraceId().isBlank()
+                ? trace.getTraceId()
+                : "untraced:" + UUID.randomUUID();
+        // 新版本取代等待重试的旧版本
+        if (retries.remove(key) != null) {
+            coalescedCounter.increment();
+        }
+        if (pending.replace(key, trace) != null) {
+            coalescedCounter.increment();
+            return true;
+        }
+        if (pending.size() + retries.size() >= capacity && !mustKeep(trace)
+                && ThreadLocalRandom.current().nextDouble() >= overflowSampleRate) {
+            droppedCounter.increment();
+            log.debug("LLM追踪写缓冲已满，丢弃记录: traceId={}", trace.getTraceId());
+            return false;
+        }
+        if (pending.putIfAbsent(key, trace) != null) {
+            // 并发放入了同一 traceId，以本次为准
+            pending.put(key, trace);
+            coalescedCounter.increment();
+        }
+        if (pending.size() >= flushSize) {
+            triggerFlush();
+        }
+        return true;
+    }
+
+    /**
+     * 出错的调用与需要流式后扣费的调用不参与采样丢弃
+     */
+    private static boolean mustKeep(LLMTrace trace) {
+        if (trace.getError() != null) {
+            return true;
+        }
+        if (trace.getRequest() == null || trace.getRequest().getParameters() == null
+                || trace.getRequest().getParameters().getProviderSpecific() == null) {
+            return false;
+        }
+        return Boolean.TRUE.equals(trace.getRequest().getParameters().getProviderSpecific()
+                .get(BillingKeys.REQUIRES_POST_STREAM_DEDUCTION));
+    }
+
+    /**
+     * 定时刷新
+     */
+    @Scheduled(fixedDelayString = "${observability.llmtrace.write-buffer.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        triggerFlush();
+    }
+
+    private void triggerFlush() {
+        if ((pending.isEmpty() && !hasDueRetries(System.currentTimeMillis())) || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        flush(false)
+            .subscribeOn(Schedulers.boundedElastic())
+            .doFinally(signal -> {
+                flushing.set(false);
+                // 刷新期间又积累满一批时立即继续
+                if (pending.size() >= flushSize) {
+                    triggerFlush();
+                }
+            })
+            .subscribe(
+                count -> log.debug("LLM追踪写缓冲刷新完成: {} 条", count),
+                e -> log.error("LLM追踪写缓冲刷新失败: {}", e.getMessage(), e));
+    }
+
+    /**
+     * 取出当前缓冲中的全部记录与到期的重试记录，按 flush-size 分批写库；失败的批次重新排队
+     *
+     * @param includeAllRetries 是否忽略退避时间取出全部重试记录（停机时）
+     * @return 写入成功的记录数
+     */
+    private Mono<Long> flush(boolean includeAllRetries) {
+        return Flux.fromIterable(drain(includeAllRetries))
+            .buffer(flushSize)
+            .concatMap(batch -> {
+                Timer.Sample sample = Timer.start();
+                return traceService.saveBatch(batch.stream().map(Drained::trace).toList())
+                    .doOnSuccess(count -> sample.stop(flushTimer))
+                    .onErrorResume(e -> {
+                        sample.stop(flushTimer);
+                        flushFailedCounter.increment(batch.size());
+                        log.error("LLM追踪记录批量写入失败，重新排队: {} 条, error={}", batch.size(), e.getMessage());
+                        scheduleRetry(batch);
+                        return Mono.just(0);
+                    });
+            })
+            .reduce(0L, (total, count) -> total + count);
+    }
+
+    private void scheduleRetry(List<Drained> batch) {
+        long now = System.currentTimeMillis();
+        for (Drained entry : batch) {
+            if (pending.containsKey(entry.key())) {
+                // 失败期间已有新版本入缓冲，由新版本写入
+                continue;
+            }
+            int attempts = entry.attempts() + 1;
+            if (attempts > maxRetries) {
+                retryExhaustedCounter.increment();
+                if (mustKeep(entry.trace())) {
+                    log.error("LLM追踪记录重试 {} 次仍写入失败，已丢弃（需对账）: traceId={}", maxRetries, entry.trace().getTraceId());
+                } else {
+                    log.warn("LLM追踪记录重试 {} 次仍写入失败，已丢弃: traceId={}", maxRetries, entry.trace().getTraceId());
+                }
+                continue;
+            }
+            long backoff = Math.min(MAX_RETRY_BACKOFF_MILLIS, retryBackoffMillis << Math.min(attempts - 1, 16));
+            retries.putIfAbsent(entry.key(), new RetryEntry(entry.trace(), attempts, now + backoff));
+        }
+    }
+
+    private boolean hasDueRetries(long now) {
+        for (RetryEntry entry : retries.values()) {
+            if (entry.notBeforeMillis() <= now) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Drained> drain(boolean includeAllRetries) {
+        List<Drained> drained = new ArrayList<>(pending.size());
+        Iterator<String> keys = pending.keySet().iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            LLMTrace trace = pending.remove(key);
+            if (trace != null) {
+                drained.add(new Drained(key, trace, 0));
+            }
+        }
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, RetryEntry> entry : retries.entrySet()) {
+            RetryEntry retry = entry.getValue();
+            if ((includeAllRetries || retry.notBeforeMillis() <= now) && retries.remove(entry.getKey(), retry)) {
+                drained.add(new Drained(entry.getKey(), retry.trace(), retry.attempts()));
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * 停机前写出缓冲中剩余的记录
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        if (pending.isEmpty() && retries.isEmpty()) {
+            return;
+        }
+        log.info("停机前写出LLM追踪写缓冲中的 {} 条记录（含等待重试 {} 条）", pending.size() + retries.size(), retries.size());
+        try {
+            flush(true).block(Duration.ofSeconds(10));
+        } catch (Exception e) {
+            log.warn("停机前写出LLM追踪记录失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,548 @@
+package com.ainovel.server.service.ai.observability;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.ainovel.server.domain.model.observability.LLMTrace;
+import com.ainovel.server.domain.model.observability.LLMUsageRollup;
+import com.ainovel.server.domain.model.observability.LLMUsageRollup.Granularity;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * LLM调用量预聚合服务
+ *
+ * 追踪记录保存时，按小时和天两个粒度对 (用户, 提供商, 模型, 业务类型) 维度做 $inc 增量更新；
+ * 同一 traceId 被多次保存（流式调用先后写入请求与响应）时，先扣除上一次保存的贡献再加上本次的贡献，计数不会重复。
+ *
+ * 查询时按时间范围组合小时与天两种粒度（整天用天数据，首尾不足一天的部分用小时数据），
+ * 读取的记录数只与时间范围和维度组合数有关，与调用次数无关；延迟分位数由每条记录中的
+ * {@link LatencySketch} 合并后估算，查询内存固定。
+ */
+@Slf4j
+@Service
+public class LLMUsageRollupService {
+
+    /**
+     * 计算调用量贡献所需的追踪字段，保存前读取旧文档时只投影这些字段
+     */
+    public static final String[] CONTRIBUTION_FIELDS = {
+        "userId", "provider", "model", "businessType", "createdAt",
+        "error.type", "response.metadata.tokenUsage", "performance"
+    };
+
+    /**
+     * 慢调用阈值（与性能统计保持一致）
+     */
+    static final long SLOW_CALL_THRESHOLD_MS = 5000L;
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final boolean backfillOnStartup;
+    private final int hourlyRetentionDays;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    @Autowired
+    public LLMUsageRollupService(ReactiveMongoTemplate mongoTemplate,
+                                 @Value("${observability.llmtrace.rollup.backfill-on-startup:true}") boolean backfillOnStartup,
+                                 @Value("${observability.llmtrace.rollup.hourly-retention-days:90}") int hourlyRetentionDays) {
+        this.mongoTemplate = mongoTemplate;
+        this.backfillOnStartup = backfillOnStartup;
+        this.hourlyRetentionDays = hourlyRetentionDays;
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 记录一次追踪保存带来的计数变化
+     *
+     * @param previous 保存前的追踪记录（只需 {@link #CONTRIBUTION_FIELDS}），首次保存时为null
+     * @param current 本次保存的追踪记录
+     */
+    public Mono<Void> applyChange(LLMTrace previous, LLMTrace current) {
+        Map<String, Delta> deltas = new HashMap<>();
+        accumulate(deltas, contributionOf(previous), -1);
+        accumulate(deltas, contributionOf(current), 1);
+        return writeDeltas(deltas);
+    }
+
+    /**
+     * 记录一批追踪保存带来的计数变化，整批合并后每条预聚合记录只写一次
+     *
+     * @param previous 本批中已存在记录保存前的版本（只需 {@link #CONTRIBUTION_FIELDS}）
+     * @param current 本批保存的追踪记录
+     */
+    public Mono<Void> applyChanges(List<LLMTrace> previous, List<LLMTrace> current) {
+        Map<String, Delta> deltas = new HashMap<>();
+        previous.forEach(trace -> accumulate(deltas, contributionOf(trace), -1));
+        current.forEach(trace -> accumulate(deltas, contributionOf(trace), 1));
+        return writeDeltas(deltas);
+    }
+
+    private void accumulate(Map<String, Delta> deltas, Contribution contribution, int sign) {
+        if (contribution == null) {
+            return;
+        }
+        for (Granularity granularity : Granularity.values()) {
+            Instant bucketStart = align(granularity, contribution.createdAt());
+            String id = rollupId(granularity, bucketStart, contribution);
+            deltas.computeIfAbsent(id, key -> new Delta(id, granularity, bucketStart, contribution))
+                  .add(contribution, sign);
+        }
+    }
+
+    private Mono<Void> writeDeltas(Map<String, Delta> deltas) {
+        return Flux.fromIterable(deltas.values())
+            .filter(delta -> !delta.isEmpty())
+            .flatMap(delta -> mongoTemplate.upsert(new Query(Criteria.where("_id").is(delta.id)),
+                    delta.toUpdate(), LLMUsageRollup.class), 4)
+            .then();
+    }
+
+    private Contribution contributionOf(LLMTrace trace) {
+        if (trace == null || trace.getCreatedAt() == null) {
+            return null;
+        }
+        LLMTrace.TokenUsageInfo usage = trace.getResponse() != null && trace.getResponse().getMetadata() != null
+                ? trace.getResponse().getMetadata().getTokenUsage() : null;
+        long input = usage != null && usage.getInputTokenCount() != null ? usage.getInputTokenCount() : 0;
+        long output = usage != null && usage.getOutputTokenCount() != null ? usage.getOutputTokenCount() : 0;
+        long total = usage != null && usage.getTotalTokenCount() != null ? usage.getTotalTokenCount() : input + output;
+        LLMTrace.Performance performance = trace.getPerformance();
+        return new Contribution(trace.getUserId(), trace.getProvider(), trace.getModel(), trace.getBusinessType(),
+                trace.getCreatedAt(), trace.getError() != null, input, output, total,
+                performance != null ? performance.getTotalDurationMs() : null,
+                performance != null ? performance.getRequestLatencyMs() : null,
+                performance != null ? performance.getFirstTokenLatencyMs() : null);
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 查询条件，为null的维度不过滤
+     */
+    public record Filter(String userId, String provider, String model, String businessType) {
+
+        public static Filter all() {
+            return new Filter(null, null, null, null);
+        }
+
+        public static Filter ofUser(String userId) {
+            return new Filter(userId, null, null, null);
+        }
+
+        Criteria apply(Criteria criteria) {
+            if (userId != null) criteria.and("userId").is(userId);
+            if (provider != null) criteria.and("provider").is(provider);
+            if (model != null) criteria.and("model").is(model);
+            if (businessType != null) criteria.and("businessType").is(businessType);
+            return criteria;
+        }
+    }
+
+    /**
+     * 查询指定粒度的预聚合数据
+     *
+     * @param granularity 粒度
+     * @param filter 维度过滤
+     * @param startTime 开始时间（对齐到所在的桶），为null表示不限
+     * @param endTime 结束时间（包含所在的桶），为null表示不限
+     */
+    public Flux<LLMUsageRollup> findRollups(Granularity granularity, Filter filter,
+                                            LocalDateTime startTime, LocalDateTime endTime) {
+        Instant from = startTime != null ? align(granularity, toInstant(startTime)) : null;
+        Instant to = endTime != null ? next(granularity, align(granularity, toInstant(endTime))) : null;
+        return findRollups(granularity, filter, from, to);
+    }
+
+    /**
+     * 查询时间范围内的预聚合数据：整天部分读天数据，首尾不足一天的部分读小时数据
+     *
+     * @param filter 维度过滤
+     * @param startTime 开始时间，与结束时间任一为null时返回全部天数据
+     * @param endTime 结束时间
+     */
+    public Flux<LLMUsageRollup> findRollupsInRange(Filter filter, LocalDateTime startTime, LocalDateTime endTime) {
+        if (startTime == null || endTime == null) {
+            return findRollups(Granularity.DAY, filter, (Instant) null, null);
+        }
+        Instant hourFrom = align(Granularity.HOUR, toInstant(startTime));
+        Instant hourTo = next(Granularity.HOUR, align(Granularity.HOUR, toInstant(endTime)));
+        Instant dayFrom = align(Granularity.DAY, hourFrom);
+        if (dayFrom.isBefore(hourFrom)) {
+            dayFrom = next(Granularity.DAY, dayFrom);
+        }
+        Instant dayTo = align(Granularity.DAY, hourTo);
+
+        // 小时数据超过保留期后已被清理，首尾不足一天的部分退化为整天
+        Instant hourlyHorizon = hourlyHorizon();
+        if (hourlyHorizon != null && hourFrom.isBefore(hourlyHorizon)) {
+            dayFrom = align(Granularity.DAY, hourFrom);
+        }
+        if (hourlyHorizon != null && dayTo.isBefore(hourlyHorizon) && dayTo.isBefore(hourTo)) {
+            dayTo = next(Granularity.DAY, dayTo);
+        }
+
+        if (!dayFrom.isBefore(dayTo)) {
+            return findRollups(Granularity.HOUR, filter, hourFrom, hourTo);
+        }
+        Flux<LLMUsageRollup> head = hourFrom.isBefore(dayFrom)
+                ? findRollups(Granularity.HOUR, filter, hourFrom, dayFrom) : Flux.empty();
+        Flux<LLMUsageRollup> tail = dayTo.isBefore(hourTo)
+                ? findRollups(Granularity.HOUR, filter, dayTo, hourTo) : Flux.empty();
+        return Flux.concat(head, findRollups(Granularity.DAY, filter, dayFrom, dayTo), tail);
+    }
+
+    private Flux<LLMUsageRollup> findRollups(Granularity granularity, Filter filter, Instant from, Instant toExclusive) {
+        Criteria criteria = Criteria.where("granularity").is(granularity);
+        if (from != null && toExclusive != null) {
+            criteria.and("bucketStart").gte(from).lt(toExclusive);
+        } else if (from != null) {
+            criteria.and("bucketStart").gte(from);
+        } else if (toExclusive != null) {
+            criteria.and("bucketStart").lt(toExclusive);
+        }
+        return mongoTemplate.find(new Query((filter != null ? filter : Filter.all()).apply(criteria)),
+                LLMUsageRollup.class);
+    }
+
+    /**
+     * 按维度合并预聚合数据，keyFunction 返回null的记录被忽略
+     */
+    public <K> Mono<Map<K, Totals>> aggregate(Flux<LLMUsageRollup> rollups, Function<LLMUsageRollup, K> keyFunction) {
+        return rollups.reduceWith(HashMap<K, Totals>::new, (result, rollup) -> {
+            K key = keyFunction.apply(rollup);
+            if (key != null) {
+                result.computeIfAbsent(key, k -> new Totals()).add(rollup);
+            }
+            return result;
+        }).map(result -> (Map<K, Totals>) result);
+    }
+
+    /**
+     * 合并全部预聚合数据
+     */
+    public Mono<Totals> total(Flux<LLMUsageRollup> rollups) {
+        return rollups.reduceWith(Totals::new, Totals::add);
+    }
+
+    /**
+     * 合并后的统计值
+     */
+    @Getter
+    public static class Totals {
+        private long calls;
+        private long errors;
+        private long inputTokens;
+        private long outputTokens;
+        private long totalTokens;
+        private long latencyCount;
+        private long latencySumMs;
+        private Long latencyMinMs;
+        private Long latencyMaxMs;
+        private long slowCalls;
+        private long requestLatencyCount;
+        private long requestLatencySumMs;
+        private long firstTokenLatencyCount;
+        private long firstTokenLatencySumMs;
+        private final LatencySketch latencySketch = new LatencySketch();
+
+        public Totals add(LLMUsageRollup rollup) {
+            calls += rollup.getCalls();
+            errors += rollup.getErrors();
+            inputTokens += rollup.getInputTokens();
+            outputTokens += rollup.getOutputTokens();
+            totalTokens += rollup.getTotalTokens();
+            latencyCount += rollup.getLatencyCount();
+            latencySumMs += rollup.getLatencySumMs();
+            slowCalls += rollup.getSlowCalls();
+            requestLatencyCount += rollup.getRequestLatencyCount();
+            requestLatencySumMs += rollup.getRequestLatencySumMs();
+            firstTokenLatencyCount += rollup.getFirstTokenLatencyCount();
+            firstTokenLatencySumMs += rollup.getFirstTokenLatencySumMs();
+            if (rollup.getLatencyMinMs() != null) {
+                latencyMinMs = latencyMinMs == null ? rollup.getLatencyMinMs() : Math.min(latencyMinMs, rollup.getLatencyMinMs());
+            }
+            if (rollup.getLatencyMaxMs() != null) {
+                latencyMaxMs = latencyMaxMs == null ? rollup.getLatencyMaxMs() : Math.max(latencyMaxMs, rollup.getLatencyMaxMs());
+            }
+            latencySketch.merge(rollup.getLatencySketch());
+            return this;
+        }
+
+        public long getSuccessfulCalls() {
+            return calls - errors;
+        }
+
+        /**
+         * 成功率（百分比）
+         */
+        public double getSuccessRate() {
+            return calls == 0 ? 0.0 : (double) getSuccessfulCalls() / calls * 100;
+        }
+
+        public double getAvgLatencyMs() {
+            return latencyCount == 0 ? 0.0 : (double) latencySumMs / latencyCount;
+        }
+
+        public double getAvgRequestLatencyMs() {
+            return requestLatencyCount == 0 ? 0.0 : (double) requestLatencySumMs / requestLatencyCount;
+        }
+
+        public double getAvgFirstTokenLatencyMs() {
+            return firstTokenLatencyCount == 0 ? 0.0 : (double) firstTokenLatencySumMs / firstTokenLatencyCount;
+        }
+
+        /**
+         * 由合并后的延迟草图估算总耗时分位数，结果限制在实际最小/最大值之间
+         *
+         * @param percentile 分位（0-100）
+         */
+        public double latencyPercentile(double percentile) {
+            if (latencySketch.getTotalCount() <= 0) {
+                return 0;
+            }
+            double value = latencySketch.quantile(percentile);
+            if (latencyMaxMs != null) {
+                value = Math.min(value, latencyMaxMs);
+            }
+            if (latencyMinMs != null) {
+                value = Math.max(value, latencyMinMs);
+            }
+            return value;
+        }
+    }
+
+    // ==================== 回填与清理 ====================
+
+    /**
+     * 启动时若预聚合数据为空而追踪记录非空，则按现有追踪记录回填一次
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        Instant cutoff = Instant.now();
+        mongoTemplate.exists(new Query(), LLMUsageRollup.class)
+            .filter(exists -> !exists)
+            .flatMap(empty -> mongoTemplate.exists(new Query(), LLMTrace.class))
+            .filter(Boolean::booleanValue)
+            .flatMap(hasTraces -> backfill(cutoff))
+            .subscribe(
+                count -> log.info("LLM调用量预聚合回填完成，追踪记录数: {}", count),
+                e -> log.error("LLM调用量预聚合回填失败: {}", e.getMessage(), e));
+    }
+
+    /**
+     * 清空并按现有追踪记录重建预聚合数据。
+     * 已通过 cleanupOldTraces 删除的追踪记录无法恢复其计数，建议在低峰期执行。
+     *
+     * @return 参与重建的追踪记录数
+     */
+    public Mono<Long> rebuild() {
+        return mongoTemplate.remove(new Query(), LLMUsageRollup.class)
+            .then(Mono.defer(() -> backfill(Instant.now())));
+    }
+
+    /**
+     * 将 cutoff 之前创建的追踪记录计入预聚合（之后创建的由保存时的增量维护）
+     */
+    private Mono<Long> backfill(Instant cutoff) {
+        Query query = new Query(Criteria.where("createdAt").lt(cutoff));
+        query.fields().include(CONTRIBUTION_FIELDS);
+        return mongoTemplate.find(query, LLMTrace.class)
+            .buffer(BACKFILL_BATCH_SIZE)
+            .concatMap(batch -> {
+                Map<String, Delta> deltas = new HashMap<>();
+                batch.forEach(trace -> accumulate(deltas, contributionOf(trace), 1));
+                return writeDeltas(deltas).thenReturn((long) batch.size());
+            })
+            .reduce(0L, Long::sum);
+    }
+
+    /**
+     * 清理超过保留期的小时数据（天数据长期保留）
+     */
+    @Scheduled(cron = "${observability.llmtrace.rollup.purge-cron:0 30 3 * * *}")
+    public void purgeExpiredHourlyRollups() {
+        Instant horizon = hourlyHorizon();
+        if (horizon == null) {
+            return;
+        }
+        Query query = new Query(Criteria.where("granularity").is(Granularity.HOUR).and("bucketStart").lt(horizon));
+        mongoTemplate.remove(query, LLMUsageRollup.class)
+            .subscribe(
+                result -> log.info("已清理过期的LLM小时预聚合数据: {} 条", result.getDeletedCount()),
+                e -> log.error("清理LLM小时预聚合数据失败: {}", e.getMessage(), e));
+    }
+
+    // ==================== 时间桶 ====================
+
+    private Instant hourlyHorizon() {
+        return hourlyRetentionDays > 0
+                ? align(Granularity.DAY, Instant.now().minus(hourlyRetentionDays, ChronoUnit.DAYS)) : null;
+    }
+
+    private Instant toInstant(LocalDateTime time) {
+        return time.atZone(zone).toInstant();
+    }
+
+    private Instant align(Granularity granularity, Instant time) {
+        return granularity == Granularity.HOUR
+                ? time.atZone(zone).truncatedTo(ChronoUnit.HOURS).toInstant()
+                : time.atZone(zone).toLocalDate().atStartOfDay(zone).toInstant();
+    }
+
+    private Instant next(Granularity granularity, Instant bucketStart) {
+        return granularity == Granularity.HOUR
+                ? bucketStart.plus(1, ChronoUnit.HOURS)
+                : bucketStart.atZone(zone).toLocalDate().plusDays(1).atStartOfDay(zone).toInstant();
+    }
+
+    private static String rollupId(Granularity granularity, Instant bucketStart, Contribution contribution) {
+        return String.join("|", granularity.name(), String.valueOf(bucketStart.toEpochMilli()),
+                orDash(contribution.userId()), orDash(contribution.provider()),
+                orDash(contribution.model()), orDash(contribution.businessType()));
+    }
+
+    private static String orDash(String value) {
+        return value != null ? value : "-";
+    }
+
+    /**
+     * 单条追踪记录对计数的贡献
+     */
+    private record Contribution(String userId, String provider, String model, String businessType, Instant createdAt,
+                                boolean error, long inputTokens, long outputTokens, long totalTokens,
+                                Long latencyMs, Long requestLatencyMs, Long firstTokenLatencyMs) {
+    }
+
+    /**
+     * 单条预聚合记录待写入的增量
+     */
+    private static final class Delta {
+        private final String id;
+        private final Granularity granularity;
+        private final Instant bucketStart;
+        private final Contribution dimensions;
+        private long calls;
+        private long errors;
+        private long inputTokens;
+        private long outputTokens;
+        private long totalTokens;
+        private long latencyCount;
+        private long latencySumMs;
+        private long slowCalls;
+        private long requestLatencyCount;
+        private long requestLatencySumMs;
+        private long firstTokenLatencyCount;
+        private long firstTokenLatencySumMs;
+        private Long latencyMinMs;
+        private Long latencyMaxMs;
+        private final Map<String, Long> latencySketch = new HashMap<>();
+
+        Delta(String id, Granularity granularity, Instant bucketStart, Contribution dimensions) {
+            this.id = id;
+            this.granularity = granularity;
+            this.bucketStart = bucketStart;
+            this.dimensions = dimensions;
+        }
+
+        void add(Contribution c, int sign) {
+            calls += sign;
+            errors += c.error() ? sign : 0;
+            inputTokens += sign * c.inputTokens();
+            outputTokens += sign * c.outputTokens();
+            totalTokens += sign * c.totalTokens();
+            if (c.latencyMs() != null) {
+                long latency = c.latencyMs();
+                latencyCount += sign;
+                latencySumMs += sign * latency;
+                slowCalls += latency > SLOW_CALL_THRESHOLD_MS ? sign : 0;
+                latencySketch.merge(String.valueOf(LatencySketch.indexOf(latency)), (long) sign, Long::sum);
+                // 最小/最大值无法扣除，只随新的贡献更新
+                if (sign > 0) {
+                    latencyMinMs = latencyMinMs == null ? latency : Math.min(latencyMinMs, latency);
+                    latencyMaxMs = latencyMaxMs == null ? latency : Math.max(latencyMaxMs, latency);
+                }
+            }
+            if (c.requestLatencyMs() != null) {
+                requestLatencyCount += sign;
+                requestLatencySumMs += sign * c.requestLatencyMs();
+            }
+            if (c.firstTokenLatencyMs() != null) {
+                firstTokenLatencyCount += sign;
+                firstTokenLatencySumMs += sign * c.firstTokenLatencyMs();
+            }
+        }
+
+        /**
+         * 增量全部抵消（同一追踪记录重复保存且内容未变）时无需写入
+         */
+        boolean isEmpty() {
+            return calls == 0 && errors == 0 && inputTokens == 0 && outputTokens == 0 && totalTokens == 0
+                    && latencyCount == 0 && latencySumMs == 0 && slowCalls == 0
+                    && requestLatencyCount == 0 && requestLatencySumMs == 0
+                    && firstTokenLatencyCount == 0 && firstTokenLatencySumMs == 0
+                    && latencySketch.values().stream().allMatch(count -> count == 0);
+        }
+
+        Update toUpdate() {
+            Update update = new Update()
+                    .setOnInsert("granularity", granularity)
+                    .setOnInsert("bucketStart", bucketStart)
+                    .setOnInsert("userId", dimensions.userId())
+                    .setOnInsert("provider", dimensions.provider())
+                    .setOnInsert("model", dimensions.model())
+                    .setOnInsert("businessType", dimensions.businessType());
+            inc(update, "calls", calls);
+            inc(update, "errors", errors);
+            inc(update, "inputTokens", inputTokens);
+            inc(update, "outputTokens", outputTokens);
+            inc(update, "totalTokens", totalTokens);
+            inc(update, "latencyCount", latencyCount);
+            inc(update, "latencySumMs", latencySumMs);
+            inc(update, "slowCalls", slowCalls);
+            inc(update, "requestLatencyCount", requestLatencyCount);
+            inc(update, "requestLatencySumMs", requestLatencySumMs);
+            inc(update, "firstTokenLatencyCount", firstTokenLatencyCount);
+            inc(update, "firstTokenLatencySumMs", firstTokenLatencySumMs);
+            latencySketch.forEach((bucket, count) -> inc(update, "latencySketch." + bucket, count));
+            if (latencyMinMs != null) {
+                update.min("latencyMinMs", latencyMinMs);
+            }
+            if (latencyMaxMs != null) {
+                update.max("latencyMaxMs", latencyMaxMs);
+            }
+            return update;
+        }
+
+        private static void inc(Update update, String field, long value) {
+            if (value != 0) {
+                update.inc(field, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.ainovel.server.service.ai.observability;
+
+import java.util.Map;
+
+/**
+ * 可合并的延迟分位数草图（HDR 直方图风格的对数-线性分桶）
+ *
+ * - 小于 16ms 的值每毫秒一个桶；之后每个 2 的幂区间再均分为 16 个子桶，相对误差不超过 1/16
+ * - 桶的数量有上限（覆盖到约 2^31 ms），与样本数量无关
+ * - 两个草图按桶计数相加即可合并，因此可以按时间桶以 $inc 存储，查询时逐条合并后再求分位数
+ *
+ * 桶序号以字符串形式作为 Mongo 文档的字段名保存（"latencySketch.&lt;index&gt;"）。
+ */
+public final class LatencySketch {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 31;
+
+    /**
+     * 桶数量上限
+     */
+    public static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+
+    /**
+     * 计算延迟值所在的桶序号
+     */
+    public static int indexOf(long valueMs) {
+        long value = Math.max(0, valueMs);
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+        if (exponent == MAX_EXPONENT && value >= (1L << (MAX_EXPONENT + 1))) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1));
+        return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    /**
+     * 桶的下界（包含）
+     */
+    public static long lowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT + SUB_BUCKET_BITS;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return (1L << exponent) + ((long) subBucket << (exponent - SUB_BUCKET_BITS));
+    }
+
+    /**
+     * 桶的上界（不包含）
+     */
+    public static long upperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index + 1L;
+        }
+        int exponent = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT + SUB_BUCKET_BITS;
+        return lowerBound(index) + (1L << (exponent - SUB_BUCKET_BITS));
+    }
+
+    /**
+     * 记录一个延迟值
+     */
+    public LatencySketch record(long valueMs) {
+        return record(indexOf(valueMs), 1);
+    }
+
+    private LatencySketch record(int index, long count) {
+        if (index >= 0 && index < BUCKET_COUNT && count != 0) {
+            counts[index] += count;
+            totalCount += count;
+        }
+        return this;
+    }
+
+    /**
+     * 合并以桶序号字符串为键的计数（即存储在预聚合文档中的形式）
+     */
+    public LatencySketch merge(Map<String, Long> storedCounts) {
+        if (storedCounts == null) {
+            return this;
+        }
+        storedCounts.forEach((key, count) -> {
+            if (count == null) {
+                return;
+            }
+            try {
+                record(Integer.parseInt(key), count);
+            } catch (NumberFormatException ignore) {
+                // 非草图字段，忽略
+            }
+        });
+        return this;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * 估算分位数：取目标排名所在桶，在桶内线性插值
+     *
+     * @param percentile 分位（0-100）
+     * @return 估算的延迟(ms)，无样本时为0
+     */
+    public double quantile(double percentile) {
+        if (totalCount <= 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = counts[i];
+            if (count <= 0) {
+                continue;
+            }
+            if (seen + count >= rank) {
+                long lower = lowerBound(i);
+                long width = upperBound(i) - lower;
+                return width <= 1 ? lower : lower + width * ((double) (rank - seen) / count);
+            }
+            seen += count;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,25 @@
+package com.ainovel.server.service.ai.observability.payload;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ainovel.server.domain.model.observability.LLMTrace;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 从追踪记录中拆出的大字段（完整提示词消息与响应消息），压缩后单独存储
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TracePayload {
+
+    private String traceId;
+
+    private List<LLMTrace.MessageInfo> requestMessages = new ArrayList<>();
+
+    private LLMTrace.MessageInfo responseMessage;
+}
@@ -0,0 +1,362 @@
+package com.ainovel.server.service.ai.observability.payload;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ainovel.server.domain.model.observability.LLMTrace;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * LLM追踪正文存储（本地磁盘，两级）
+ *
+ * - 热层：每条追踪一个 gzip 压缩的 JSON 文件，按写入日期分目录 hot/yyyyMMdd/
+ * - 归档层：定时任务把超过 archive-after-days 的热层目录压实为一个 pack 文件（多个 gzip 成员首尾相接），
+ *   追踪记录的 payloadRef 改为 pack 内的偏移与长度，随后删除热层目录
+ *
+ * 引用格式：热层 "hot/yyyyMMdd/name.json.gz"，归档层 "archive/yyyyMMdd-序号.pack#offset+length"。
+ * 多节点部署时 base-dir 需要指向共享存储。
+ */
+@Slf4j
+@Component
+public class TracePayloadStore {
+
+    private static final String HOT_DIR = "hot";
+    private static final String ARCHIVE_DIR = "archive";
+    private static final String PACK_SUFFIX = ".pack";
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final int ARCHIVE_UPDATE_BATCH = 500;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path baseDir;
+    private final int inlineThresholdBytes;
+    private final int archiveAfterDays;
+
+    @Autowired
+    public TracePayloadStore(ReactiveMongoTemplate mongoTemplate,
+                             ObjectMapper objectMapper,
+                             @Value("${observability.llmtrace.payload.enabled:true}") boolean enabled,
+                             @Value("${observability.llmtrace.payload.base-dir:./data/llm-trace-payloads}") String baseDir,
+                             @Value("${observability.llmtrace.payload.inline-threshold-bytes:8192}") int inlineThresholdBytes,
+                             @Value("${observability.llmtrace.payload.archive-after-days:7}") int archiveAfterDays) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.baseDir = Paths.get(baseDir).toAbsolutePath().normalize();
+        this.inlineThresholdBytes = Math.max(0, inlineThresholdBytes);
+        this.archiveAfterDays = archiveAfterDays;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // ==================== 写入与读取 ====================
+
+    /**
+     * 将追踪记录的消息正文写入热层
+     *
+     * @param trace 追踪记录（不会被修改）
+     * @return 正文引用；未开启、正文小于内联阈值时为空
+     */
+    public Mono<String> externalize(LLMTrace trace) {
+        if (!enabled || trace == null) {
+            return Mono.empty();
+        }
+        TracePayload payload = payloadOf(trace);
+        if (payload.getRequestMessages().isEmpty() && payload.getResponseMessage() == null) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> {
+                    byte[] json = objectMapper.writeValueAsBytes(payload);
+                    if (json.length < inlineThresholdBytes) {
+                        return null;
+                    }
+                    String ref = HOT_DIR + "/" + LocalDate.now().format(DAY_FORMAT) + "/" + fileNameOf(trace) + ".json.gz";
+                    writeAtomically(baseDir.resolve(ref), gzip(json));
+                    return ref;
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 按 payloadRef 加载正文并填回追踪记录（查询单条详情时调用）
+     *
+     * @param trace 从集合中读出的追踪记录
+     * @return 补全正文后的追踪记录；正文缺失或读取失败时原样返回
+     */
+    public Mono<LLMTrace> hydrate(LLMTrace trace) {
+        if (trace == null || trace.getPayloadRef() == null) {
+            return Mono.justOrEmpty(trace);
+        }
+        return Mono.fromCallable(() -> objectMapper.readValue(gunzip(read(trace.getPayloadRef())), TracePayload.class))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(payload -> {
+                    if (trace.getRequest() == null) {
+                        trace.setRequest(new LLMTrace.Request());
+                    }
+                    trace.getRequest().setMessages(payload.getRequestMessages() != null
+                            ? payload.getRequestMessages() : new ArrayList<>());
+                    if (payload.getResponseMessage() != null) {
+                        if (trace.getResponse() == null) {
+                            trace.setResponse(new LLMTrace.Response());
+                        }
+                        trace.getResponse().setMessage(payload.getResponseMessage());
+                    }
+                    return trace;
+                })
+                .onErrorResume(e -> {
+                    log.warn("加载LLM追踪正文失败: traceId={}, ref={}, error={}",
+                            trace.getTraceId(), trace.getPayloadRef(), e.getMessage());
+                    return Mono.just(trace);
+                });
+    }
+
+    /**
+     * 提取需要外置的正文
+     */
+    public static TracePayload payloadOf(LLMTrace trace) {
+        List<LLMTrace.MessageInfo> messages = trace.getRequest() != null && trace.getRequest().getMessages() != null
+                ? trace.getRequest().getMessages() : new ArrayList<>();
+        LLMTrace.MessageInfo responseMessage = trace.getResponse() != null ? trace.getResponse().getMessage() : null;
+        return new TracePayload(trace.getTraceId(), messages, responseMessage);
+    }
+
+    private byte[] read(String ref) throws IOException {
+        int hash = ref.indexOf('#');
+        if (hash < 0) {
+            return Files.readAllBytes(resolve(ref));
+        }
+        String[] range = ref.substring(hash + 1).split("\\+");
+        long offset = Long.parseLong(range[0]);
+        int length = Integer.parseInt(range[1]);
+        byte[] data = new byte[length];
+        try (RandomAccessFile file = new RandomAccessFile(resolve(ref.substring(0, hash)).toFile(), "r")) {
+            file.seek(offset);
+            file.readFully(data);
+        }
+        return data;
+    }
+
+    private Path resolve(String relative) throws IOException {
+        Path path = baseDir.resolve(relative).normalize();
+        if (!path.startsWith(baseDir)) {
+            throw new IOException("非法的正文引用: " + relative);
+        }
+        return path;
+    }
+
+    // ==================== 归档与清理 ====================
+
+    /**
+     * 定时把过期的热层目录压实为归档 pack 文件
+     */
+    @Scheduled(cron = "${observability.llmtrace.payload.archive-cron:0 0 4 * * *}")
+    public void archiveOldPayloads() {
+        if (!enabled || archiveAfterDays <= 0) {
+            return;
+        }
+        LocalDate cutoff = LocalDate.now().minusDays(archiveAfterDays);
+        Mono.fromCallable(() -> listDayDirs(baseDir.resolve(HOT_DIR), cutoff))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(Flux::fromIterable)
+                .concatMap(this::archiveDay)
+                .reduce(0, Integer::sum)
+                .subscribe(
+                        count -> {
+                            if (count > 0) {
+                                log.info("LLM追踪正文归档完成: {} 条", count);
+                            }
+                        },
+                        e -> log.error("LLM追踪正文归档失败: {}", e.getMessage(), e));
+    }
+
+    private record PackEntry(String hotRef, String archiveRef) {
+    }
+
+    /**
+     * 归档一个热层目录：写 pack -> 按条件更新引用（只更新仍指向该热层文件的记录）-> 删除热层目录
+     */
+    private Mono<Integer> archiveDay(Path dayDir) {
+        return Mono.fromCallable(() -> writePack(dayDir))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(entries -> Flux.fromIterable(entries)
+                        .buffer(ARCHIVE_UPDATE_BATCH)
+                        .concatMap(batch -> {
+                            ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, LLMTrace.class);
+                            batch.forEach(entry -> bulk.updateOne(
+                                    new Query(Criteria.where("payloadRef").is(entry.hotRef())),
+                                    new Update().set("payloadRef", entry.archiveRef())));
+                            return bulk.execute();
+                        })
+                        .then(Mono.fromCallable(() -> {
+                            deleteRecursively(dayDir);
+                            return entries.size();
+                        }).subscribeOn(Schedulers.boundedElastic())));
+    }
+
+    private List<PackEntry> writePack(Path dayDir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(dayDir)) {
+            files = stream.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().endsWith(".json.gz"))
+                    .sorted()
+                    .toList();
+        }
+        List<PackEntry> entries = new ArrayList<>(files.size());
+        if (files.isEmpty()) {
+            return entries;
+        }
+        // 同一天可能被多次归档（迟到的写入），pack 名带序号避免覆盖已被引用的 pack
+        String packName = dayDir.getFileName() + "-" + System.currentTimeMillis() + PACK_SUFFIX;
+        Path packPath = baseDir.resolve(ARCHIVE_DIR).resolve(packName);
+        Files.createDirectories(packPath.getParent());
+        Path tmp = packPath.resolveSibling(packName + ".tmp");
+        long offset = 0;
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            for (Path file : files) {
+                byte[] data = Files.readAllBytes(file);
+                out.write(data);
+                String hotRef = HOT_DIR + "/" + dayDir.getFileName() + "/" + file.getFileName();
+                String archiveRef = ARCHIVE_DIR + "/" + packName + "#" + offset + "+" + data.length;
+                entries.add(new PackEntry(hotRef, archiveRef));
+                offset += data.length;
+            }
+        }
+        Files.move(tmp, packPath, StandardCopyOption.ATOMIC_MOVE);
+        return entries;
+    }
+
+    /**
+     * 删除写入日期早于指定日期的正文（热层目录与归档 pack），与 cleanupOldTraces 配合使用
+     *
+     * @param beforeDay 日期（不含）
+     * @return 删除的目录/文件数
+     */
+    public Mono<Integer> deleteBefore(LocalDate beforeDay) {
+        if (!enabled) {
+            return Mono.just(0);
+        }
+        return Mono.fromCallable(() -> {
+                    int deleted = 0;
+                    for (Path dayDir : listDayDirs(baseDir.resolve(HOT_DIR), beforeDay)) {
+                        deleteRecursively(dayDir);
+                        deleted++;
+                    }
+                    Path archiveDir = baseDir.resolve(ARCHIVE_DIR);
+                    if (Files.isDirectory(archiveDir)) {
+                        try (DirectoryStream<Path> packs = Files.newDirectoryStream(archiveDir, "*" + PACK_SUFFIX)) {
+                            for (Path pack : packs) {
+                                LocalDate day = parseDay(pack.getFileName().toString().split("-")[0]);
+                                if (day != null && day.isBefore(beforeDay)) {
+                                    Files.deleteIfExists(pack);
+                                    deleted++;
+                                }
+                            }
+                        }
+                    }
+                    return deleted;
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static List<Path> listDayDirs(Path root, LocalDate before) throws IOException {
+        List<Path> dirs = new ArrayList<>();
+        if (!Files.isDirectory(root)) {
+            return dirs;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path dir : stream) {
+                LocalDate day = parseDay(dir.getFileName().toString());
+                if (day != null && day.isBefore(before)) {
+                    dirs.add(dir);
+                }
+            }
+        }
+        dirs.sort(null);
+        return dirs;
+    }
+
+    private static LocalDate parseDay(String value) {
+        try {
+            return LocalDate.parse(value, DAY_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    // ==================== 文件工具 ====================
+
+    private static String fileNameOf(LLMTrace trace) {
+        String id = trace.getTraceId() != null && !trace.getTraceId().isBlank()
+                ? trace.getTraceId() : UUID.randomUUID().toString();
+        return id.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    private static void writeAtomically(Path target, byte[] data) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path tmp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        Files.write(tmp, data);
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(dir)) {
+            for (Path path : walk.sorted((a, b) -> b.getNameCount() - a.getNameCount()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(data);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] data) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return in.readAllBytes();
+        }
+    }
+}
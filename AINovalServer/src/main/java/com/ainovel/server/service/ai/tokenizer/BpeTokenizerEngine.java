@@ -0,0 +1,66 @@
+package com.ainovel.server.service.ai.tokenizer;
+
+import dev.langchain4j.model.Tokenizer;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+
+/**
+ * 基于 BPE 词表的分词引擎
+ *
+ * 词表随 langchain4j-open-ai 依赖（jtokkit）打包，在进程内编码，不访问网络：
+ * - cl100k_base：gpt-3.5 / gpt-4 系列
+ * - o200k_base：gpt-4o 及之后的系列
+ *
+ * 对没有随依赖提供词表的模型族（Claude、Gemini 等），以相近的 BPE 词表计数再乘以校准系数作为近似，
+ * 用于预算估算而不是精确计费；需要精确计数时可经 {@link TokenCounter#registerEngine} 注册专用引擎。
+ */
+public class BpeTokenizerEngine implements TokenizerEngine {
+
+    private final String name;
+    private final Tokenizer tokenizer;
+    private final double calibrationFactor;
+
+    private BpeTokenizerEngine(String name, Tokenizer tokenizer, double calibrationFactor) {
+        this.name = name;
+        this.tokenizer = tokenizer;
+        this.calibrationFactor = calibrationFactor;
+    }
+
+    /**
+     * cl100k_base 词表
+     */
+    public static BpeTokenizerEngine cl100k() {
+        return new BpeTokenizerEngine("cl100k_base", new OpenAiTokenizer("gpt-4"), 1.0);
+    }
+
+    /**
+     * o200k_base 词表
+     */
+    public static BpeTokenizerEngine o200k() {
+        return new BpeTokenizerEngine("o200k_base", new OpenAiTokenizer("gpt-4o"), 1.0);
+    }
+
+    /**
+     * 以基础词表计数并按系数校准的近似引擎
+     *
+     * @param name              引擎名称
+     * @param base              基础词表引擎
+     * @param calibrationFactor 校准系数（目标模型 token 数 / 基础词表 token 数）
+     */
+    public static BpeTokenizerEngine approximate(String name, BpeTokenizerEngine base, double calibrationFactor) {
+        return new BpeTokenizerEngine(name, base.tokenizer, calibrationFactor > 0 ? calibrationFactor : 1.0);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int countTokens(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int tokens = tokenizer.estimateTokenCountInText(text);
+        return calibrationFactor == 1.0 ? tokens : (int) Math.ceil(tokens * calibrationFactor);
+    }
+}
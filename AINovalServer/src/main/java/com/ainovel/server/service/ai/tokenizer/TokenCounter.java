@@ -0,0 +1,152 @@
+package com.ainovel.server.service.ai.tokenizer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 进程内 token 计数服务
+ *
+ * - 按模型名称选择分词引擎：gpt-4o / o 系列等用 o200k_base，其余 OpenAI 模型用 cl100k_base，
+ *   Claude / Gemini 等无公开词表的模型用基础词表加校准系数近似
+ * - 可通过 {@link #registerEngine} 按模型名前缀注册自定义引擎
+ * - 较长文本的计数结果按（引擎、文本指纹）缓存，重复估算同一章节时不再重新编码
+ */
+@Slf4j
+@Component
+public class TokenCounter {
+
+    private final TokenizerEngine cl100k;
+    private final TokenizerEngine o200k;
+    private final TokenizerEngine claude;
+    private final TokenizerEngine gemini;
+
+    /** key=模型名前缀（小写） -> 引擎，优先于内置规则 */
+    private final Map<String, TokenizerEngine> customEngines = new ConcurrentHashMap<>();
+
+    /** key=引擎名|文本长度|文本指纹 -> token 数 */
+    private final Cache<String, Integer> countCache;
+
+    private final int minCachedLength;
+
+    public TokenCounter(
+            @Value("${ainovel.performance.tokenizer.claude-calibration:1.15}") double claudeCalibration,
+            @Value("${ainovel.performance.tokenizer.gemini-calibration:0.9}") double geminiCalibration,
+            @Value("${ainovel.performance.tokenizer.cache-max-entries:50000}") long cacheMaxEntries,
+            @Value("${ainovel.performance.tokenizer.min-cached-length:256}") int minCachedLength) {
+        BpeTokenizerEngine cl100kEngine = BpeTokenizerEngine.cl100k();
+        BpeTokenizerEngine o200kEngine = BpeTokenizerEngine.o200k();
+        this.cl100k = cl100kEngine;
+        this.o200k = o200kEngine;
+        this.claude = BpeTokenizerEngine.approximate("claude-approx", cl100kEngine, claudeCalibration);
+        this.gemini = BpeTokenizerEngine.approximate("gemini-approx", o200kEngine, geminiCalibration);
+        this.minCachedLength = Math.max(0, minCachedLength);
+        this.countCache = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, cacheMaxEntries))
+                .expireAfterAccess(Duration.ofHours(6))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 按模型名前缀注册自定义分词引擎
+     */
+    public void registerEngine(String modelPrefix, TokenizerEngine engine) {
+        customEngines.put(modelPrefix.toLowerCase(Locale.ROOT), engine);
+        log.info("注册分词引擎: prefix={}, engine={}", modelPrefix, engine.getName());
+    }
+
+    /**
+     * 计算文本在指定模型下的 token 数
+     */
+    public int countTokens(String text, String modelName) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return count(resolveEngine(modelName), text);
+    }
+
+    /**
+     * 批量计算，结果与输入顺序一致；同一批次只解析一次引擎
+     */
+    public List<Integer> countTokens(List<String> texts, String modelName) {
+        TokenizerEngine engine = resolveEngine(modelName);
+        List<Integer> counts = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            counts.add(text == null || text.isEmpty() ? 0 : count(engine, text));
+        }
+        return counts;
+    }
+
+    /**
+     * 根据模型名称选择分词引擎
+     */
+    public TokenizerEngine resolveEngine(String modelName) {
+        if (modelName == null || modelName.isBlank()) {
+            return cl100k;
+        }
+        String model = modelName.toLowerCase(Locale.ROOT);
+        // 兼容 provider/model 形式（如 OpenRouter 的 openai/gpt-4o）
+        int slash = model.lastIndexOf('/');
+        if (slash >= 0 && slash + 1 < model.length()) {
+            model = model.substring(slash + 1);
+        }
+        for (Map.Entry<String, TokenizerEngine> entry : customEngines.entrySet()) {
+            if (model.startsWith(entry.getKey())) {
+                return entry.getValue();
+            }
+        }
+        if (model.startsWith("gpt-4o") || model.startsWith("gpt-4.1") || model.startsWith("gpt-5")
+                || model.startsWith("o1") || model.startsWith("o3") || model.startsWith("o4")
+                || model.startsWith("chatgpt-4o")) {
+            return o200k;
+        }
+        if (model.contains("claude")) {
+            return claude;
+        }
+        if (model.contains("gemini") || model.contains("gemma")) {
+            return gemini;
+        }
+        return cl100k;
+    }
+
+    public long cacheSize() {
+        return countCache.estimatedSize();
+    }
+
+    public CacheStats cacheStats() {
+        return countCache.stats();
+    }
+
+    private int count(TokenizerEngine engine, String text) {
+        if (text.length() < minCachedLength) {
+            return engine.countTokens(text);
+        }
+        String key = engine.getName() + '|' + text.length() + '|' + fingerprint(text);
+        return countCache.get(key, k -> engine.countTokens(text));
+    }
+
+    /**
+     * 64 位 FNV-1a 文本指纹，比编码本身便宜得多
+     */
+    private static long fingerprint(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
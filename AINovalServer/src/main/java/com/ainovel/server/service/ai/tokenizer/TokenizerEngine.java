@@ -0,0 +1,21 @@
+package com.ainovel.server.service.ai.tokenizer;
+
+/**
+ * 分词引擎接口
+ * 在进程内计算文本的 token 数，实现需线程安全
+ */
+public interface TokenizerEngine {
+
+    /**
+     * 引擎名称（同时作为计数缓存键的一部分），如 cl100k_base、o200k_base、claude-approx
+     */
+    String getName();
+
+    /**
+     * 计算文本的 token 数
+     *
+     * @param text 文本
+     * @return token 数，空文本返回 0
+     */
+    int countTokens(String text);
+}
@@ -23,6 +23,7 @@ public class BillingOrchestrator {
     private final CreditService creditService;
     private final CreditTransactionRepository txRepo;
     private final ReactiveMongoTransactionManager tm;
+    private final CreditLedger creditLedger;
 
     @EventListener
     public void onBillingRequested(BillingRequestedEvent evt) {
@@ -95,7 +96,57 @@ public class BillingOrchestrator {
                 log.info("已存在交易且非估算，跳过新扣费: traceId={}", traceId);
                 return Mono.empty();
             })
-            .switchIfEmpty(Mono.defer(() -> {
+            .switchIfEmpty(Mono.defer(() -> creditLedger.isEnabled()
+                ? enqueueSettlement(traceId, userId, provider, modelId, featureType, in, out)
+                : settleInTransaction(traceId, userId, provider, modelId, featureType, in, out)))
+            .subscribe();
+    }
+
+    /**
+     * 计算实际积分后交给结算账本批量落账（不在事件线程上访问 users 文档）
+     */
+    private Mono<Void> enqueueSettlement(String traceId, String userId, String provider, String modelId,
+                                         AIFeatureType featureType, int in, int out) {
+        return creditService.calculateCreditCost(provider, modelId, featureType, in, out)
+            .doOnNext(credits -> creditLedger.enqueue(CreditTransaction.builder()
+                    .traceId(traceId)
+                    .userId(userId)
+                    .provider(provider)
+                    .modelId(modelId)
+                    .featureType(featureType.name())
+                    .inputTokens(in)
+                    .outputTokens(out)
+                    .creditsDeducted(credits)
+                    .billingMode("ACTUAL")
+                    .estimated(Boolean.FALSE)
+                    .build()))
+            .then()
+            .onErrorResume(e -> {
+                log.error("BillingOrchestrator 计算积分失败: traceId={}, err={}", traceId, e.getMessage());
+                CreditTransaction failed = CreditTransaction.builder()
+                        .traceId(traceId)
+                        .userId(userId)
+                        .provider(provider)
+                        .modelId(modelId)
+                        .featureType(featureType.name())
+                        .inputTokens(in)
+                        .outputTokens(out)
+                        .status("FAILED")
+                        .billingMode("ACTUAL")
+                        .estimated(Boolean.FALSE)
+                        .errorMessage(e.getMessage())
+                        .updatedAt(java.time.Instant.now())
+                        .build();
+                return txRepo.save(failed).then();
+            });
+    }
+
+    /**
+     * 逐笔事务扣费（结算账本关闭时使用）
+     */
+    private Mono<Void> settleInTransaction(String traceId, String userId, String provider, String modelId,
+                                           AIFeatureType featureType, int in, int out) {
+        return Mono.defer(() -> {
                 // 创建PENDING事务并按实际扣费
                 CreditTransaction pending = CreditTransaction.builder()
                         .traceId(traceId)
@@ -143,8 +194,7 @@ public class BillingOrchestrator {
                             .flatMap(tx -> { tx.setStatus("FAILED"); tx.setErrorMessage(e.getMessage()); tx.setUpdatedAt(java.time.Instant.now()); return txRepo.save(tx); })
                             .then();
                     });
-            }))
-            .subscribe();
+            });
     }
 }
 
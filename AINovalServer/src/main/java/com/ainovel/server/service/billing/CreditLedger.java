@@ -0,0 +1,404 @@
+package com.ainovel.server.service.billing;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ainovel.server.domain.model.User;
+import com.ainovel.server.domain.model.billing.CreditSettlement;
+import com.ainovel.server.domain.model.billing.CreditTransaction;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 积分结算账本
+ *
+ * 流式调用结束后的实际扣费不再逐条「查交易 → 存PENDING → 事务扣减 → 再查再存」，而是：
+ * 1. 入队：计算好积分后放入内存队列，同时记入该用户的待结算额度（预检查可用余额 = 已确认余额 - 待结算额度）
+ * 2. 批量落账：每个刷新周期把队列中的交易以 SETTLING 状态批量插入 credit_transactions（traceId 唯一索引保证幂等），
+ *    再按用户合并为一次 $inc；每个 (批次, 用户) 扣减成功后写入一条永久保留的 {@link CreditSettlement} 结算记录，
+ *    重放时已有结算记录的直接跳过。扣减与结算记录之间的间隙由用户文档上的 settlingCreditBatchIds 覆盖：
+ *    批次ID与 $inc 在同一次更新中写入，结算记录落库后才移除
+ * 3. 标记完成：同批次交易更新为 DEDUCTED；余额不足的用户其交易标记为 FAILED，交由 {@link BillingCompensationService} 逐条补偿
+ * 4. 故障恢复：进程在 2、3 之间退出时，遗留的 SETTLING 交易由恢复任务按批次重放（依赖第 2 步的批次幂等），
+ *    重放前先以条件更新续期该批次，多个节点同时恢复时只有一个节点重放；
+ *    尚未落库的队列内交易由 {@link BillingReconciliationJob} 对账补建
+ *
+ * 预检查使用的已确认余额按用户缓存在内存中，每次落账后以 Mongo 返回的最新余额刷新，其他入口改动余额时失效。
+ */
+@Slf4j
+@Component
+public class CreditLedger {
+
+    public static final String STATUS_SETTLING = "SETTLING";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final Duration recoveryAge;
+
+    private final ConcurrentLinkedQueue<CreditTransaction> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    // 已入队未落账的扣减额度（不参与过期，落账或失败后归还，归零时移除）
+    private final ConcurrentHashMap<String, Long> pendingDebits = new ConcurrentHashMap<>();
+    // 已确认余额（Mongo 中 users.credits 的近似值）
+    private final Cache<String, Long> confirmedBalances;
+
+    public CreditLedger(ReactiveMongoTemplate mongoTemplate,
+                        @Value("${ainovel.billing.ledger.enabled:true}") boolean enabled,
+                        @Value("${ainovel.billing.ledger.max-batch-size:500}") int maxBatchSize,
+                        @Value("${ainovel.billing.ledger.balance-ttl-seconds:60}") long balanceTtlSeconds,
+                        @Value("${ainovel.billing.ledger.recovery-age-seconds:120}") long recoveryAgeSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.recoveryAge = Duration.ofSeconds(Math.max(10, recoveryAgeSeconds));
+        this.confirmedBalances = Caffeine.newBuilder()
+                .maximumSize(100_000)
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, balanceTtlSeconds)))
+                .build();
+        log.info("积分结算账本: enabled={}, maxBatchSize={}, balanceTtl={}s", enabled, this.maxBatchSize, balanceTtlSeconds);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 预检查用的可用积分：已确认余额减去待结算额度；缓存命中时不访问 Mongo
+     */
+    public Mono<Long> availableCredits(String userId) {
+        if (userId == null) {
+            return Mono.just(0L);
+        }
+        Long confirmed = confirmedBalances.getIfPresent(userId);
+        Mono<Long> balance = confirmed != null ? Mono.just(confirmed) : loadBalance(userId);
+        return balance.map(credits -> credits - pendingOf(userId));
+    }
+
+    /**
+     * 入队一笔待结算交易（creditsDeducted 为应扣积分）
+     */
+    public void enqueue(CreditTransaction tx) {
+        long credits = tx.getCreditsDeducted() != null ? tx.getCreditsDeducted() : 0L;
+        pendingDebits.merge(tx.getUserId(), credits, Long::sum);
+        queue.offer(tx);
+        if (queued.incrementAndGet() >= maxBatchSize) {
+            flush().subscribe();
+        }
+    }
+
+    /**
+     * 其他入口直接修改了余额（充值、管理员调整、非流式扣费等），丢弃缓存的已确认余额
+     */
+    public void invalidate(String userId) {
+        if (userId != null) {
+            confirmedBalances.invalidate(userId);
+        }
+    }
+
+    public int queuedCount() {
+        return queued.get();
+    }
+
+    @Scheduled(fixedDelayString = "${ainovel.billing.ledger.flush-interval-ms:1000}")
+    public void scheduledFlush() {
+        if (enabled && queued.get() > 0) {
+            flush().subscribe();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${ainovel.billing.ledger.recovery-initial-delay-ms:30000}",
+            fixedDelayString = "${ainovel.billing.ledger.recovery-interval-ms:60000}")
+    public void scheduledRecovery() {
+        if (enabled) {
+            recover().subscribe();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // 停机前把队列里的交易尽量落账；未完成的部分由对账任务补建
+        try {
+            while (queued.get() > 0) {
+                int before = queued.get();
+                flush().block(Duration.ofSeconds(10));
+                if (queued.get() >= before) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("停机时积分结算落账未完成: remaining={}, err={}", queued.get(), e.getMessage());
+        }
+    }
+
+    /**
+     * 把队列中的交易落账一批；同一时刻只有一个刷新在执行
+     */
+    public Mono<Void> flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return Mono.empty();
+        }
+        List<CreditTransaction> batch = drain();
+        if (batch.isEmpty()) {
+            flushing.set(false);
+            return Mono.empty();
+        }
+        String batchId = UUID.randomUUID().toString();
+        Instant now = Instant.now();
+        for (CreditTransaction tx : batch) {
+            tx.setStatus(STATUS_SETTLING);
+            tx.setSettlementBatchId(batchId);
+            tx.setUpdatedAt(now);
+        }
+
+        return insertLedgerEntries(batchId, batch)
+                .flatMap(inserted -> settleBatch(batchId, inserted).thenReturn(inserted))
+                .doOnNext(inserted -> log.debug("积分结算批次完成: batchId={}, size={}, inserted={}", batchId, batch.size(), inserted.size()))
+                .doOnError(e -> {
+                    log.error("积分结算批次失败: batchId={}, size={}, err={}", batchId, batch.size(), e.getMessage());
+                    batch.forEach(tx -> invalidate(tx.getUserId()));
+                })
+                .onErrorResume(e -> Mono.empty())
+                .doFinally(signal -> {
+                    releasePending(batch);
+                    flushing.set(false);
+                })
+                .then();
+    }
+
+    /**
+     * 重放遗留的 SETTLING 交易（批次落账中途进程退出时）
+     */
+    public Mono<Void> recover() {
+        Instant cutoff = Instant.now().minus(recoveryAge);
+        Query query = new Query(Criteria.where("status").is(STATUS_SETTLING)
+                .and("updatedAt").lt(cutoff))
+                .with(Sort.by(Sort.Direction.ASC, "updatedAt"))
+                .limit(1000);
+        return mongoTemplate.find(query, CreditTransaction.class)
+                .collectList()
+                .filter(list -> !list.isEmpty())
+                .flatMapMany(list -> {
+                    log.warn("发现遗留的结算中交易，按批次重放: count={}", list.size());
+                    Map<String, List<CreditTransaction>> byBatch = list.stream()
+                            .filter(tx -> tx.getSettlementBatchId() != null)
+                            .collect(Collectors.groupingBy(CreditTransaction::getSettlementBatchId, LinkedHashMap::new, Collectors.toList()));
+                    return Flux.fromIterable(byBatch.entrySet());
+                })
+                .concatMap(entry -> claimForRecovery(entry.getKey(), cutoff)
+                        .filter(Boolean::booleanValue)
+                        .flatMap(claimed -> settleBatch(entry.getKey(), entry.getValue()))
+                        .onErrorResume(e -> {
+                            log.error("重放结算批次失败: batchId={}, err={}", entry.getKey(), e.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    /**
+     * 续期批次中仍处于 SETTLING 的交易；其他节点已先一步续期（updatedAt 不再早于 cutoff）时返回 false
+     */
+    private Mono<Boolean> claimForRecovery(String batchId, Instant cutoff) {
+        Query query = new Query(Criteria.where("settlementBatchId").is(batchId)
+                .and("status").is(STATUS_SETTLING)
+                .and("updatedAt").lt(cutoff));
+        return mongoTemplate.updateMulti(query, new Update().set("updatedAt", Instant.now()), CreditTransaction.class)
+                .map(result -> result.getModifiedCount() > 0);
+    }
+
+    private List<CreditTransaction> drain() {
+        List<CreditTransaction> batch = new ArrayList<>(Math.min(maxBatchSize, Math.max(1, queued.get())));
+        CreditTransaction tx;
+        while (batch.size() < maxBatchSize && (tx = queue.poll()) != null) {
+            batch.add(tx);
+            queued.decrementAndGet();
+        }
+        return batch;
+    }
+
+    /**
+     * 无序批量插入；traceId 已存在的交易（重复事件、对账补建）会被唯一索引拒绝，
+     * 以「带本批次ID的记录」回查实际插入成功的部分
+     */
+    private Mono<List<CreditTransaction>> insertLedgerEntries(String batchId, List<CreditTransaction> batch) {
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, CreditTransaction.class)
+                .insert(batch)
+                .execute()
+                .then()
+                .onErrorResume(e -> {
+                    log.debug("结算批次插入存在冲突，回查实际写入: batchId={}, err={}", batchId, e.getMessage());
+                    return Mono.empty();
+                })
+                .then(mongoTemplate.find(new Query(Criteria.where("settlementBatchId").is(batchId)), CreditTransaction.class)
+                        .collectList())
+                .flatMap(inserted -> {
+                    if (inserted.isEmpty()) {
+                        Set<String> traceIds = batch.stream().map(CreditTransaction::getTraceId).collect(Collectors.toSet());
+                        // 整批未写入：若不是全部重复（例如 Mongo 不可用），放回队列等待下次刷新
+                        return mongoTemplate.count(new Query(Criteria.where("traceId").in(traceIds)), CreditTransaction.class)
+                                .flatMap(existing -> existing < traceIds.size()
+                                        ? Mono.error(new IllegalStateException("结算批次未能写入"))
+                                        : Mono.just(inserted));
+                    }
+                    if (inserted.size() < batch.size()) {
+                        log.info("结算批次跳过已存在的交易: batchId={}, skipped={}", batchId, batch.size() - inserted.size());
+                    }
+                    return Mono.just(inserted);
+                })
+                .onErrorResume(e -> {
+                    // 已带本批次ID写入的部分在下次插入时会因 traceId 重复被跳过，并由恢复任务重放
+                    requeue(batch);
+                    return Mono.error(e);
+                });
+    }
+
+    /**
+     * 按用户合并扣减并标记交易状态；重复执行同一批次是安全的
+     */
+    private Mono<Void> settleBatch(String batchId, List<CreditTransaction> entries) {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (CreditTransaction tx : entries) {
+            long credits = tx.getCreditsDeducted() != null ? tx.getCreditsDeducted() : 0L;
+            totals.merge(tx.getUserId(), credits, Long::sum);
+        }
+        return Flux.fromIterable(totals.entrySet())
+                .flatMap(e -> applyUserDebit(e.getKey(), batchId, e.getValue())
+                        .flatMap(applied -> markEntries(batchId, e.getKey(), applied, e.getValue())), 8)
+                .then();
+    }
+
+    /**
+     * 对单个用户执行本批次的合并扣减，返回是否已扣减（含此前已扣减的重放）；余额不足返回 false
+     *
+     * 1. 已有结算记录：此前已扣减，直接返回
+     * 2. 条件 $inc：余额足够且批次ID不在 settlingCreditBatchIds 中时扣减，并在同一次更新中写入批次ID；
+     *    未命中但批次ID已在列表中，说明上次扣减后、写结算记录前中断，视为已扣减
+     * 3. 写入结算记录后再从用户文档移除批次ID，任一步中断重放都不会重复扣减
+     */
+    private Mono<Boolean> applyUserDebit(String userId, String batchId, long amount) {
+        String settlementId = CreditSettlement.idOf(batchId, userId);
+        return mongoTemplate.exists(new Query(Criteria.where("_id").is(settlementId)), CreditSettlement.class)
+                .flatMap(settled -> settled
+                        ? Mono.just(true)
+                        : debitOnce(userId, batchId, amount)
+                                .flatMap(applied -> applied
+                                        ? recordSettlement(settlementId, batchId, userId, amount).thenReturn(true)
+                                        : Mono.just(false)));
+    }
+
+    private Mono<Boolean> debitOnce(String userId, String batchId, long amount) {
+        Query query = new Query(Criteria.where("_id").is(userId)
+                .and("credits").gte(amount)
+                .and("settlingCreditBatchIds").ne(batchId));
+        query.fields().include("credits");
+        Update update = new Update()
+                .inc("credits", -amount)
+                .inc("totalCreditsUsed", amount)
+                .push("settlingCreditBatchIds", batchId);
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), User.class)
+                .map(user -> {
+                    if (user.getCredits() != null) {
+                        confirmedBalances.put(userId, user.getCredits());
+                    }
+                    return true;
+                })
+                // 未命中：要么上次已扣减但未写结算记录（重放），要么余额不足
+                .switchIfEmpty(Mono.defer(() -> mongoTemplate.exists(
+                        new Query(Criteria.where("_id").is(userId).and("settlingCreditBatchIds").is(batchId)), User.class)));
+    }
+
+    private Mono<Void> recordSettlement(String settlementId, String batchId, String userId, long amount) {
+        CreditSettlement settlement = CreditSettlement.builder()
+                .id(settlementId)
+                .batchId(batchId)
+                .userId(userId)
+                .amount(amount)
+                .build();
+        return mongoTemplate.insert(settlement)
+                // 重放时结算记录可能已存在
+                .onErrorResume(DuplicateKeyException.class, e -> Mono.empty())
+                .then(mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(userId)),
+                        new Update().pull("settlingCreditBatchIds", batchId), User.class))
+                .then();
+    }
+
+    private Mono<Void> markEntries(String batchId, String userId, boolean applied, long amount) {
+        Query query = new Query(Criteria.where("settlementBatchId").is(batchId)
+                .and("userId").is(userId)
+                .and("status").is(STATUS_SETTLING));
+        Update update = new Update().set("updatedAt", Instant.now());
+        if (applied) {
+            update.set("status", "DEDUCTED");
+        } else {
+            invalidate(userId);
+            log.warn("结算时积分余额不足，交由补偿任务逐条处理: userId={}, batchId={}, amount={}", userId, batchId, amount);
+            update.set("status", "FAILED").set("errorMessage", "积分余额不足，需要 " + amount + " 积分");
+        }
+        return mongoTemplate.updateMulti(query, update, CreditTransaction.class).then();
+    }
+
+    private Mono<Long> loadBalance(String userId) {
+        Query query = new Query(Criteria.where("_id").is(userId));
+        query.fields().include("credits");
+        return mongoTemplate.findOne(query, User.class)
+                .map(user -> user.getCredits() != null ? user.getCredits() : 0L)
+                .defaultIfEmpty(0L)
+                .doOnNext(credits -> confirmedBalances.put(userId, credits));
+    }
+
+    private long pendingOf(String userId) {
+        return Math.max(0L, pendingDebits.getOrDefault(userId, 0L));
+    }
+
+    private void requeue(List<CreditTransaction> batch) {
+        for (CreditTransaction tx : batch) {
+            long credits = tx.getCreditsDeducted() != null ? tx.getCreditsDeducted() : 0L;
+            // 放回队列时重新计入待结算额度（doFinally 中会统一归还本批次）
+            pendingDebits.merge(tx.getUserId(), credits, Long::sum);
+            tx.setStatus(null);
+            tx.setSettlementBatchId(null);
+            queue.offer(tx);
+            queued.incrementAndGet();
+        }
+    }
+
+    private void releasePending(List<CreditTransaction> batch) {
+        for (CreditTransaction tx : batch) {
+            long credits = tx.getCreditsDeducted() != null ? tx.getCreditsDeducted() : 0L;
+            pendingDebits.computeIfPresent(tx.getUserId(), (userId, pending) -> {
+                long remaining = pending - credits;
+                return remaining > 0 ? remaining : null;
+            });
+        }
+    }
+}
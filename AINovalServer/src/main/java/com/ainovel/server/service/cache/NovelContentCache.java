@@ -0,0 +1,137 @@
+package com.ainovel.server.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缓存内容提供器渲染出的小说文本（全文、章节、场景等占位符结果）。
+ *
+ * - 按字符串占用的字节数加权淘汰，总量受 max-weight-mb 限制
+ * - 缓存键包含小说的内容版本号；场景/小说结构写入后调用 {@link #invalidateNovel} 换新版本号，
+ *   旧版本的条目不会再被命中，并按小说维度的键索引立即移除（不扫描整个缓存）
+ * - 版本号取自进程内单调递增序列，版本记录被淘汰后重新分配也不会与旧键冲突
+ */
+@Component
+public class NovelContentCache {
+
+    private static final char SEPARATOR = '|';
+
+    private final AtomicLong versionSequence = new AtomicLong();
+
+    /** key=novelId -> 当前内容版本 */
+    private final Cache<String, Long> versions = Caffeine.newBuilder()
+            .maximumSize(20_000)
+            .expireAfterAccess(Duration.ofHours(12))
+            .build();
+
+    /** key=novelId|version|... -> 渲染结果 */
+    private final Cache<String, String> contents;
+
+    /** key=novelId -> 该小说已缓存条目的键；条目被淘汰时同步移除 */
+    private final Map<String, Set<String>> keysByNovel = new ConcurrentHashMap<>();
+
+    public NovelContentCache(
+            @Value("${ainovel.performance.content-cache.max-weight-mb:64}") long maxWeightMb,
+            @Value("${ainovel.performance.content-cache.expire-after-access-minutes:30}") long expireAfterAccessMinutes) {
+        this.contents = Caffeine.newBuilder()
+                .maximumWeight(Math.max(1, maxWeightMb) * 1024 * 1024)
+                // Java 字符串按每字符 2 字节估算
+                .weigher((String key, String value) -> (key.length() + value.length()) * 2)
+                .expireAfterAccess(Duration.ofMinutes(Math.max(1, expireAfterAccessMinutes)))
+                // 按大小/过期淘汰时在淘汰线程内同步维护键索引
+                .evictionListener((String key, String value, RemovalCause cause) -> unindex(key))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 获取小说当前的内容版本；构建缓存键前读取，保证渲染期间发生的写入不会把旧内容写到新版本下。
+     */
+    public long currentVersion(String novelId) {
+        return versions.get(novelId, id -> versionSequence.incrementAndGet());
+    }
+
+    /**
+     * 生成缓存键
+     *
+     * @param novelId 小说ID
+     * @param version 读取内容前取得的版本号
+     * @param parts   其他区分维度（占位符类型、内容ID、用户、当前章节/场景等）
+     */
+    public String key(String novelId, long version, Object... parts) {
+        StringBuilder sb = new StringBuilder(64).append(novelId).append(SEPARATOR).append(version);
+        for (Object part : parts) {
+            sb.append(SEPARATOR).append(part);
+        }
+        return sb.toString();
+    }
+
+    public String get(String key) {
+        return contents.getIfPresent(key);
+    }
+
+    public void put(String key, String content) {
+        contents.put(key, content);
+        keysByNovel.computeIfAbsent(novelIdOf(key), id -> ConcurrentHashMap.newKeySet()).add(key);
+    }
+
+    /**
+     * 小说内容或结构发生变更时调用：换新版本号并移除该小说已缓存的条目。
+     */
+    public void invalidateNovel(String novelId) {
+        if (novelId == null) {
+            return;
+        }
+        versions.put(novelId, versionSequence.incrementAndGet());
+        // 与 put 并发时，写入旧版本的条目可能落进新建的索引集合：它不会再被命中，之后随淘汰移除
+        Set<String> keys = keysByNovel.remove(novelId);
+        if (keys != null) {
+            contents.invalidateAll(keys);
+        }
+    }
+
+    public void invalidateAll() {
+        contents.invalidateAll();
+        keysByNovel.clear();
+        versions.invalidateAll();
+    }
+
+    private void unindex(String key) {
+        keysByNovel.computeIfPresent(novelIdOf(key), (id, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    private static String novelIdOf(String key) {
+        int end = key.indexOf(SEPARATOR);
+        return end < 0 ? key : key.substring(0, end);
+    }
+
+    public long size() {
+        return contents.estimatedSize();
+    }
+
+    /**
+     * 当前缓存内容的总权重（字节）
+     */
+    public long weightedSize() {
+        return contents.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    public CacheStats stats() {
+        return contents.stats();
+    }
+}
@@ -0,0 +1,398 @@
+package com.ainovel.server.service.cache;
+
+import com.ainovel.server.domain.model.AIFeatureType;
+import com.ainovel.server.domain.model.PublicModelConfig;
+import com.ainovel.server.repository.PublicModelConfigRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.jasypt.encryption.StringEncryptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 公共模型配置的内存注册表。
+ *
+ * - 启动后全量加载公共模型配置，有效 API Key 解密后常驻内存，热路径（按ID/模型/功能查询、取 Key）不再访问数据库或解密
+ * - 配置经 PublicModelConfigService 写入后通过 {@link #onSaved}/{@link #onDeleted} 立即更新；
+ *   其他实例的改动由定时全量刷新兜底；刷新期间发生过本地写入时丢弃该次结果，避免用旧数据覆盖（如复活已删除的配置）
+ * - Key 选择使用平滑加权轮询，权重由各 Key 最近的成功率与延迟（EWMA）动态计算，
+ *   连续失败的 Key 在冷却期内只保留最低权重
+ */
+@Slf4j
+@Component
+public class PublicModelConfigRegistry {
+
+    private static final int BASE_WEIGHT = 100;
+    private static final int MIN_WEIGHT = 1;
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final PublicModelConfigRepository repository;
+    private final StringEncryptor encryptor;
+    private final int failureThreshold;
+    private final long cooldownMillis;
+
+    /** 当前快照；写入时整体替换（copy-on-write），读取无锁 */
+    private volatile Snapshot snapshot;
+
+    /** 本地写入（onSaved/onDeleted）计数，仅在 this 锁内修改；全量刷新据此判断读到的数据是否已过期 */
+    private long mutationVersion;
+
+    /** key=configId -> Key 池；刷新时按加密值复用已有 Key 的统计，避免重复解密 */
+    private final Map<String, KeyPool> keyPools = new ConcurrentHashMap<>();
+
+    public PublicModelConfigRegistry(
+            PublicModelConfigRepository repository,
+            StringEncryptor encryptor,
+            @Value("${ainovel.performance.public-model-registry.failure-threshold:3}") int failureThreshold,
+            @Value("${ainovel.performance.public-model-registry.cooldown-seconds:30}") long cooldownSeconds) {
+        this.repository = repository;
+        this.encryptor = encryptor;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.cooldownMillis = Math.max(0, cooldownSeconds) * 1000;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        refresh().subscribe(
+                null,
+                error -> log.warn("公共模型配置注册表预热失败，将在首次访问时加载: {}", error.getMessage()));
+    }
+
+    @Scheduled(fixedDelayString = "${ainovel.performance.public-model-registry.refresh-interval-ms:300000}",
+            initialDelayString = "${ainovel.performance.public-model-registry.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        refresh().subscribe(
+                null,
+                error -> log.warn("公共模型配置注册表定时刷新失败: {}", error.getMessage()));
+    }
+
+    /**
+     * 从数据库全量重新加载
+     */
+    public Mono<Void> refresh() {
+        return Mono.defer(() -> {
+            long versionAtStart = currentMutationVersion();
+            return repository.findAll()
+                .collectList()
+                .doOnNext(configs -> {
+                    synchronized (this) {
+                        if (snapshot != null && mutationVersion != versionAtStart) {
+                            log.info("公共模型配置注册表刷新期间有配置写入，丢弃本次刷新结果，等待下次刷新");
+                            return;
+                        }
+                        Map<String, PublicModelConfig> byId = new LinkedHashMap<>();
+                        for (PublicModelConfig config : configs) {
+                            byId.put(config.getId(), config);
+                            rebuildKeyPool(config);
+                        }
+                        keyPools.keySet().retainAll(byId.keySet());
+                        snapshot = new Snapshot(byId);
+                    }
+                    log.info("公共模型配置注册表已刷新: {} 个配置", configs.size());
+                })
+                .then();
+        });
+    }
+
+    private synchronized long currentMutationVersion() {
+        return mutationVersion;
+    }
+
+    /**
+     * 配置保存后调用，立即更新注册表
+     */
+    public synchronized void onSaved(PublicModelConfig config) {
+        if (config == null || config.getId() == null || snapshot == null) {
+            return;
+        }
+        Map<String, PublicModelConfig> byId = new LinkedHashMap<>(snapshot.byId);
+        byId.put(config.getId(), config);
+        rebuildKeyPool(config);
+        snapshot = new Snapshot(byId);
+        mutationVersion++;
+    }
+
+    /**
+     * 配置删除后调用
+     */
+    public synchronized void onDeleted(String configId) {
+        if (configId == null || snapshot == null) {
+            return;
+        }
+        Map<String, PublicModelConfig> byId = new LinkedHashMap<>(snapshot.byId);
+        byId.remove(configId);
+        keyPools.remove(configId);
+        snapshot = new Snapshot(byId);
+        mutationVersion++;
+    }
+
+    // ==================== 查询 ====================
+
+    public Mono<PublicModelConfig> findById(String id) {
+        if (id == null) {
+            return Mono.empty();
+        }
+        return current().flatMap(s -> {
+            PublicModelConfig config = s.byId.get(id);
+            if (config != null) {
+                return Mono.just(config);
+            }
+            // 可能是其他实例刚创建的配置：回源一次并放入注册表
+            return repository.findById(id).doOnNext(this::onSaved);
+        });
+    }
+
+    public Mono<PublicModelConfig> findByProviderAndModelId(String provider, String modelId) {
+        return current().flatMap(s -> Mono.justOrEmpty(s.byModel.get(modelKey(provider, modelId))));
+    }
+
+    public Flux<PublicModelConfig> findAll() {
+        return current().flatMapIterable(s -> s.byId.values());
+    }
+
+    public Flux<PublicModelConfig> findAllEnabled() {
+        return current().flatMapIterable(s -> s.enabled);
+    }
+
+    /**
+     * 已启用且开放给指定功能的配置
+     */
+    public Flux<PublicModelConfig> findEnabledByFeature(AIFeatureType featureType) {
+        return current().flatMapIterable(s -> s.byFeature.getOrDefault(featureType, List.of()));
+    }
+
+    // ==================== API Key ====================
+
+    /**
+     * 按健康度加权轮询选取一个解密后的 API Key
+     */
+    public Mono<String> nextApiKey(String provider, String modelId) {
+        return findByProviderAndModelId(provider, modelId)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException("公共模型配置不存在: " + provider + ":" + modelId)))
+                .flatMap(config -> {
+                    if (!Boolean.TRUE.equals(config.getEnabled())) {
+                        return Mono.error(new IllegalStateException("公共模型已禁用: " + provider + ":" + modelId));
+                    }
+                    KeyPool pool = keyPools.get(config.getId());
+                    KeySlot slot = pool != null ? pool.next(System.currentTimeMillis()) : null;
+                    if (slot == null) {
+                        return Mono.error(new IllegalStateException("公共模型没有可用的API Key: " + provider + ":" + modelId));
+                    }
+                    return Mono.just(slot.decryptedKey);
+                });
+    }
+
+    /**
+     * 上报一次使用某个 Key 的调用结果，用于调整该 Key 的权重
+     */
+    public void reportResult(String provider, String modelId, String apiKey, boolean success, long latencyMillis) {
+        Snapshot s = snapshot;
+        if (s == null || apiKey == null) {
+            return;
+        }
+        PublicModelConfig config = s.byModel.get(modelKey(provider, modelId));
+        KeyPool pool = config != null ? keyPools.get(config.getId()) : null;
+        if (pool == null) {
+            return;
+        }
+        KeySlot slot = pool.byKey.get(apiKey);
+        if (slot != null) {
+            slot.record(success, latencyMillis, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 各 Key 当前的健康统计（不含 Key 明文），用于管理端展示与排查
+     */
+    public List<Map<String, Object>> keyStats(String configId) {
+        KeyPool pool = keyPools.get(configId);
+        if (pool == null) {
+            return List.of();
+        }
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> stats = new ArrayList<>();
+        for (KeySlot slot : pool.slots) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("note", slot.note);
+            item.put("weight", slot.weight(pool.minLatency(), now));
+            item.put("successRate", slot.successRate);
+            item.put("latencyMillis", Math.round(slot.latencyMillis));
+            item.put("consecutiveFailures", slot.consecutiveFailures);
+            stats.add(item);
+        }
+        return stats;
+    }
+
+    // ==================== 内部 ====================
+
+    private Mono<Snapshot> current() {
+        Snapshot s = snapshot;
+        if (s != null) {
+            return Mono.just(s);
+        }
+        return refresh().then(Mono.fromSupplier(() -> snapshot));
+    }
+
+    /**
+     * 重建配置的 Key 池：加密值未变化的 Key 复用原有槽位（保留统计、不重复解密）
+     */
+    private void rebuildKeyPool(PublicModelConfig config) {
+        KeyPool previous = keyPools.get(config.getId());
+        Map<String, KeySlot> previousByEncrypted = previous != null ? previous.byEncrypted : Map.of();
+        List<KeySlot> slots = new ArrayList<>();
+        for (PublicModelConfig.ApiKeyEntry entry : config.getValidApiKeys()) {
+            KeySlot slot = previousByEncrypted.get(entry.getApiKey());
+            if (slot == null) {
+                try {
+                    slot = new KeySlot(entry.getApiKey(), encryptor.decrypt(entry.getApiKey()), entry.getNote());
+                } catch (Exception e) {
+                    log.error("解密公共模型API Key失败: {}:{}", config.getProvider(), config.getModelId(), e);
+                    continue;
+                }
+            }
+            slots.add(slot);
+        }
+        keyPools.put(config.getId(), new KeyPool(slots));
+    }
+
+    private static String modelKey(String provider, String modelId) {
+        return provider + ":" + modelId;
+    }
+
+    /**
+     * 不可变的配置快照及其索引
+     */
+    private static final class Snapshot {
+        private final Map<String, PublicModelConfig> byId;
+        private final Map<String, PublicModelConfig> byModel = new HashMap<>();
+        private final List<PublicModelConfig> enabled = new ArrayList<>();
+        private final Map<AIFeatureType, List<PublicModelConfig>> byFeature = new HashMap<>();
+
+        private Snapshot(Map<String, PublicModelConfig> byId) {
+            this.byId = Collections.unmodifiableMap(byId);
+            for (PublicModelConfig config : byId.values()) {
+                byModel.put(modelKey(config.getProvider(), config.getModelId()), config);
+                if (!Boolean.TRUE.equals(config.getEnabled())) {
+                    continue;
+                }
+                enabled.add(config);
+                if (config.getEnabledForFeatures() != null) {
+                    for (AIFeatureType feature : config.getEnabledForFeatures()) {
+                        byFeature.computeIfAbsent(feature, f -> new ArrayList<>()).add(config);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个配置的 Key 池，平滑加权轮询（每次选中当前权重最高者，再减去总权重）
+     */
+    private final class KeyPool {
+        private final List<KeySlot> slots;
+        private final Map<String, KeySlot> byKey = new HashMap<>();
+        private final Map<String, KeySlot> byEncrypted = new HashMap<>();
+
+        private KeyPool(List<KeySlot> slots) {
+            this.slots = slots;
+            for (KeySlot slot : slots) {
+                byKey.put(slot.decryptedKey, slot);
+                byEncrypted.put(slot.encryptedKey, slot);
+            }
+        }
+
+        private synchronized KeySlot next(long now) {
+            if (slots.isEmpty()) {
+                return null;
+            }
+            if (slots.size() == 1) {
+                return slots.get(0);
+            }
+            double minLatency = minLatency();
+            int total = 0;
+            KeySlot best = null;
+            for (KeySlot slot : slots) {
+                int weight = slot.weight(minLatency, now);
+                slot.currentWeight += weight;
+                total += weight;
+                if (best == null || slot.currentWeight > best.currentWeight) {
+                    best = slot;
+                }
+            }
+            best.currentWeight -= total;
+            return best;
+        }
+
+        private double minLatency() {
+            double min = 0;
+            for (KeySlot slot : slots) {
+                if (slot.latencyMillis > 0 && (min == 0 || slot.latencyMillis < min)) {
+                    min = slot.latencyMillis;
+                }
+            }
+            return min;
+        }
+    }
+
+    /**
+     * 单个 Key 的运行时状态
+     */
+    private final class KeySlot {
+        private final String encryptedKey;
+        private final String decryptedKey;
+        private final String note;
+
+        /** 平滑加权轮询的当前权重，仅在 KeyPool 锁内修改 */
+        private int currentWeight;
+
+        private volatile double successRate = 1.0;
+        private volatile double latencyMillis;
+        private volatile int consecutiveFailures;
+        private volatile long lastFailureAt;
+
+        private KeySlot(String encryptedKey, String decryptedKey, String note) {
+            this.encryptedKey = encryptedKey;
+            this.decryptedKey = decryptedKey;
+            this.note = note;
+        }
+
+        private synchronized void record(boolean success, long latency, long now) {
+            successRate = successRate * (1 - EWMA_ALPHA) + (success ? EWMA_ALPHA : 0);
+            if (success) {
+                consecutiveFailures = 0;
+                if (latency > 0) {
+                    latencyMillis = latencyMillis == 0 ? latency : latencyMillis * (1 - EWMA_ALPHA) + latency * EWMA_ALPHA;
+                }
+            } else {
+                consecutiveFailures++;
+                lastFailureAt = now;
+            }
+        }
+
+        /**
+         * 权重 = 基础权重 × 成功率² × 相对延迟系数；冷却期内取最低权重
+         */
+        private int weight(double poolMinLatency, long now) {
+            if (consecutiveFailures >= failureThreshold && now - lastFailureAt < cooldownMillis) {
+                return MIN_WEIGHT;
+            }
+            double latencyFactor = 1.0;
+            if (poolMinLatency > 0 && latencyMillis > 0) {
+                latencyFactor = Math.max(0.2, Math.min(1.0, poolMinLatency / latencyMillis));
+            }
+            return Math.max(MIN_WEIGHT, (int) Math.round(BASE_WEIGHT * successRate * successRate * latencyFactor));
+        }
+    }
+}
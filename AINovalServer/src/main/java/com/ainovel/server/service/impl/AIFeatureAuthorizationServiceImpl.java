@@ -61,7 +61,7 @@ public class AIFeatureAuthorizationServiceImpl implements AIFeatureAuthorization
                 hasFeaturePermission(userId, featureType),
                 validateModelAvailability(provider, modelId, featureType),
                 creditService.calculateCreditCost(provider, modelId, featureType, estimatedInputTokens, estimatedOutputTokens),
-                creditService.getUserCredits(userId)
+                creditService.getAvailableCredits(userId)
         ).map(tuple -> {
             boolean hasPermission = tuple.getT1();
             boolean modelAvailable = tuple.getT2();
@@ -27,6 +27,7 @@ import com.ainovel.server.service.ai.AIModelProvider;
 import com.ainovel.server.service.ai.capability.ToolCallCapable;
 import com.ainovel.server.service.ai.tools.ToolExecutionService;
 import com.ainovel.server.service.ai.factory.AIModelProviderFactory;
+import com.ainovel.server.service.ai.factory.AIModelProviderPool;
 import com.ainovel.server.service.ai.capability.ProviderCapabilityService;
 
 
@@ -64,6 +65,7 @@ public class AIServiceImpl implements AIService {
     private final AIProviderRegistryService providerRegistryService;
 
     private final AIModelProviderFactory providerFactory;
+    private final AIModelProviderPool providerPool;
     private final ProviderCapabilityService capabilityService;
     private final ToolExecutionService toolExecutionService;
     private final ToolFallbackRegistry toolFallbackRegistry;
@@ -74,6 +76,7 @@ public class AIServiceImpl implements AIService {
             NovelService novelService,
             AIProviderRegistryService providerRegistryService,
             AIModelProviderFactory providerFactory,
+            AIModelProviderPool providerPool,
             ProviderCapabilityService capabilityService,
             ToolExecutionService toolExecutionService,
             ToolFallbackRegistry toolFallbackRegistry,
@@ -81,6 +84,7 @@ public class AIServiceImpl implements AIService {
         this.novelService = novelService;
         this.providerRegistryService = providerRegistryService;
         this.providerFactory = providerFactory;
+        this.providerPool = providerPool;
         this.capabilityService = capabilityService;
         this.toolExecutionService = toolExecutionService;
         this.toolFallbackRegistry = toolFallbackRegistry;
@@ -387,8 +391,8 @@ public class AIServiceImpl implements AIService {
                 try {
                     log.info("为提供商 '{}' 创建Provider实例，使用模型 '{}'", lowerCaseProvider, defaultModel.getId());
                     
-                    // 创建Provider实例
-                    AIModelProvider providerInstance = providerFactory.createProvider(
+                    // 从实例池获取Provider实例
+                    AIModelProvider providerInstance = providerPool.acquire(
                         lowerCaseProvider,
                         defaultModel.getId(),
                         apiKey,
@@ -421,7 +425,7 @@ public class AIServiceImpl implements AIService {
 
     @Override
     public AIModelProvider createAIModelProvider(String providerName, String modelName, String apiKey, String apiEndpoint) {
-        return providerFactory.createProvider(providerName, modelName, apiKey, apiEndpoint);
+        return providerPool.acquire(providerName, modelName, apiKey, apiEndpoint);
     }
 
     /**
@@ -434,9 +438,9 @@ public class AIServiceImpl implements AIService {
         if ("gemini".equals(p) || "gemini-rest".equals(p)) {
             // 使用 LangChain4j 的 Gemini Provider（支持工具规范）
             // 通过工厂已有的 LangChain4j 构造器创建：providerName 传 "gemini"
-            return providerFactory.createProvider("gemini", modelName, apiKey, apiEndpoint);
+            return providerPool.acquire("gemini", modelName, apiKey, apiEndpoint);
         }
-        return providerFactory.createProvider(providerName, modelName, apiKey, apiEndpoint);
+        return providerPool.acquire(providerName, modelName, apiKey, apiEndpoint);
     }
 
     // ==================== LangChain4j 格式转换适配器 ====================
@@ -630,7 +634,7 @@ public class AIServiceImpl implements AIService {
             }
             
             // 创建AI提供者（工具调用分支使用可调用工具的Provider）
-            AIModelProvider aiProvider = providerFactory.createToolCallProvider(provider, modelName, apiKey, apiEndpoint);
+            AIModelProvider aiProvider = providerPool.acquireToolCall(provider, modelName, apiKey, apiEndpoint);
             
             // 尝试获取工具可调用能力（对非LangChain4j实现，如GenAI REST，允许走适配器路径）
             // 标识能力（此方法中chatModel暂未直接使用，保留以兼容后续分支或上游变更）
@@ -704,7 +708,7 @@ public class AIServiceImpl implements AIService {
             log.debug("使用提供商: {} 模型={}", provider, modelName);
             
             // 创建AI提供者（工具调用分支使用可调用工具的Provider）
-            AIModelProvider aiProvider = providerFactory.createToolCallProvider(provider, modelName, apiKey, apiEndpoint);
+            AIModelProvider aiProvider = providerPool.acquireToolCall(provider, modelName, apiKey, apiEndpoint);
             if (aiProvider == null) {
                 log.error("Failed to create AI provider for model: {}, provider: {}", modelName, provider);
                 throw new IllegalArgumentException("Failed to create AI provider for model: " + modelName);
@@ -19,6 +19,7 @@ import com.ainovel.server.repository.PublicModelConfigRepository;
 import com.ainovel.server.repository.SystemConfigRepository;
 import com.ainovel.server.repository.UserRepository;
 import com.ainovel.server.service.CreditService;
+import com.ainovel.server.service.billing.CreditLedger;
 import com.ainovel.server.repository.ModelPricingRepository;
 
 import reactor.core.publisher.Mono;
@@ -34,6 +35,7 @@ public class CreditServiceImpl implements CreditService {
     private final PublicModelConfigRepository publicModelConfigRepository;
     private final ModelPricingRepository modelPricingRepository;
     private final ReactiveMongoTemplate mongoTemplate;
+    private final CreditLedger creditLedger;
     
     // 默认配置常量
     private static final double DEFAULT_CREDIT_TO_USD_RATE = 200.0; // 1美元 = 200积分 (即1积分 = 0.005美元)
@@ -44,12 +46,14 @@ public class CreditServiceImpl implements CreditService {
                            SystemConfigRepository systemConfigRepository,
                            PublicModelConfigRepository publicModelConfigRepository,
                            ModelPricingRepository modelPricingRepository,
-                           ReactiveMongoTemplate mongoTemplate) {
+                           ReactiveMongoTemplate mongoTemplate,
+                           CreditLedger creditLedger) {
         this.userRepository = userRepository;
         this.systemConfigRepository = systemConfigRepository;
         this.publicModelConfigRepository = publicModelConfigRepository;
         this.modelPricingRepository = modelPricingRepository;
         this.mongoTemplate = mongoTemplate;
+        this.creditLedger = creditLedger;
     }
     
     @Override
@@ -64,7 +68,8 @@ public class CreditServiceImpl implements CreditService {
                 .inc("totalCreditsUsed", amount);
         return mongoTemplate.updateFirst(query, update, User.class)
                 .map(UpdateResult::getModifiedCount)
-                .map(modified -> modified != null && modified > 0);
+                .map(modified -> modified != null && modified > 0)
+                .doOnSuccess(ok -> creditLedger.invalidate(userId));
     }
     
     @Override
@@ -77,7 +82,8 @@ public class CreditServiceImpl implements CreditService {
         Update update = new Update().inc("credits", amount);
         return mongoTemplate.updateFirst(query, update, User.class)
                 .map(UpdateResult::getModifiedCount)
-                .map(modified -> modified != null && modified > 0);
+                .map(modified -> modified != null && modified > 0)
+                .doOnSuccess(ok -> creditLedger.invalidate(userId));
     }
     
     @Override
@@ -87,6 +93,11 @@ public class CreditServiceImpl implements CreditService {
                 .defaultIfEmpty(0L);
     }
     
+    @Override
+    public Mono<Long> getAvailableCredits(String userId) {
+        return creditLedger.isEnabled() ? creditLedger.availableCredits(userId) : getUserCredits(userId);
+    }
+    
     @Override
     public Mono<Long> calculateCreditCost(String provider, String modelId, AIFeatureType featureType, int inputTokens, int outputTokens) {
         return Mono.zip(
@@ -119,7 +130,7 @@ public class CreditServiceImpl implements CreditService {
     @Override
     public Mono<Boolean> hasEnoughCredits(String userId, String provider, String modelId, AIFeatureType featureType, int estimatedInputTokens, int estimatedOutputTokens) {
         return Mono.zip(
-                getUserCredits(userId),
+                getAvailableCredits(userId),
                 calculateCreditCost(provider, modelId, featureType, estimatedInputTokens, estimatedOutputTokens)
         ).map(tuple -> tuple.getT1() >= tuple.getT2());
     }
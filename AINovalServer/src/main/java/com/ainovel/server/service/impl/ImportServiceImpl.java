@@ -1,8 +1,14 @@
 package com.ainovel.server.service.impl;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
-import java.nio.charset.MalformedInputException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -13,11 +19,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Service;
@@ -44,6 +50,7 @@ import com.ainovel.server.web.dto.ImportSessionInfo;
 import com.ainovel.server.web.dto.ChapterPreview;
 import com.ainovel.server.service.UserAIModelConfigService;
 import com.ainovel.server.common.util.PromptUtil;
+import com.ainovel.server.common.util.WordCountUtil;
 
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
@@ -66,6 +73,31 @@ public class ImportServiceImpl implements ImportService {
     private final TaskSubmissionService taskSubmissionService;
     private final UserAIModelConfigService userAIModelConfigService;
     private final TokenEstimationService tokenEstimationService;
+    private final ReactiveMongoTemplate reactiveMongoTemplate;
+
+    /**
+     * 编码探测时读取的文件前缀字节数
+     */
+    private static final int CHARSET_SAMPLE_BYTES = 64 * 1024;
+
+    /**
+     * 读取导入文件时的缓冲区大小（字符）
+     */
+    private static final int READ_BUFFER_CHARS = 64 * 1024;
+
+    /**
+     * 编码探测的候选顺序：优先 UTF-8，其次 GBK/GB18030，最后 ISO-8859-1
+     */
+    private static final List<Charset> CHARSET_CANDIDATES = List.of(
+            StandardCharsets.UTF_8,
+            Charset.forName("GBK"),
+            Charset.forName("GB18030"),
+            StandardCharsets.ISO_8859_1
+    );
+
+    // 流式导入时每批写入的场景数量
+    @Value("${ainovel.import.scene-batch-size:200}")
+    private int sceneBatchSize;
 
     // 使用ConcurrentHashMap存储活跃的导入任务Sink
     private final Map<String, Sinks.Many<ServerSentEvent<ImportStatus>>> activeJobSinks = new ConcurrentHashMap<>();
@@ -97,7 +129,8 @@ public class ImportServiceImpl implements ImportService {
             List<NovelParser> parsers,
             TaskSubmissionService taskSubmissionService,
             UserAIModelConfigService userAIModelConfigService,
-            TokenEstimationService tokenEstimationService) {
+            TokenEstimationService tokenEstimationService,
+            ReactiveMongoTemplate reactiveMongoTemplate) {
         this.novelRepository = novelRepository;
         this.sceneRepository = sceneRepository;
         this.indexingService = indexingService;
@@ -106,6 +139,7 @@ public class ImportServiceImpl implements ImportService {
         this.taskSubmissionService = taskSubmissionService;
         this.userAIModelConfigService = userAIModelConfigService;
         this.tokenEstimationService = tokenEstimationService;
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
     }
 
     @Override
@@ -218,10 +252,10 @@ public class ImportServiceImpl implements ImportService {
             String userId,
             Sinks.Many<ServerSentEvent<ImportStatus>> sink) {
 
-        return Mono.fromCallable(() -> {
+        return Mono.defer(() -> {
             // 检查是否已取消
             if (isCancelled(jobId)) {
-                throw new InterruptedException("导入任务已被用户取消");
+                return Mono.error(new InterruptedException("导入任务已被用户取消"));
             }
 
             sink.tryEmitNext(createStatusEvent(jobId, "PROCESSING", "开始解析文件..."));
@@ -229,36 +263,21 @@ public class ImportServiceImpl implements ImportService {
 
             NovelParser parser = getParserForFile(originalFilename);
 
-            // 尝试使用多种常见编码读取，避免因未知编码导致 UTF-8 解析失败
-            List<String> fileLines;
-            try {
-                fileLines = readFileLinesWithAutoCharset(tempFilePath);
-            } catch (IOException e) {
-                log.error("Job {}: 读取文件失败", jobId, e);
-                throw new RuntimeException("读取文件失败: " + e.getMessage(), e);
-            }
-
-            // 预处理：去除噪声与站点广告行，避免影响章节分割
-            fileLines = preprocessLines(fileLines);
-
-            ParsedNovelData parsedData = parser.parseStream(fileLines.stream());
-
-            // 检查是否已取消
-            if (isCancelled(jobId)) {
-                throw new InterruptedException("导入任务已被用户取消");
-            }
-
             // 始终使用文件名作为小说标题
             String title = extractTitleFromFilename(originalFilename);
-            parsedData.setNovelTitle(title);
             log.info("Job {}: 使用文件名 '{}' 作为小说标题。", jobId, title);
 
-            log.info("Job {}: Parsed data obtained. Scene count: {}", jobId, parsedData.getScenes().size());
-            sink.tryEmitNext(createStatusEvent(jobId, "SAVING", "解析完成，发现 " + parsedData.getScenes().size() + " 个场景，正在保存小说结构..."));
+            // 边读取边解析：文件按行流式读取（编码由文件前缀探测），解析器每完成一章即发出，
+            // 内存中只保留当前章节和一个待写入批次
+            Flux<ParsedSceneData> parsedScenes = Flux.using(
+                    () -> openImportLines(tempFilePath),
+                    parser::parseAsFlux,
+                    Stream::close)
+                    .subscribeOn(Schedulers.boundedElastic());
+
+            sink.tryEmitNext(createStatusEvent(jobId, "SAVING", "正在解析并保存小说章节..."));
 
-            log.info("Job {}: About to call saveNovelAndScenesReactive...", jobId);
-            // 现在调用 saveNovelAndScenesReactive
-            return saveNovelAndScenesReactive(parsedData, userId)
+            return saveNovelAndScenesStreaming(title, userId, parsedScenes, jobId, sink)
                     .flatMap(savedNovel -> {
                         // 检查是否已取消
                         if (isCancelled(jobId)) {
@@ -277,7 +296,11 @@ public class ImportServiceImpl implements ImportService {
                                         throw new RuntimeException("任务已取消");
                                     }
 
-                                    String message = String.format("正在为 RAG 创建索引，已处理 %d 秒，请耐心等待...", (tick + 1) * 10);
+                                    IndexingService.IndexingProgress indexingProgress = indexingService.getIndexingProgress(savedNovel.getId());
+                                    String message = indexingProgress != null && indexingProgress.totalSegments() > 0
+                                            ? String.format("正在为 RAG 创建索引，已处理 %d/%d 个片段，请耐心等待...",
+                                                    indexingProgress.processedSegments(), indexingProgress.totalSegments())
+                                            : String.format("正在为 RAG 创建索引，已处理 %d 秒，请耐心等待...", (tick + 1) * 10);
                                     log.info("Job {}: Sending progress update: {}", jobId, message);
                                     sink.tryEmitNext(createStatusEvent(jobId, "INDEXING", message));
                                 });
@@ -391,7 +414,7 @@ public class ImportServiceImpl implements ImportService {
                                     }));
                         });
                 });
-        }).flatMap(Function.identity()) // 展平 Mono<Mono<Void>>
+        })
                 .doOnError(e -> { // 捕获 processAndSaveNovel 内部的同步异常或响应式链中的错误
                     // 检查是否是取消导致的错误
                     if (e instanceof InterruptedException) {
@@ -420,12 +443,28 @@ public class ImportServiceImpl implements ImportService {
      * 保存小说和场景（响应式方式）
      */
     private Mono<Novel> saveNovelAndScenesReactive(ParsedNovelData parsedData, String userId) {
-        log.info(">>> saveNovelAndScenesReactive started for novel: {} userId: {} ", parsedData.getNovelTitle(), userId);
+        return saveNovelAndScenesStreaming(parsedData.getNovelTitle(), userId,
+                Flux.fromIterable(parsedData.getScenes()), null, null);
+    }
+
+    /**
+     * 流式保存小说和场景：先保存小说，场景按批次直接插入（每个场景对应一个章节，章节ID预先生成），
+     * 全部写入后一次性保存小说结构与字数，不再对场景做二次保存，也不再回读全部场景统计字数
+     *
+     * @param title 小说标题
+     * @param userId 用户ID
+     * @param parsedScenes 按顺序发出的解析章节
+     * @param jobId 导入任务ID（可为null，为null时不检查取消、不发送进度）
+     * @param sink 进度事件Sink（可为null）
+     */
+    private Mono<Novel> saveNovelAndScenesStreaming(String title, String userId, Flux<ParsedSceneData> parsedScenes,
+            String jobId, Sinks.Many<ServerSentEvent<ImportStatus>> sink) {
+        log.info(">>> saveNovelAndScenesStreaming started for novel: {} userId: {} ", title, userId);
         LocalDateTime novelNow = LocalDateTime.now(); // 时间戳用于 Novel
 
         // 创建Novel对象
         Novel novel = Novel.builder()
-                .title(parsedData.getNovelTitle())
+                .title(title)
                 .author(Novel.Author.builder().id(userId).build())
                 .status("draft")
                 .createdAt(novelNow) // 使用 Novel 的时间戳
@@ -437,95 +476,121 @@ public class ImportServiceImpl implements ImportService {
         return novelRepository.save(novel)
                 .flatMap(savedNovel -> {
                     log.info(">>> Novel saved successfully with ID: {}", savedNovel.getId()); // 保存成功日志
-                    List<Scene> scenes = new ArrayList<>();
-
-                    // 创建场景列表 - 每个解析出的章节单独一个章节，每个章节默认创建一个场景
-                    for (int i = 0; i < parsedData.getScenes().size(); i++) {
-                        ParsedSceneData parsedScene = parsedData.getScenes().get(i);
-                        LocalDateTime sceneNow = LocalDateTime.now(); // 为每个 Scene 获取独立的时间戳
-
-                        // 使用UUID生成场景ID，与前端保持一致
-                        String sceneId = UUID.randomUUID().toString();
-
-                        // 将普通文本转换为富文本格式 - 调用 PromptUtil
-                        String richTextContent = PromptUtil.convertPlainTextToQuillDelta(parsedScene.getSceneContent());
-
-                        Scene scene = Scene.builder()
-                                .id(sceneId)
-                                .novelId(savedNovel.getId())
-                                .title(parsedScene.getSceneTitle())
-                                .content(richTextContent)
-                                .summary("")
-                                .sequence(parsedScene.getOrder())
-                                .sceneType("NORMAL")
-                                .characterIds(new ArrayList<>())
-                                .locations(new ArrayList<>())
-                                .version(0)
-                                .history(new ArrayList<>())
-                                .createdAt(sceneNow) // 使用 Scene 的时间戳
-                                .updatedAt(sceneNow) // 使用 Scene 的时间戳
-                                .build();
-
-                        // 使用元数据服务计算并设置场景字数
-                        metadataService.updateSceneMetadata(scene);
-
-                        scenes.add(scene);
-                    }
 
-                    // 批量保存场景
-                    return sceneRepository.saveAll(scenes)
-                            .collectList()
-                            .flatMap(savedScenes -> {
-                                // 使用元数据服务更新小说元数据
-                                return metadataService.updateNovelMetadata(savedNovel.getId())
-                                        .flatMap(updatedNovel -> {
-                                            // 创建基本结构 - 一个卷，每个场景一个章节
-                                            Novel.Act act = Novel.Act.builder()
-                                                    .id(UUID.randomUUID().toString())
-                                                    .title("第一卷")
-                                                    .description("")
-                                                    .order(0)
-                                                    .chapters(new ArrayList<>())
-                                                    .build();
-
-                                            // 创建章节并更新场景的chapterId
-                                            List<Scene> updatedScenes = new ArrayList<>();
-
-                                            for (int i = 0; i < savedScenes.size(); i++) {
-                                                Scene scene = savedScenes.get(i);
-                                                // 生成章节ID，格式为"chapter_" + UUID
-                                                String chapterId = UUID.randomUUID().toString();
-
-                                                Novel.Chapter chapter = Novel.Chapter.builder()
-                                                        .id(chapterId)
-                                                        .title(scene.getTitle())
-                                                        .description("")
-                                                        .order(i)
-                                                        .sceneIds(List.of(scene.getId()))
-                                                        .build();
-
-                                                // 更新场景的chapterId
-                                                scene.setChapterId(chapterId);
-                                                updatedScenes.add(scene);
-
-                                                // 添加章节到卷中
-                                                act.getChapters().add(chapter);
-                                                if (i == 0) {
-                                                    updatedNovel.setLastEditedChapterId(chapterId);
-                                                }
+                    // 创建基本结构 - 一个卷，每个场景一个章节
+                    Novel.Act act = Novel.Act.builder()
+                            .id(UUID.randomUUID().toString())
+                            .title("第一卷")
+                            .description("")
+                            .order(0)
+                            .chapters(new ArrayList<>())
+                            .build();
+
+                    AtomicInteger chapterIndex = new AtomicInteger(0);
+                    AtomicInteger totalWordCount = new AtomicInteger(0);
+
+                    return parsedScenes
+                            .map(parsedScene -> {
+                                Scene scene = buildImportedScene(savedNovel.getId(), parsedScene);
+                                totalWordCount.addAndGet(scene.getWordCount() != null ? scene.getWordCount() : 0);
+
+                                // 章节ID预先生成，场景在首次写入时即带有chapterId
+                                int order = chapterIndex.getAndIncrement();
+                                String chapterId = UUID.randomUUID().toString();
+                                scene.setChapterId(chapterId);
+                                act.getChapters().add(Novel.Chapter.builder()
+                                        .id(chapterId)
+                                        .title(scene.getTitle())
+                                        .description("")
+                                        .order(order)
+                                        .sceneIds(List.of(scene.getId()))
+                                        .build());
+                                if (order == 0) {
+                                    savedNovel.setLastEditedChapterId(chapterId);
+                                }
+                                return scene;
+                            })
+                            .buffer(Math.max(1, sceneBatchSize))
+                            .concatMap(batch -> {
+                                if (jobId != null && isCancelled(jobId)) {
+                                    return Mono.error(new InterruptedException("导入任务已被用户取消"));
+                                }
+                                return reactiveMongoTemplate.insert(batch, Scene.class)
+                                        .then(Mono.fromRunnable(() -> {
+                                            log.debug("已写入场景批次: novelId={}, batchSize={}, total={}",
+                                                    savedNovel.getId(), batch.size(), chapterIndex.get());
+                                            if (sink != null) {
+                                                sink.tryEmitNext(createStatusEvent(jobId, "SAVING",
+                                                        "已保存 " + chapterIndex.get() + " 个章节..."));
                                             }
+                                        }));
+                            })
+                            .then(Mono.defer(() -> {
+                                savedNovel.getStructure().getActs().add(act);
+
+                                // 字数在写入过程中累加，直接写入小说元数据
+                                if (savedNovel.getMetadata() == null) {
+                                    savedNovel.setMetadata(Novel.Metadata.builder().build());
+                                }
+                                int wordCount = totalWordCount.get();
+                                savedNovel.getMetadata().setWordCount(wordCount);
+                                savedNovel.getMetadata().setReadTime(WordCountUtil.readTimeMinutes(wordCount));
+                                savedNovel.getMetadata().setLastEditedAt(LocalDateTime.now());
+
+                                log.info(">>> 导入场景写入完成: novelId={}, 章节数={}, 总字数={}",
+                                        savedNovel.getId(), chapterIndex.get(), wordCount);
+                                return novelRepository.save(savedNovel);
+                            }))
+                            // 中途失败或取消时删除已写入的小说和场景批次，避免书库里留下只导入了一半的小说
+                            .onErrorResume(e -> discardPartialImport(savedNovel.getId())
+                                    .then(Mono.error(e)))
+                            .doOnCancel(() -> discardPartialImport(savedNovel.getId()).subscribe());
+                });
+    }
 
-                                            updatedNovel.getStructure().getActs().add(act);
-
-                                            // 保存更新后的场景和小说
-                                            return sceneRepository.saveAll(updatedScenes)
-                                                    .collectList()
-                                                    .then(novelRepository.save(updatedNovel));
-                                        });
-                            });
+    /**
+     * 删除未完成导入的小说及其已写入的场景
+     */
+    private Mono<Void> discardPartialImport(String novelId) {
+        return sceneRepository.deleteByNovelId(novelId)
+                .then(novelRepository.deleteById(novelId))
+                .doOnSuccess(v -> log.info("已清理未完成的导入: novelId={}", novelId))
+                .onErrorResume(e -> {
+                    log.error("清理未完成的导入失败: novelId={}, error={}", novelId, e.getMessage());
+                    return Mono.empty();
                 });
     }
 
+    /**
+     * 将解析出的章节转换为场景
+     */
+    private Scene buildImportedScene(String novelId, ParsedSceneData parsedScene) {
+        LocalDateTime sceneNow = LocalDateTime.now(); // 为每个 Scene 获取独立的时间戳
+
+        // 将普通文本转换为富文本格式 - 调用 PromptUtil
+        String richTextContent = PromptUtil.convertPlainTextToQuillDelta(parsedScene.getSceneContent());
+
+        Scene scene = Scene.builder()
+                // 使用UUID生成场景ID，与前端保持一致
+                .id(UUID.randomUUID().toString())
+                .novelId(novelId)
+                .title(parsedScene.getSceneTitle())
+                .content(richTextContent)
+                .summary("")
+                .sequence(parsedScene.getOrder())
+                .sceneType("NORMAL")
+                .characterIds(new ArrayList<>())
+                .locations(new ArrayList<>())
+                .version(0)
+                .history(new ArrayList<>())
+                .createdAt(sceneNow) // 使用 Scene 的时间戳
+                .updatedAt(sceneNow) // 使用 Scene 的时间戳
+                .build();
+
+        // 使用元数据服务计算并设置场景字数
+        return metadataService.updateSceneMetadata(scene);
+    }
+
     /**
      * 根据文件名获取对应的解析器
      */
@@ -771,12 +836,10 @@ public class ImportServiceImpl implements ImportService {
 
                 // 解析文件
                 NovelParser parser = getParserForFile(sessionInfo.getOriginalFileName());
-                List<String> fileLines = readFileLinesWithAutoCharset(tempFilePath);
-
-                // 预处理：去除噪声与站点广告行，避免影响章节分割
-                fileLines = preprocessLines(fileLines);
-
-                ParsedNovelData parsedData = parser.parseStream(fileLines.stream());
+                ParsedNovelData parsedData;
+                try (Stream<String> lines = openImportLines(tempFilePath)) {
+                    parsedData = parser.parseStream(lines);
+                }
 
                 // 设置标题
                 String title = request.getCustomTitle();
@@ -990,43 +1053,74 @@ public class ImportServiceImpl implements ImportService {
     }
 
     /**
-     * 尝试使用多种常见编码读取文本文件，优先 UTF-8，其次 GBK/GB18030，最后 ISO-8859-1。
-     * 如果所有编码均失败，则抛出最后一次异常。
+     * 探测到的文件编码及其BOM长度
      */
-    private List<String> readFileLinesWithAutoCharset(Path filePath) throws IOException {
-        List<Charset> charsetCandidates = List.of(
-                StandardCharsets.UTF_8,
-                Charset.forName("GBK"),
-                Charset.forName("GB18030"),
-                StandardCharsets.ISO_8859_1
-        );
-
-        IOException lastException = null;
-        for (Charset charset : charsetCandidates) {
-            try {
-                return Files.readAllLines(filePath, charset);
-            } catch (MalformedInputException e) {
-                // 记录并尝试下一个编码
-                lastException = e;
-                log.debug("读取文件使用编码 {} 失败，尝试下一个...", charset);
-            }
-        }
+    private record DetectedCharset(Charset charset, int bomLength) {}
 
-        // 如果全部失败，抛出最后一次异常
-        throw lastException != null ? lastException : new IOException("无法解析文件编码");
+    /**
+     * 以流的方式逐行读取导入文件，并去除噪声与站点广告行，避免影响章节分割。
+     * 返回的流持有文件句柄，使用完毕后必须关闭。
+     */
+    private Stream<String> openImportLines(Path filePath) throws IOException {
+        DetectedCharset detected = detectCharset(filePath);
+        log.debug("导入文件编码探测结果: {} -> {}", filePath.getFileName(), detected.charset());
+
+        InputStream in = Files.newInputStream(filePath);
+        try {
+            in.skipNBytes(detected.bomLength());
+            // 编码只根据文件前缀判断，前缀之后出现的少量非法字节以替换字符代替，不再整体重读文件
+            CharsetDecoder decoder = detected.charset().newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, decoder), READ_BUFFER_CHARS);
+            return reader.lines()
+                    .filter(ImportServiceImpl::isContentLine)
+                    .onClose(() -> {
+                        try {
+                            reader.close();
+                        } catch (IOException e) {
+                            log.warn("关闭导入文件失败: {}", filePath, e);
+                        }
+                    });
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
     }
 
     /**
-     * 预处理文本行，去除噪声与站点广告行，避免影响章节分割
+     * 根据文件前缀探测编码：依次尝试 UTF-8、GBK、GB18030，均失败时使用 ISO-8859-1。
+     * 前缀末尾被截断的多字节字符不视为错误。
      */
-    private List<String> preprocessLines(List<String> lines) {
-        List<String> processedLines = new ArrayList<>();
-        for (String line : lines) {
-            // 去除噪声与站点广告行，避免影响章节分割
-            if (!line.trim().isEmpty() && !line.contains("广告") && !line.contains("站点")) {
-                processedLines.add(line);
+    private DetectedCharset detectCharset(Path filePath) throws IOException {
+        byte[] prefix;
+        try (InputStream in = Files.newInputStream(filePath)) {
+            prefix = in.readNBytes(CHARSET_SAMPLE_BYTES);
+        }
+
+        if (prefix.length >= 3 && (prefix[0] & 0xFF) == 0xEF && (prefix[1] & 0xFF) == 0xBB && (prefix[2] & 0xFF) == 0xBF) {
+            return new DetectedCharset(StandardCharsets.UTF_8, 3);
+        }
+
+        boolean wholeFile = prefix.length < CHARSET_SAMPLE_BYTES;
+        for (Charset charset : CHARSET_CANDIDATES) {
+            CharsetDecoder decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT);
+            // 候选编码解码出的字符数不会超过字节数
+            CharBuffer out = CharBuffer.allocate(prefix.length + 1);
+            if (!decoder.decode(ByteBuffer.wrap(prefix), out, wholeFile).isError()) {
+                return new DetectedCharset(charset, 0);
             }
+            log.debug("文件前缀无法按编码 {} 解码，尝试下一个...", charset);
         }
-        return processedLines;
+        return new DetectedCharset(StandardCharsets.ISO_8859_1, 0);
+    }
+
+    /**
+     * 判断是否为需要保留的内容行（去除空行与站点广告行）
+     */
+    private static boolean isContentLine(String line) {
+        return !line.trim().isEmpty() && !line.contains("广告") && !line.contains("站点");
     }
 }
@@ -1,31 +1,51 @@
 package com.ainovel.server.service.impl;
 
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import com.ainovel.server.common.util.RichTextUtil;
+import com.ainovel.server.common.util.ScenePlainTextUtil;
 import com.ainovel.server.domain.model.Novel;
 import com.ainovel.server.domain.model.Scene;
+import com.ainovel.server.domain.model.SceneIndexState;
+import com.ainovel.server.repository.SceneIndexStateRepository;
 import com.ainovel.server.repository.SceneRepository;
 import com.ainovel.server.service.IndexingService;
 import com.ainovel.server.service.KnowledgeService;
 import com.ainovel.server.service.NovelService;
+import com.ainovel.server.service.vectorstore.EmbeddingStoreIdentity;
 
 import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.document.DocumentSplitter;
 import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
+import dev.langchain4j.store.embedding.filter.Filter;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -44,17 +64,43 @@ public class IndexingServiceImpl implements IndexingService {
     private final DocumentSplitter documentSplitter;
     private final EmbeddingModel embeddingModel;
     private final EmbeddingStore<TextSegment> embeddingStore;
-    private final EmbeddingStoreIngestor embeddingStoreIngestor;
+    private final SceneIndexStateRepository sceneIndexStateRepository;
+    private final EmbeddingStoreIdentity embeddingStoreIdentity;
+
+    // 同一场景的增量索引必须串行：并发时两次都基于同一份旧状态计算差异，后写入的状态会让先写入的向量成为孤儿
+    private final ReentrantLock[] sceneIndexLocks = new ReentrantLock[64];
+
+    // 片段元数据中保存内容哈希的键
+    private static final String CONTENT_HASH_KEY = "contentHash";
 
     // 存储正在进行的索引任务Map
     private final Map<String, Boolean> cancelledIndexingTasks = new ConcurrentHashMap<>();
 
-    // 存储活跃的索引任务线程
-    private final Map<String, Thread> indexingThreads = new ConcurrentHashMap<>();
-
     // 存储活跃的任务取消标记
     private final Map<String, AtomicBoolean> taskCancellations = new ConcurrentHashMap<>();
 
+    // 存储小说索引任务的进度
+    private final Map<String, ProgressCounter> indexingProgress = new ConcurrentHashMap<>();
+
+    // 每次调用 embedAll 的片段数
+    @Value("${rag.indexing.embedding-batch-size:32}")
+    private int embeddingBatchSize;
+
+    // 同时进行的嵌入批次数
+    @Value("${rag.indexing.max-concurrent-batches:4}")
+    private int maxConcurrentBatches;
+
+    /**
+     * 索引进度计数
+     */
+    private static final class ProgressCounter {
+
+        private volatile int total;
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger stored = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+    }
+
     @Autowired
     public IndexingServiceImpl(
             NovelService novelService,
@@ -63,14 +109,22 @@ public class IndexingServiceImpl implements IndexingService {
             DocumentSplitter documentSplitter,
             EmbeddingModel embeddingModel,
             EmbeddingStore<TextSegment> embeddingStore,
-            EmbeddingStoreIngestor embeddingStoreIngestor) {
+            SceneIndexStateRepository sceneIndexStateRepository,
+            EmbeddingStoreIdentity embeddingStoreIdentity) {
         this.novelService = novelService;
         this.sceneRepository = sceneRepository;
         this.knowledgeService = knowledgeService;
         this.documentSplitter = documentSplitter;
         this.embeddingModel = embeddingModel;
         this.embeddingStore = embeddingStore;
-        this.embeddingStoreIngestor = embeddingStoreIngestor;
+        this.sceneIndexStateRepository = sceneIndexStateRepository;
+        this.embeddingStoreIdentity = embeddingStoreIdentity;
+        for (int i = 0; i < sceneIndexLocks.length; i++) {
+            sceneIndexLocks[i] = new ReentrantLock();
+        }
+        if (!embeddingStoreIdentity.persistent()) {
+            log.info("嵌入存储 {} 不能跨重启保留，场景索引将不记录增量状态", embeddingStoreIdentity.key());
+        }
     }
 
     @Override
@@ -84,101 +138,117 @@ public class IndexingServiceImpl implements IndexingService {
         AtomicBoolean cancelled = new AtomicBoolean(false);
         taskCancellations.put(novelId, cancelled);
 
-        // 创建一个Mono，其中包含一个阻塞操作，将在单独的线程中执行
+        ProgressCounter progress = new ProgressCounter();
+        indexingProgress.put(novelId, progress);
+
         return loadNovelDocuments(novelId)
                 .flatMap(documents -> {
                     // 检查任务是否被取消
-                    if (isCancelled(novelId)) {
+                    if (isIndexingCancelled(novelId, cancelled)) {
                         log.info("小说索引任务已被取消: {}", novelId);
-                        return Mono.empty().then();
+                        return Mono.<Void>empty();
                     }
 
                     log.info("为小说 {} 加载了 {} 个文档", novelId, documents.size());
 
-                    // 使用subscribeOn确保在单独的线程上执行，并记录该线程
-                    return Mono.<Void>fromRunnable(() -> {
-                        // 保存当前线程以便可以中断
-                        Thread currentThread = Thread.currentThread();
-                        indexingThreads.put(novelId, currentThread);
-
-                        log.info("开始对小说 {} 进行索引处理，线程ID: {}", novelId, currentThread.getId());
-                        try {
-                            // 循环处理每个文档
-                            for (int i = 0; i < documents.size(); i++) {
-                                // 定期检查线程中断状态和取消标记
-                                if (Thread.currentThread().isInterrupted()) {
-                                    log.warn("小说索引任务 {} 线程被中断，停止处理", novelId);
-                                    break;
-                                }
-
-                                if (isCancelled(novelId)) {
-                                    log.warn("小说索引任务 {} 被标记为取消，停止处理", novelId);
-                                    break;
-                                }
-
-                                if (cancelled.get()) {
-                                    log.warn("小说索引任务 {} 收到取消标记，停止处理", novelId);
-                                    break;
-                                }
-
-                                // 每处理5个文档，检查一次任务是否被取消
-                                if (i % 5 == 0) {
-                                    if (Thread.currentThread().isInterrupted()) {
-                                        log.warn("小说索引任务 {} 线程在处理过程中被中断，停止处理", novelId);
-                                        break;
-                                    }
-
-                                    if (isCancelled(novelId)) {
-                                        log.warn("小说索引任务 {} 在处理过程中被标记为取消，停止处理", novelId);
-                                        break;
-                                    }
-
-                                    if (cancelled.get()) {
-                                        log.warn("小说索引任务 {} 在处理过程中收到取消标记，停止处理", novelId);
-                                        break;
-                                    }
-                                }
-
-                                try {
-                                    Document document = documents.get(i);
-                                    embeddingStoreIngestor.ingest(document);
-
-                                    // 每处理完一个文档打印进度
-                                    if (i % 10 == 0 || i == documents.size() - 1) {
-                                        log.info("小说 {} 索引进度: {}/{}", novelId, i + 1, documents.size());
-                                    }
-                                } catch (Exception e) {
-                                    log.error("处理文档时发生错误: {}", e.getMessage(), e);
-                                    // 继续处理下一个文档
-                                }
-                            }
-                            log.info("小说 {} 索引处理完成或被中断", novelId);
-                        } catch (Exception e) {
-                            log.error("索引处理过程中发生错误: {}", e.getMessage(), e);
-                        } finally {
-                            // 移除线程引用和任务状态
-                            cleanupTask(novelId);
-                        }
-                    })
+                    // 0. 清理旧向量和场景索引状态，避免重复索引；1. 分割全部文档；
+                    // 2. 按批次调用 embedAll；3. 有限并发地处理批次并批量写入向量存储
+                    return purgeNovelEmbeddings(novelId)
+                            .then(Mono.fromCallable(() -> documentSplitter.splitAll(documents)))
                             .subscribeOn(Schedulers.boundedElastic())
-                            .doOnSubscribe(subscription -> {
-                                // 记录订阅已经开始
-                                log.info("小说 {} 索引任务已开始订阅", novelId);
+                            .flatMap(segments -> {
+                                progress.total = segments.size();
+                                log.info("小说 {} 共分割出 {} 个片段，批大小: {}，并发批次数: {}",
+                                        novelId, segments.size(), embeddingBatchSize, maxConcurrentBatches);
+
+                                return Flux.fromIterable(segments)
+                                        .buffer(Math.max(1, embeddingBatchSize))
+                                        // 协作式取消：取消后不再派发新的批次，已在进行的批次完成后即结束
+                                        .takeWhile(batch -> !isIndexingCancelled(novelId, cancelled))
+                                        .flatMap(batch -> Mono.fromCallable(() -> embedAndStore(novelId, batch, cancelled))
+                                                .subscribeOn(Schedulers.boundedElastic())
+                                                .doOnNext(stored -> progress.processed.addAndGet(batch.size()))
+                                                .onErrorResume(e -> {
+                                                    log.error("小说 {} 批量索引失败，跳过该批次({}个片段): {}",
+                                                            novelId, batch.size(), e.getMessage(), e);
+                                                    progress.processed.addAndGet(batch.size());
+                                                    progress.failed.addAndGet(batch.size());
+                                                    return Mono.just(0);
+                                                }),
+                                                Math.max(1, maxConcurrentBatches))
+                                        .doOnNext(stored -> {
+                                            progress.stored.addAndGet(stored);
+                                            log.info("小说 {} 索引进度: {}/{}", novelId, progress.processed.get(), progress.total);
+                                        })
+                                        .then();
                             })
-                            .doFinally(signalType -> {
-                                // 确保清理资源
-                                log.info("小说 {} 索引任务结束，信号类型: {}", novelId, signalType);
-                                cleanupTask(novelId);
+                            .doOnSuccess(v -> {
+                                if (isIndexingCancelled(novelId, cancelled)) {
+                                    log.warn("小说 {} 索引任务被取消，已写入 {}/{} 个片段", novelId, progress.stored.get(), progress.total);
+                                } else {
+                                    log.info("小说 {} 索引处理完成，写入 {} 个片段，失败 {} 个", novelId,
+                                            progress.stored.get(), progress.failed.get());
+                                }
                             });
                 })
+                .doFinally(signalType -> {
+                    // 确保清理资源
+                    log.info("小说 {} 索引任务结束，信号类型: {}", novelId, signalType);
+                    indexingProgress.remove(novelId, progress);
+                    cleanupTask(novelId);
+                })
                 .onErrorResume(e -> {
                     log.error("索引任务发生错误: {}", e.getMessage(), e);
-                    // 清理任务状态
-                    cleanupTask(novelId);
-                    return Mono.empty().then();
+                    return Mono.empty();
                 });
     }
 
+    /**
+     * 为一批片段生成嵌入向量并批量写入向量存储
+     *
+     * @return 实际写入的片段数
+     */
+    private int embedAndStore(String novelId, List<TextSegment> segments, AtomicBoolean cancelled) {
+        if (isIndexingCancelled(novelId, cancelled)) {
+            return 0;
+        }
+
+        List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+
+        // 嵌入失败的片段返回空向量，不写入存储
+        List<Embedding> validEmbeddings = new ArrayList<>(segments.size());
+        List<TextSegment> validSegments = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size() && embeddings != null && i < embeddings.size(); i++) {
+            Embedding embedding = embeddings.get(i);
+            if (embedding != null && embedding.vector() != null && embedding.vector().length > 0) {
+                validEmbeddings.add(embedding);
+                validSegments.add(segments.get(i));
+            }
+        }
+        if (validSegments.size() < segments.size()) {
+            log.warn("小说 {} 有 {} 个片段未能生成嵌入向量", novelId, segments.size() - validSegments.size());
+        }
+
+        if (validSegments.isEmpty() || isIndexingCancelled(novelId, cancelled)) {
+            return 0;
+        }
+        embeddingStore.addAll(validEmbeddings, validSegments);
+        return validSegments.size();
+    }
+
+    private boolean isIndexingCancelled(String taskId, AtomicBoolean cancelled) {
+        return cancelled.get() || isCancelled(taskId);
+    }
+
+    @Override
+    public IndexingProgress getIndexingProgress(String taskId) {
+        ProgressCounter progress = indexingProgress.get(taskId);
+        if (progress == null) {
+            return null;
+        }
+        return new IndexingProgress(progress.total, progress.processed.get(), progress.stored.get());
+    }
+
     @Override
     public Mono<Void> indexScene(Scene scene) {
         String sceneId = scene.getId();
@@ -196,71 +266,177 @@ public class IndexingServiceImpl implements IndexingService {
         return loadSceneDocument(scene)
                 .flatMap(document -> {
                     // 检查任务是否被取消
-                    if (isCancelled(taskId) || isCancelled(novelId)) {
+                    if (isIndexingCancelled(taskId, cancelled) || isCancelled(novelId)) {
                         log.info("场景索引任务已被取消: {}", sceneId);
-                        return Mono.empty().then();
+                        return Mono.<Void>empty();
                     }
 
-                    log.info("为场景 {} 加载了文档", sceneId);
-
-                    // 在单独的线程上执行索引
-                    return Mono.<Void>fromRunnable(() -> {
-                        // 保存当前线程以便可以中断
-                        Thread currentThread = Thread.currentThread();
-                        indexingThreads.put(taskId, currentThread);
-
-                        log.info("开始对场景 {} 进行索引处理，线程ID: {}", sceneId, currentThread.getId());
-                        try {
-                            // 分别检查不同类型的取消信号
-                            boolean threadInterrupted = Thread.currentThread().isInterrupted();
-                            boolean taskCancelled = isCancelled(taskId);
-                            boolean novelCancelled = isCancelled(novelId);
-                            boolean flagCancelled = cancelled.get();
-
-                            if (threadInterrupted || taskCancelled || novelCancelled || flagCancelled) {
-                                if (threadInterrupted) {
-                                    log.warn("场景 {} 索引任务线程被中断", sceneId);
-                                }
-                                if (taskCancelled) {
-                                    log.warn("场景 {} 索引任务被标记为取消", sceneId);
-                                }
-                                if (novelCancelled) {
-                                    log.warn("场景 {} 所属小说的索引任务被标记为取消", sceneId);
-                                }
-                                if (flagCancelled) {
-                                    log.warn("场景 {} 索引任务收到取消标记", sceneId);
-                                }
-                                log.info("场景 {} 索引任务被取消", sceneId);
-                            } else {
-                                embeddingStoreIngestor.ingest(document);
-                                log.info("场景 {} 索引处理完成", sceneId);
-                            }
-                        } catch (Exception e) {
-                            log.error("场景索引处理过程中发生错误: {}", e.getMessage(), e);
-                        } finally {
-                            // 移除线程引用和任务状态
-                            cleanupTask(taskId);
-                        }
-                    })
-                            .subscribeOn(Schedulers.boundedElastic())
-                            .doOnSubscribe(subscription -> {
-                                // 记录订阅已经开始
-                                log.info("场景 {} 索引任务已开始订阅", sceneId);
-                            })
-                            .doFinally(signalType -> {
-                                // 确保清理资源
-                                log.info("场景 {} 索引任务结束，信号类型: {}", sceneId, signalType);
-                                cleanupTask(taskId);
-                            });
+                    // 嵌入和向量存储调用是阻塞的，在弹性线程池执行；读旧状态、写向量、存新状态在场景锁内完成
+                    return Mono.<Void>fromRunnable(() -> reindexSceneLocked(scene, document,
+                            () -> isIndexingCancelled(taskId, cancelled) || isCancelled(novelId)))
+                            .subscribeOn(Schedulers.boundedElastic());
+                })
+                .doFinally(signalType -> {
+                    // 确保清理资源
+                    log.debug("场景 {} 索引任务结束，信号类型: {}", sceneId, signalType);
+                    cleanupTask(taskId);
                 })
                 .onErrorResume(e -> {
                     log.error("场景索引任务发生错误: {}", e.getMessage(), e);
-                    // 清理任务状态
-                    cleanupTask(taskId);
-                    return Mono.empty().then();
+                    return Mono.empty();
                 });
     }
 
+    /**
+     * 持有场景锁执行一次增量索引
+     */
+    private void reindexSceneLocked(Scene scene, Document document, BooleanSupplier cancelled) {
+        String sceneId = scene.getId();
+        ReentrantLock lock = sceneIndexLock(sceneId);
+        lock.lock();
+        try {
+            SceneIndexState previous = loadReusableIndexState(sceneId);
+            SceneIndexState state = reindexSceneChunks(scene, document, previous, cancelled);
+            if (state != null && embeddingStoreIdentity.persistent()) {
+                sceneIndexStateRepository.save(state).block();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock sceneIndexLock(String sceneId) {
+        return sceneIndexLocks[Math.floorMod(sceneId.hashCode(), sceneIndexLocks.length)];
+    }
+
+    /**
+     * 读取可复用的场景索引状态：存储不持久、或状态由其他存储写入时视为不存在
+     */
+    private SceneIndexState loadReusableIndexState(String sceneId) {
+        if (!embeddingStoreIdentity.persistent()) {
+            return null;
+        }
+        SceneIndexState state = sceneIndexStateRepository.findById(sceneId).block();
+        if (state != null && !embeddingStoreIdentity.key().equals(state.getStoreKey())) {
+            log.info("场景 {} 的索引状态来自存储 {}，与当前存储 {} 不一致，重新全量索引", sceneId,
+                    state.getStoreKey(), embeddingStoreIdentity.key());
+            return null;
+        }
+        return state;
+    }
+
+    /**
+     * 按片段内容哈希增量索引场景：未变化的片段复用已有向量，只嵌入新增或变化的片段，并删除不再存在的片段的向量
+     *
+     * @return 新的索引状态；没有任何变化或任务被取消时返回null（不写库）
+     */
+    private SceneIndexState reindexSceneChunks(Scene scene, Document document, SceneIndexState previous,
+            BooleanSupplier cancelled) {
+        String sceneId = scene.getId();
+        String novelId = scene.getNovelId();
+        List<TextSegment> segments = documentSplitter.split(document);
+
+        // 旧片段按哈希分组；同一场景中可能有多个内容相同的片段
+        Map<String, Deque<String>> reusable = new HashMap<>();
+        if (previous != null && previous.getChunks() != null) {
+            for (SceneIndexState.ChunkEntry entry : previous.getChunks()) {
+                reusable.computeIfAbsent(entry.getHash(), k -> new ArrayDeque<>()).add(entry.getEmbeddingId());
+            }
+        }
+
+        List<SceneIndexState.ChunkEntry> chunks = new ArrayList<>(segments.size());
+        List<TextSegment> toEmbed = new ArrayList<>();
+        List<String> toEmbedIds = new ArrayList<>();
+        for (TextSegment segment : segments) {
+            String hash = chunkHash(segment.text(), scene.getChapterId());
+            Deque<String> candidates = reusable.get(hash);
+            String embeddingId = candidates != null ? candidates.pollFirst() : null;
+            if (embeddingId == null) {
+                embeddingId = UUID.randomUUID().toString();
+                segment.metadata().put(CONTENT_HASH_KEY, hash);
+                toEmbed.add(segment);
+                toEmbedIds.add(embeddingId);
+            }
+            chunks.add(SceneIndexState.ChunkEntry.builder().hash(hash).embeddingId(embeddingId).build());
+        }
+        List<String> removedIds = reusable.values().stream()
+                .flatMap(Collection::stream)
+                .toList();
+
+        if (previous != null && toEmbed.isEmpty() && removedIds.isEmpty()) {
+            log.info("场景 {} 内容未变化，跳过嵌入", sceneId);
+            return null;
+        }
+        if (cancelled.getAsBoolean()) {
+            log.info("场景 {} 索引任务被取消", sceneId);
+            return null;
+        }
+
+        if (previous == null) {
+            // 没有索引状态时，场景可能已被整本索引过（向量ID未记录），先按来源删除旧向量
+            removeEmbeddings(sceneFilter(novelId, sceneId), "场景 " + sceneId);
+        }
+
+        if (!toEmbed.isEmpty()) {
+            List<Embedding> embeddings = embeddingModel.embedAll(toEmbed).content();
+            boolean complete = embeddings != null && embeddings.size() == toEmbed.size()
+                    && embeddings.stream().allMatch(e -> e != null && e.vector() != null && e.vector().length > 0);
+            if (!complete) {
+                // 不写入部分结果，也不更新索引状态，下次索引时重新尝试
+                throw new IllegalStateException("场景 " + sceneId + " 的部分片段未能生成嵌入向量");
+            }
+            embeddingStore.addAll(toEmbedIds, embeddings, toEmbed);
+        }
+        if (!removedIds.isEmpty()) {
+            embeddingStore.removeAll(removedIds);
+        }
+
+        log.info("场景 {} 增量索引完成：片段 {}，新嵌入 {}，复用 {}，删除 {}", sceneId, segments.size(),
+                toEmbed.size(), segments.size() - toEmbed.size(), removedIds.size());
+
+        return SceneIndexState.builder()
+                .id(sceneId)
+                .novelId(novelId)
+                .storeKey(embeddingStoreIdentity.key())
+                .chunks(chunks)
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * 计算片段哈希：片段文本加所属章节（章节变化时需要更新片段的元数据）
+     */
+    private static String chunkHash(String text, String chapterId) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(text.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            if (chapterId != null) {
+                digest.update(chapterId.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private static Filter sceneFilter(String novelId, String sceneId) {
+        return metadataKey("novelId").isEqualTo(novelId)
+                .and(metadataKey("sourceType").isEqualTo("scene"))
+                .and(metadataKey("sourceId").isEqualTo(sceneId));
+    }
+
+    /**
+     * 按条件删除向量，向量存储不支持按条件删除时只记录日志
+     */
+    private void removeEmbeddings(Filter filter, String target) {
+        try {
+            embeddingStore.removeAll(filter);
+        } catch (Exception e) {
+            log.warn("删除{}的向量失败: {}", target, e.getMessage());
+        }
+    }
+
     /**
      * 检查指定ID的索引任务是否已被取消
      *
@@ -282,17 +458,6 @@ public class IndexingServiceImpl implements IndexingService {
             log.info("已设置并移除任务 {} 的取消标记", taskId);
         }
 
-        // 中断线程
-        try {
-            Thread thread = indexingThreads.remove(taskId);
-            if (thread != null && thread.isAlive() && !thread.isInterrupted()) {
-                thread.interrupt();
-                log.info("任务 {} 的线程已被中断", taskId);
-            }
-        } catch (Exception e) {
-            log.error("中断线程时发生错误: {}", e.getMessage());
-        }
-
         // 移除标记
         cancelledIndexingTasks.remove(taskId);
     }
@@ -312,13 +477,13 @@ public class IndexingServiceImpl implements IndexingService {
         tasksToCancel.add(taskId);
 
         // 查找所有相关任务
-        for (String key : new HashSet<>(indexingThreads.keySet())) {
+        for (String key : new HashSet<>(taskCancellations.keySet())) {
             if (key.startsWith(taskId + ":")) {
                 tasksToCancel.add(key);
             }
         }
 
-        // 标记取消并中断所有相关任务
+        // 标记取消所有相关任务（索引流程在批次之间检查取消标记）
         for (String id : tasksToCancel) {
             // 标记任务为已取消
             if (cancelledIndexingTasks.containsKey(id)) {
@@ -334,14 +499,6 @@ public class IndexingServiceImpl implements IndexingService {
                 taskExists = true;
                 log.info("已设置任务 {} 的取消标记", id);
             }
-
-            // 尝试中断线程
-            Thread thread = indexingThreads.get(id);
-            if (thread != null && thread.isAlive() && !thread.isInterrupted()) {
-                thread.interrupt();
-                log.info("任务 {} 的线程已被中断", id);
-                taskExists = true;
-            }
         }
 
         if (!taskExists) {
@@ -355,16 +512,38 @@ public class IndexingServiceImpl implements IndexingService {
     public Mono<Void> deleteNovelIndices(String novelId) {
         log.info("删除小说索引：{}", novelId);
 
-        // 这里我们借用已有的KnowledgeService删除功能
-        return knowledgeService.deleteKnowledgeChunks(novelId, null, null);
+        // 这里我们借用已有的KnowledgeService删除功能，另外清理本服务写入的向量和场景索引状态
+        return knowledgeService.deleteKnowledgeChunks(novelId, null, null)
+                .then(purgeNovelEmbeddings(novelId));
     }
 
     @Override
     public Mono<Void> deleteSceneIndex(String novelId, String sceneId) {
         log.info("删除场景索引：{}", sceneId);
 
-        // 这里我们借用已有的KnowledgeService删除功能
-        return knowledgeService.deleteKnowledgeChunks(novelId, "scene", sceneId);
+        // 这里我们借用已有的KnowledgeService删除功能，另外清理本服务写入的向量和场景索引状态
+        return knowledgeService.deleteKnowledgeChunks(novelId, "scene", sceneId)
+                .then(Mono.fromRunnable(() -> {
+                    // 与增量索引共用场景锁，避免删除后被正在进行的索引重新写回
+                    ReentrantLock lock = sceneIndexLock(sceneId);
+                    lock.lock();
+                    try {
+                        removeEmbeddings(sceneFilter(novelId, sceneId), "场景 " + sceneId);
+                        sceneIndexStateRepository.deleteById(sceneId).block();
+                    } finally {
+                        lock.unlock();
+                    }
+                }).subscribeOn(Schedulers.boundedElastic()))
+                .then();
+    }
+
+    /**
+     * 删除小说的全部向量及场景索引状态
+     */
+    private Mono<Void> purgeNovelEmbeddings(String novelId) {
+        return Mono.fromRunnable(() -> removeEmbeddings(metadataKey("novelId").isEqualTo(novelId), "小说 " + novelId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(sceneIndexStateRepository.deleteByNovelId(novelId));
     }
 
     @Override
@@ -406,7 +585,7 @@ public class IndexingServiceImpl implements IndexingService {
         // 构建文档内容
         StringBuilder content = new StringBuilder();
         content.append("标题: ").append(scene.getTitle()).append("\n\n");
-        content.append(RichTextUtil.deltaJsonToPlainText(scene.getContent()));
+        content.append(ScenePlainTextUtil.plainTextOf(scene));
 
         // 创建文档
         return Mono.just(Document.from(content.toString(), metadata));
@@ -1,23 +1,37 @@
 package com.ainovel.server.service.impl;
 
 import java.time.LocalDateTime;
-
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import com.ainovel.server.common.exception.ResourceNotFoundException;
+import com.ainovel.server.common.util.WordCountUtil;
 import com.ainovel.server.domain.model.Novel;
 import com.ainovel.server.domain.model.Scene;
 import com.ainovel.server.repository.NovelRepository;
-import com.ainovel.server.repository.SceneRepository;
 import com.ainovel.server.service.MetadataService;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
 /**
  * 元数据服务实现类
+ *
+ * 场景字数在写入时计算并保存在场景上，小说总字数通过 $inc 增量维护；
+ * 全量统计只在数据库端对场景字数求和，并且只在发现偏差时写回。
  */
 @Slf4j
 @Service
@@ -25,39 +39,11 @@ import reactor.core.scheduler.Schedulers;
 public class MetadataServiceImpl implements MetadataService {
 
     private final NovelRepository novelRepository;
-    private final SceneRepository sceneRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
 
     @Override
     public int calculateWordCount(String content) {
-        if (content == null || content.isEmpty()) {
-            return 0;
-        }
-
-        // 简单实现，去除HTML标记和特殊字符后统计
-        String plainText = content.replaceAll("<[^>]*>", "") // 移除HTML标签
-                .replaceAll("\\s+", " ") // 将多个空白字符合并为一个
-                .trim();
-
-        // 统计中文字符数量
-        int chineseCount = 0;
-        for (char c : plainText.toCharArray()) {
-            if (isChinese(c)) {
-                chineseCount++;
-            }
-        }
-
-        // 英文部分按空格分词
-        String englishOnly = plainText.replaceAll("[^\\x00-\\x7F]+", " ").trim();
-        int englishWordCount = englishOnly.isEmpty() ? 0 : englishOnly.split("\\s+").length;
-
-        return chineseCount + englishWordCount;
-    }
-
-    /**
-     * 判断字符是否是中文
-     */
-    private boolean isChinese(char c) {
-        return c >= 0x4E00 && c <= 0x9FA5; // Unicode CJK统一汉字范围
+        return WordCountUtil.countWords(content);
     }
 
     @Override
@@ -85,41 +71,75 @@ public class MetadataServiceImpl implements MetadataService {
         log.info("正在更新小说 {} 的元数据", novelId);
         return novelRepository.findById(novelId)
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("小说", novelId)))
-                .flatMap(novel -> {
-                    // 获取小说的所有场景
-                    return sceneRepository.findByNovelId(novelId)
-                            .collectList()
-                            .flatMap(scenes -> {
-                                // 计算总字数
-                                int totalWordCount = scenes.stream()
-                                        .mapToInt(scene -> scene.getWordCount() != null ? scene.getWordCount() : 0)
-                                        .sum();
-
-                                // 计算估计阅读时间 (假设每分钟阅读300字)
-                                int readTime = totalWordCount / 300;
-                                if (readTime < 1 && totalWordCount > 0) {
-                                    readTime = 1; // 最小阅读时间为1分钟
-                                }
-
-                                // 确保元数据对象存在
-                                if (novel.getMetadata() == null) {
-                                    novel.setMetadata(Novel.Metadata.builder().build());
-                                }
-
-                                // 更新元数据
-                                novel.getMetadata().setWordCount(totalWordCount);
-                                novel.getMetadata().setReadTime(readTime);
-                                novel.getMetadata().setLastEditedAt(LocalDateTime.now());
-                                novel.setUpdatedAt(LocalDateTime.now());
-
-                                return novelRepository.save(novel);
-                            });
-                })
+                .flatMap(novel -> backfillMissingSceneWordCounts(novelId)
+                        .then(sumSceneWordCounts(novelId))
+                        .flatMap(totalWordCount -> {
+                            // 计算估计阅读时间 (假设每分钟阅读300字)
+                            int readTime = WordCountUtil.readTimeMinutes(totalWordCount);
+
+                            // 确保元数据对象存在
+                            if (novel.getMetadata() == null) {
+                                novel.setMetadata(Novel.Metadata.builder().build());
+                            }
+
+                            // 没有偏差时不写库
+                            if (novel.getMetadata().getWordCount() == totalWordCount
+                                    && novel.getMetadata().getReadTime() == readTime) {
+                                return Mono.just(novel);
+                            }
+
+                            log.info("小说 {} 字数存在偏差，修复: {} -> {}", novelId,
+                                    novel.getMetadata().getWordCount(), totalWordCount);
+                            LocalDateTime now = LocalDateTime.now();
+                            novel.getMetadata().setWordCount(totalWordCount);
+                            novel.getMetadata().setReadTime(readTime);
+                            novel.getMetadata().setLastEditedAt(now);
+
+                            Update update = new Update()
+                                    .set("metadata.wordCount", totalWordCount)
+                                    .set("metadata.readTime", readTime)
+                                    .set("metadata.lastEditedAt", now);
+                            return mongoTemplate.updateFirst(idQuery(novelId), update, Novel.class)
+                                    .thenReturn(novel);
+                        }))
                 .doOnSuccess(novel -> log.info("小说 {} 元数据更新成功，总字数: {}", novelId,
                 novel.getMetadata() != null ? novel.getMetadata().getWordCount() : 0))
                 .doOnError(e -> log.error("小说 {} 元数据更新失败", novelId, e));
     }
 
+    @Override
+    public Mono<Void> applyWordCountDelta(String novelId, int delta) {
+        if (novelId == null || novelId.isEmpty() || delta == 0) {
+            return Mono.empty();
+        }
+
+        Query query = idQuery(novelId);
+        query.fields().include("metadata");
+        Update update = new Update()
+                .inc("metadata.wordCount", delta)
+                .set("metadata.lastEditedAt", LocalDateTime.now());
+
+        return mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), Novel.class)
+                .flatMap(novel -> {
+                    int wordCount = novel.getMetadata() != null ? novel.getMetadata().getWordCount() : 0;
+                    int readTime = WordCountUtil.readTimeMinutes(wordCount);
+                    if (novel.getMetadata() != null && novel.getMetadata().getReadTime() == readTime) {
+                        return Mono.<Void>empty();
+                    }
+                    // 阅读时间只在跨过整分钟时变化；仅当字数未被并发修改时写入，否则交给下一次增量更新
+                    Query guard = new Query(Criteria.where("_id").is(novelId).and("metadata.wordCount").is(wordCount));
+                    return mongoTemplate.updateFirst(guard, new Update().set("metadata.readTime", readTime), Novel.class)
+                            .then();
+                })
+                .onErrorResume(e -> {
+                    // 例如 metadata 为 null 的旧数据无法 $inc，回退为一次全量修复
+                    log.warn("小说 {} 字数增量更新失败，回退为全量统计: {}", novelId, e.getMessage());
+                    return updateNovelMetadata(novelId)
+                            .then()
+                            .onErrorResume(ex -> Mono.empty());
+                });
+    }
+
     @Override
     public Mono<Void> triggerNovelMetadataUpdate(Scene scene) {
         if (scene == null || scene.getNovelId() == null) {
@@ -137,4 +157,85 @@ public class MetadataServiceImpl implements MetadataService {
         // 立即返回，不等待元数据更新完成
         return Mono.empty();
     }
+
+    /**
+     * 定时修复字数偏差（默认每小时一次）
+     */
+    @Scheduled(fixedDelayString = "${ainovel.metadata.word-count-repair-interval-ms:3600000}",
+            initialDelayString = "${ainovel.metadata.word-count-repair-initial-delay-ms:600000}")
+    public void scheduledWordCountRepair() {
+        repairDriftedWordCounts().subscribe(
+                repaired -> {
+                    if (repaired > 0) {
+                        log.info("字数修复任务完成，修复小说数: {}", repaired);
+                    }
+                },
+                error -> log.error("字数修复任务失败", error));
+    }
+
+    @Override
+    public Mono<Long> repairDriftedWordCounts() {
+        // 1. 存在未统计字数场景的小说
+        Flux<String> missingCounts = mongoTemplate.findDistinct(
+                new Query(Criteria.where("wordCount").is(null)), "novelId", Scene.class, String.class);
+
+        // 2. 场景字数之和与小说元数据不一致的小说
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group("novelId").sum("wordCount").as("total"));
+        Flux<String> drifted = mongoTemplate.aggregate(aggregation, Scene.class, Document.class)
+                .filter(doc -> doc.get("_id") != null)
+                .buffer(200)
+                .concatMap(batch -> {
+                    Map<String, Integer> totals = batch.stream().collect(Collectors.toMap(
+                            doc -> doc.get("_id").toString(),
+                            doc -> doc.get("total") instanceof Number n ? n.intValue() : 0,
+                            (a, b) -> a));
+                    Query query = new Query(Criteria.where("_id").in(totals.keySet()));
+                    query.fields().include("metadata");
+                    return mongoTemplate.find(query, Novel.class)
+                            .filter(novel -> {
+                                int stored = novel.getMetadata() != null ? novel.getMetadata().getWordCount() : 0;
+                                return stored != totals.getOrDefault(novel.getId(), 0);
+                            })
+                            .map(Novel::getId);
+                });
+
+        return Flux.concat(missingCounts, drifted)
+                .distinct()
+                .concatMap(novelId -> updateNovelMetadata(novelId)
+                        .thenReturn(1L)
+                        .onErrorResume(e -> Mono.just(0L)))
+                .reduce(0L, Long::sum);
+    }
+
+    /**
+     * 为尚未保存字数的场景（旧数据或绕过服务层写入的场景）统计并写入字数
+     */
+    private Mono<Long> backfillMissingSceneWordCounts(String novelId) {
+        Query query = new Query(Criteria.where("novelId").is(novelId).and("wordCount").is(null));
+        query.fields().include("_id").include("content");
+        return mongoTemplate.find(query, Scene.class)
+                .flatMap(scene -> mongoTemplate.updateFirst(
+                        idQuery(scene.getId()),
+                        new Update().set("wordCount", calculateWordCount(scene.getContent())),
+                        Scene.class), 8)
+                .count();
+    }
+
+    /**
+     * 在数据库端对场景字数求和，不传输场景内容
+     */
+    private Mono<Integer> sumSceneWordCounts(String novelId) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("novelId").is(novelId)),
+                Aggregation.group("novelId").sum("wordCount").as("total"));
+        return mongoTemplate.aggregate(aggregation, Scene.class, Document.class)
+                .next()
+                .map(doc -> doc.get("total") instanceof Number n ? n.intValue() : 0)
+                .defaultIfEmpty(0);
+    }
+
+    private static Query idQuery(String id) {
+        return new Query(Criteria.where("_id").is(id));
+    }
 }
@@ -10,7 +10,6 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -49,6 +48,7 @@ import com.ainovel.server.service.UserAIModelConfigService;
 import com.ainovel.server.service.UserPromptService;
 import com.ainovel.server.service.UserService;
 import com.ainovel.server.service.ai.AIModelProvider;
+import com.ainovel.server.service.ai.factory.AIModelProviderPool;
 import com.ainovel.server.service.dto.AiGeneratedSettingData;
 import com.ainovel.server.service.rag.RagService;
 import com.ainovel.server.web.dto.GenerateSceneFromSummaryRequest;
@@ -99,8 +99,8 @@ public class NovelAIServiceImpl implements NovelAIService {
     private final StringEncryptor encryptor; // Added
     private final ObjectMapper objectMapper; // Added
 
-    // 缓存用户的AI模型提供商
-    private final Map<String, Map<String, AIModelProvider>> userProviders = new ConcurrentHashMap<>();
+    // 提供商实例池：按提供商、模型、端点与 Key 指纹复用实例，Key 或端点变更后自然取到新实例
+    private final AIModelProviderPool providerPool;
 
     @Autowired
     private ContentRetriever contentRetriever;
@@ -129,7 +129,8 @@ public class NovelAIServiceImpl implements NovelAIService {
             UserService userService,
             SceneService sceneService,
             StringEncryptor encryptor,
-            ObjectMapper objectMapper) { // Added
+            ObjectMapper objectMapper, // Added
+            AIModelProviderPool providerPool) {
         this.aiService = aiService;
         this.knowledgeService = knowledgeService;
         this.novelService = novelService;
@@ -138,6 +139,7 @@ public class NovelAIServiceImpl implements NovelAIService {
         this.sceneService = sceneService;
         this.encryptor = encryptor;
         this.objectMapper = objectMapper; // Added
+        this.providerPool = providerPool;
     }
 
     /**
@@ -1290,17 +1292,7 @@ public class NovelAIServiceImpl implements NovelAIService {
             // return Mono.error(new IllegalArgumentException("模型配置缺少 API Key")); // 取消注释以强制要求API Key
         }
 
-        // 检查缓存中是否已存在
-        Map<String, AIModelProvider> userProviderMap = userProviders.computeIfAbsent(userId, k -> new HashMap<>());
-        String key = config.getProvider() + ":" + config.getModelName();
-
-        AIModelProvider provider = userProviderMap.get(key);
-        if (provider != null) {
-            log.info("从缓存获取用户 {} 的AI模型提供商: {}", userId, key);
-            return Mono.just(provider);
-        }
-
-        log.info("缓存未命中，为用户 {} 创建新的AI模型提供商: Provider={}, Model={}, Endpoint={}",
+        log.debug("为用户 {} 获取AI模型提供商: Provider={}, Model={}, Endpoint={}",
                 userId, config.getProvider(), config.getModelName(), config.getApiEndpoint());
 
         // 解密 API Key
@@ -1317,23 +1309,19 @@ public class NovelAIServiceImpl implements NovelAIService {
             log.warn("用户 {} 的模型 Provider={}, Model={} API Key 为空，继续尝试创建提供商（可能适用于本地或无需Key的模型）", userId, config.getProvider(), config.getModelName());
         }
 
-        // 使用AIService创建新的提供商
+        // 从提供商实例池获取（未命中时创建并放入池中）
         try {
-            // 传递解密后的 API Key
-            final String finalDecryptedApiKey = decryptedApiKey; // Effectively final for lambda
-            AIModelProvider newProvider = aiService.createAIModelProvider(
+            AIModelProvider newProvider = providerPool.acquire(
                     config.getProvider(),
                     config.getModelName(),
-                    finalDecryptedApiKey, // 使用解密后的 Key
+                    decryptedApiKey, // 使用解密后的 Key
                     config.getApiEndpoint()
             );
 
             if (newProvider != null) {
-                userProviderMap.put(key, newProvider);
-                log.info("成功创建并缓存了用户 {} 的AI模型提供商: {}", userId, key);
                 return Mono.just(newProvider);
             } else {
-                log.error("AIService未能为用户 {} 创建提供商: Provider={}, Model={}", userId, config.getProvider(), config.getModelName());
+                log.error("提供商实例池未能为用户 {} 创建提供商: Provider={}, Model={}", userId, config.getProvider(), config.getModelName());
                 return Mono.error(new IllegalArgumentException("无法创建AI模型提供商: " + config.getProvider()));
             }
         } catch (Exception e) {
@@ -1351,8 +1339,8 @@ public class NovelAIServiceImpl implements NovelAIService {
     public void setUseLangChain4j(boolean useLangChain4j) {
         // 委托给AIService
         aiService.setUseLangChain4j(useLangChain4j);
-        // 清空缓存，强制重新创建提供商
-        userProviders.clear();
+        // 池中实例按旧实现创建，清空后按新实现重新创建
+        providerPool.invalidateAll();
     }
 
     /**
@@ -1363,7 +1351,8 @@ public class NovelAIServiceImpl implements NovelAIService {
      */
     @Override
     public Mono<Void> clearUserProviderCache(String userId) {
-        return Mono.fromRunnable(() -> userProviders.remove(userId));
+        // 实例池按 Key 指纹区分实例，用户修改配置后自然取到新实例，无需按用户清理
+        return Mono.empty();
     }
 
     /**
@@ -1373,7 +1362,7 @@ public class NovelAIServiceImpl implements NovelAIService {
      */
     @Override
     public Mono<Void> clearAllProviderCache() {
-        return Mono.fromRunnable(userProviders::clear);
+        return Mono.fromRunnable(providerPool::invalidateAll);
     }
 
     /**
@@ -3,6 +3,7 @@ package com.ainovel.server.service.impl;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -13,8 +14,11 @@ import java.util.UUID;
 import java.util.stream.Collectors;
 
 import com.ainovel.server.common.util.PromptUtil;
-import com.ainovel.server.common.util.RichTextUtil;
+import com.ainovel.server.common.util.ScenePlainTextUtil;
+import com.ainovel.server.common.util.WordCountUtil;
+import org.bson.Document;
 import org.springframework.stereotype.Service;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
@@ -30,6 +34,7 @@ import com.ainovel.server.domain.model.Scene;
 import com.ainovel.server.domain.model.Setting;
 import com.ainovel.server.repository.NovelRepository;
 import com.ainovel.server.repository.SceneRepository;
+import com.ainovel.server.service.MetadataService;
 import com.ainovel.server.service.NovelService;
 import com.ainovel.server.service.StorageService;
 import com.ainovel.server.service.SceneService;
@@ -38,6 +43,7 @@ import com.ainovel.server.web.dto.NovelWithScenesDto;
 import com.ainovel.server.web.dto.NovelWithSummariesDto;
 import com.ainovel.server.web.dto.SceneSummaryDto;
 import com.ainovel.server.web.dto.ChaptersForPreloadDto;
+import com.ainovel.server.service.cache.NovelContentCache;
 import com.ainovel.server.service.cache.NovelStructureCache;
 import com.ainovel.server.service.cache.NovelStructureCache.ContainIndex;
 
@@ -45,7 +51,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 import reactor.util.function.Tuple2;
 import org.springframework.util.StringUtils;
 
@@ -62,8 +67,10 @@ public class NovelServiceImpl implements NovelService {
     private final SceneRepository sceneRepository;
     private final StorageService storageService;
     private final SceneService sceneService;
+    private final MetadataService metadataService;
     private final ReactiveMongoTemplate reactiveMongoTemplate;
     private final NovelStructureCache structureCache;
+    private final NovelContentCache contentCache;
 
     @Override
     public Mono<Novel> createNovel(Novel novel) {
@@ -135,7 +142,8 @@ public class NovelServiceImpl implements NovelService {
                 })
                 .doOnError(error -> {
                     log.error("智能合并更新小说失败: {}", error.getMessage(), error);
-                });
+                })
+                .doFinally(signal -> invalidateStructureCache(id));
     }
 
     @Override
@@ -162,8 +170,8 @@ public class NovelServiceImpl implements NovelService {
                             scene.setNovelId(id);
                             scene.setChapterId(chapterId);
 
-                            // 添加更新操作到列表中
-                            sceneUpdateOperations.add(sceneRepository.save(scene));
+                            // 添加更新操作到列表中（不整文档覆盖，保留尚未迁移的内嵌历史）
+                            sceneUpdateOperations.add(saveSceneKeepingHistory(scene));
                         });
                     }
 
@@ -180,7 +188,8 @@ public class NovelServiceImpl implements NovelService {
                                 return updatedNovel;
                             });
                 })
-                .doOnSuccess(updated -> log.info("更新小说及其场景成功: {}", updated.getId()));
+                .doOnSuccess(updated -> log.info("更新小说及其场景成功: {}", updated.getId()))
+                .doFinally(signal -> invalidateStructureCache(id));
     }
 
     @Override
@@ -188,7 +197,8 @@ public class NovelServiceImpl implements NovelService {
         return novelRepository.findById(id)
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("小说", id)))
                 .flatMap(novel -> novelRepository.delete(novel))
-                .doOnSuccess(v -> log.info("删除小说成功: {}", id));
+                .doOnSuccess(v -> log.info("删除小说成功: {}", id))
+                .doFinally(signal -> invalidateStructureCache(id));
     }
 
     @Override
@@ -228,7 +238,8 @@ public class NovelServiceImpl implements NovelService {
 
                     return novelRepository.save(existingNovel);
                 })
-                .doOnSuccess(updated -> log.info("更新小说元数据成功: {}", updated.getId()));
+                .doOnSuccess(updated -> log.info("更新小说元数据成功: {}", updated.getId()))
+                .doFinally(signal -> invalidateStructureCache(id));
     }
 
     @Override
@@ -337,7 +348,8 @@ public class NovelServiceImpl implements NovelService {
                     return sceneRepository.deleteByNovelId(novelId)
                             .then(novelRepository.delete(novel));
                 })
-                .doOnSuccess(v -> log.info("永久删除小说及其所有场景成功: {}", novelId));
+                .doOnSuccess(v -> log.info("永久删除小说及其所有场景成功: {}", novelId))
+                .doFinally(signal -> invalidateStructureCache(novelId));
     }
 
     @Override
@@ -737,7 +749,8 @@ public class NovelServiceImpl implements NovelService {
                     novel.setUpdatedAt(LocalDateTime.now());
                     return novelRepository.save(novel);
                 })
-                .doOnSuccess(updated -> log.info("更新卷标题成功: 小说 {}, 卷 {}, 新标题: {}", novelId, actId, title));
+                .doOnSuccess(updated -> log.info("更新卷标题成功: 小说 {}, 卷 {}, 新标题: {}", novelId, actId, title))
+                .doFinally(signal -> invalidateStructureCache(novelId));
     }
 
     @Override
@@ -776,7 +789,8 @@ public class NovelServiceImpl implements NovelService {
                     novel.setUpdatedAt(LocalDateTime.now());
                     return novelRepository.save(novel);
                 })
-                .doOnSuccess(updated -> log.info("更新章节标题成功: 小说 {}, 章节 {}, 新标题: {}", novelId, chapterId, title));
+                .doOnSuccess(updated -> log.info("更新章节标题成功: 小说 {}, 章节 {}, 新标题: {}", novelId, chapterId, title))
+                .doFinally(signal -> invalidateStructureCache(novelId));
     }
 
     @Override
@@ -813,7 +827,8 @@ public class NovelServiceImpl implements NovelService {
                     novel.setUpdatedAt(LocalDateTime.now());
                     return novelRepository.save(novel);
                 })
-                .doOnSuccess(updated -> log.info("添加新卷成功: 小说 {}, 卷标题: {}", novelId, title));
+                .doOnSuccess(updated -> log.info("添加新卷成功: 小说 {}, 卷标题: {}", novelId, title))
+                .doFinally(signal -> invalidateStructureCache(novelId));
     }
 
     @Override
@@ -862,7 +877,8 @@ public class NovelServiceImpl implements NovelService {
                     novel.setUpdatedAt(LocalDateTime.now());
                     return novelRepository.save(novel);
                 })
-                .doOnSuccess(updated -> log.info("添加新章节成功: 小说 {}, 卷 {}, 章节标题: {}", novelId, actId, title));
+                .doOnSuccess(updated -> log.info("添加新章节成功: 小说 {}, 卷 {}, 章节标题: {}", novelId, actId, title))
+                .doFinally(signal -> invalidateStructureCache(novelId));
     }
 
     @Override
@@ -901,8 +917,8 @@ public class NovelServiceImpl implements NovelService {
                                     targetScenes.get(i).setSequence(i);
                                 }
 
-                                // 保存所有更新的场景
-                                return sceneRepository.saveAll(targetScenes).collectList()
+                                // 只更新章节ID和序列号；列表查询排除了 history，整文档保存会清空未迁移的历史
+                                return updateScenePositions(targetScenes).collectList()
                                         .flatMap(savedScenes -> {
                                             // 如果是不同章节间移动，需要更新源章节的场景序列号
                                             if (!sourceChapterId.equals(targetChapterId)) {
@@ -918,7 +934,7 @@ public class NovelServiceImpl implements NovelService {
                                                             }
 
                                                             // 保存所有更新的源章节场景
-                                                            return sceneRepository.saveAll(sourceScenes)
+                                                            return updateScenePositions(sourceScenes)
                                                                     .collectList()
                                                                     .then(novelRepository.findById(novelId));
                                                         });
@@ -928,7 +944,42 @@ public class NovelServiceImpl implements NovelService {
                                         });
                             });
                 })
-                .doOnSuccess(novel -> log.info("移动场景成功: 场景 {}, 目标章节 {}, 目标位置 {}", sceneId, targetChapterId, targetPosition));
+                .doOnSuccess(novel -> log.info("移动场景成功: 场景 {}, 目标章节 {}, 目标位置 {}", sceneId, targetChapterId, targetPosition))
+                .doFinally(signal -> invalidateStructureCache(novelId));
+    }
+
+    /**
+     * 按ID定向更新场景的章节ID和序列号
+     */
+    private Flux<Scene> updateScenePositions(List<Scene> scenes) {
+        return Flux.fromIterable(scenes)
+                .flatMap(scene -> reactiveMongoTemplate.updateFirst(
+                        new Query(Criteria.where("_id").is(scene.getId())),
+                        new Update().set("chapterId", scene.getChapterId()).set("sequence", scene.getSequence()),
+                        Scene.class)
+                        .thenReturn(scene));
+    }
+
+    /**
+     * 保存场景但不写 history 字段：以 $set 覆盖其余字段（不存在时插入），
+     * 迁移未完成时也不会用空列表覆盖文档中的内嵌历史。
+     * upsert 不经过 save 的转换前回调，纯文本投影在这里刷新
+     */
+    private Mono<Scene> saveSceneKeepingHistory(Scene scene) {
+        if (scene.getId() == null) {
+            scene.setHistory(new ArrayList<>());
+            return sceneRepository.save(scene);
+        }
+        ScenePlainTextUtil.refresh(scene);
+        Document document = new Document();
+        reactiveMongoTemplate.getConverter().write(scene, document);
+        document.remove("_id");
+        document.remove("history");
+        return reactiveMongoTemplate.upsert(
+                        new Query(Criteria.where("_id").is(scene.getId())),
+                        Update.fromDocument(new Document("$set", document)),
+                        Scene.class)
+                .thenReturn(scene);
     }
 
     @Override
@@ -967,7 +1018,7 @@ public class NovelServiceImpl implements NovelService {
                                         .title(scene.getTitle())
                                         .summary(scene.getSummary())
                                         .sequence(scene.getSequence())
-                                        .wordCount(calculateWordCount(scene.getContent()))
+                                        .wordCount(scene.getWordCount() != null ? scene.getWordCount() : calculateWordCount(scene.getContent()))
                                         .updatedAt(scene.getUpdatedAt())
                                         .build())
                                         .collect(Collectors.toList());
@@ -995,79 +1046,25 @@ public class NovelServiceImpl implements NovelService {
      * @return 字数
      */
     private Integer calculateWordCount(String content) {
-        if (content == null || content.isEmpty()) {
-            return 0;
-        }
-
-        // 简单实现，去除HTML标记和特殊字符后统计
-        String plainText = content.replaceAll("<[^>]*>", "") // 移除HTML标签
-                .replaceAll("\\s+", " ") // 将多个空白字符合并为一个
-                .trim();
-
-        // 统计中文字符数量（使用正则表达式匹配中文字符）
-        int chineseCount = 0;
-        for (char c : plainText.toCharArray()) {
-            if (isChinese(c)) {
-                chineseCount++;
-            }
-        }
-
-        // 英文部分按空格分词
-        String englishOnly = plainText.replaceAll("[^\\x00-\\x7F]+", " ").trim();
-        int englishWordCount = englishOnly.isEmpty() ? 0 : englishOnly.split("\\s+").length;
-
-        return chineseCount + englishWordCount;
-    }
-
-    /**
-     * 判断字符是否是中文
-     *
-     * @param c 字符
-     * @return 是否是中文
-     */
-    private boolean isChinese(char c) {
-        return c >= 0x4E00 && c <= 0x9FA5; // Unicode CJK统一汉字范围
+        return WordCountUtil.countWords(content);
     }
 
     /**
      * 计算并更新小说的总字数
+     * 场景字数在写入时已维护，这里只在数据库端求和校验，发现偏差时才写回
      *
      * @param novelId 小说ID
      * @return 更新后的小说
      */
     @Override
     public Mono<Novel> updateNovelWordCount(String novelId) {
-        return findNovelById(novelId)
-                .flatMap(novel -> {
-                    // 使用 SceneRepository 获取所有关联的场景
-                    return sceneRepository.findByNovelId(novelId)
-                            .flatMap(scene -> {
-                                                                // 更新小说元数据
-                                                                if (novel.getMetadata() == null) {
-                                                                    novel.setMetadata(Novel.Metadata.builder().build());
-                                                                }
-                                // 计算每个场景的字数
-                                return Mono.fromCallable(() -> calculateWordCount(scene.getContent()))
-                                        .subscribeOn(Schedulers.boundedElastic()); // 将计算放在弹性线程池
-                            })
-                            .reduce(0, Integer::sum) // 累加所有场景的字数
-                            .flatMap(totalWordCount -> {
-                                // 计算估计阅读时间 (假设每分钟阅读300字)
-                                int readTime = totalWordCount / 300;
-                                if (readTime < 1 && totalWordCount > 0) {
-                                    readTime = 1; // 最小阅读时间为1分钟
-                                }
-                                novel.getMetadata().setWordCount(totalWordCount);
-                                novel.getMetadata().setReadTime(readTime);
-                                novel.setUpdatedAt(novel.getUpdatedAt());
-                                return novelRepository.save(novel);
-                            });
-                })
+        return metadataService.updateNovelMetadata(novelId)
                 .doOnSuccess(updatedNovel -> log.info("小说 {} 字数更新为: {}", novelId, updatedNovel.getMetadata().getWordCount()))
                 .onErrorResume(e -> {
                     log.error("更新小说 {} 字数失败: {}", novelId, e.getMessage(), e);
                     return Mono.error(e);
-                });
+                })
+                .doFinally(signal -> invalidateStructureCache(novelId));
     }
 
     @Override
@@ -1237,7 +1234,7 @@ public class NovelServiceImpl implements NovelService {
                             .map(scene -> {
                                 // 获取场景标题和内容
                                 String sceneTitle = scene.getTitle() != null ? scene.getTitle() : "场景";
-                                String sceneContent = RichTextUtil.deltaJsonToPlainText(scene.getContent() != null ? scene.getContent() : "");
+                                String sceneContent = ScenePlainTextUtil.plainTextOf(scene);
 
 
                                 
@@ -1347,7 +1344,8 @@ public class NovelServiceImpl implements NovelService {
                     });
             })
             .doOnSuccess(info -> log.info("添加新章节和初始场景成功: 小说 {}, 章节 {}, 场景 {}", novelId, info.getChapterId(), info.getSceneId()))
-            .doOnError(e -> log.error("添加新章节和初始场景失败: 小说 {}, 错误: {}", novelId, e.getMessage()));
+            .doOnError(e -> log.error("添加新章节和初始场景失败: 小说 {}, 错误: {}", novelId, e.getMessage()))
+            .doFinally(signal -> invalidateStructureCache(novelId));
     }
 
     @Override
@@ -1365,15 +1363,19 @@ public class NovelServiceImpl implements NovelService {
                     // return Mono.error(new IllegalArgumentException("Scene chapterId mismatch")); // 可以选择报错或仅警告
                 }
 
+                final int previousWordCount = scene.getWordCount() != null ? scene.getWordCount() : 0;
                 scene.setContent(PromptUtil.convertPlainTextToQuillDelta(content));
                 scene.setUpdatedAt(LocalDateTime.now());
-                // 可以考虑调用 calculateWordCount 并设置 scene.wordCount
-                // scene.setWordCount(calculateWordCount(content));
+                scene.setWordCount(calculateWordCount(scene.getContent()));
 
-                return sceneRepository.save(scene);
+                return sceneRepository.save(scene)
+                        .flatMap(savedScene -> metadataService.applyWordCountDelta(
+                                savedScene.getNovelId(), savedScene.getWordCount() - previousWordCount)
+                                .thenReturn(savedScene));
             })
             .doOnSuccess(savedScene -> log.info("更新场景内容成功: 场景 {}", savedScene.getId()))
-            .doOnError(e -> log.error("更新场景内容失败: 场景 {}, 错误: {}", sceneId, e.getMessage()));
+            .doOnError(e -> log.error("更新场景内容失败: 场景 {}, 错误: {}", sceneId, e.getMessage()))
+            .doFinally(signal -> invalidateStructureCache(novelId));
     }
 
     @Override
@@ -1451,7 +1453,8 @@ public class NovelServiceImpl implements NovelService {
                 })
                 .doOnSuccess(novel -> log.info("章节删除成功: 小说={}, 卷={}, 章节={}", novelId, actId, chapterId))
                 .doOnError(e -> log.error("章节删除失败: 小说={}, 卷={}, 章节={}, 原因={}", 
-                        novelId, actId, chapterId, e.getMessage()));
+                        novelId, actId, chapterId, e.getMessage()))
+                .doFinally(signal -> invalidateStructureCache(novelId));
     }
     
     @Override
@@ -1492,7 +1495,8 @@ public class NovelServiceImpl implements NovelService {
                 .doOnSuccess(act -> log.info("成功添加新卷: novelId={}, actId={}, title={}", 
                         novelId, act.getId(), title))
                 .doOnError(e -> log.error("添加新卷失败: novelId={}, title={}, error={}", 
-                        novelId, title, e.getMessage()));
+                        novelId, title, e.getMessage()))
+                .doFinally(signal -> invalidateStructureCache(novelId));
     }
     
     @Override
@@ -1546,7 +1550,8 @@ public class NovelServiceImpl implements NovelService {
                 .doOnSuccess(chapter -> log.info("成功添加新章节: novelId={}, actId={}, chapterId={}, title={}", 
                         novelId, actId, chapter.getId(), title))
                 .doOnError(e -> log.error("添加新章节失败: novelId={}, actId={}, title={}, error={}", 
-                        novelId, actId, title, e.getMessage()));
+                        novelId, actId, title, e.getMessage()))
+                .doFinally(signal -> invalidateStructureCache(novelId));
     }
     
     @Override
@@ -1633,7 +1638,8 @@ public class NovelServiceImpl implements NovelService {
                 .onErrorResume(e -> {
                     log.error("删除卷发生异常: ", e);
                     return Mono.just(false);
-                });
+                })
+                .doFinally(signal -> invalidateStructureCache(novelId));
     }
     
     @Override
@@ -1717,7 +1723,8 @@ public class NovelServiceImpl implements NovelService {
                 .onErrorResume(e -> {
                     log.error("删除章节发生异常: ", e);
                     return Mono.just(false);
-                });
+                })
+                .doFinally(signal -> invalidateStructureCache(novelId));
     }
 
     /**
@@ -2116,7 +2123,7 @@ public class NovelServiceImpl implements NovelService {
                             .map(scenes -> {
                                 // 按章节ID分组
                                 Map<String, List<Scene>> scenesByChapter = scenes.stream().map(scene -> {
-                                    scene.setContent(RichTextUtil.deltaJsonToPlainText(scene.getContent()));
+                                    scene.setContent(ScenePlainTextUtil.plainTextOf(scene));
                                     return scene;
                                 })
                                         .collect(Collectors.groupingBy(Scene::getChapterId));
@@ -2232,7 +2239,7 @@ public class NovelServiceImpl implements NovelService {
                                 Map<String, List<Scene>> scenesByChapter = scenes.stream()
                                         .map(scene -> {
                                             // 转换场景内容为纯文本
-                                            scene.setContent(RichTextUtil.deltaJsonToPlainText(scene.getContent()));
+                                            scene.setContent(ScenePlainTextUtil.plainTextOf(scene));
                                             return scene;
                                         })
                                         .collect(Collectors.groupingBy(Scene::getChapterId));
@@ -2278,7 +2285,7 @@ public class NovelServiceImpl implements NovelService {
                     .map(scenes -> {
                         // 按章节ID分组
                         Map<String, List<Scene>> scenesByChapter = scenes.stream().map(scene -> {
-                            scene.setContent(RichTextUtil.deltaJsonToPlainText(scene.getContent()));
+                            scene.setContent(ScenePlainTextUtil.plainTextOf(scene));
                             return scene;
                         })
                                 .collect(Collectors.groupingBy(Scene::getChapterId));
@@ -2312,41 +2319,7 @@ public class NovelServiceImpl implements NovelService {
                     }
 
                     // 按照卷顺序和章节顺序收集所有章节ID
-                    List<String> orderedChapterIds = new ArrayList<>();
-                    
-                    // 按卷的order排序（如果有的话），否则按列表顺序
-                    List<Act> sortedActs = novel.getStructure().getActs().stream()
-                            .sorted((a, b) -> {
-                                Integer orderA = a.getOrder();
-                                Integer orderB = b.getOrder();
-                                if (orderA != null && orderB != null) {
-                                    return Integer.compare(orderA, orderB);
-                                }
-                                // 如果没有order字段，保持原有顺序
-                                return 0;
-                            })
-                            .collect(Collectors.toList());
-
-                    for (Act act : sortedActs) {
-                        if (act.getChapters() != null) {
-                            // 按章节的order排序（如果有的话），否则按列表顺序
-                            List<Chapter> sortedChapters = act.getChapters().stream()
-                                    .sorted((a, b) -> {
-                                        Integer orderA = a.getOrder();
-                                        Integer orderB = b.getOrder();
-                                        if (orderA != null && orderB != null) {
-                                            return Integer.compare(orderA, orderB);
-                                        }
-                                        // 如果没有order字段，保持原有顺序
-                                        return 0;
-                                    })
-                                    .collect(Collectors.toList());
-                            
-                            for (Chapter chapter : sortedChapters) {
-                                orderedChapterIds.add(chapter.getId());
-                            }
-                        }
-                    }
+                    List<String> orderedChapterIds = orderedChapterIds(novel);
 
                     if (orderedChapterIds.isEmpty()) {
                         log.info("小说 {} 没有章节，返回空场景列表", novelId);
@@ -2388,6 +2361,85 @@ public class NovelServiceImpl implements NovelService {
                 .doOnError(error -> log.warn("获取小说 {} 的有序场景列表失败: {}", novelId, error.getMessage()));
     }
 
+    @Override
+    public Flux<Scene> streamScenesInOrder(Novel novel, int chapterBatchSize) {
+        List<String> orderedChapterIds = orderedChapterIds(novel);
+        if (orderedChapterIds.isEmpty()) {
+            return Flux.empty();
+        }
+        int batchSize = Math.max(1, chapterBatchSize);
+        Map<String, Integer> chapterOrderIndex = new HashMap<>();
+        for (int i = 0; i < orderedChapterIds.size(); i++) {
+            chapterOrderIndex.put(orderedChapterIds.get(i), i);
+        }
+        List<List<String>> batches = new ArrayList<>();
+        for (int from = 0; from < orderedChapterIds.size(); from += batchSize) {
+            batches.add(orderedChapterIds.subList(from, Math.min(from + batchSize, orderedChapterIds.size())));
+        }
+
+        // 🚀 按章节批次顺序查询，下游取消（如达到长度预算）后不再发起后续批次
+        Flux<Scene> structured = Flux.fromIterable(batches)
+                .concatMap(batch -> sceneRepository.findWithPlainTextByChapterIdIn(batch)
+                        .collectSortedList(Comparator
+                                .comparing((Scene s) -> chapterOrderIndex.getOrDefault(s.getChapterId(), Integer.MAX_VALUE))
+                                .thenComparing(s -> s.getSequence() == null ? Integer.MAX_VALUE : s.getSequence()))
+                        .flatMapIterable(scenes -> scenes));
+
+        // 不在结构中的场景（与 findScenesByNovelIdInOrder 一致，排在最后）
+        Query orphanQuery = new Query(Criteria.where("novelId").is(novel.getId())
+                .and("chapterId").nin(orderedChapterIds))
+                .with(Sort.by(Sort.Order.asc("chapterId"), Sort.Order.asc("sequence")));
+        orphanQuery.fields().exclude("history");
+        Flux<Scene> orphans = reactiveMongoTemplate.find(orphanQuery, Scene.class);
+
+        return structured.concatWith(orphans);
+    }
+
+    /**
+     * 按卷顺序 -> 章节顺序收集小说的章节ID（有 order 字段时按 order 排序，否则保持列表顺序）
+     */
+    private List<String> orderedChapterIds(Novel novel) {
+        List<String> orderedChapterIds = new ArrayList<>();
+        if (novel.getStructure() == null || novel.getStructure().getActs() == null) {
+            return orderedChapterIds;
+        }
+
+        // 按卷的order排序（如果有的话），否则按列表顺序
+        List<Act> sortedActs = novel.getStructure().getActs().stream()
+                .sorted((a, b) -> {
+                    Integer orderA = a.getOrder();
+                    Integer orderB = b.getOrder();
+                    if (orderA != null && orderB != null) {
+                        return Integer.compare(orderA, orderB);
+                    }
+                    // 如果没有order字段，保持原有顺序
+                    return 0;
+                })
+                .collect(Collectors.toList());
+
+        for (Act act : sortedActs) {
+            if (act.getChapters() != null) {
+                // 按章节的order排序（如果有的话），否则按列表顺序
+                List<Chapter> sortedChapters = act.getChapters().stream()
+                        .sorted((a, b) -> {
+                            Integer orderA = a.getOrder();
+                            Integer orderB = b.getOrder();
+                            if (orderA != null && orderB != null) {
+                                return Integer.compare(orderA, orderB);
+                            }
+                            // 如果没有order字段，保持原有顺序
+                            return 0;
+                        })
+                        .collect(Collectors.toList());
+
+                for (Chapter chapter : sortedChapters) {
+                    orderedChapterIds.add(chapter.getId());
+                }
+            }
+        }
+        return orderedChapterIds;
+    }
+
     /**
      * 获取包含索引（章节/场景包含关系）
      */
@@ -2399,10 +2451,14 @@ public class NovelServiceImpl implements NovelService {
     }
 
     /**
-     * 当小说结构被修改（增删章节/场景）时调用以失效缓存。
+     * 当小说结构或内容被修改（增删改卷/章节/场景）时调用以失效缓存（结构索引与占位符渲染结果）。
      */
     private void invalidateStructureCache(String novelId) {
+        if (novelId == null) {
+            return;
+        }
         structureCache.evict(novelId);
+        contentCache.invalidateNovel(novelId);
     }
 
 }
@@ -1,5 +1,7 @@
 package com.ainovel.server.service.impl;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.springframework.stereotype.Service;
 
 import com.ainovel.server.domain.model.AIRequest;
@@ -32,10 +34,16 @@ public class PublicAIApplicationServiceImpl implements PublicAIApplicationServic
         
         return configService.getActiveDecryptedApiKey(provider, modelId)
                 .flatMap(apiKey -> {
+                    long start = System.currentTimeMillis();
                     // 获取对应的公共模型配置来获取API endpoint
                     return configService.findByProviderAndModelId(provider, modelId)
                             .flatMap(config -> aiService.generateContent(request, apiKey, config.getApiEndpoint()))
-                            .switchIfEmpty(aiService.generateContent(request, apiKey, null));
+                            .switchIfEmpty(aiService.generateContent(request, apiKey, null))
+                            // 回报调用结果，供Key轮询按成功率与延迟调整权重
+                            .doOnSuccess(response -> configService.reportApiKeyResult(
+                                    provider, modelId, apiKey, true, System.currentTimeMillis() - start))
+                            .doOnError(e -> configService.reportApiKeyResult(
+                                    provider, modelId, apiKey, false, System.currentTimeMillis() - start));
                 })
                 .doOnError(e -> log.error("使用公共模型生成内容失败: provider={}, modelId={}, error={}", 
                            provider, modelId, e.getMessage()));
@@ -48,10 +56,21 @@ public class PublicAIApplicationServiceImpl implements PublicAIApplicationServic
         
         return configService.getActiveDecryptedApiKey(provider, modelId)
                 .flatMapMany(apiKey -> {
+                    long start = System.currentTimeMillis();
+                    AtomicBoolean firstChunk = new AtomicBoolean(true);
                     // 获取对应的公共模型配置来获取API endpoint
                     Flux<String> upstream = configService.findByProviderAndModelId(provider, modelId)
                             .flatMapMany(config -> aiService.generateContentStream(request, apiKey, config.getApiEndpoint()))
-                            .switchIfEmpty(aiService.generateContentStream(request, apiKey, null));
+                            .switchIfEmpty(aiService.generateContentStream(request, apiKey, null))
+                            // 流式以首包耗时作为Key的延迟样本
+                            .doOnNext(chunk -> {
+                                if (firstChunk.compareAndSet(true, false)) {
+                                    configService.reportApiKeyResult(
+                                            provider, modelId, apiKey, true, System.currentTimeMillis() - start);
+                                }
+                            })
+                            .doOnError(e -> configService.reportApiKeyResult(
+                                    provider, modelId, apiKey, false, System.currentTimeMillis() - start));
                     // 共享上游，避免多订阅触发重复请求
                     return upstream.publish().refCount(1);
                 })
@@ -3,6 +3,7 @@ package com.ainovel.server.service.impl;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.jasypt.encryption.StringEncryptor;
@@ -21,6 +22,7 @@ import com.ainovel.server.repository.PublicModelConfigRepository;
 import com.ainovel.server.service.ApiKeyValidator;
 import com.ainovel.server.service.PublicModelConfigService;
 import com.ainovel.server.service.ai.pricing.TokenUsageTrackingService;
+import com.ainovel.server.service.cache.PublicModelConfigRegistry;
 import com.ainovel.server.web.dto.response.PublicModelResponseDto;
 
 import lombok.extern.slf4j.Slf4j;
@@ -39,18 +41,21 @@ public class PublicModelConfigServiceImpl implements PublicModelConfigService {
     private final TokenUsageTrackingService tokenUsageTrackingService;
     private final ApiKeyValidator apiKeyValidator;
     private final StringEncryptor encryptor;
+    private final PublicModelConfigRegistry registry;
     
     @Autowired
     public PublicModelConfigServiceImpl(PublicModelConfigRepository publicModelConfigRepository,
                                        ModelPricingRepository modelPricingRepository,
                                        TokenUsageTrackingService tokenUsageTrackingService,
                                        ApiKeyValidator apiKeyValidator,
-                                       StringEncryptor encryptor) {
+                                       StringEncryptor encryptor,
+                                       PublicModelConfigRegistry registry) {
         this.publicModelConfigRepository = publicModelConfigRepository;
         this.modelPricingRepository = modelPricingRepository;
         this.tokenUsageTrackingService = tokenUsageTrackingService;
         this.apiKeyValidator = apiKeyValidator;
         this.encryptor = encryptor;
+        this.registry = registry;
     }
     
     @Override
@@ -68,7 +73,7 @@ public class PublicModelConfigServiceImpl implements PublicModelConfigService {
                     config.setCreatedAt(LocalDateTime.now());
                     config.setUpdatedAt(LocalDateTime.now());
                     
-                    return publicModelConfigRepository.save(config);
+                    return publicModelConfigRepository.save(config).doOnNext(registry::onSaved);
                 });
     }
     
@@ -99,7 +104,7 @@ public class PublicModelConfigServiceImpl implements PublicModelConfigService {
                     
                     existingConfig.setUpdatedAt(LocalDateTime.now());
                     
-                    return publicModelConfigRepository.save(existingConfig);
+                    return publicModelConfigRepository.save(existingConfig).doOnNext(registry::onSaved);
                 });
     }
     
@@ -108,12 +113,13 @@ public class PublicModelConfigServiceImpl implements PublicModelConfigService {
     public Mono<Void> deleteConfig(String id) {
         return publicModelConfigRepository.findById(id)
                 .switchIfEmpty(Mono.error(new IllegalArgumentException("模型配置不存在: " + id)))
-                .flatMap(config -> publicModelConfigRepository.deleteById(id));
+                .flatMap(config -> publicModelConfigRepository.deleteById(id))
+                .doOnSuccess(v -> registry.onDeleted(id));
     }
     
     @Override
     public Mono<PublicModelConfig> findById(String id) {
-        return publicModelConfigRepository.findById(id);
+        return registry.findById(id);
     }
     
     @Override
@@ -123,7 +129,7 @@ public class PublicModelConfigServiceImpl implements PublicModelConfigService {
     
     @Override
     public Flux<PublicModelConfig> findAllEnabled() {
-        return publicModelConfigRepository.findByEnabledTrue();
+        return registry.findAllEnabled();
     }
 
     @Override
@@ -147,12 +153,12 @@ public class PublicModelConfigServiceImpl implements PublicModelConfigService {
     
     @Override
     public Mono<PublicModelConfig> findByProviderAndModelId(String provider, String modelId) {
-        return publicModelConfigRepository.findByProviderAndModelId(provider, modelId);
+        return registry.findByProviderAndModelId(provider, modelId);
     }
     
     @Override
     public Flux<PublicModelConfig> findByFeatureType(AIFeatureType featureType) {
-        return publicModelConfigRepository.findByEnabledTrueAndEnabledForFeaturesContaining(featureType);
+        return registry.findEnabledByFeature(featureType);
     }
     
     @Override
@@ -163,7 +169,7 @@ public class PublicModelConfigServiceImpl implements PublicModelConfigService {
                 .flatMap(config -> {
                     config.setEnabled(enabled);
                     config.setUpdatedAt(LocalDateTime.now());
-                    return publicModelConfigRepository.save(config);
+                    return publicModelConfigRepository.save(config).doOnNext(registry::onSaved);
                 });
     }
     
@@ -175,7 +181,7 @@ public class PublicModelConfigServiceImpl implements PublicModelConfigService {
                 .flatMap(config -> {
                     config.addEnabledFeature(featureType);
                     config.setUpdatedAt(LocalDateTime.now());
-                    return publicModelConfigRepository.save(config);
+                    return publicModelConfigRepository.save(config).doOnNext(registry::onSaved);
                 });
     }
     
@@ -187,7 +193,7 @@ public class PublicModelConfigServiceImpl implements PublicModelConfigService {
                 .flatMap(config -> {
                     config.removeEnabledFeature(featureType);
                     config.setUpdatedAt(LocalDateTime.now());
-                    return publicModelConfigRepository.save(config);
+                    return publicModelConfigRepository.save(config).doOnNext(registry::onSaved);
                 });
     }
     
@@ -200,7 +206,7 @@ public class PublicModelConfigServiceImpl implements PublicModelConfigService {
                             .flatMap(config -> {
                                 config.setCreditRateMultiplier(update.getCreditRateMultiplier());
                                 config.setUpdatedAt(LocalDateTime.now());
-                                return publicModelConfigRepository.save(config);
+                                return publicModelConfigRepository.save(config).doOnNext(registry::onSaved);
                             })
                 );
     }
@@ -221,7 +227,7 @@ public class PublicModelConfigServiceImpl implements PublicModelConfigService {
                     if (config.getApiKeys() == null || config.getApiKeys().isEmpty()) {
                         log.warn("模型配置没有API Key: {}", configId);
                         config.setIsValidated(false);
-                        return publicModelConfigRepository.save(config);
+                        return publicModelConfigRepository.save(config).doOnNext(registry::onSaved);
                     }
                     
                     // 验证所有API Key
@@ -232,34 +238,28 @@ public class PublicModelConfigServiceImpl implements PublicModelConfigService {
                                 config.setApiKeys(validatedEntries);
                                 config.updateValidationStatus();
                                 config.setUpdatedAt(LocalDateTime.now());
-                                return publicModelConfigRepository.save(config);
+                                return publicModelConfigRepository.save(config).doOnNext(registry::onSaved);
                             });
                 });
     }
     
     @Override
     public Mono<String> getActiveDecryptedApiKey(String provider, String modelId) {
-        return publicModelConfigRepository.findByProviderAndModelId(provider, modelId)
-                .switchIfEmpty(Mono.error(new IllegalArgumentException("公共模型配置不存在: " + provider + ":" + modelId)))
-                .flatMap(config -> {
-                    if (!config.getEnabled()) {
-                        return Mono.error(new IllegalStateException("公共模型已禁用: " + provider + ":" + modelId));
-                    }
-                    
-                    PublicModelConfig.ApiKeyEntry randomValidKey = config.getRandomValidApiKey();
-                    if (randomValidKey == null) {
-                        return Mono.error(new IllegalStateException("公共模型没有可用的API Key: " + provider + ":" + modelId));
-                    }
-                    
-                    try {
-                        String decryptedKey = encryptor.decrypt(randomValidKey.getApiKey());
-                        log.debug("为公共模型 {}:{} 获取到可用的API Key", provider, modelId);
-                        return Mono.just(decryptedKey);
-                    } catch (Exception e) {
-                        log.error("解密公共模型API Key失败: " + provider + ":" + modelId, e);
-                        return Mono.error(new IllegalStateException("API Key解密失败"));
-                    }
-                });
+        // 从内存注册表按健康度加权轮询选取已解密的Key，不访问数据库、不做解密
+        return registry.nextApiKey(provider, modelId)
+                .doOnNext(key -> log.debug("为公共模型 {}:{} 获取到可用的API Key", provider, modelId));
+    }
+
+    @Override
+    public void reportApiKeyResult(String provider, String modelId, String apiKey, boolean success, long latencyMillis) {
+        registry.reportResult(provider, modelId, apiKey, success, latencyMillis);
+    }
+
+    @Override
+    public Mono<List<Map<String, Object>>> getApiKeyStats(String configId) {
+        return registry.findById(configId)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException("模型配置不存在: " + configId)))
+                .map(config -> registry.keyStats(config.getId()));
     }
     
     @Override
@@ -276,7 +276,7 @@ public class PublicModelConfigServiceImpl implements PublicModelConfigService {
                         String encryptedKey = encryptor.encrypt(apiKey);
                         config.addApiKey(encryptedKey, note);
                         config.setUpdatedAt(LocalDateTime.now());
-                        return publicModelConfigRepository.save(config);
+                        return publicModelConfigRepository.save(config).doOnNext(registry::onSaved);
                     } catch (Exception e) {
                         log.error("加密API Key失败", e);
                         return Mono.error(new IllegalStateException("API Key加密失败"));
@@ -303,7 +303,7 @@ public class PublicModelConfigServiceImpl implements PublicModelConfigService {
                     
                     config.updateValidationStatus();
                     config.setUpdatedAt(LocalDateTime.now());
-                    return publicModelConfigRepository.save(config);
+                    return publicModelConfigRepository.save(config).doOnNext(registry::onSaved);
                 });
     }
 
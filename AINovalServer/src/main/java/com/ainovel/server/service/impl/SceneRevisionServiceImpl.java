@@ -0,0 +1,316 @@
+package com.ainovel.server.service.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import com.ainovel.server.common.util.SceneContentDeltaUtil;
+import com.ainovel.server.domain.model.Scene;
+import com.ainovel.server.domain.model.Scene.HistoryEntry;
+import com.ainovel.server.domain.model.SceneRevision;
+import com.ainovel.server.domain.model.SceneRevision.DeltaOp;
+import com.ainovel.server.repository.SceneRevisionRepository;
+import com.ainovel.server.service.SceneRevisionService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+/**
+ * 场景修订服务实现
+ *
+ * 修订链为只追加结构：增量修订保存相对上一个有内容修订的差异，每隔 snapshotInterval 个修订
+ * （或差异体积超过内容一半时）保存一次完整快照，因此重建任意版本最多回放 snapshotInterval 条记录。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SceneRevisionServiceImpl implements SceneRevisionService {
+
+    private final SceneRevisionRepository revisionRepository;
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    /**
+     * 迁移进度标记所在集合及文档ID
+     */
+    private static final String MIGRATION_MARKER_COLLECTION = "migration_markers";
+    private static final String MIGRATION_MARKER_ID = "scene-history";
+
+    @Value("${ainovel.version-control.snapshot-interval:20}")
+    private int snapshotInterval;
+
+    @Value("${ainovel.version-control.migration-batch-size:200}")
+    private int migrationBatchSize;
+
+    /**
+     * 修订链回放状态：最近一个有内容版本的内容、切分片段以及距上次快照的增量数
+     */
+    private record ChainState(String content, List<String> tokens, int deltasSinceSnapshot) {
+
+        static final ChainState EMPTY = new ChainState(null, List.of(), 0);
+    }
+
+    @Override
+    public Mono<SceneRevision> appendRevision(Scene scene, String previousContent, String updatedBy, String reason) {
+        return Mono.defer(() -> revisionRepository.findFirstBySceneIdOrderByRevisionDesc(scene.getId())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(latest -> {
+                    if (latest.isEmpty()) {
+                        return Mono.just(buildRevision(scene, 0, previousContent, ChainState.EMPTY, updatedBy, reason));
+                    }
+                    int latestRevision = latest.get().getRevision();
+                    if (previousContent == null) {
+                        return Mono.just(buildRevision(scene, latestRevision + 1, null, ChainState.EMPTY, updatedBy, reason));
+                    }
+                    return loadChainState(scene.getId(), latestRevision)
+                            .map(state -> buildRevision(scene, latestRevision + 1, previousContent, state, updatedBy, reason));
+                })
+                .flatMap(revisionRepository::insert))
+                // 并发追加同一序号时唯一索引冲突，重新读取最新序号后重试
+                .retryWhen(Retry.backoff(3, Duration.ofMillis(20))
+                        .filter(DuplicateKeyException.class::isInstance))
+                .doOnSuccess(saved -> log.debug("追加场景修订: sceneId={}, revision={}, snapshot={}, marker={}",
+                        saved.getSceneId(), saved.getRevision(), saved.isSnapshot(), saved.isMarker()));
+    }
+
+    @Override
+    public Mono<SceneRevision> appendMarker(Scene scene, String updatedBy, String reason) {
+        return appendRevision(scene, null, updatedBy, reason);
+    }
+
+    @Override
+    public Mono<List<HistoryEntry>> getHistory(String sceneId) {
+        return revisionRepository.findBySceneIdOrderByRevisionAsc(sceneId)
+                .collectList()
+                .map(revisions -> {
+                    List<HistoryEntry> entries = new ArrayList<>(revisions.size());
+                    replay(revisions, entries);
+                    return entries;
+                });
+    }
+
+    @Override
+    public Mono<HistoryEntry> getRevision(String sceneId, int revision) {
+        if (revision < 0) {
+            return Mono.error(new IllegalArgumentException("无效的历史版本索引: " + revision));
+        }
+        return revisionRepository.findFirstBySceneIdAndSnapshotTrueAndRevisionLessThanEqualOrderByRevisionDesc(sceneId, revision)
+                .map(SceneRevision::getRevision)
+                .defaultIfEmpty(0)
+                .flatMap(from -> revisionRepository.findRevisionRange(sceneId, from, revision).collectList())
+                .flatMap(revisions -> {
+                    if (revisions.isEmpty() || revisions.get(revisions.size() - 1).getRevision() != revision) {
+                        return Mono.error(new IllegalArgumentException("无效的历史版本索引: " + revision));
+                    }
+                    List<HistoryEntry> entries = new ArrayList<>(revisions.size());
+                    replay(revisions, entries);
+                    return Mono.just(entries.get(entries.size() - 1));
+                });
+    }
+
+    @Override
+    public Mono<Void> migrateEmbeddedHistory(Scene scene) {
+        List<HistoryEntry> history = scene.getHistory();
+        if (history == null || history.isEmpty()) {
+            return Mono.empty();
+        }
+
+        // 按原有顺序逐条转换，修订ID由场景ID和序号确定，重复迁移时覆盖而不会产生重复记录
+        List<SceneRevision> revisions = new ArrayList<>(history.size());
+        ChainState state = ChainState.EMPTY;
+        for (int i = 0; i < history.size(); i++) {
+            HistoryEntry entry = history.get(i);
+            SceneRevision revision = buildRevision(scene, i, entry.getContent(), state,
+                    entry.getUpdatedBy(), entry.getReason());
+            revision.setUpdatedAt(entry.getUpdatedAt());
+            revisions.add(revision);
+            state = advance(state, revision, entry.getContent());
+        }
+
+        Query query = new Query(Criteria.where("_id").is(scene.getId()));
+        return revisionRepository.saveAll(revisions)
+                .then(mongoTemplate.updateFirst(query, new Update().unset("history"), Scene.class))
+                .doOnSuccess(result -> {
+                    scene.setHistory(new ArrayList<>());
+                    log.info("场景内嵌历史已迁移到修订集合: sceneId={}, count={}", scene.getId(), revisions.size());
+                })
+                .then();
+    }
+
+    @Override
+    public Mono<Long> migrateAllEmbeddedHistories() {
+        return mongoTemplate.findById(MIGRATION_MARKER_ID, Document.class, MIGRATION_MARKER_COLLECTION)
+                .defaultIfEmpty(new Document())
+                .flatMap(marker -> {
+                    if (Boolean.TRUE.equals(marker.getBoolean("completed"))) {
+                        log.info("场景内嵌历史已迁移完成，跳过");
+                        return Mono.just(0L);
+                    }
+                    String cursor = marker.getString("cursor");
+                    if (cursor != null) {
+                        log.info("从游标 {} 继续迁移场景内嵌历史", cursor);
+                    }
+                    return migrateBatchesAfter(cursor, 0L);
+                });
+    }
+
+    /**
+     * 按 _id 升序分批迁移游标之后的场景，每批完成后把游标写入标记文档，中断后从该游标续跑
+     */
+    private Mono<Long> migrateBatchesAfter(String cursor, long migratedSoFar) {
+        Criteria criteria = Criteria.where("history.0").exists(true);
+        if (cursor != null) {
+            criteria = criteria.and("_id").gt(cursor);
+        }
+        Query query = new Query(criteria).with(Sort.by(Sort.Direction.ASC, "_id")).limit(migrationBatchSize);
+        query.fields().include("_id").include("novelId").include("history");
+        return mongoTemplate.find(query, Scene.class)
+                .collectList()
+                .flatMap(scenes -> {
+                    if (scenes.isEmpty()) {
+                        return saveMigrationMarker(cursor, true).thenReturn(migratedSoFar);
+                    }
+                    String nextCursor = scenes.get(scenes.size() - 1).getId();
+                    return Flux.fromIterable(scenes)
+                            .flatMap(scene -> migrateEmbeddedHistory(scene)
+                                    .thenReturn(1L)
+                                    .onErrorResume(e -> {
+                                        log.error("迁移场景内嵌历史失败: sceneId={}", scene.getId(), e);
+                                        return Mono.just(0L);
+                                    }), 4)
+                            .reduce(0L, Long::sum)
+                            .flatMap(migrated -> {
+                                long total = migratedSoFar + migrated;
+                                log.info("场景内嵌历史迁移进度: 本批 {}/{}，累计 {}，游标 {}",
+                                        migrated, scenes.size(), total, nextCursor);
+                                return saveMigrationMarker(nextCursor, false)
+                                        .then(migrateBatchesAfter(nextCursor, total));
+                            });
+                });
+    }
+
+    private Mono<Void> saveMigrationMarker(String cursor, boolean completed) {
+        Update update = new Update()
+                .set("cursor", cursor)
+                .set("completed", completed)
+                .set("updatedAt", LocalDateTime.now());
+        return mongoTemplate.upsert(Query.query(Criteria.where("_id").is(MIGRATION_MARKER_ID)),
+                        update, MIGRATION_MARKER_COLLECTION)
+                .then();
+    }
+
+    @Override
+    public Mono<Void> deleteBySceneId(String sceneId) {
+        return revisionRepository.deleteBySceneId(sceneId);
+    }
+
+    @Override
+    public Mono<Void> deleteBySceneIds(List<String> sceneIds) {
+        if (sceneIds == null || sceneIds.isEmpty()) {
+            return Mono.empty();
+        }
+        return revisionRepository.deleteBySceneIdIn(sceneIds);
+    }
+
+    @Override
+    public Mono<Void> deleteByNovelId(String novelId) {
+        return revisionRepository.deleteByNovelId(novelId);
+    }
+
+    /**
+     * 读取截至指定序号的修订链状态，只回放最近快照之后的记录
+     */
+    private Mono<ChainState> loadChainState(String sceneId, int latestRevision) {
+        return revisionRepository.findFirstBySceneIdAndSnapshotTrueAndRevisionLessThanEqualOrderByRevisionDesc(sceneId, latestRevision)
+                .flatMap(snapshot -> revisionRepository.findRevisionRange(sceneId, snapshot.getRevision(), latestRevision)
+                        .collectList()
+                        .map(revisions -> replay(revisions, null)))
+                .defaultIfEmpty(ChainState.EMPTY);
+    }
+
+    /**
+     * 顺序回放修订，可选地把每个版本重建为历史记录
+     */
+    private ChainState replay(List<SceneRevision> revisions, List<HistoryEntry> sink) {
+        ChainState state = ChainState.EMPTY;
+        for (SceneRevision revision : revisions) {
+            String content;
+            if (revision.isMarker()) {
+                content = null;
+            } else if (revision.isSnapshot()) {
+                content = revision.getContent();
+            } else {
+                content = SceneContentDeltaUtil.apply(state.tokens(), revision.getDelta());
+            }
+            state = advance(state, revision, content);
+            if (sink != null) {
+                sink.add(HistoryEntry.builder()
+                        .content(content)
+                        .updatedAt(revision.getUpdatedAt())
+                        .updatedBy(revision.getUpdatedBy())
+                        .reason(revision.getReason())
+                        .build());
+            }
+        }
+        return state;
+    }
+
+    private ChainState advance(ChainState state, SceneRevision revision, String content) {
+        if (revision.isMarker()) {
+            return state;
+        }
+        List<String> tokens = SceneContentDeltaUtil.tokenize(content);
+        return new ChainState(content, tokens, revision.isSnapshot() ? 0 : state.deltasSinceSnapshot() + 1);
+    }
+
+    private SceneRevision buildRevision(Scene scene, int revisionNumber, String content, ChainState state,
+            String updatedBy, String reason) {
+        SceneRevision revision = SceneRevision.builder()
+                .id(scene.getId() + "-r" + revisionNumber)
+                .sceneId(scene.getId())
+                .novelId(scene.getNovelId())
+                .revision(revisionNumber)
+                .updatedBy(updatedBy)
+                .reason(reason)
+                .updatedAt(LocalDateTime.now())
+                .build();
+
+        if (content == null) {
+            revision.setMarker(true);
+            revision.setContentLength(0);
+            return revision;
+        }
+
+        revision.setContentLength(content.length());
+        boolean snapshot = state.content() == null || state.deltasSinceSnapshot() + 1 >= snapshotInterval;
+        if (!snapshot) {
+            List<DeltaOp> ops = SceneContentDeltaUtil.diff(state.tokens(), SceneContentDeltaUtil.tokenize(content));
+            // 差异几乎等于全文时直接保存快照，避免链条变长却没有节省空间
+            if (SceneContentDeltaUtil.payloadLength(ops) * 2 > content.length()) {
+                snapshot = true;
+            } else {
+                revision.setDelta(ops);
+            }
+        }
+        if (snapshot) {
+            revision.setSnapshot(true);
+            revision.setContent(content);
+        }
+        return revision;
+    }
+}
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +21,7 @@ import com.ainovel.server.domain.model.SceneVersionDiff;
 import com.ainovel.server.repository.SceneRepository;
 import com.ainovel.server.service.IndexingService;
 import com.ainovel.server.service.MetadataService;
+import com.ainovel.server.service.SceneRevisionService;
 import com.ainovel.server.service.SceneService;
 import com.github.difflib.DiffUtils;
 import com.github.difflib.UnifiedDiffUtils;
@@ -32,6 +34,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 
 import com.ainovel.server.domain.model.User;
+import com.ainovel.server.service.cache.NovelContentCache;
 
 /**
  * 场景服务实现
@@ -42,7 +45,9 @@ public class SceneServiceImpl implements SceneService {
 
     private final SceneRepository sceneRepository;
     private final MetadataService metadataService;
+    private final SceneRevisionService sceneRevisionService;
     private final com.ainovel.server.service.analytics.WritingAnalyticsService writingAnalyticsService;
+    private final NovelContentCache contentCache;
 
     @Lazy
     @Autowired
@@ -120,17 +125,14 @@ public class SceneServiceImpl implements SceneService {
                             updatedScene.setSequence(maxSequence + 1);
                         }
                         return sceneRepository.save(updatedScene)
-                                .doOnSuccess(savedScene -> {
-                                    // 异步触发小说元数据更新
-                                    metadataService.triggerNovelMetadataUpdate(savedScene).subscribe();
-                                });
+                                // 将新场景字数增量累加到小说元数据
+                                .flatMap(savedScene -> applyWordCountChange(null, 0, savedScene));
                     });
         }
 
         return sceneRepository.save(updatedScene)
+                .flatMap(savedScene -> applyWordCountChange(null, 0, savedScene))
                 .doOnSuccess(savedScene -> {
-                    // 异步触发小说元数据更新
-                    metadataService.triggerNovelMetadataUpdate(savedScene).subscribe();
                     // 记录写作事件（新建场景，delta=after-0）
                     try {
                         int after = savedScene.getWordCount() != null ? savedScene.getWordCount() : 0;
@@ -205,10 +207,10 @@ public class SceneServiceImpl implements SceneService {
                         }
 
                         return sceneRepository.saveAll(chapterScenes)
-                                .doOnNext(savedScene -> {
-                                    // 对每个保存的场景异步触发小说元数据更新
-                                    metadataService.triggerNovelMetadataUpdate(savedScene).subscribe();
-                                });
+                                .collectList()
+                                // 每个章节合并为一次字数增量更新
+                                .flatMapMany(savedScenes -> applyWordCountDeltas(savedScenes)
+                                        .thenMany(Flux.fromIterable(savedScenes)));
                     });
 
             fluxes.add(flux);
@@ -247,31 +249,21 @@ public class SceneServiceImpl implements SceneService {
                     final Scene updatedScene = metadataService.updateSceneMetadata(scene);
                     final Scene finalExistingScene = existingScene;
 
-                    // 在更新场景时，检查内容是否发生变化
-                    if (!Objects.equals(finalExistingScene.getContent(), updatedScene.getContent())) {
-                        // 如果内容发生变化，添加历史记录
-                        HistoryEntry historyEntry = new HistoryEntry();
-                        historyEntry.setUpdatedAt(LocalDateTime.now());
-                        historyEntry.setContent(finalExistingScene.getContent());
-                        historyEntry.setUpdatedBy("system");
-                        historyEntry.setReason("内容更新");
-
-                        // 复制现有历史记录并添加新记录
-                        if (updatedScene.getHistory() == null) {
-                            updatedScene.setHistory(new ArrayList<>());
-                        }
-                        updatedScene.getHistory().addAll(finalExistingScene.getHistory());
-                        updatedScene.getHistory().add(historyEntry);
-                    } else {
-                        // 如果内容没变，保留原有历史记录
-                        updatedScene.setHistory(finalExistingScene.getHistory());
-                    }
+                    // 历史记录不再内嵌在场景文档中，而是写入修订集合
+                    updatedScene.setHistory(new ArrayList<>());
+
+                    // 在更新场景时，检查内容是否发生变化，如果发生变化则追加修订
+                    Mono<Void> recordHistory = Objects.equals(finalExistingScene.getContent(), updatedScene.getContent())
+                            ? Mono.empty()
+                            : sceneRevisionService.appendRevision(finalExistingScene, finalExistingScene.getContent(), "system", "内容更新").then();
 
                     // 保存更新后的场景
-                    return sceneRepository.save(updatedScene)
+                    return sceneRevisionService.migrateEmbeddedHistory(finalExistingScene)
+                            .then(recordHistory)
+                            .then(sceneRepository.save(updatedScene))
+                            .flatMap(savedScene -> applyWordCountChange(
+                                    finalExistingScene.getNovelId(), wordCountOf(finalExistingScene), savedScene))
                             .doOnSuccess(savedScene -> {
-                                // 异步触发小说元数据更新
-                                metadataService.triggerNovelMetadataUpdate(savedScene).subscribe();
                                 // 若内容变化，记录写作事件
                                 try {
                                     boolean contentChanged = !Objects.equals(finalExistingScene.getContent(), updatedScene.getContent());
@@ -327,21 +319,19 @@ public class SceneServiceImpl implements SceneService {
         return sceneRepository.findById(id)
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("场景不存在: " + id)))
                 .flatMap(scene -> {
-                    String novelId = scene.getNovelId();
                     return sceneRepository.delete(scene)
-                            .then(Mono.defer(() -> {
-                                // 触发小说元数据更新（如果有novelId）
-                                if (novelId != null && !novelId.isEmpty()) {
-                                    return metadataService.updateNovelMetadata(novelId).then();
-                                }
-                                return Mono.empty();
-                            }));
+                            .doOnSuccess(v -> contentCache.invalidateNovel(scene.getNovelId()))
+                            .then(sceneRevisionService.deleteBySceneId(id))
+                            // 从小说总字数中扣除该场景字数
+                            .then(metadataService.applyWordCountDelta(scene.getNovelId(), -wordCountOf(scene)));
                 });
     }
 
     @Override
     public Mono<Void> deleteScenesByNovelId(String novelId) {
-        return sceneRepository.deleteByNovelId(novelId);
+        return sceneRepository.deleteByNovelId(novelId)
+                .doOnSuccess(v -> contentCache.invalidateNovel(novelId))
+                .then(sceneRevisionService.deleteByNovelId(novelId));
     }
 
     @Override
@@ -356,15 +346,14 @@ public class SceneServiceImpl implements SceneService {
 
                     // 获取novelId用于后续更新元数据
                     String novelId = scenes.get(0).getNovelId();
+                    List<String> sceneIds = scenes.stream().map(Scene::getId).collect(Collectors.toList());
+                    int removedWords = scenes.stream().mapToInt(this::wordCountOf).sum();
 
                     return sceneRepository.deleteByChapterId(chapterId)
-                            .then(Mono.defer(() -> {
-                                // 触发小说元数据更新
-                                if (novelId != null && !novelId.isEmpty()) {
-                                    return metadataService.updateNovelMetadata(novelId).then();
-                                }
-                                return Mono.empty();
-                            }));
+                            .doOnSuccess(v -> contentCache.invalidateNovel(novelId))
+                            .then(sceneRevisionService.deleteBySceneIds(sceneIds))
+                            // 从小说总字数中扣除被删除场景的字数
+                            .then(metadataService.applyWordCountDelta(novelId, -removedWords));
                 });
     }
 
@@ -378,20 +367,13 @@ public class SceneServiceImpl implements SceneService {
                         return Mono.just(scene);
                     }
 
-                    // 保存当前内容到历史
-                    HistoryEntry entry = new HistoryEntry();
-                    entry.setUpdatedAt(LocalDateTime.now());
-                    entry.setContent(scene.getContent());
-                    entry.setUpdatedBy(userId);
-                    entry.setReason(reason != null ? reason : "修改内容");
-
-                    // 确保历史记录存在
-                    if (scene.getHistory() == null) {
-                        scene.setHistory(new ArrayList<>());
-                    }
-
-                    // 添加历史记录
-                    scene.getHistory().add(entry);
+                    // 保存当前内容到修订集合
+                    final String previousContent = scene.getContent();
+                    final int previousWordCount = wordCountOf(scene);
+                    Mono<Void> recordHistory = sceneRevisionService.migrateEmbeddedHistory(scene)
+                            .then(sceneRevisionService.appendRevision(scene, previousContent, userId,
+                                    reason != null ? reason : "修改内容"))
+                            .then();
 
                     // 更新内容和版本
                     scene.setContent(content);
@@ -405,15 +387,15 @@ public class SceneServiceImpl implements SceneService {
                     final Scene updatedScene = scene;
 
                     // 保存到数据库
-                    return sceneRepository.save(updatedScene)
+                    return recordHistory
+                            .then(sceneRepository.save(updatedScene))
+                            .flatMap(savedScene -> applyWordCountChange(savedScene.getNovelId(), previousWordCount, savedScene))
                             .flatMap(savedScene -> {
                                 // 触发场景索引
                                 return indexingService.indexScene(savedScene)
                                         .thenReturn(savedScene);
                             })
                             .doOnSuccess(savedScene -> {
-                                // 异步触发小说元数据更新
-                                metadataService.triggerNovelMetadataUpdate(savedScene).subscribe();
                                 try {
                                     // 记录写作事件
                                     com.ainovel.server.domain.model.analytics.WritingEvent event =
@@ -422,10 +404,9 @@ public class SceneServiceImpl implements SceneService {
                                             .novelId(savedScene.getNovelId())
                                             .chapterId(savedScene.getChapterId())
                                             .sceneId(savedScene.getId())
-                                            .wordCountBefore(scene.getWordCount())
+                                            .wordCountBefore(previousWordCount)
                                             .wordCountAfter(savedScene.getWordCount())
-                                            .deltaWords((savedScene.getWordCount() != null ? savedScene.getWordCount() : 0)
-                                                - (scene.getWordCount() != null ? scene.getWordCount() : 0))
+                                            .deltaWords(wordCountOf(savedScene) - previousWordCount)
                                             .source("MANUAL")
                                             .reason(reason)
                                             .timestamp(java.time.LocalDateTime.now())
@@ -446,56 +427,44 @@ public class SceneServiceImpl implements SceneService {
     public Mono<List<HistoryEntry>> getSceneHistory(String id) {
         return sceneRepository.findById(id)
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("场景不存在: " + id)))
-                .map(Scene::getHistory);
+                .flatMap(scene -> sceneRevisionService.migrateEmbeddedHistory(scene)
+                        .then(sceneRevisionService.getHistory(id)));
     }
 
     @Override
     public Mono<Scene> restoreSceneVersion(String id, int historyIndex, String userId, String reason) {
         return sceneRepository.findById(id)
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("场景不存在: " + id)))
-                .flatMap(scene -> {
-                    List<HistoryEntry> history = scene.getHistory();
-
-                    // 检查历史索引是否有效
-                    if (historyIndex < 0 || historyIndex >= history.size()) {
-                        return Mono.error(new IllegalArgumentException("无效的历史版本索引: " + historyIndex));
-                    }
-
-                    // 获取历史版本内容
-                    final String historyContent = history.get(historyIndex).getContent();
-
-                    // 添加当前版本到历史记录
-                    HistoryEntry currentVersion = new HistoryEntry();
-                    currentVersion.setContent(scene.getContent());
-                    currentVersion.setUpdatedAt(LocalDateTime.now());
-                    currentVersion.setUpdatedBy(userId);
-                    currentVersion.setReason("恢复版本前的备份: " + reason);
-                    history.add(currentVersion);
-
-                    // 更新内容、版本和时间
-                    scene.setContent(historyContent);
-                    scene.setVersion(scene.getVersion() + 1);
-                    scene.setUpdatedAt(LocalDateTime.now());
-
-                    // 使用元数据服务更新场景字数
-                    scene.setWordCount(metadataService.calculateWordCount(historyContent));
-
-                    final Scene updatedScene = scene;
-
-                    // 添加恢复记录
-                    HistoryEntry restoreEntry = new HistoryEntry();
-                    restoreEntry.setContent(null); // 不存储内容，因为就是当前版本
-                    restoreEntry.setUpdatedAt(LocalDateTime.now());
-                    restoreEntry.setUpdatedBy(userId);
-                    restoreEntry.setReason("恢复到历史版本 #" + (historyIndex + 1) + ": " + reason);
-                    history.add(restoreEntry);
-
-                    return sceneRepository.save(updatedScene)
-                            .doOnSuccess(savedScene -> {
-                                // 异步触发小说元数据更新
-                                metadataService.triggerNovelMetadataUpdate(savedScene).subscribe();
-                            });
-                });
+                .flatMap(scene -> sceneRevisionService.migrateEmbeddedHistory(scene)
+                        // 从修订链重建历史版本内容，索引无效时返回IllegalArgumentException
+                        .then(sceneRevisionService.getRevision(id, historyIndex))
+                        .flatMap(historyVersion -> {
+                            final String historyContent = historyVersion.getContent();
+                            final int previousWordCount = wordCountOf(scene);
+
+                            // 添加当前版本到历史记录
+                            Mono<Void> backupCurrent = sceneRevisionService.appendRevision(
+                                    scene, scene.getContent(), userId, "恢复版本前的备份: " + reason).then();
+
+                            // 更新内容、版本和时间
+                            scene.setContent(historyContent);
+                            scene.setVersion(scene.getVersion() + 1);
+                            scene.setUpdatedAt(LocalDateTime.now());
+
+                            // 使用元数据服务更新场景字数
+                            scene.setWordCount(metadataService.calculateWordCount(historyContent));
+
+                            final Scene updatedScene = scene;
+
+                            // 添加恢复记录（不存储内容，因为就是当前版本）
+                            Mono<Void> restoreMarker = sceneRevisionService.appendMarker(
+                                    scene, userId, "恢复到历史版本 #" + (historyIndex + 1) + ": " + reason).then();
+
+                            return backupCurrent
+                                    .then(restoreMarker)
+                                    .then(sceneRepository.save(updatedScene))
+                                    .flatMap(savedScene -> applyWordCountChange(savedScene.getNovelId(), previousWordCount, savedScene));
+                        }));
     }
 
     @Override
@@ -510,7 +479,8 @@ public class SceneServiceImpl implements SceneService {
 
                     // 更新场景
                     scene.setUpdatedAt(LocalDateTime.now());
-                    return sceneRepository.save(scene);
+                    return sceneRepository.save(scene)
+                            .doOnSuccess(savedScene -> contentCache.invalidateNovel(savedScene.getNovelId()));
                 });
     }
 
@@ -532,6 +502,7 @@ public class SceneServiceImpl implements SceneService {
                     // 保存到数据库
                     return sceneRepository.save(scene)
                             .doOnSuccess(savedScene -> {
+                                contentCache.invalidateNovel(savedScene.getNovelId());
                                 // 异步更新索引
                                 indexingService.indexScene(savedScene).subscribe();
                             });
@@ -578,58 +549,54 @@ public class SceneServiceImpl implements SceneService {
     public Mono<SceneVersionDiff> compareSceneVersions(String id, int versionIndex1, int versionIndex2) {
         return sceneRepository.findById(id)
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("场景不存在: " + id)))
-                .map(scene -> {
-                    List<HistoryEntry> history = scene.getHistory();
-
-                    // 获取版本1的内容
-                    String content1;
-                    if (versionIndex1 == -1) {
-                        // -1表示当前版本
-                        content1 = scene.getContent();
-                    } else {
-                        if (versionIndex1 < 0 || versionIndex1 >= history.size()) {
-                            throw new IllegalArgumentException("无效的历史版本索引1: " + versionIndex1);
-                        }
-                        content1 = history.get(versionIndex1).getContent();
-                    }
-
-                    // 获取版本2的内容
-                    String content2;
-                    if (versionIndex2 == -1) {
-                        // -1表示当前版本
-                        content2 = scene.getContent();
-                    } else {
-                        if (versionIndex2 < 0 || versionIndex2 >= history.size()) {
-                            throw new IllegalArgumentException("无效的历史版本索引2: " + versionIndex2);
-                        }
-                        content2 = history.get(versionIndex2).getContent();
-                    }
-
-                    // 使用DiffUtils计算差异
-                    List<String> originalLines = Arrays.asList(content1.split("\n"));
-                    List<String> revisedLines = Arrays.asList(content2.split("\n"));
-
-                    // 计算差异
-                    Patch<String> patch = DiffUtils.diff(originalLines, revisedLines);
-
-                    // 生成统一差异格式
-                    List<String> unifiedDiff = UnifiedDiffUtils.generateUnifiedDiff(
-                            "原始版本", "修改版本", originalLines, patch, 3);
-
-                    // 创建并返回差异对象
-                    SceneVersionDiff diff = new SceneVersionDiff();
-                    diff.setOriginalContent(content1);
-                    diff.setNewContent(content2);
-                    diff.setDiff(String.join("\n", unifiedDiff));
+                .flatMap(scene -> sceneRevisionService.migrateEmbeddedHistory(scene)
+                        .then(Mono.zip(
+                                resolveVersionContent(scene, versionIndex1, "无效的历史版本索引1: "),
+                                resolveVersionContent(scene, versionIndex2, "无效的历史版本索引2: ")))
+                        .map(contents -> {
+                            String content1 = contents.getT1();
+                            String content2 = contents.getT2();
+
+                            // 使用DiffUtils计算差异
+                            List<String> originalLines = Arrays.asList(content1.split("\n"));
+                            List<String> revisedLines = Arrays.asList(content2.split("\n"));
+
+                            // 计算差异
+                            Patch<String> patch = DiffUtils.diff(originalLines, revisedLines);
+
+                            // 生成统一差异格式
+                            List<String> unifiedDiff = UnifiedDiffUtils.generateUnifiedDiff(
+                                    "原始版本", "修改版本", originalLines, patch, 3);
+
+                            // 创建并返回差异对象
+                            SceneVersionDiff diff = new SceneVersionDiff();
+                            diff.setOriginalContent(content1);
+                            diff.setNewContent(content2);
+                            diff.setDiff(String.join("\n", unifiedDiff));
+
+                            return diff;
+                        }));
+    }
 
-                    return diff;
-                });
+    /**
+     * 获取指定版本的内容，-1表示当前版本
+     */
+    private Mono<String> resolveVersionContent(Scene scene, int versionIndex, String errorPrefix) {
+        if (versionIndex == -1) {
+            return Mono.just(scene.getContent() != null ? scene.getContent() : "");
+        }
+        return sceneRevisionService.getRevision(scene.getId(), versionIndex)
+                .map(entry -> entry.getContent() != null ? entry.getContent() : "")
+                .onErrorMap(IllegalArgumentException.class, e -> new IllegalArgumentException(errorPrefix + versionIndex));
     }
 
     @Override
     public Mono<Boolean> deleteSceneById(String id) {
         return sceneRepository.findById(id)
                 .flatMap(scene -> sceneRepository.delete(scene)
+                        .doOnSuccess(v -> contentCache.invalidateNovel(scene.getNovelId()))
+                        .then(sceneRevisionService.deleteBySceneId(id))
+                        .then(metadataService.applyWordCountDelta(scene.getNovelId(), -wordCountOf(scene)))
                         .thenReturn(true))
                 .defaultIfEmpty(false);
     }
@@ -639,13 +606,11 @@ public class SceneServiceImpl implements SceneService {
         return sceneRepository.findById(id)
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("场景不存在: " + id)))
                 .flatMap(scene -> {
+                    final int previousWordCount = wordCountOf(scene);
                     scene.setWordCount(wordCount);
                     scene.setUpdatedAt(LocalDateTime.now());
                     return sceneRepository.save(scene)
-                            .doOnSuccess(savedScene -> {
-                                // 异步触发小说元数据更新
-                                metadataService.triggerNovelMetadataUpdate(savedScene).subscribe();
-                            });
+                            .flatMap(savedScene -> applyWordCountChange(savedScene.getNovelId(), previousWordCount, savedScene));
                 });
     }
 
@@ -670,6 +635,8 @@ public class SceneServiceImpl implements SceneService {
         }
         
         LocalDateTime now = LocalDateTime.now();
+        // 按小说累计字数变化，批量结束后每部小说只做一次增量更新
+        Map<String, Integer> wordCountDeltas = new ConcurrentHashMap<>();
         
         return Flux.fromIterable(scenes)
                 .flatMap(scene -> {
@@ -681,29 +648,69 @@ public class SceneServiceImpl implements SceneService {
                                 scene.setCreatedAt(existingScene.getCreatedAt());
                                 scene.setVersion(existingScene.getVersion());
                                 
-                                // 设置更新时间
+                                // 重新统计字数并设置更新时间
+                                if (scene.getContent() != null) {
+                                    metadataService.updateSceneMetadata(scene);
+                                }
                                 scene.setUpdatedAt(now);
+                                scene.setHistory(new ArrayList<>());
                                 
-                                // 保存更新后的场景
-                                return sceneRepository.save(scene);
+                                // 保存更新后的场景（先迁移旧的内嵌历史，避免被覆盖丢失）
+                                return sceneRevisionService.migrateEmbeddedHistory(existingScene)
+                                        .then(sceneRepository.save(scene))
+                                        .doOnNext(savedScene -> {
+                                            contentCache.invalidateNovel(existingScene.getNovelId());
+                                            contentCache.invalidateNovel(savedScene.getNovelId());
+                                            if (existingScene.getNovelId() != null) {
+                                                wordCountDeltas.merge(existingScene.getNovelId(), -wordCountOf(existingScene), Integer::sum);
+                                            }
+                                            if (savedScene.getNovelId() != null) {
+                                                wordCountDeltas.merge(savedScene.getNovelId(), wordCountOf(savedScene), Integer::sum);
+                                            }
+                                        });
                             });
                 })
                 .collectList()
-                .doOnSuccess(savedScenes -> {
-                    // 如果有相同小说的场景，只触发一次元数据更新
-                    savedScenes.stream()
-                            .map(Scene::getNovelId)
-                            .distinct()
-                            .forEach(novelId -> {
-                                if (novelId != null && !novelId.isEmpty()) {
-                                    // 使用现有的触发小说元数据更新方法
-                                    // 创建一个假场景对象来触发更新
-                                    Scene dummyScene = new Scene();
-                                    dummyScene.setNovelId(novelId);
-                                    metadataService.triggerNovelMetadataUpdate(dummyScene).subscribe();
-                                }
-                            });
-                });
+                // 如果有相同小说的场景，只触发一次元数据更新
+                .flatMap(savedScenes -> Flux.fromIterable(wordCountDeltas.entrySet())
+                        .concatMap(entry -> metadataService.applyWordCountDelta(entry.getKey(), entry.getValue()))
+                        .then(Mono.just(savedScenes)));
+    }
+
+    /**
+     * 场景字数，未统计时视为0
+     */
+    private int wordCountOf(Scene scene) {
+        return scene != null && scene.getWordCount() != null ? scene.getWordCount() : 0;
+    }
+
+    /**
+     * 将单个场景的字数变化以增量方式同步到小说元数据；场景移动到其他小说时分别扣减和累加，同时失效相关小说的内容缓存
+     */
+    private Mono<Scene> applyWordCountChange(String previousNovelId, int previousWordCount, Scene savedScene) {
+        contentCache.invalidateNovel(previousNovelId);
+        contentCache.invalidateNovel(savedScene.getNovelId());
+        int currentWordCount = wordCountOf(savedScene);
+        if (previousNovelId != null && !Objects.equals(previousNovelId, savedScene.getNovelId())) {
+            return metadataService.applyWordCountDelta(previousNovelId, -previousWordCount)
+                    .then(metadataService.applyWordCountDelta(savedScene.getNovelId(), currentWordCount))
+                    .thenReturn(savedScene);
+        }
+        return metadataService.applyWordCountDelta(savedScene.getNovelId(), currentWordCount - previousWordCount)
+                .thenReturn(savedScene);
+    }
+
+    /**
+     * 将一批新保存场景的字数按小说合并后同步到小说元数据
+     */
+    private Mono<Void> applyWordCountDeltas(List<Scene> savedScenes) {
+        Map<String, Integer> deltas = savedScenes.stream()
+                .filter(scene -> scene.getNovelId() != null)
+                .collect(Collectors.groupingBy(Scene::getNovelId, Collectors.summingInt(this::wordCountOf)));
+        deltas.keySet().forEach(contentCache::invalidateNovel);
+        return Flux.fromIterable(deltas.entrySet())
+                .concatMap(entry -> metadataService.applyWordCountDelta(entry.getKey(), entry.getValue()))
+                .then();
     }
 
 
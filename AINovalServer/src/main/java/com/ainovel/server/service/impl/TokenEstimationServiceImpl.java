@@ -10,12 +10,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import com.ainovel.server.service.TokenEstimationService;
 import com.ainovel.server.service.UserAIModelConfigService;
 import com.ainovel.server.service.AIService;
+import com.ainovel.server.service.ai.tokenizer.TokenCounter;
 import com.ainovel.server.web.dto.TokenEstimationRequest;
 import com.ainovel.server.web.dto.TokenEstimationResponse;
 import com.ainovel.server.domain.model.UserAIModelConfig;
 
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * Token估算服务实现类
@@ -26,8 +28,9 @@ public class TokenEstimationServiceImpl implements TokenEstimationService {
 
     private final UserAIModelConfigService userAIModelConfigService;
     private final AIService aiService;
+    private final TokenCounter tokenCounter;
 
-    // Token估算常量 - 基于经验值
+    // 按字数估算Token的比率（仅用于只有字数、没有文本的快速估算）
     private static final Map<String, Double> TOKEN_RATIO_MAP = new HashMap<>();
     
     static {
@@ -58,9 +61,11 @@ public class TokenEstimationServiceImpl implements TokenEstimationService {
     @Autowired
     public TokenEstimationServiceImpl(
             UserAIModelConfigService userAIModelConfigService,
-            AIService aiService) {
+            AIService aiService,
+            TokenCounter tokenCounter) {
         this.userAIModelConfigService = userAIModelConfigService;
         this.aiService = aiService;
+        this.tokenCounter = tokenCounter;
     }
 
     @Override
@@ -78,6 +83,7 @@ public class TokenEstimationServiceImpl implements TokenEstimationService {
         return userAIModelConfigService.getConfigurationById(request.getUserId(), request.getAiConfigId())
                 .filter(UserAIModelConfig::getIsValidated)
                 .switchIfEmpty(Mono.error(new RuntimeException("指定的AI配置不存在或未验证")))
+                .publishOn(Schedulers.parallel()) // 分词为CPU密集计算，不占用IO线程
                 .flatMap(config -> {
                     String modelName = config.getModelName();
 
@@ -127,15 +133,17 @@ public class TokenEstimationServiceImpl implements TokenEstimationService {
         return userAIModelConfigService.getConfigurationById(userId, aiConfigId)
                 .filter(UserAIModelConfig::getIsValidated)
                 .switchIfEmpty(Mono.error(new RuntimeException("指定的AI配置不存在或未验证")))
+                .publishOn(Schedulers.parallel()) // 分词为CPU密集计算，不占用IO线程
                 .flatMap(config -> {
                     String modelName = config.getModelName();
                     
-                    // 合并所有文本进行估算
-                    String combinedText = String.join("\n", texts);
-                    long inputTokens = estimateTokensForText(combinedText, modelName);
-                    
-                    // 批量处理输出Token估算
-                    long outputTokens = estimateOutputTokens(inputTokens, estimationType) * texts.size();
+                    // 逐条分词计数（命中缓存的文本不再重新编码），输出Token按每条文本分别估算
+                    long inputTokens = 0;
+                    long outputTokens = 0;
+                    for (Integer count : tokenCounter.countTokens(texts, modelName)) {
+                        inputTokens += count;
+                        outputTokens += estimateOutputTokens(count, estimationType);
+                    }
                     
                     long totalTokens = inputTokens + outputTokens;
                     double cost = estimateCost(totalTokens, modelName);
@@ -174,19 +182,23 @@ public class TokenEstimationServiceImpl implements TokenEstimationService {
         return Mono.just(tokens);
     }
 
+    @Override
+    public Mono<Long> estimateTextTokens(String text, String modelName) {
+        if (text == null || text.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return Mono.fromCallable(() -> estimateTokensForText(text, modelName))
+                .subscribeOn(Schedulers.parallel());
+    }
+
     /**
-     * 估算文本的Token数量
+     * 估算文本的Token数量（进程内BPE分词，按模型族选择词表）
      */
     private long estimateTokensForText(String text, String modelName) {
         if (text == null || text.isEmpty()) {
             return 0;
         }
-        
-        // 简单的字数统计作为估算基础
-        int wordCount = text.length(); // 对中文而言，字符数近似等于字数
-        
-        double ratio = TOKEN_RATIO_MAP.getOrDefault(modelName, TOKEN_RATIO_MAP.get("default"));
-        return Math.round(wordCount * ratio);
+        return tokenCounter.countTokens(text, modelName);
     }
 
     /**
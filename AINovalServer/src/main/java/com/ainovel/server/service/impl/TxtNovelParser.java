@@ -1,7 +1,6 @@
 package com.ainovel.server.service.impl;
 
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -13,6 +12,8 @@ import com.ainovel.server.domain.dto.ParsedSceneData;
 import com.ainovel.server.service.NovelParser;
 
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * TXT格式小说解析器实现
@@ -42,166 +43,197 @@ public class TxtNovelParser implements NovelParser {
             Pattern.CASE_INSENSITIVE
     );
 
+    // 段落标点，用于区分正文段落与备用章节标题
+    private static final Pattern PARAGRAPH_PUNCT_PATTERN = Pattern.compile("[，。！？；,.!?;]");
+
     @Override
     public ParsedNovelData parseStream(Stream<String> lines) {
         ParsedNovelData parsedNovelData = new ParsedNovelData();
         parsedNovelData.setNovelTitle("导入的小说"); // 默认标题，可以从文件名推断
 
-        AtomicReference<String> currentChapterTitle = new AtomicReference<>("");
-        StringBuilder currentContent = new StringBuilder();
-        AtomicInteger chapterCount = new AtomicInteger(0);
-        AtomicInteger lineCount = new AtomicInteger(0);
-        AtomicInteger emptyLineCount = new AtomicInteger(0);
-        AtomicInteger consecutiveEmptyLineCount = new AtomicInteger(0); // 记录连续空行数
-        AtomicReference<String> lastNonEmptyLine = new AtomicReference<>(""); // 记录上一个非空行
-
-        // 使用reduce操作处理流
+        ChapterSplitter splitter = new ChapterSplitter();
         lines.forEach(line -> {
-            lineCount.incrementAndGet();
+            ParsedSceneData chapter = splitter.onLine(line);
+            if (chapter != null) {
+                parsedNovelData.addScene(chapter);
+            }
+        });
+        ParsedSceneData lastChapter = splitter.finish();
+        if (lastChapter != null) {
+            parsedNovelData.addScene(lastChapter);
+        }
+
+        log.info("TXT解析完成，共解析出{}个章节", parsedNovelData.getScenes().size());
+        return parsedNovelData;
+    }
+
+    @Override
+    public Flux<ParsedSceneData> parseAsFlux(Stream<String> lines) {
+        return Flux.defer(() -> {
+            ChapterSplitter splitter = new ChapterSplitter();
+            AtomicInteger emitted = new AtomicInteger(0);
+            return Flux.fromStream(lines)
+                    .<ParsedSceneData>handle((line, sink) -> {
+                        ParsedSceneData chapter = splitter.onLine(line);
+                        if (chapter != null) {
+                            sink.next(chapter);
+                        }
+                    })
+                    .concatWith(Mono.fromSupplier(splitter::finish))
+                    .doOnNext(chapter -> emitted.incrementAndGet())
+                    .doOnComplete(() -> log.info("TXT流式解析完成，共解析出{}个章节", emitted.get()));
+        });
+    }
+
+    /**
+     * 增量章节切分器：逐行接收文本，每当一个章节结束时返回该章节，
+     * 内存中只保留当前章节的内容。
+     */
+    private class ChapterSplitter {
+
+        private String currentChapterTitle = "";
+        private final StringBuilder currentContent = new StringBuilder();
+        private int chapterCount = 0;
+        private int lineCount = 0;
+        private int emptyLineCount = 0;
+        private int consecutiveEmptyLineCount = 0; // 记录连续空行数
+
+        /**
+         * 处理一行文本
+         *
+         * @return 若该行使上一章节结束则返回上一章节，否则返回 null
+         */
+        ParsedSceneData onLine(String line) {
+            lineCount++;
             String trimmedLine = line.trim();
             boolean isEmpty = trimmedLine.isEmpty();
 
             if (isEmpty) {
-                emptyLineCount.incrementAndGet();
-                consecutiveEmptyLineCount.incrementAndGet(); // 增加连续空行计数
-                
+                emptyLineCount++;
+                consecutiveEmptyLineCount++; // 增加连续空行计数
+
                 // 空行仍需添加到内容中
                 if (currentContent.length() > 0) {
                     currentContent.append("\n");
                 }
-                return;
-            } else {
-                // 按优先级 1) 正则章节标题 2) 通用"第N章"识别逻辑 3) 备用章节检测
-
-                // 1) 正则章节标题检测
-                Matcher matcher = CHAPTER_TITLE_PATTERN.matcher(trimmedLine);
-
-                // 2) 通用"第N章"识别逻辑
-                boolean isGenericMatch = false;
-                if (!matcher.matches() && GENERIC_CHAPTER_PATTERN.matcher(trimmedLine).matches()) {
-                    isGenericMatch = true;
-                    log.debug("使用通用章节识别: '{}'", trimmedLine);
-                }
+                return null;
+            }
 
-                // 3) 备用章节识别逻辑：仅在未匹配以上两种时触发，基于空行与长度判断
-                boolean isBackupChapterDetected = false;
-                if (!matcher.matches() && !isGenericMatch &&
-                        (emptyLineCount.get() >= 2 || consecutiveEmptyLineCount.get() >= 2) &&
-                        trimmedLine.length() < 50) {
-                    Matcher backupMatcher = BACKUP_CHAPTER_PATTERN.matcher(trimmedLine);
-                    if (backupMatcher.matches() && !isContentParagraph(trimmedLine)) {
-                        isBackupChapterDetected = true;
-                        log.debug("使用备用章节识别: '{}'", trimmedLine);
-                    }
-                }
+            ParsedSceneData completed = null;
 
-                boolean handledByTitleDetection = false;
-
-                if (matcher.matches() || isGenericMatch || isBackupChapterDetected) {
-                    // 如果当前有内容，则保存上一章节
-                    if (currentContent.length() > 0) {
-                        saveCurrentChapter(parsedNovelData, currentChapterTitle.get(),
-                                currentContent.toString(), chapterCount.get());
-                        currentContent.setLength(0); // 清空内容缓冲
-                    }
-
-                    // 计算新的章节序号
-                    int newChapterNum = chapterCount.incrementAndGet();
-
-                    // 提取章节标题
-                    String titleText;
-                    if (matcher.matches()) {
-                        titleText = matcher.group(1);
-                        if (titleText == null || titleText.trim().isEmpty()) {
-                            titleText = "第" + newChapterNum + "章";
-                        } else {
-                            titleText = titleText.trim();
-                        }
-                        currentChapterTitle.set(trimmedLine);
-                        log.debug("通过正则表达式识别到章节标题: {}", trimmedLine);
-                    } else if (isGenericMatch) {
-                        titleText = trimmedLine;
-                        currentChapterTitle.set(trimmedLine);
-                        log.debug("通过通用方式识别到章节标题: {}", trimmedLine);
-                    } else {
-                        // 使用备用识别的标题
-                        titleText = trimmedLine;
-                        currentChapterTitle.set(trimmedLine);
-                        log.debug("通过备用方式识别到章节标题: {}", trimmedLine);
-                    }
-
-                    log.debug("识别到章节标题[{}]: {}", newChapterNum, currentChapterTitle.get());
-
-                    handledByTitleDetection = true;
-                } else {
-                    // 尚未识别章节标题，后续可能基于空行分章
-                }
+            // 按优先级 1) 正则章节标题 2) 通用"第N章"识别逻辑 3) 备用章节检测
 
-                // 3) 基于连续空行分章逻辑 - 仅当未通过标题检测切分章节时执行
-                if (!handledByTitleDetection) {
-                    boolean shouldSplitByEmptyLines = consecutiveEmptyLineCount.get() >= 2 &&
-                            currentContent.length() > 0 &&
-                            chapterCount.get() > 0; // 确保不是第一章开始
+            // 1) 正则章节标题检测
+            Matcher matcher = CHAPTER_TITLE_PATTERN.matcher(trimmedLine);
+            boolean isTitleMatch = matcher.matches();
 
-                    if (shouldSplitByEmptyLines) {
-                        log.debug("基于连续空行分章: 发现{}个连续空行", consecutiveEmptyLineCount.get());
-
-                        if (currentContent.length() > 0) {
-                            saveCurrentChapter(parsedNovelData, currentChapterTitle.get(),
-                                    currentContent.toString(), chapterCount.get());
-                            currentContent.setLength(0);
-                        }
+            // 2) 通用"第N章"识别逻辑
+            boolean isGenericMatch = false;
+            if (!isTitleMatch && GENERIC_CHAPTER_PATTERN.matcher(trimmedLine).matches()) {
+                isGenericMatch = true;
+                log.debug("使用通用章节识别: '{}'", trimmedLine);
+            }
 
-                        int nextChapterNum = chapterCount.incrementAndGet();
-                        String newTitle = "第" + nextChapterNum + "章";
-                        currentChapterTitle.set(newTitle);
-                        log.debug("基于连续空行创建新章节[{}]: {}", nextChapterNum, newTitle);
-                        // 空行分章后立即继续内容合并，不将当前行添加为正文内容，后续循环会处理
-                        // 重置计数器
-                        consecutiveEmptyLineCount.set(0);
-                        emptyLineCount.set(0);
-                        // 继续到下一循环
-                        return;
-                    }
+            // 3) 备用章节识别逻辑：仅在未匹配以上两种时触发，基于空行与长度判断
+            boolean isBackupChapterDetected = false;
+            if (!isTitleMatch && !isGenericMatch &&
+                    (emptyLineCount >= 2 || consecutiveEmptyLineCount >= 2) &&
+                    trimmedLine.length() < 50) {
+                Matcher backupMatcher = BACKUP_CHAPTER_PATTERN.matcher(trimmedLine);
+                if (backupMatcher.matches() && !isContentParagraph(trimmedLine)) {
+                    isBackupChapterDetected = true;
+                    log.debug("使用备用章节识别: '{}'", trimmedLine);
                 }
+            }
 
-                // 重置连续空行计数器
-                consecutiveEmptyLineCount.set(0);
-                emptyLineCount.set(0);
+            boolean handledByTitleDetection = false;
 
-                // 内容行，添加到当前内容
+            if (isTitleMatch || isGenericMatch || isBackupChapterDetected) {
+                // 如果当前有内容，则保存上一章节
                 if (currentContent.length() > 0) {
-                    currentContent.append("\n");
+                    completed = buildChapter(currentChapterTitle, currentContent.toString(), chapterCount);
+                    currentContent.setLength(0); // 清空内容缓冲
                 }
-                currentContent.append(trimmedLine); // 去除尾部空白
 
-                // 保存当前行作为最近的非空行
-                lastNonEmptyLine.set(trimmedLine);
+                // 计算新的章节序号
+                int newChapterNum = ++chapterCount;
 
-                // 如果是第一行但不是章节标题，可能需要创建默认第一章
-                if (lineCount.get() <= 3 && chapterCount.get() == 0 && currentChapterTitle.get().isEmpty()) {
-                    currentChapterTitle.set("第1章");
-                    chapterCount.incrementAndGet();
-                    log.debug("创建默认第一章");
+                // 提取章节标题
+                if (isTitleMatch) {
+                    currentChapterTitle = trimmedLine;
+                    log.debug("通过正则表达式识别到章节标题: {}", trimmedLine);
+                } else if (isGenericMatch) {
+                    currentChapterTitle = trimmedLine;
+                    log.debug("通过通用方式识别到章节标题: {}", trimmedLine);
+                } else {
+                    // 使用备用识别的标题
+                    currentChapterTitle = trimmedLine;
+                    log.debug("通过备用方式识别到章节标题: {}", trimmedLine);
                 }
+
+                log.debug("识别到章节标题[{}]: {}", newChapterNum, currentChapterTitle);
+
+                handledByTitleDetection = true;
             }
-        });
 
-        // 处理最后一章
-        if (currentContent.length() > 0) {
-            // 如果没有识别到任何章节标题，但有内容，创建一个默认的第一章
-            if (chapterCount.get() == 0) {
-                currentChapterTitle.set("第1章");
-                chapterCount.incrementAndGet();
-                log.debug("创建默认唯一章节");
+            // 3) 基于连续空行分章逻辑 - 仅当未通过标题检测切分章节时执行
+            if (!handledByTitleDetection) {
+                boolean shouldSplitByEmptyLines = consecutiveEmptyLineCount >= 2 &&
+                        currentContent.length() > 0 &&
+                        chapterCount > 0; // 确保不是第一章开始
+
+                if (shouldSplitByEmptyLines) {
+                    log.debug("基于连续空行分章: 发现{}个连续空行", consecutiveEmptyLineCount);
+
+                    completed = buildChapter(currentChapterTitle, currentContent.toString(), chapterCount);
+                    currentContent.setLength(0);
+
+                    int nextChapterNum = ++chapterCount;
+                    currentChapterTitle = "第" + nextChapterNum + "章";
+                    log.debug("基于连续空行创建新章节[{}]: {}", nextChapterNum, currentChapterTitle);
+                    // 空行分章后不将当前行添加为正文内容，重置计数器
+                    consecutiveEmptyLineCount = 0;
+                    emptyLineCount = 0;
+                    return completed;
+                }
             }
 
-            saveCurrentChapter(parsedNovelData, currentChapterTitle.get(),
-                    currentContent.toString(), chapterCount.get() - 1);
+            // 重置连续空行计数器
+            consecutiveEmptyLineCount = 0;
+            emptyLineCount = 0;
+
+            // 内容行，添加到当前内容
+            if (currentContent.length() > 0) {
+                currentContent.append("\n");
+            }
+            currentContent.append(trimmedLine); // 去除尾部空白
+
+            // 如果是第一行但不是章节标题，可能需要创建默认第一章
+            if (lineCount <= 3 && chapterCount == 0 && currentChapterTitle.isEmpty()) {
+                currentChapterTitle = "第1章";
+                chapterCount++;
+                log.debug("创建默认第一章");
+            }
+            return completed;
         }
 
-        log.info("TXT解析完成，共解析出{}个章节", parsedNovelData.getScenes().size());
-        return parsedNovelData;
+        /**
+         * 结束解析，返回最后一章（没有剩余内容时返回 null）
+         */
+        ParsedSceneData finish() {
+            if (currentContent.length() == 0) {
+                return null;
+            }
+            // 如果没有识别到任何章节标题，但有内容，创建一个默认的第一章
+            if (chapterCount == 0) {
+                currentChapterTitle = "第1章";
+                chapterCount++;
+                log.debug("创建默认唯一章节");
+            }
+            ParsedSceneData last = buildChapter(currentChapterTitle, currentContent.toString(), chapterCount - 1);
+            currentContent.setLength(0);
+            return last;
+        }
     }
 
     /**
@@ -214,11 +246,10 @@ public class TxtNovelParser implements NovelParser {
         }
 
         // 检查是否包含常见的段落标点
-        Pattern punctPattern = Pattern.compile("[，。！？；,.!?;]");
-        return punctPattern.matcher(line).find() && line.length() > 20;
+        return PARAGRAPH_PUNCT_PATTERN.matcher(line).find() && line.length() > 20;
     }
 
-    private void saveCurrentChapter(ParsedNovelData parsedNovelData, String title, String content, int order) {
+    private ParsedSceneData buildChapter(String title, String content, int order) {
         // 如果是第一章并且没有标题，可能是前言或引言
         if (order == 0 && (title == null || title.isEmpty())) {
             title = "前言";
@@ -235,8 +266,8 @@ public class TxtNovelParser implements NovelParser {
                 .order(order)
                 .build();
 
-        parsedNovelData.addScene(sceneData);
         log.debug("保存章节[{}]: {}, 内容长度: {}", order, title, content.length());
+        return sceneData;
     }
 
     @Override
@@ -54,6 +54,7 @@ import com.ainovel.server.common.util.PromptTemplateModel;
 import com.ainovel.server.service.impl.content.ContentProviderFactory;
 import com.ainovel.server.service.impl.content.ContentProvider;
 import com.ainovel.server.service.impl.content.ContentResult;
+import com.ainovel.server.service.impl.content.ContextBudgetPlanner;
 
 // 🚀 新增：导入提示词提供器相关类
 import com.ainovel.server.service.prompt.PromptProviderFactory;
@@ -99,6 +100,9 @@ public class UniversalAIServiceImpl implements UniversalAIService {
     @Autowired
     private ContentProviderFactory contentProviderFactory;
 
+    @Autowired
+    private ContextBudgetPlanner contextBudgetPlanner;
+
     // 🚀 新增：提示词提供器工厂和占位符解析器
     @Autowired
     private PromptProviderFactory promptProviderFactory;
@@ -484,6 +488,15 @@ public class UniversalAIServiceImpl implements UniversalAIService {
                         }
                         aiRequest.setMetadata(metadata);
 
+                        // 上下文预算规划结果写入 providerSpecific，随 LLM 追踪记录
+                        Object contextBudget = metadata.get(ContextBudgetPlanner.TRACE_KEY);
+                        if (contextBudget != null) {
+                            @SuppressWarnings("unchecked")
+                            Map<String, Object> providerSpecific = (Map<String, Object>) aiRequest.getParameters()
+                                    .computeIfAbsent("providerSpecific", k -> new HashMap<String, Object>());
+                            providerSpecific.put(ContextBudgetPlanner.TRACE_KEY, contextBudget);
+                        }
+
                         // 🚀 调整debug日志，避免暴露完整的提示词内容
                         log.debug("构建的AI请求: userId={}, model={}, messages数量={}, metadata keys={}",
                                 aiRequest.getUserId(), aiRequest.getModel(),
@@ -1026,8 +1039,8 @@ public class UniversalAIServiceImpl implements UniversalAIService {
                                      .map(s -> s.getType() + ":" + s.getId())
                                      .collect(Collectors.joining(", ")));
 
-                    // 🚀 第三步：根据优化后的选择列表获取内容
-                    List<Mono<String>> contentMappings = new ArrayList<>();
+                    // 🚀 第三步：根据优化后的选择列表确定内容来源
+                    List<ContextBudgetPlanner.Source> sources = new ArrayList<>();
 
                     for (UniversalAIRequestDto.ContextSelectionDto contextSelection : optimizedSelections) {
                         String rawId = contextSelection.getId();
@@ -1042,31 +1055,34 @@ public class UniversalAIServiceImpl implements UniversalAIService {
                                  resolvedId, type, contentProviderFactory.getAvailableTypes());
 
                         if (type != null) {
-                            Optional<ContentProvider> providerOptional = contentProviderFactory.getProvider(type.toLowerCase());
-                            if (providerOptional.isPresent()) {
-                                ContentProvider provider = providerOptional.get();
-                                Mono<String> contentMono = provider.getContent(resolvedId, request)
-                                        .map(ContentResult::getContent)
-                                        .filter(content -> content != null && !content.trim().isEmpty())
-                                        .doOnNext(content -> log.info("成功获取内容: type={}, id={}, length={}", 
-                                                                     type, resolvedId, content.length()))
-                                        .onErrorResume(error -> {
-                                            log.error("获取{}内容失败: id={}, error={}", type, resolvedId, error.getMessage(), error);
-                                            return Mono.just("");
-                                        });
-                                contentMappings.add(contentMono);
+                            if (contentProviderFactory.hasProvider(type)) {
+                                sources.add(new ContextBudgetPlanner.Source(type.toLowerCase(), resolvedId));
                             } else {
                                 log.warn("未找到类型为 {} 的内容提供器，可用提供器: {}", type, contentProviderFactory.getAvailableTypes());
                             }
                         }
                     }
 
-                    if (contentMappings.isEmpty()) {
+                    if (sources.isEmpty()) {
                         log.warn("没有有效的内容提供器，返回空内容");
                         return Mono.just("");
                     }
 
-                    return Flux.merge(contentMappings)
+                    // 🚀 第四步：按模型上下文窗口规划预算，只获取放得下的内容（超出部分截断、改用摘要或丢弃）
+                    Mono<List<ContextBudgetPlanner.Allocation>> allocationsMono;
+                    if (contextBudgetPlanner.isEnabled()) {
+                        allocationsMono = contextBudgetPlanner.plan(request, sources)
+                                .doOnNext(plan -> recordContextBudget(request, plan))
+                                .map(ContextBudgetPlanner.Plan::allocations);
+                    } else {
+                        allocationsMono = Mono.just(sources.stream()
+                                .map(source -> new ContextBudgetPlanner.Allocation(source, ContextBudgetPlanner.Decision.FULL, 0, 0))
+                                .collect(Collectors.toList()));
+                    }
+
+                    return allocationsMono
+                            .flatMapMany(allocations -> Flux.fromIterable(allocations)
+                                    .flatMapSequential(allocation -> contextBudgetPlanner.fetch(allocation, request)))
                             .filter(content -> !content.isEmpty())
                             .collect(Collectors.joining("\n\n"))
                             .map(combinedContent -> {
@@ -1080,6 +1096,16 @@ public class UniversalAIServiceImpl implements UniversalAIService {
                 });
     }
 
+    /**
+     * 将上下文预算规划结果记录到请求元数据，构建 AIRequest 时写入 providerSpecific 以进入 LLM 追踪
+     */
+    private void recordContextBudget(UniversalAIRequestDto request, ContextBudgetPlanner.Plan plan) {
+        if (request.getMetadata() == null) {
+            request.setMetadata(new HashMap<>());
+        }
+        request.getMetadata().put(ContextBudgetPlanner.TRACE_KEY, plan.toTraceMap());
+    }
+
 
     /**
      * 🚀 获取内容类型的优先级
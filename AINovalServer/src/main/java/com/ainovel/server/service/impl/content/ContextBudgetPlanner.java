@@ -0,0 +1,540 @@
+package com.ainovel.server.service.impl.content;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.ainovel.server.repository.ModelPricingRepository;
+import com.ainovel.server.service.ai.tokenizer.TokenCounter;
+import com.ainovel.server.service.impl.content.providers.FullNovelTextProvider;
+import com.ainovel.server.web.dto.request.UniversalAIRequestDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 上下文预算规划器
+ *
+ * 根据目标模型的上下文窗口（ModelPricing.maxContextTokens）与预留输出长度计算上下文可用的 token 预算，
+ * 用各 ContentProvider 的 getEstimatedContentLength 预估每个上下文来源的大小，按预算优先级依次分配：
+ * - 放得下：完整获取
+ * - 放不下：完整小说文本优先改用全文摘要，其他来源按剩余预算截断
+ * - 剩余预算过小：直接丢弃，不再获取
+ * - 预估失败或为 0：无法预先判断，获取后再计量，从剩余预算中认领
+ *
+ * 字符数到 token 的折算与获取后的计量都使用目标模型的 TokenCounter；获取到的内容超出分配时，
+ * 先从共享的剩余预算中补足，补不足的部分按 token 截断，规划结果因此不会被错误的预估突破。
+ *
+ * 规划结果会写入 LLM 追踪（providerSpecific.contextBudget），便于排查上下文被裁剪的原因。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ContextBudgetPlanner {
+
+    /**
+     * 追踪与请求元数据中记录规划结果使用的键
+     */
+    public static final String TRACE_KEY = "contextBudget";
+
+    /**
+     * 预估不可用时的占位值
+     */
+    private static final int UNKNOWN_TOKENS = -1;
+
+    /**
+     * 估算字符数与 token 折算比例时使用的样本：中文叙述、对话与少量英文混排
+     */
+    private static final String CALIBRATION_SAMPLE =
+            "夜色渐深，城门外的风卷着细雪扑在他的脸上。他握紧剑柄，低声说道：“今晚必须赶到渡口，否则就来不及了。”"
+            + "她没有回答，只是把斗篷又裹紧了些，沿着结冰的河岸向北走去。远处传来几声犬吠，灯火在雾里明明灭灭。"
+            + "Chapter 3: The old map showed a path through the valley, but nobody had used it for years.";
+
+    private static final String TYPE_FULL_NOVEL_TEXT = "full_novel_text";
+    private static final String TYPE_FULL_NOVEL_SUMMARY = "full_novel_summary";
+
+    private static final String TRUNCATION_NOTICE = "\n[以下内容超出上下文预算，已省略]";
+
+    /**
+     * 预算分配优先级（数字越小越先分配）：与当前写作位置越相关、体积越小的来源越优先，
+     * 完整小说文本体积最大，放在最后并可退化为摘要
+     */
+    private static final Map<String, Integer> BUDGET_PRIORITY = Map.ofEntries(
+            Map.entry("scene", 1),
+            Map.entry("scenes", 1),
+            Map.entry("chapter", 2),
+            Map.entry("chapters", 2),
+            Map.entry("character", 3),
+            Map.entry("location", 3),
+            Map.entry("item", 3),
+            Map.entry("lore", 3),
+            Map.entry("setting_group", 3),
+            Map.entry("setting_groups", 3),
+            Map.entry("settings", 3),
+            Map.entry("settings_by_type", 3),
+            Map.entry("snippet", 4),
+            Map.entry("snippets", 4),
+            Map.entry("act", 5),
+            Map.entry("acts", 5),
+            Map.entry(TYPE_FULL_NOVEL_SUMMARY, 6),
+            Map.entry("full_outline", 6),
+            Map.entry(TYPE_FULL_NOVEL_TEXT, 7));
+
+    private static final int DEFAULT_BUDGET_PRIORITY = 8;
+
+    private final ContentProviderFactory contentProviderFactory;
+    private final ModelPricingRepository modelPricingRepository;
+    private final TokenCounter tokenCounter;
+
+    /** key=分词引擎名 -> 每个字符折算的 token 数 */
+    private final Map<String, Double> tokensPerCharByEngine = new ConcurrentHashMap<>();
+
+    /** key=provider:modelId -> 上下文窗口 token 数（0 表示未知） */
+    private final Cache<String, Integer> contextWindowCache = Caffeine.newBuilder()
+            .maximumSize(1_000)
+            .expireAfterWrite(Duration.ofMinutes(30))
+            .build();
+
+    @Value("${ainovel.performance.context-budget.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ainovel.performance.context-budget.default-context-tokens:32000}")
+    private int defaultContextTokens;
+
+    @Value("${ainovel.performance.context-budget.max-context-ratio:0.75}")
+    private double maxContextRatio;
+
+    @Value("${ainovel.performance.context-budget.reserved-output-tokens:4096}")
+    private int reservedOutputTokens;
+
+    @Value("${ainovel.performance.context-budget.prompt-overhead-tokens:1500}")
+    private int promptOverheadTokens;
+
+    @Value("${ainovel.performance.context-budget.min-truncated-tokens:400}")
+    private int minTruncatedTokens;
+
+    /**
+     * 分配结果
+     */
+    public enum Decision {
+        /** 完整获取 */
+        FULL,
+        /** 按预算截断 */
+        TRUNCATED,
+        /** 改用摘要 */
+        SUMMARY,
+        /** 超出预算，不获取 */
+        DROPPED,
+        /** 预估不可用，获取后按实际 token 数从剩余预算中认领，放不下时截断或丢弃 */
+        MEASURE
+    }
+
+    /**
+     * 一次规划内共享的剩余预算：获取后的内容超出分配或需要计量时从这里认领，用不完的分配退回这里
+     */
+    public static final class SharedBudget {
+
+        private final String model;
+        private final AtomicInteger remaining;
+
+        SharedBudget(String model, int remaining) {
+            this.model = model;
+            this.remaining = new AtomicInteger(Math.max(0, remaining));
+        }
+
+        public String model() {
+            return model;
+        }
+
+        public int remaining() {
+            return remaining.get();
+        }
+
+        /**
+         * 认领至多 wanted 个 token，返回实际认领到的数量
+         */
+        int claim(int wanted) {
+            if (wanted <= 0) {
+                return 0;
+            }
+            while (true) {
+                int current = remaining.get();
+                int granted = Math.min(current, wanted);
+                if (granted <= 0 || remaining.compareAndSet(current, current - granted)) {
+                    return Math.max(0, granted);
+                }
+            }
+        }
+
+        void release(int tokens) {
+            if (tokens > 0) {
+                remaining.addAndGet(tokens);
+            }
+        }
+    }
+
+    /**
+     * 待规划的上下文来源
+     *
+     * @param type 内容提供器类型（小写）
+     * @param id   上下文ID（已去除 flat_ 前缀）
+     */
+    public record Source(String type, String id) {
+    }
+
+    /**
+     * 单个来源的分配结果
+     *
+     * @param estimatedTokens 来源完整内容的预估 token 数，-1 表示预估不可用
+     * @param allocatedTokens 分配到的 token 数
+     * @param budget          所属规划的共享剩余预算，为 null 时（未启用规划）获取后不做计量
+     */
+    public record Allocation(Source source, Decision decision, int estimatedTokens, int allocatedTokens,
+                             SharedBudget budget) {
+
+        public Allocation(Source source, Decision decision, int estimatedTokens, int allocatedTokens) {
+            this(source, decision, estimatedTokens, allocatedTokens, null);
+        }
+    }
+
+    /**
+     * 规划结果，allocations 与传入来源的顺序一致
+     */
+    public record Plan(String model, int contextWindowTokens, int budgetTokens, int plannedTokens,
+                       List<Allocation> allocations) {
+
+        public Map<String, Object> toTraceMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("model", model);
+            map.put("contextWindowTokens", contextWindowTokens);
+            map.put("budgetTokens", budgetTokens);
+            map.put("plannedTokens", plannedTokens);
+            List<Map<String, Object>> items = new ArrayList<>(allocations.size());
+            for (Allocation allocation : allocations) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("type", allocation.source().type());
+                item.put("id", allocation.source().id());
+                item.put("decision", allocation.decision().name());
+                item.put("estimatedTokens", allocation.estimatedTokens());
+                item.put("allocatedTokens", allocation.allocatedTokens());
+                items.add(item);
+            }
+            map.put("allocations", items);
+            return map;
+        }
+    }
+
+    private record Estimate(int index, Source source, int tokens, int summaryTokens) {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 为一组上下文来源规划 token 预算
+     */
+    public Mono<Plan> plan(UniversalAIRequestDto request, List<Source> sources) {
+        String provider = metadataString(request, "modelProvider");
+        String model = metadataString(request, "modelName");
+        Mono<Integer> windowMono = resolveContextWindow(provider, model);
+
+        Mono<List<Estimate>> estimatesMono = Flux.range(0, sources.size())
+                .flatMap(i -> estimate(i, sources.get(i), request))
+                .collectList();
+
+        return Mono.zip(windowMono, estimatesMono)
+                .map(tuple -> allocate(model, tuple.getT1(), computeBudget(request, model, tuple.getT1()), tuple.getT2()))
+                .doOnNext(plan -> log.info("上下文预算规划: model={}, window={}, budget={}, planned={}, 决策={}",
+                        plan.model(), plan.contextWindowTokens(), plan.budgetTokens(), plan.plannedTokens(),
+                        plan.allocations().stream()
+                                .map(a -> a.source().type() + ":" + a.decision())
+                                .toList()));
+    }
+
+    /**
+     * 按分配结果获取内容；DROPPED 的来源返回空字符串。
+     * 获取到的内容会按模型实际计量，超出分配且剩余预算补不足时按 token 截断或丢弃
+     */
+    public Mono<String> fetch(Allocation allocation, UniversalAIRequestDto request) {
+        Source source = allocation.source();
+        Mono<String> content = switch (allocation.decision()) {
+            case DROPPED -> Mono.just("");
+            case FULL, MEASURE -> fetchContent(source.type(), source.id(), request);
+            case SUMMARY -> fetchContent(TYPE_FULL_NOVEL_SUMMARY, source.id(), request);
+            case TRUNCATED -> fetchTruncated(allocation, request);
+        };
+        if (allocation.budget() == null || allocation.decision() == Decision.DROPPED) {
+            return content;
+        }
+        return content.map(text -> fitToBudget(text, allocation));
+    }
+
+    // ==================== 规划 ====================
+
+    private int computeBudget(UniversalAIRequestDto request, String model, int contextWindow) {
+        int outputTokens = reservedOutputTokens;
+        if (request.getParameters() != null && request.getParameters().get("maxTokens") instanceof Number maxTokens
+                && maxTokens.intValue() > 0) {
+            outputTokens = maxTokens.intValue();
+        }
+        int directInputTokens = countTokens(request.getPrompt(), model)
+                + countTokens(request.getSelectedText(), model)
+                + countTokens(request.getInstructions(), model);
+
+        int byRatio = (int) (contextWindow * maxContextRatio);
+        int byRemaining = contextWindow - outputTokens - promptOverheadTokens - directInputTokens;
+        return Math.max(0, Math.min(byRatio, byRemaining));
+    }
+
+    private Plan allocate(String model, int contextWindow, int budget, List<Estimate> estimates) {
+        List<Estimate> byPriority = new ArrayList<>(estimates);
+        byPriority.sort(Comparator
+                .comparingInt((Estimate e) -> BUDGET_PRIORITY.getOrDefault(e.source().type(), DEFAULT_BUDGET_PRIORITY))
+                .thenComparingInt(Estimate::index));
+
+        // 预估可用的来源先按优先级分配，剩余部分作为共享预算，供获取后计量的来源认领
+        int reserved = 0;
+        Decision[] decisions = new Decision[estimates.size()];
+        int[] allocatedTokens = new int[estimates.size()];
+        for (Estimate estimate : byPriority) {
+            int remaining = budget - reserved;
+            Decision decision;
+            int allocated;
+            if (estimate.tokens() == UNKNOWN_TOKENS) {
+                decision = Decision.MEASURE;
+                allocated = 0;
+            } else if (estimate.tokens() <= remaining) {
+                decision = Decision.FULL;
+                allocated = estimate.tokens();
+            } else if (estimate.summaryTokens() > 0 && estimate.summaryTokens() <= remaining) {
+                decision = Decision.SUMMARY;
+                allocated = estimate.summaryTokens();
+            } else if (remaining >= minTruncatedTokens) {
+                decision = Decision.TRUNCATED;
+                allocated = remaining;
+            } else {
+                decision = Decision.DROPPED;
+                allocated = 0;
+            }
+            reserved += allocated;
+            decisions[estimate.index()] = decision;
+            allocatedTokens[estimate.index()] = allocated;
+        }
+
+        SharedBudget sharedBudget = new SharedBudget(model, budget - reserved);
+        Allocation[] allocations = new Allocation[estimates.size()];
+        for (Estimate estimate : estimates) {
+            allocations[estimate.index()] = new Allocation(estimate.source(), decisions[estimate.index()],
+                    estimate.tokens(), allocatedTokens[estimate.index()], sharedBudget);
+        }
+        return new Plan(model, contextWindow, budget, reserved, List.of(allocations));
+    }
+
+    private Mono<Estimate> estimate(int index, Source source, UniversalAIRequestDto request) {
+        String model = metadataString(request, "modelName");
+        Mono<Integer> tokens = estimateTokens(source.type(), source.id(), request, model);
+        // 完整小说文本放不下时可退化为全文摘要，预先估算摘要大小
+        Mono<Integer> summaryTokens = TYPE_FULL_NOVEL_TEXT.equals(source.type())
+                ? estimateTokens(TYPE_FULL_NOVEL_SUMMARY, source.id(), request, model)
+                        .map(summary -> Math.max(0, summary))
+                : Mono.just(0);
+        return Mono.zip(tokens, summaryTokens)
+                .map(tuple -> new Estimate(index, source, tuple.getT1(), tuple.getT2()));
+    }
+
+    /**
+     * 预估来源的 token 数；提供器缺失、预估失败或返回 0 时返回 {@link #UNKNOWN_TOKENS}
+     */
+    private Mono<Integer> estimateTokens(String type, String id, UniversalAIRequestDto request, String model) {
+        Optional<ContentProvider> provider = contentProviderFactory.getProvider(type);
+        if (provider.isEmpty()) {
+            return Mono.just(UNKNOWN_TOKENS);
+        }
+        Map<String, Object> contextParameters = new HashMap<>();
+        contextParameters.put("userId", request.getUserId());
+        contextParameters.put("novelId", request.getNovelId());
+        contextParameters.put("contextId", id);
+        String rawId = extractIdFromContextId(id);
+        switch (type) {
+            case "scene", "scenes" -> contextParameters.put("sceneId", rawId);
+            case "chapter", "chapters" -> contextParameters.put("chapterId", rawId);
+            case "act", "acts" -> contextParameters.put("actId", rawId);
+            case "character", "location", "item", "lore", "settings" -> contextParameters.put("settingId", rawId);
+            case "setting_group", "setting_groups" -> contextParameters.put("settingGroupId", rawId);
+            case "settings_by_type" -> contextParameters.put("settingType",
+                    id != null && id.startsWith("type_") ? id.substring("type_".length()) : rawId);
+            case "snippet", "snippets" -> contextParameters.put("snippetId", rawId);
+            default -> {
+                // full_outline / full_novel_summary 等按小说获取的来源由提供器从 contextId 中解析小说ID
+            }
+        }
+        return provider.get().getEstimatedContentLength(contextParameters)
+                .map(chars -> chars != null && chars > 0
+                        ? (int) Math.ceil(chars * tokensPerChar(model))
+                        : UNKNOWN_TOKENS)
+                .defaultIfEmpty(UNKNOWN_TOKENS)
+                .onErrorResume(error -> {
+                    log.warn("预估上下文长度失败，改为获取后计量: type={}, id={}, error={}", type, id, error.getMessage());
+                    return Mono.just(UNKNOWN_TOKENS);
+                });
+    }
+
+    /**
+     * 目标模型下每个字符折算的 token 数，按分词引擎对样本文本计量一次后缓存
+     */
+    private double tokensPerChar(String model) {
+        String engine = tokenCounter.resolveEngine(model).getName();
+        return tokensPerCharByEngine.computeIfAbsent(engine, key ->
+                (double) tokenCounter.countTokens(CALIBRATION_SAMPLE, model) / CALIBRATION_SAMPLE.length());
+    }
+
+    /**
+     * 解析模型上下文窗口：按 provider + modelId 查询定价信息中的 maxContextTokens，查不到时使用默认值
+     */
+    private Mono<Integer> resolveContextWindow(String provider, String model) {
+        if (provider == null || model == null) {
+            return Mono.just(defaultContextTokens);
+        }
+        String cacheKey = provider + ":" + model;
+        Integer cached = contextWindowCache.getIfPresent(cacheKey);
+        if (cached != null) {
+            return Mono.just(cached > 0 ? cached : defaultContextTokens);
+        }
+        return modelPricingRepository.findByProviderAndModelIdAndActiveTrue(provider, model)
+                .map(pricing -> pricing.getMaxContextTokens() != null ? pricing.getMaxContextTokens() : 0)
+                .defaultIfEmpty(0)
+                .onErrorReturn(0)
+                .doOnNext(window -> contextWindowCache.put(cacheKey, window))
+                .map(window -> window > 0 ? window : defaultContextTokens);
+    }
+
+    // ==================== 获取 ====================
+
+    private Mono<String> fetchContent(String type, String id, UniversalAIRequestDto request) {
+        Optional<ContentProvider> provider = contentProviderFactory.getProvider(type);
+        if (provider.isEmpty()) {
+            log.warn("未找到类型为 {} 的内容提供器", type);
+            return Mono.just("");
+        }
+        return provider.get().getContent(id, request)
+                .map(ContentResult::getContent)
+                .filter(content -> content != null && !content.trim().isEmpty())
+                .doOnNext(content -> log.info("成功获取内容: type={}, id={}, length={}", type, id, content.length()))
+                .defaultIfEmpty("")
+                .onErrorResume(error -> {
+                    log.error("获取{}内容失败: id={}, error={}", type, id, error.getMessage(), error);
+                    return Mono.just("");
+                });
+    }
+
+    private Mono<String> fetchTruncated(Allocation allocation, UniversalAIRequestDto request) {
+        Source source = allocation.source();
+        if (TYPE_FULL_NOVEL_TEXT.equals(source.type())) {
+            // 完整小说文本支持带预算的流式渲染，超出部分不会被读取；按字符折算后仍会在 fitToBudget 中按 token 校正
+            Optional<ContentProvider> provider = contentProviderFactory.getProvider(TYPE_FULL_NOVEL_TEXT);
+            if (provider.isPresent()) {
+                String model = allocation.budget() != null ? allocation.budget().model() : null;
+                int maxChars = (int) (allocation.allocatedTokens() / tokensPerChar(model));
+                return provider.get()
+                        .getContentForPlaceholder(request.getUserId(), request.getNovelId(), source.id(),
+                                Map.of(FullNovelTextProvider.PARAM_MAX_CHARS, maxChars))
+                        .defaultIfEmpty("")
+                        .onErrorReturn("");
+            }
+        }
+        return fetchContent(source.type(), source.id(), request);
+    }
+
+    /**
+     * 按目标模型计量获取到的内容：
+     * - 未用完的分配退回共享预算
+     * - 超出分配时先从共享预算补足，仍放不下则按 token 截断
+     * - 计量来源认领到的预算低于最小截断阈值时丢弃
+     */
+    private String fitToBudget(String content, Allocation allocation) {
+        if (content.isEmpty()) {
+            allocation.budget().release(allocation.allocatedTokens());
+            return content;
+        }
+        SharedBudget budget = allocation.budget();
+        int measured = countTokens(content, budget.model());
+        int allowed = allocation.allocatedTokens();
+        if (measured <= allowed) {
+            budget.release(allowed - measured);
+            return content;
+        }
+        allowed += budget.claim(measured - allowed);
+        if (measured <= allowed) {
+            return content;
+        }
+        if (allowed < minTruncatedTokens) {
+            budget.release(allowed);
+            log.info("上下文超出预算，已丢弃: type={}, id={}, measured={}, available={}",
+                    allocation.source().type(), allocation.source().id(), measured, allowed);
+            return "";
+        }
+        log.info("上下文超出预算，按 token 截断: type={}, id={}, measured={}, allowed={}",
+                allocation.source().type(), allocation.source().id(), measured, allowed);
+        return truncateToTokens(content, measured, allowed, budget.model());
+    }
+
+    /**
+     * 按 token 截断：先按比例估算截断位置，再逐步收缩直到计量结果不超过上限
+     */
+    private String truncateToTokens(String content, int measured, int maxTokens, String model) {
+        int limit = Math.max(0, maxTokens - countTokens(TRUNCATION_NOTICE, model));
+        int end = (int) ((long) content.length() * limit / measured);
+        while (end > 0) {
+            if (Character.isHighSurrogate(content.charAt(end - 1))) {
+                end--;
+                continue;
+            }
+            int tokens = countTokens(content.substring(0, end), model);
+            if (tokens <= limit) {
+                break;
+            }
+            end = Math.min(end - 1, (int) ((long) end * limit / tokens));
+        }
+        return content.substring(0, Math.max(0, end)) + TRUNCATION_NOTICE;
+    }
+
+    // ==================== 工具 ====================
+
+    private static String metadataString(UniversalAIRequestDto request, String key) {
+        if (request.getMetadata() == null) {
+            return null;
+        }
+        Object value = request.getMetadata().get(key);
+        return value instanceof String s && !s.isBlank() ? s : null;
+    }
+
+    private int countTokens(String text, String model) {
+        return text != null ? tokenCounter.countTokens(text.trim(), model) : 0;
+    }
+
+    private static String extractIdFromContextId(String contextId) {
+        if (contextId == null || contextId.isEmpty()) {
+            return null;
+        }
+        int underscoreIndex = contextId.indexOf('_');
+        if (underscoreIndex >= 0 && underscoreIndex + 1 < contextId.length()) {
+            return contextId.substring(underscoreIndex + 1);
+        }
+        return contextId;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ainovel.server.service.impl.content;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveBulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveBeforeConvertCallback;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.ainovel.server.common.util.ScenePlainTextUtil;
+import com.ainovel.server.domain.model.Scene;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 维护场景正文的纯文本投影（plainText / plainTextLength / plainTextSourceHash）。
+ *
+ * - 所有经由 save/insert 写入的场景在转换为文档前刷新投影，正文未变化时不重复转换
+ * - 绕过回调的 upsert 写入方需自行调用 {@link ScenePlainTextUtil#refresh}
+ * - 已有数据由 {@link #backfill()} 按正文指纹补齐；补齐之前读取方按需实时转换，结果一致
+ * - 旧版本以数值保存的指纹或与正文不符的指纹视为过期，同样由补齐任务重新生成
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ScenePlainTextProjection implements ReactiveBeforeConvertCallback<Scene> {
+
+    private static final int BACKFILL_BATCH_SIZE = 200;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Override
+    public Publisher<Scene> onBeforeConvert(Scene scene, String collection) {
+        return Mono.just(ScenePlainTextUtil.refresh(scene));
+    }
+
+    /**
+     * 为投影缺失或与正文不一致的场景补齐纯文本投影。
+     * 逐个场景比对正文指纹，只转换指纹缺失、不是字符串或与当前正文不符的场景；
+     * 更新时以读到的旧指纹为条件，期间被用户保存过的场景（已由写入路径生成投影）不会被覆盖。
+     *
+     * @return 补齐的场景数
+     */
+    public Mono<Long> backfill() {
+        Query query = new Query();
+        query.fields().include("_id").include("content").include("plainTextLength").include("plainTextSourceHash");
+        return mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(Scene.class))
+                .publishOn(Schedulers.boundedElastic())
+                .filter(ScenePlainTextProjection::isStale)
+                .buffer(BACKFILL_BATCH_SIZE)
+                .concatMap(batch -> {
+                    ReactiveBulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Scene.class);
+                    batch.forEach(document -> {
+                        Scene scene = new Scene();
+                        scene.setContent(document.getString("content"));
+                        ScenePlainTextUtil.refresh(scene);
+                        bulk.updateOne(
+                                new Query(Criteria.where("_id").is(document.get("_id"))
+                                        .and("plainTextSourceHash").is(document.get("plainTextSourceHash"))),
+                                new Update()
+                                        .set("plainText", scene.getPlainText())
+                                        .set("plainTextLength", scene.getPlainTextLength())
+                                        .set("plainTextSourceHash", scene.getPlainTextSourceHash()));
+                    });
+                    return bulk.execute().map(result -> (long) result.getModifiedCount());
+                })
+                .reduce(0L, Long::sum)
+                .doOnSuccess(count -> log.info("场景纯文本投影补齐完成，更新场景数: {}", count));
+    }
+
+    /**
+     * 指纹不存在、不是字符串（旧版本的数值指纹）、与当前正文不符，或缺少长度
+     */
+    static boolean isStale(Document document) {
+        Object hash = document.get("plainTextSourceHash");
+        return !(hash instanceof String)
+                || document.get("plainTextLength") == null
+                || !hash.equals(ScenePlainTextUtil.sourceHashOf(document.getString("content")));
+    }
+}
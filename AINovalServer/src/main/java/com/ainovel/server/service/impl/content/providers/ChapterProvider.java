@@ -6,8 +6,7 @@ import com.ainovel.server.web.dto.request.UniversalAIRequestDto;
 import com.ainovel.server.service.SceneService;
 import com.ainovel.server.service.NovelService;
 import com.ainovel.server.common.util.PromptXmlFormatter;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ainovel.server.common.util.ScenePlainTextUtil;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -70,36 +69,8 @@ public class ChapterProvider implements ContentProvider {
         
         // 获取该章节下所有场景的内容长度总和
         return sceneService.findSceneByChapterIdOrdered(normalizedChapterId)
-                .map(scene -> {
-                    String content = scene.getContent();
-                    if (content == null || content.isEmpty()) {
-                        return 0;
-                    }
-                    
-                    // 对于Quill Delta格式，解析JSON并提取纯文本长度
-                    if (content.startsWith("{\"ops\":")) {
-                        try {
-                            ObjectMapper mapper = new ObjectMapper();
-                            JsonNode root = mapper.readTree(content);
-                            JsonNode ops = root.get("ops");
-                            int length = 0;
-                            if (ops != null && ops.isArray()) {
-                                for (JsonNode op : ops) {
-                                    if (op.has("insert")) {
-                                        length += op.get("insert").asText().length();
-                                    }
-                                }
-                            }
-                            return length;
-                        } catch (Exception e) {
-                            log.warn("解析场景Quill Delta格式失败，使用原始长度: sceneId={}, error={}", scene.getId(), e.getMessage());
-                            return content.length(); // 解析失败则返回原始长度
-                        }
-                    }
-                    
-                    // 非Quill Delta格式，直接返回字符串长度
-                    return content.length();
-                })
+                // 使用场景写入时生成的纯文本长度，无需解析 Quill Delta
+                .map(ScenePlainTextUtil::plainTextLengthOf)
                 .reduce(0, Integer::sum) // 累加所有场景的长度
                 .doOnNext(totalLength -> log.debug("章节总内容长度: chapterId={}, totalLength={}", chapterId, totalLength))
                 .onErrorResume(error -> {
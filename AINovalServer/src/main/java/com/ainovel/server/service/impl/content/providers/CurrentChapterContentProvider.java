@@ -6,8 +6,7 @@ import com.ainovel.server.web.dto.request.UniversalAIRequestDto;
 import com.ainovel.server.service.SceneService;
 import com.ainovel.server.service.NovelService;
 import com.ainovel.server.common.util.PromptXmlFormatter;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ainovel.server.common.util.ScenePlainTextUtil;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -71,7 +70,7 @@ public class CurrentChapterContentProvider implements ContentProvider {
         // 统计该章节下所有场景的内容长度
         String normalizedChapterId = normalizeChapterIdForQuery(chapterId);
         return sceneService.findSceneByChapterIdOrdered(normalizedChapterId)
-                .map(scene -> estimateSceneContentLength(scene.getContent(), scene.getId()))
+                .map(ScenePlainTextUtil::plainTextLengthOf)
                 .reduce(0, Integer::sum)
                 .onErrorResume(error -> {
                     log.error("获取当前章节内容长度失败: chapterId={}, error={}", chapterId, error.getMessage());
@@ -112,32 +111,6 @@ public class CurrentChapterContentProvider implements ContentProvider {
                 .onErrorReturn(1);
     }
 
-    private int estimateSceneContentLength(String content, String sceneId) {
-        if (content == null || content.isEmpty()) {
-            return 0;
-        }
-        if (content.startsWith("{\"ops\":")) {
-            try {
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode root = mapper.readTree(content);
-                JsonNode ops = root.get("ops");
-                int length = 0;
-                if (ops != null && ops.isArray()) {
-                    for (JsonNode op : ops) {
-                        if (op.has("insert")) {
-                            length += op.get("insert").asText().length();
-                        }
-                    }
-                }
-                return length;
-            } catch (Exception e) {
-                log.warn("解析Quill Delta失败，使用原始长度: sceneId={}", sceneId);
-                return content.length();
-            }
-        }
-        return content.length();
-    }
-
     private String normalizeChapterIdForQuery(String chapterId) {
         if (chapterId == null || chapterId.isEmpty()) {
             return chapterId;
@@ -6,6 +6,7 @@ import com.ainovel.server.web.dto.request.UniversalAIRequestDto;
 import com.ainovel.server.service.SceneService;
 import com.ainovel.server.service.NovelService;
 import com.ainovel.server.common.util.RichTextUtil;
+import com.ainovel.server.common.util.ScenePlainTextUtil;
 import com.ainovel.server.domain.model.Scene;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -119,7 +120,7 @@ public class CurrentChapterSummariesProvider implements ContentProvider {
         // 回退到内容字段，转换为纯文本后截断
         String content = scene.getContent();
         if (content == null || content.isEmpty()) return "";
-        String plain = RichTextUtil.deltaJsonToPlainText(content);
+        String plain = ScenePlainTextUtil.plainTextOf(scene);
         if (plain.length() > 150) return plain.substring(0, 150) + "...";
         return plain;
     }
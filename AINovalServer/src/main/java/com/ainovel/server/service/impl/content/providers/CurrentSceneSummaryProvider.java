@@ -6,6 +6,7 @@ import com.ainovel.server.web.dto.request.UniversalAIRequestDto;
 import com.ainovel.server.service.SceneService;
 import com.ainovel.server.domain.model.Scene;
 import com.ainovel.server.common.util.RichTextUtil;
+import com.ainovel.server.common.util.ScenePlainTextUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
@@ -77,7 +78,7 @@ public class CurrentSceneSummaryProvider implements ContentProvider {
         }
         String content = scene.getContent();
         if (content == null || content.isEmpty()) return "";
-        String plain = RichTextUtil.deltaJsonToPlainText(content);
+        String plain = ScenePlainTextUtil.plainTextOf(scene);
         if (plain.length() > 150) return plain.substring(0, 150) + "...";
         return plain;
     }
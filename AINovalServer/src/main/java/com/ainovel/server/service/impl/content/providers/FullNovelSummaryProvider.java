@@ -62,7 +62,11 @@ public class FullNovelSummaryProvider implements ContentProvider {
 
     @Override
     public Mono<Integer> getEstimatedContentLength(java.util.Map<String, Object> contextParameters) {
-        String novelId = (String) contextParameters.get("novelId");
+        // 与 getContent 一致：优先使用上下文ID中的小说ID
+        String novelId = extractNovelIdFromContextId((String) contextParameters.get("contextId"));
+        if (novelId == null || novelId.isEmpty()) {
+            novelId = (String) contextParameters.get("novelId");
+        }
         
         if (novelId == null || novelId.isBlank()) {
             return Mono.just(0);
@@ -6,12 +6,10 @@ import com.ainovel.server.web.dto.request.UniversalAIRequestDto;
 import com.ainovel.server.service.NovelService;
 import com.ainovel.server.common.util.PromptXmlFormatter;
 import com.ainovel.server.common.util.ChapterOrderUtil;
-import com.ainovel.server.common.util.RichTextUtil;
-import com.ainovel.server.domain.model.Scene;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ainovel.server.common.util.ScenePlainTextUtil;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 import lombok.extern.slf4j.Slf4j;
@@ -27,12 +25,24 @@ public class FullNovelTextProvider implements ContentProvider {
 
     private static final String TYPE_FULL_NOVEL_TEXT = "full_novel_text";
 
+    /**
+     * 占位符参数：完整小说文本的字符预算。
+     * 与 maxTokens（模型输出上限）无关，未指定时使用 full-novel-text.max-chars 配置
+     */
+    public static final String PARAM_MAX_CHARS = "fullNovelMaxChars";
+
     @Autowired
     private NovelService novelService;
 
     @Autowired
     private PromptXmlFormatter promptXmlFormatter;
 
+    @Value("${ainovel.performance.full-novel-text.max-chars:0}")
+    private int defaultMaxChars;
+
+    @Value("${ainovel.performance.full-novel-text.chapter-batch-size:20}")
+    private int chapterBatchSize;
+
     @Override
     public Mono<ContentResult> getContent(String id, UniversalAIRequestDto request) {
         // 从上下文选择ID中提取小说ID，而不是使用request.getNovelId()
@@ -60,7 +70,7 @@ public class FullNovelTextProvider implements ContentProvider {
                                                  java.util.Map<String, Object> parameters) {
         log.debug("获取完整小说文本用于占位符: userId={}, novelId={}", userId, novelId);
         
-        return getFullNovelTextContent(novelId)
+        return getFullNovelTextContent(novelId, resolveMaxChars(parameters))
                 .onErrorReturn("[完整小说文本获取失败]");
     }
 
@@ -76,36 +86,8 @@ public class FullNovelTextProvider implements ContentProvider {
         
         // 获取整个小说的所有场景内容长度
         return novelService.findScenesByNovelIdInOrder(novelId)
-                .map(scene -> {
-                    String content = scene.getContent();
-                    if (content == null || content.isEmpty()) {
-                        return 0;
-                    }
-                    
-                    // 对于Quill Delta格式，解析JSON并提取纯文本长度
-                    if (content.startsWith("{\"ops\":")) {
-                        try {
-                            ObjectMapper mapper = new ObjectMapper();
-                            JsonNode root = mapper.readTree(content);
-                            JsonNode ops = root.get("ops");
-                            int length = 0;
-                            if (ops != null && ops.isArray()) {
-                                for (JsonNode op : ops) {
-                                    if (op.has("insert")) {
-                                        length += op.get("insert").asText().length();
-                                    }
-                                }
-                            }
-                            return length;
-                        } catch (Exception e) {
-                            log.warn("解析场景Quill Delta格式失败，使用原始长度: sceneId={}, error={}", scene.getId(), e.getMessage());
-                            return content.length(); // 解析失败则返回原始长度
-                        }
-                    }
-                    
-                    // 非Quill Delta格式，直接返回字符串长度
-                    return content.length();
-                })
+                // 使用场景写入时生成的纯文本长度，无需解析 Quill Delta
+                .map(ScenePlainTextUtil::plainTextLengthOf)
                 .reduce(0, Integer::sum) // 累加所有场景的长度
                 .doOnNext(totalLength -> log.debug("完整小说总内容长度: novelId={}, totalLength={}", novelId, totalLength))
                 .onErrorResume(error -> {
@@ -115,46 +97,67 @@ public class FullNovelTextProvider implements ContentProvider {
     }
 
     /**
-     * 获取完整小说文本内容
+     * 获取完整小说文本内容（使用配置的默认长度预算）
      */
     private Mono<String> getFullNovelTextContent(String novelId) {
+        return getFullNovelTextContent(novelId, defaultMaxChars);
+    }
+
+    /**
+     * 获取完整小说文本内容
+     * 场景按章节批次从数据库读出后直接流式写入XML，达到字符预算即截断并停止读取后续章节
+     *
+     * @param maxChars 字符预算，<=0 表示不限制
+     */
+    private Mono<String> getFullNovelTextContent(String novelId, int maxChars) {
         return novelService.findNovelById(novelId)
                 .flatMap(novel -> {
-                    log.info("获取完整小说文本 - 小说ID: {}, 标题: {}", novelId, novel.getTitle());
-                    // 获取所有场景，按章节和序号排序
-                    return novelService.findScenesByNovelIdInOrder(novelId)
-                            .filter(scene -> scene.getContent() != null && !RichTextUtil.deltaJsonToPlainText(scene.getContent()).trim().isEmpty())
-                            .collectList()
-                            .map(scenes -> {
-                                log.info("获取到场景数量: {}", scenes.size());
-                                for (Scene scene : scenes) {
-                                    log.debug("场景详情 - ID: {}, 标题: {}, 章节ID: {}, 内容长度: {}", 
-                                             scene.getId(), scene.getTitle(), scene.getChapterId(), 
-                                             scene.getContent() != null ? scene.getContent().length() : 0);
-                                }
-                                
-                                // 使用章节顺序映射生成XML（对齐 ChapterOrderUtil 的序号规则）
-                                java.util.Map<String, Integer> chapterOrderMap = ChapterOrderUtil.buildChapterOrderMap(novel);
-                                // 默认隐藏UUID（仅保留序号）
-                                boolean includeIds = false;
-
-                                String result = promptXmlFormatter.formatFullNovelTextUsingChapterOrderMap(
-                                        novel.getTitle(),
-                                        novel.getDescription(),
-                                        scenes,
-                                        chapterOrderMap,
-                                        includeIds
-                                );
-                                log.info("格式化完整小说文本完成，结果长度: {}", result.length());
-                                if (result.length() > 0) {
-                                    log.debug("格式化结果预览: {}", result.length() > 500 ? result.substring(0, 500) + "..." : result);
-                                }
-                                return result;
-                            });
+                    log.info("获取完整小说文本 - 小说ID: {}, 标题: {}, 字符预算: {}", novelId, novel.getTitle(), maxChars);
+                    // 使用章节顺序映射生成XML（对齐 ChapterOrderUtil 的序号规则）
+                    java.util.Map<String, Integer> chapterOrderMap = ChapterOrderUtil.buildChapterOrderMap(novel);
+                    // 默认隐藏UUID（仅保留序号）
+                    boolean includeIds = false;
+
+                    return promptXmlFormatter.renderFullNovelText(
+                            novel.getTitle(),
+                            novel.getDescription(),
+                            novelService.streamScenesInOrder(novel, chapterBatchSize),
+                            chapterOrderMap,
+                            includeIds,
+                            maxChars
+                    );
                 })
                 .onErrorReturn(promptXmlFormatter.formatFullNovelText("未知小说", "无法获取完整小说文本", List.of()));
     }
 
+    /**
+     * 解析占位符参数中的字符预算（{@link #PARAM_MAX_CHARS}），未指定时使用默认配置
+     */
+    private int resolveMaxChars(java.util.Map<String, Object> parameters) {
+        if (parameters != null) {
+            Integer maxChars = toPositiveInt(parameters.get(PARAM_MAX_CHARS));
+            if (maxChars != null) {
+                return maxChars;
+            }
+        }
+        return defaultMaxChars;
+    }
+
+    private static Integer toPositiveInt(Object value) {
+        if (value instanceof Number number) {
+            return number.intValue() > 0 ? number.intValue() : null;
+        }
+        if (value instanceof String text && !text.isBlank()) {
+            try {
+                int parsed = Integer.parseInt(text.trim());
+                return parsed > 0 ? parsed : null;
+            } catch (NumberFormatException ignored) {
+                return null;
+            }
+        }
+        return null;
+    }
+
     /**
      * 从完整小说上下文ID中提取小说ID
      */
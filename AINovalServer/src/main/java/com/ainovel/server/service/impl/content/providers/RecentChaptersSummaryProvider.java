@@ -17,6 +17,7 @@ import java.util.Map;
 import java.util.List;
  
 import com.ainovel.server.common.util.ChapterOrderUtil;
+import com.ainovel.server.common.util.ScenePlainTextUtil;
 
 /**
  * 前五章摘要提供器
@@ -246,7 +247,7 @@ public class RecentChaptersSummaryProvider implements ContentProvider {
         if (content == null || content.isEmpty()) {
             return "";
         }
-        String plain = com.ainovel.server.common.util.RichTextUtil.deltaJsonToPlainText(content);
+        String plain = ScenePlainTextUtil.plainTextOf(scene);
         if (plain.length() > 150) {
             return plain.substring(0, 150) + "...";
         }
@@ -5,8 +5,7 @@ import com.ainovel.server.service.impl.content.ContentResult;
 import com.ainovel.server.web.dto.request.UniversalAIRequestDto;
 import com.ainovel.server.service.SceneService;
 import com.ainovel.server.common.util.PromptXmlFormatter;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ainovel.server.common.util.ScenePlainTextUtil;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -67,37 +66,8 @@ public class SceneProvider implements ContentProvider {
         
         // 查询场景，仅获取content字段的长度
         return sceneService.findSceneById(sceneId)
-                .map(scene -> {
-                    String content = scene.getContent();
-                    if (content == null || content.isEmpty()) {
-                        return 0;
-                    }
-                    
-                    // 对于Quill Delta格式，解析JSON并提取纯文本长度
-                    if (content.startsWith("{\"ops\":")) {
-                        try {
-                            ObjectMapper mapper = new ObjectMapper();
-                            JsonNode root = mapper.readTree(content);
-                            JsonNode ops = root.get("ops");
-                            int length = 0;
-                            if (ops != null && ops.isArray()) {
-                                for (JsonNode op : ops) {
-                                    if (op.has("insert")) {
-                                        length += op.get("insert").asText().length();
-                                    }
-                                }
-                            }
-                            log.debug("解析Quill Delta格式，提取纯文本长度: {}", length);
-                            return length;
-                        } catch (Exception e) {
-                            log.warn("解析Quill Delta格式失败，使用原始长度: sceneId={}, error={}", sceneId, e.getMessage());
-                            return content.length(); // 解析失败则返回原始长度
-                        }
-                    }
-                    
-                    // 非Quill Delta格式，直接返回字符串长度
-                    return content.length();
-                })
+                // 使用场景写入时生成的纯文本长度，无需解析 Quill Delta
+                .map(ScenePlainTextUtil::plainTextLengthOf)
                 .defaultIfEmpty(0)
                 .doOnNext(length -> log.debug("场景内容长度: sceneId={}, length={}", sceneId, length))
                 .onErrorResume(error -> {
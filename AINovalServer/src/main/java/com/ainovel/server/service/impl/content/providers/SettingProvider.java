@@ -165,6 +165,21 @@ public class SettingProvider implements ContentProvider {
                     });
         }
         
+        // 按设定类型分组（settings_by_type）
+        String settingType = (String) contextParameters.get("settingType");
+        String novelId = (String) contextParameters.get("novelId");
+        if (settingType != null && !settingType.isBlank() && novelId != null && !novelId.isBlank()) {
+            log.debug("获取设定类型内容长度: novelId={}, settingType={}", novelId, settingType);
+
+            return novelSettingService.getNovelSettingItems(novelId, settingType, null, null, null, null, org.springframework.data.domain.Pageable.unpaged())
+                    .map(setting -> setting.getDescription() != null ? setting.getDescription().length() : 0)
+                    .reduce(0, Integer::sum)
+                    .onErrorResume(error -> {
+                        log.error("获取设定类型内容长度失败: novelId={}, settingType={}, error={}", novelId, settingType, error.getMessage());
+                        return Mono.just(0);
+                    });
+        }
+        
         // 如果没有相关参数，返回0
         log.debug("未找到设定相关参数，返回长度0");
         return Mono.just(0);
@@ -1,6 +1,8 @@
 package com.ainovel.server.service.prompt.impl;
 
+import com.ainovel.server.service.cache.NovelContentCache;
 import com.ainovel.server.service.impl.content.ContentProviderFactory;
+import com.ainovel.server.service.impl.content.providers.FullNovelTextProvider;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
@@ -8,6 +10,7 @@ import reactor.core.publisher.Mono;
 import jakarta.annotation.PreDestroy;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.concurrent.CompletableFuture;
@@ -36,7 +39,7 @@ import java.time.LocalDateTime;
  * 性能优化：
  * - 使用虚拟线程处理IO密集型占位符解析
  * - 并行处理多个占位符，避免串行等待
- * - 缓存解析结果，避免重复计算
+ * - 由小说结构/正文渲染出的结果写入 NovelContentCache（按大小淘汰、按小说内容版本失效），避免重复渲染
  * - 性能统计和监控
  */
 @Slf4j
@@ -45,6 +48,7 @@ import java.time.LocalDateTime;
 public class VirtualThreadPlaceholderResolver {
 
     private final ContentProviderFactory contentProviderFactory;
+    private final NovelContentCache contentCache;
     
     // 占位符匹配模式：{{type}} 或 {{type:id}}
     private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{\\{([^:}]+)(?::([^}]+))?\\}\\}");
@@ -52,8 +56,19 @@ public class VirtualThreadPlaceholderResolver {
     // 🚀 优化：使用专用的虚拟线程池执行器
     private static final ExecutorService VIRTUAL_EXECUTOR = createVirtualThreadExecutor();
     
-    // 解析结果缓存
-    private final Map<String, String> placeholderCache = new ConcurrentHashMap<>();
+    // 只缓存完全由场景/小说结构决定的类型：这些写入都会失效 NovelContentCache；设定、片段等不经过失效路径，不缓存
+    private static final Set<String> CACHEABLE_TYPES = Set.of(
+            "full_novel_text", "full_novel_summary", "full_outline", "novel_basic_info",
+            "recent_chapters_content", "recent_chapters_summary",
+            "current_chapter_content", "current_scene_content",
+            "current_chapter_summary", "current_scene_summary",
+            "previous_chapters_content", "previous_chapters_summary",
+            "act", "acts", "chapter", "chapters", "scene", "scenes");
+
+    // 影响 current_* / previous_* / recent_* 等提供器输出的上下文参数，以及 full_novel_text 的字符预算，需要进入缓存键
+    private static final List<String> CONTEXT_PARAMETER_KEYS = List.of(
+            "chapterId", "currentChapterId", "sceneId", "currentSceneId",
+            FullNovelTextProvider.PARAM_MAX_CHARS);
     
     // 性能统计
     private final AtomicLong totalResolveCount = new AtomicLong(0);
@@ -197,10 +212,11 @@ public class VirtualThreadPlaceholderResolver {
             String novelId, 
             Map<String, Object> parameters) {
 
-        String cacheKey = generateCacheKey(placeholder, userId, novelId);
+        // 在读取内容之前确定缓存键（含内容版本），渲染期间发生的写入只会让本次结果落到旧版本下
+        String cacheKey = generateCacheKey(placeholder, userId, novelId, parameters);
         
         // 检查缓存
-        String cached = placeholderCache.get(cacheKey);
+        String cached = cacheKey != null ? contentCache.get(cacheKey) : null;
         if (cached != null) {
             cacheHitCount.incrementAndGet();
             log.debug("使用缓存的占位符结果: {}", placeholder.getFullPlaceholder());
@@ -225,8 +241,8 @@ public class VirtualThreadPlaceholderResolver {
                     .block(); // 在虚拟线程中阻塞是安全的
 
             // 缓存结果
-            if (content != null && !content.startsWith("[") && !content.endsWith("]")) {
-                placeholderCache.put(cacheKey, content);
+            if (cacheKey != null && content != null && !content.startsWith("[") && !content.endsWith("]")) {
+                contentCache.put(cacheKey, content);
             }
             
             log.debug("成功解析占位符: {} -> {} 字符", placeholder.getFullPlaceholder(), 
@@ -281,14 +297,22 @@ public class VirtualThreadPlaceholderResolver {
     }
 
     /**
-     * 生成缓存键
+     * 生成缓存键：小说ID + 内容版本 + 占位符类型/ID + 用户 + 上下文参数
+     *
+     * @return 不可缓存的占位符返回null
      */
-    private String generateCacheKey(PlaceholderInfo placeholder, String userId, String novelId) {
-        return String.format("%s:%s:%s:%s", 
-                placeholder.getType(), 
-                placeholder.getId(), 
-                userId, 
-                novelId);
+    private String generateCacheKey(PlaceholderInfo placeholder, String userId, String novelId, Map<String, Object> parameters) {
+        if (novelId == null || novelId.isEmpty() || !CACHEABLE_TYPES.contains(placeholder.getType())) {
+            return null;
+        }
+        Object[] parts = new Object[3 + CONTEXT_PARAMETER_KEYS.size()];
+        parts[0] = placeholder.getType();
+        parts[1] = placeholder.getId();
+        parts[2] = userId;
+        for (int i = 0; i < CONTEXT_PARAMETER_KEYS.size(); i++) {
+            parts[3 + i] = parameters != null ? parameters.get(CONTEXT_PARAMETER_KEYS.get(i)) : null;
+        }
+        return contentCache.key(novelId, contentCache.currentVersion(novelId), parts);
     }
 
     /**
@@ -304,7 +328,7 @@ public class VirtualThreadPlaceholderResolver {
      * 清除缓存
      */
     public void clearCache() {
-        placeholderCache.clear();
+        contentCache.invalidateAll();
         log.info("占位符缓存已清除");
     }
 
@@ -321,7 +345,8 @@ public class VirtualThreadPlaceholderResolver {
             stats.parallelResolveCount = parallelResolveCount.get();
             stats.averageResolveTime = totalCount > 0 ? (double) totalTime / totalCount : 0.0;
             stats.cacheHitCount = cacheHitCount.get();
-            stats.cacheSize = placeholderCache.size();
+            stats.cacheSize = (int) contentCache.size();
+            stats.cacheWeightBytes = contentCache.weightedSize();
             stats.lastUpdateTime = LocalDateTime.now();
             
             return stats;
@@ -356,6 +381,7 @@ public class VirtualThreadPlaceholderResolver {
         private double averageResolveTime;
         private long cacheHitCount;
         private int cacheSize;
+        private long cacheWeightBytes;
         private LocalDateTime lastUpdateTime;
 
         // Getters
@@ -364,6 +390,7 @@ public class VirtualThreadPlaceholderResolver {
         public double getAverageResolveTime() { return averageResolveTime; }
         public long getCacheHitCount() { return cacheHitCount; }
         public int getCacheSize() { return cacheSize; }
+        public long getCacheWeightBytes() { return cacheWeightBytes; }
         public LocalDateTime getLastUpdateTime() { return lastUpdateTime; }
         
         public double getCacheHitRate() {
@@ -16,6 +16,7 @@ import org.springframework.stereotype.Component;
 
 import com.ainovel.server.domain.model.KnowledgeChunk;
 import com.ainovel.server.exception.VectorStoreException;
+import com.ainovel.server.service.vectorstore.MetadataFilters;
 
 import dev.langchain4j.data.document.Metadata;
 import dev.langchain4j.data.embedding.Embedding;
@@ -358,6 +359,7 @@ public class ChromaEmbeddingStoreProvider {
                 // 创建搜索请求
                 EmbeddingSearchRequest searchRequest = EmbeddingSearchRequest.builder()
                         .queryEmbedding(queryEmbedding)
+                        .filter(MetadataFilters.toFilter(filter))
                         .maxResults(limit)
                         .build();
                 
@@ -1,7 +1,6 @@
 package com.ainovel.server.service.rag;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 import com.ainovel.server.service.EmbeddingService;
 
@@ -10,6 +9,8 @@ import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.output.Response;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * LangChain4j嵌入模型适配器
@@ -18,15 +19,31 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class LangChain4jEmbeddingModel implements EmbeddingModel {
 
+    private static final int DEFAULT_CONCURRENCY = 4;
+
     private final EmbeddingService embeddingService;
 
+    // 批量生成时同时进行的嵌入请求数
+    private final int concurrency;
+
     /**
      * 构造函数
      * 
      * @param embeddingService 嵌入服务
      */
     public LangChain4jEmbeddingModel(EmbeddingService embeddingService) {
+        this(embeddingService, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param embeddingService 嵌入服务
+     * @param concurrency 批量生成时同时进行的嵌入请求数
+     */
+    public LangChain4jEmbeddingModel(EmbeddingService embeddingService, int concurrency) {
         this.embeddingService = embeddingService;
+        this.concurrency = Math.max(1, concurrency);
     }
 
     /**
@@ -69,18 +86,18 @@ public class LangChain4jEmbeddingModel implements EmbeddingModel {
     public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
         log.debug("生成多个文本段落嵌入向量，段落数量: {}", textSegments.size());
         try {
-            List<Embedding> embeddings = textSegments.stream()
-                    .map(segment -> {
-                        try {
-                            float[] vector = embeddingService.generateEmbedding(segment.text()).block();
-                            return vector != null ? Embedding.from(vector) : Embedding.from(new float[0]);
-                        } catch (Exception e) {
-                            log.error("生成单个文本段落嵌入向量失败", e);
-                            return Embedding.from(new float[0]);
-                        }
-                    })
-                    .collect(Collectors.toList());
-            return Response.from(embeddings);
+            // 有限并发地发出嵌入请求，结果保持与输入相同的顺序
+            List<Embedding> embeddings = Flux.fromIterable(textSegments)
+                    .flatMapSequential(segment -> embeddingService.generateEmbedding(segment.text())
+                            .map(Embedding::from)
+                            .defaultIfEmpty(Embedding.from(new float[0]))
+                            .onErrorResume(e -> {
+                                log.error("生成单个文本段落嵌入向量失败", e);
+                                return Mono.just(Embedding.from(new float[0]));
+                            }), concurrency)
+                    .collectList()
+                    .block();
+            return Response.from(embeddings != null ? embeddings : List.of());
         } catch (Exception e) {
             log.error("生成多个文本段落嵌入向量失败", e);
             return Response.from(List.of());
@@ -565,7 +565,8 @@ public class SettingGenerationService implements ISettingGenerationService {
                                                     String apiKey = tk[0];
                                                     String endpoint = tk[1];
                                                     log.info("[文本阶段][公共] 启动流式文本生成: endpoint={} modelId={}", endpoint, pub.getModelId());
-                                                    return aiService.generateContentStream(req, apiKey, endpoint);
+                                                    return reportPublicKeyResult(pub.getProvider(), pub.getModelId(), apiKey,
+                                                        aiService.generateContentStream(req, apiKey, endpoint));
                                                 })
                                                 .retryWhen(reactor.util.retry.Retry.backoff(2, java.time.Duration.ofSeconds(1)).jitter(0.3).filter(SettingGenerationService.this::isInterrupted))
                                                 .filter(chunk -> chunk != null && !chunk.isBlank() && !"heartbeat".equalsIgnoreCase(chunk))
@@ -678,7 +679,8 @@ public class SettingGenerationService implements ISettingGenerationService {
                                         } catch (Exception ignore) {}
 
                                         log.info("[文本阶段][公共] 通过编排器启动流式文本生成: endpoint={} modelId={} (公共配置ID={})", endpoint, modelId, publicCfgId);
-                                        return aiService.generateContentStream(req, apiKey, endpoint);
+                                        return reportPublicKeyResult(providerName, modelId, apiKey,
+                                            aiService.generateContentStream(req, apiKey, endpoint));
                                     });
                                 } else {
                                     // 用户私有模型
@@ -846,6 +848,35 @@ public class SettingGenerationService implements ISettingGenerationService {
             });
     }
 
+    /**
+     * 为使用公共模型 Key 的流式调用回报结果：首个元素计为成功并作为延迟样本，出错计为失败，供 Key 轮询调整权重
+     */
+    private <T> Flux<T> reportPublicKeyResult(String provider, String modelId, String apiKey, Flux<T> upstream) {
+        return Flux.defer(() -> {
+            long start = System.currentTimeMillis();
+            java.util.concurrent.atomic.AtomicBoolean first = new java.util.concurrent.atomic.AtomicBoolean(true);
+            return upstream
+                .doOnNext(item -> {
+                    if (first.compareAndSet(true, false)) {
+                        publicModelConfigService.reportApiKeyResult(provider, modelId, apiKey, true, System.currentTimeMillis() - start);
+                    }
+                })
+                .doOnError(e -> publicModelConfigService.reportApiKeyResult(provider, modelId, apiKey, false, System.currentTimeMillis() - start));
+        });
+    }
+
+    /**
+     * 为使用公共模型 Key 的单次调用回报结果
+     */
+    private <T> Mono<T> reportPublicKeyResult(String provider, String modelId, String apiKey, Mono<T> upstream) {
+        return Mono.defer(() -> {
+            long start = System.currentTimeMillis();
+            return upstream
+                .doOnSuccess(result -> publicModelConfigService.reportApiKeyResult(provider, modelId, apiKey, true, System.currentTimeMillis() - start))
+                .doOnError(e -> publicModelConfigService.reportApiKeyResult(provider, modelId, apiKey, false, System.currentTimeMillis() - start));
+        });
+    }
+
     /**
      * 单次增量文本 → text_to_settings 工具编排与处理（不标记整体完成）。
      */
@@ -943,8 +974,9 @@ public class SettingGenerationService implements ISettingGenerationService {
             true
         );
 
-        return toolStreamingOrchestrator.startStreaming(options)
-            .timeout(java.time.Duration.ofMinutes(3))
+        // 编排器模型可能回退为用户私有模型，其 Key 不在公共 Key 池中，回报时会被忽略
+        return reportPublicKeyResult(provider, modelName, apiKey,
+                toolStreamingOrchestrator.startStreaming(options).timeout(java.time.Duration.ofMinutes(3)))
             .doOnNext(evt -> {
                 String eventType = evt.getEventType();
                 if ("CALL_RECEIVED".equals(eventType)) {
@@ -3124,7 +3156,8 @@ public Flux<SettingGenerationEvent> getModificationEventStream(String sessionId)
                                     "publicModelId", finalChosen.getModelId()
                                 )))
                                 .build();
-                            return aiService.generateContent(req, apiKey, finalChosen.getApiEndpoint())
+                            return reportPublicKeyResult(finalChosen.getProvider(), finalChosen.getModelId(), apiKey,
+                                    aiService.generateContent(req, apiKey, finalChosen.getApiEndpoint()))
                                 .map(resp -> resp != null ? resp.getContent() : null);
                         });
                 })
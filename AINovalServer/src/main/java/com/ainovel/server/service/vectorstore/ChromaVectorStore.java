@@ -1,5 +1,7 @@
 package com.ainovel.server.service.vectorstore;
 
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -22,6 +24,7 @@ import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
 import dev.langchain4j.store.embedding.EmbeddingSearchResult;
 import dev.langchain4j.store.embedding.chroma.ChromaEmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -31,7 +34,6 @@ import reactor.util.retry.Retry;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.HashMap;
 
 /**
  * Chroma向量存储实现 基于LangChain4j的ChromaEmbeddingStore
@@ -323,38 +325,25 @@ public class ChromaVectorStore implements VectorStore {
                 // 创建查询嵌入
                 Embedding queryEmbedding = Embedding.from(adjustedVector);
                 
-                // 提取关键词列表（如果有）
-                List<String> keywords = null;
-                if (filter != null && filter.containsKey("keywords")) {
-                    Object keywordsObj = filter.get("keywords");
-                    if (keywordsObj instanceof List<?>) {
-                        @SuppressWarnings("unchecked")
-                        List<String> casted = (List<String>) keywordsObj;
-                        keywords = casted;
-                        log.info("提取到关键词列表用于过滤: {}", keywords);
-                    }
-                }
-                
-                // 创建过滤条件的元数据（移除keywords字段，它不是标准元数据）
-                final Map<String, Object> metadataFilter;
-                if (filter != null) {
-                    metadataFilter = new HashMap<>(filter);
-                    metadataFilter.remove("keywords");
-                } else {
-                    metadataFilter = null;
+                // 元数据条件转换为Filter，在Chroma端过滤；关键词只用于检索后的软过滤
+                Filter metadataFilter = MetadataFilters.toFilter(filter);
+                List<String> keywords = MetadataFilters.keywords(filter);
+                if (!keywords.isEmpty()) {
+                    log.info("提取到关键词列表用于过滤: {}", keywords);
                 }
-                
-                // TODO: 这里应该使用metadataFilter进行精确过滤，但当前ChromaEmbeddingStore不支持
-                // 目前我们先检索更多结果，然后在后处理中进行过滤
 
-                // 执行搜索 - 使用新的搜索API
+                // 执行搜索：只有关键词过滤需要多取一些候选结果
                 EmbeddingSearchRequest searchRequest = EmbeddingSearchRequest.builder()
                         .queryEmbedding(queryEmbedding)
-                        .maxResults(limit * 4) // 多检索一些结果以便后处理过滤
+                        .filter(metadataFilter)
+                        .maxResults(keywords.isEmpty() ? limit : limit * 2)
                         .build();
-                
+
+                long start = System.nanoTime();
                 EmbeddingSearchResult<TextSegment> searchResult = embeddingStore.search(searchRequest);
                 List<EmbeddingMatch<TextSegment>> matches = searchResult.matches();
+                log.debug("向量检索耗时 {} ms，返回 {} 个结果",
+                        (System.nanoTime() - start) / 1_000_000, matches.size());
 
                 // 转换结果
                 List<SearchResult> results = matches.stream()
@@ -379,75 +368,9 @@ public class ChromaVectorStore implements VectorStore {
                         })
                         .collect(Collectors.toList());
                 
-                // 应用元数据过滤
-                if (metadataFilter != null && !metadataFilter.isEmpty()) {
-                    results = results.stream()
-                            .filter(result -> {
-                                if (result.getMetadata() == null) {
-                                    return false;
-                                }
-                                
-                                return metadataFilter.entrySet().stream()
-                                        .allMatch(entry -> {
-                                            Object value = result.getMetadata().get(entry.getKey());
-                                            return value != null && value.equals(entry.getValue());
-                                        });
-                            })
-                            .collect(Collectors.toList());
-                    
-                    log.info("元数据过滤后剩余结果数量: {}", results.size());
-                }
-                
                 // 应用关键词过滤（如果有）
-                if (keywords != null && !keywords.isEmpty()) {
-                    final List<String> finalKeywords = keywords;
-                    List<SearchResult> keywordFilteredResults = results.stream()
-                            .filter(result -> {
-                                // 从元数据中获取存储的关键词（如果有）
-                                List<String> storedKeywordsList = null;
-                                if (result.getMetadata() != null && result.getMetadata().containsKey("keywords")) {
-                                    Object keywordsObj = result.getMetadata().get("keywords");
-                                    if (keywordsObj instanceof List<?>) {
-                                        @SuppressWarnings("unchecked")
-                                        List<String> casted = (List<String>) keywordsObj;
-                                        storedKeywordsList = casted;
-                                    }
-                                }
-                                
-                                // 检查是否有关键词匹配
-                                final List<String> storedKeywords = storedKeywordsList;
-                                if (storedKeywords != null && !storedKeywords.isEmpty()) {
-                                    return finalKeywords.stream()
-                                            .anyMatch(keyword -> 
-                                                storedKeywords.stream()
-                                                    .anyMatch(stored -> 
-                                                        stored.toLowerCase().contains(keyword.toLowerCase()) ||
-                                                        keyword.toLowerCase().contains(stored.toLowerCase())
-                                                    )
-                                            );
-                                }
-                                
-                                // 回退到内容匹配
-                                String content = result.getContent();
-                                if (content != null && !content.isEmpty()) {
-                                    return finalKeywords.stream()
-                                            .anyMatch(keyword -> 
-                                                content.toLowerCase().contains(keyword.toLowerCase()));
-                                }
-                                
-                                return false;
-                            })
-                            .collect(Collectors.toList());
-                    
-                    // 如果关键词过滤后结果太少，保留原始结果
-                    if (keywordFilteredResults.size() < Math.max(limit / 2, 5)) {
-                        log.info("关键词过滤后结果太少 ({}), 保留原始结果", keywordFilteredResults.size());
-                    } else {
-                        results = keywordFilteredResults;
-                        log.info("关键词过滤后剩余结果数量: {}", results.size());
-                    }
-                }
-                
+                results = MetadataFilters.applyKeywordFilter(results, keywords, limit);
+
                 // 限制返回结果数量
                 if (results.size() > limit) {
                     results = results.subList(0, limit);
@@ -478,15 +401,36 @@ public class ChromaVectorStore implements VectorStore {
     @Override
     public Mono<Void> deleteByNovelId(String novelId) {
         log.info("删除小说的向量，小说ID: {}", novelId);
-        // TODO: 实现按小说ID删除向量的功能
-        return Mono.empty();
+        return removeByFilter(metadataKey("novelId").isEqualTo(novelId), "按小说ID删除向量");
     }
 
     @Override
     public Mono<Void> deleteBySourceId(String novelId, String sourceType, String sourceId) {
         log.info("删除源的向量，小说ID: {}, 源类型: {}, 源ID: {}", novelId, sourceType, sourceId);
-        // TODO: 实现按源ID删除向量的功能
-        return Mono.empty();
+        Filter filter = metadataKey("sourceId").isEqualTo(sourceId);
+        if (novelId != null) {
+            filter = metadataKey("novelId").isEqualTo(novelId).and(filter);
+        }
+        if (sourceType != null) {
+            filter = filter.and(metadataKey("sourceType").isEqualTo(sourceType));
+        }
+        return removeByFilter(filter, "按源ID删除向量");
+    }
+
+    /**
+     * 按元数据条件删除向量（存储时元数据值均已转为字符串）
+     */
+    private Mono<Void> removeByFilter(Filter filter, String operationName) {
+        Mono<Void> operation = Mono.<Void>fromRunnable(() -> {
+            try {
+                embeddingStore.removeAll(filter);
+            } catch (Exception e) {
+                throw new VectorStoreException(operationName + "失败: " + e.getMessage(), e);
+            }
+        })
+                .subscribeOn(Schedulers.boundedElastic());
+
+        return withRetry(operation, operationName);
     }
 
     /**
@@ -0,0 +1,170 @@
+package com.ainovel.server.service.vectorstore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import com.ainovel.server.exception.VectorStoreException;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.logical.And;
+
+/**
+ * 以 {@link EmbeddedVectorStore} 为后端的 LangChain4j 嵌入存储
+ *
+ * Chroma 关闭时由它承担场景片段索引与 RAG 检索，向量落在内存映射文件中，重启后仍然可用，
+ * 场景增量索引状态因此可以跨重启复用。
+ *
+ * - 元数据按字符串保存，与 Chroma 实现一致
+ * - 过滤条件中包含 novelId 等值条件时只扫描该小说的分区，其余条件在扫描时逐条判断
+ * - 所有方法都是同步阻塞的，调用方需在弹性线程池中调用
+ */
+public class EmbeddedEmbeddingStore implements EmbeddingStore<TextSegment>, AutoCloseable {
+
+    private final EmbeddedVectorStore store;
+
+    public EmbeddedEmbeddingStore(EmbeddedVectorStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(textSegment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = randomIds(embeddings.size());
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> textSegments) {
+        List<String> ids = randomIds(embeddings.size());
+        addAll(ids, embeddings, textSegments);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> textSegments) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<VectorStore.VectorData> data = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            TextSegment segment = textSegments != null ? textSegments.get(i) : null;
+            data.add(new VectorStore.VectorData(
+                    segment != null ? segment.text() : null,
+                    embeddings.get(i).vector(),
+                    segment != null ? segment.metadata().toMap() : Map.of()));
+        }
+        try {
+            store.write(ids, data);
+        } catch (IOException e) {
+            throw new VectorStoreException("存储向量失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        Filter filter = request.filter();
+        Predicate<Map<String, Object>> predicate = filter == null
+                ? metadata -> true
+                : metadata -> filter.test(Metadata.from(metadata));
+
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+        for (VectorPartition.Hit hit : store.searchHits(request.queryEmbedding().vector(), novelIdOf(filter),
+                predicate, request.maxResults())) {
+            if (hit.score() < request.minScore()) {
+                continue;
+            }
+            VectorPartition.Entry entry = hit.entry();
+            TextSegment segment = entry.content() != null
+                    ? TextSegment.from(entry.content(), Metadata.from(entry.metadata()))
+                    : null;
+            matches.add(new EmbeddingMatch<>(hit.score(), entry.id(), Embedding.from(hit.vector()), segment));
+        }
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        try {
+            store.removeIds(new HashSet<>(ids));
+        } catch (IOException e) {
+            throw new VectorStoreException("删除向量失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        try {
+            store.removeWhere(novelIdOf(filter), entry -> filter.test(Metadata.from(entry.metadata())));
+        } catch (IOException e) {
+            throw new VectorStoreException("删除向量失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        store.clear();
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    /**
+     * 从过滤条件中提取 novelId 等值条件（只在 AND 组合中查找），用于只扫描对应分区
+     */
+    private static String novelIdOf(Filter filter) {
+        if (filter instanceof IsEqualTo equalTo && "novelId".equals(equalTo.key())) {
+            return String.valueOf(equalTo.comparisonValue());
+        }
+        if (filter instanceof And and) {
+            String left = novelIdOf(and.left());
+            return left != null ? left : novelIdOf(and.right());
+        }
+        return null;
+    }
+
+    private static List<String> randomIds(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        return ids;
+    }
+}
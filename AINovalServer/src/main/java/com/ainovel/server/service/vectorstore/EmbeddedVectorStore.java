@@ -0,0 +1,363 @@
+package com.ainovel.server.service.vectorstore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import com.ainovel.server.domain.model.KnowledgeChunk;
+import com.ainovel.server.exception.VectorStoreException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 内嵌的进程内向量存储，在未启用 Chroma 的单机部署中替代空实现
+ *
+ * - 按小说分区，每个分区的向量保存在内存映射文件中；启动时只登记分区目录，分区在首次访问时才回放日志
+ * - 检索为分区内直接在映射文件上的精确扫描（向量已归一化，余弦相似度即点积），耗时与分区记录数成正比；
+ *   单本小说的片段规模（数万条以内）下足够快，且元数据过滤不会像近似索引那样损失召回。
+ *   不带小说ID的检索会打开并扫描全部分区，不适合大量小说共用一个实例的场景
+ * - 不含小说ID的记录写入共享分区；不带小说ID条件的检索扫描全部分区后合并
+ * - 删除小说时在分区表的同一个槽内销毁分区，与并发写入的创建互斥；写入遇到刚被销毁的分区时重新获取
+ */
+@Slf4j
+public class EmbeddedVectorStore implements VectorStore, AutoCloseable {
+
+    private static final String SHARED_PARTITION = "_shared";
+
+    private final Path baseDirectory;
+    private final int dimension;
+    private final ObjectMapper objectMapper;
+    private final Map<String, VectorPartition> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * 创建内嵌向量存储并加载已有分区
+     *
+     * @param baseDirectory 数据目录
+     * @param dimension 向量维度
+     * @param objectMapper 用于读写记录日志
+     */
+    public EmbeddedVectorStore(Path baseDirectory, int dimension, ObjectMapper objectMapper) {
+        this.baseDirectory = baseDirectory;
+        this.dimension = dimension;
+        this.objectMapper = objectMapper;
+        loadPartitions();
+    }
+
+    private void loadPartitions() {
+        long start = System.currentTimeMillis();
+        try {
+            Files.createDirectories(baseDirectory);
+            try (Stream<Path> dirs = Files.list(baseDirectory)) {
+                for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+                    if (VectorPartition.isTransientDirectory(dir)) {
+                        continue;
+                    }
+                    // 只登记分区，日志在首次访问时回放
+                    partitions.put(dir.getFileName().toString(), new VectorPartition(dir, dimension, objectMapper));
+                }
+            }
+        } catch (IOException e) {
+            throw new VectorStoreException("加载内嵌向量存储失败: " + e.getMessage(), e);
+        }
+        log.info("内嵌向量存储已加载，目录: {}，分区数: {}，耗时: {} ms", baseDirectory, partitions.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public Mono<String> storeVector(String content, float[] vector, Map<String, Object> metadata) {
+        return storeVectorsBatch(List.of(new VectorData(content, vector, metadata)))
+                .map(ids -> ids.get(0));
+    }
+
+    @Override
+    public Mono<List<String>> storeVectorsBatch(List<VectorData> vectorDataList) {
+        if (vectorDataList.isEmpty()) {
+            return Mono.just(new ArrayList<>());
+        }
+
+        return Mono.fromCallable(() -> {
+            List<String> ids = new ArrayList<>(vectorDataList.size());
+            for (VectorData data : vectorDataList) {
+                Map<String, Object> metadata = data.getMetadata();
+                ids.add(metadata != null && metadata.get("id") != null
+                        ? String.valueOf(metadata.get("id")) : UUID.randomUUID().toString());
+            }
+            write(ids, vectorDataList);
+            return ids;
+        })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(e -> !(e instanceof VectorStoreException),
+                        e -> new VectorStoreException("存储向量失败: " + e.getMessage(), e));
+    }
+
+    /**
+     * 以指定ID同步写入一批向量（调用方负责在弹性线程池中调用）
+     */
+    void write(List<String> ids, List<VectorData> vectorDataList) throws IOException {
+        // 按分区分组，每个分区一次批量写入
+        Map<String, List<VectorPartition.Entry>> entriesByPartition = new LinkedHashMap<>();
+        Map<String, List<float[]>> vectorsByPartition = new HashMap<>();
+        for (int i = 0; i < vectorDataList.size(); i++) {
+            VectorData data = vectorDataList.get(i);
+            float[] normalized = normalize(adjustDimension(data.getVector()));
+            Map<String, Object> metadata = stringifyMetadata(data.getMetadata());
+            String partitionKey = partitionKey(metadata.get("novelId"));
+
+            entriesByPartition.computeIfAbsent(partitionKey, k -> new ArrayList<>())
+                    .add(new VectorPartition.Entry(ids.get(i), data.getContent(), metadata));
+            vectorsByPartition.computeIfAbsent(partitionKey, k -> new ArrayList<>()).add(normalized);
+        }
+        for (Map.Entry<String, List<VectorPartition.Entry>> group : entriesByPartition.entrySet()) {
+            // 分区在取到之后被删除时写入会被拒绝，此时分区表中已没有它，重新获取会创建新分区
+            while (!partition(group.getKey()).addAll(group.getValue(), vectorsByPartition.get(group.getKey()))) {
+                log.debug("向量分区 {} 已被删除，重新创建后写入", group.getKey());
+            }
+        }
+    }
+
+    @Override
+    public Mono<String> storeKnowledgeChunk(KnowledgeChunk chunk) {
+        if (chunk.getVectorEmbedding() == null || chunk.getVectorEmbedding().getVector() == null) {
+            return Mono.error(new VectorStoreException("知识块缺少向量嵌入"));
+        }
+
+        // 创建元数据
+        Map<String, Object> metadata = Map.of(
+                "id", chunk.getId(),
+                "novelId", chunk.getNovelId(),
+                "sourceType", chunk.getSourceType(),
+                "sourceId", chunk.getSourceId()
+        );
+
+        return storeVector(chunk.getContent(), chunk.getVectorEmbedding().getVector(), metadata);
+    }
+
+    @Override
+    public Flux<SearchResult> search(float[] queryVector, int limit) {
+        return search(queryVector, null, limit);
+    }
+
+    @Override
+    public Flux<SearchResult> search(float[] queryVector, Map<String, Object> filter, int limit) {
+        if (limit <= 0) {
+            return Flux.empty();
+        }
+
+        return Mono.fromCallable(() -> {
+            List<String> keywords = MetadataFilters.keywords(filter);
+            int candidates = keywords.isEmpty() ? limit : limit * 2;
+
+            // 指定了单个小说ID时只扫描该小说的分区
+            Object novelId = filter != null ? filter.get("novelId") : null;
+            List<SearchResult> results = searchHits(queryVector,
+                    novelId instanceof Iterable<?> ? null : novelId,
+                    metadata -> MetadataFilters.matches(metadata, filter), candidates).stream()
+                    .map(EmbeddedVectorStore::toSearchResult)
+                    .toList();
+
+            // 应用关键词过滤（如果有）
+            results = MetadataFilters.applyKeywordFilter(results, keywords, limit);
+            return results.size() > limit ? results.subList(0, limit) : results;
+        })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(e -> !(e instanceof VectorStoreException),
+                        e -> new VectorStoreException("搜索向量失败: " + e.getMessage(), e))
+                .flatMapMany(Flux::fromIterable);
+    }
+
+    /**
+     * 同步检索，返回按得分降序的前 limit 条命中
+     *
+     * @param novelId 不为 null 时只扫描该小说的分区
+     * @param filter 元数据过滤条件
+     */
+    List<VectorPartition.Hit> searchHits(float[] queryVector, Object novelId,
+            Predicate<Map<String, Object>> filter, int limit) {
+        float[] query = normalize(adjustDimension(queryVector));
+        List<VectorPartition.Hit> hits = new ArrayList<>();
+        for (VectorPartition partition : targetPartitions(novelId)) {
+            try {
+                hits.addAll(partition.search(query, filter, limit));
+            } catch (IOException e) {
+                throw new VectorStoreException("读取向量分区失败: " + e.getMessage(), e);
+            }
+        }
+        hits.sort(Comparator.comparingDouble(VectorPartition.Hit::score).reversed());
+        return hits.size() > limit ? hits.subList(0, limit) : hits;
+    }
+
+    /**
+     * 同步删除满足条件的记录
+     *
+     * @param novelId 不为 null 时只处理该小说的分区
+     * @return 删除的记录数
+     */
+    int removeWhere(Object novelId, Predicate<VectorPartition.Stored> predicate) throws IOException {
+        int removed = 0;
+        for (VectorPartition partition : targetPartitions(novelId)) {
+            removed += partition.removeIf(predicate);
+        }
+        return removed;
+    }
+
+    /**
+     * 同步删除指定ID的记录
+     */
+    int removeIds(Set<String> ids) throws IOException {
+        return removeWhere(null, entry -> ids.contains(entry.id()));
+    }
+
+    /**
+     * 同步删除全部分区
+     */
+    void clear() {
+        for (String key : List.copyOf(partitions.keySet())) {
+            destroyPartition(key);
+        }
+    }
+
+    @Override
+    public Flux<SearchResult> searchByNovelId(float[] queryVector, String novelId, int limit) {
+        return search(queryVector, Map.of("novelId", novelId), limit);
+    }
+
+    @Override
+    public Mono<Void> deleteByNovelId(String novelId) {
+        log.info("删除小说的向量，小说ID: {}", novelId);
+        return Mono.<Void>fromRunnable(() -> destroyPartition(partitionKey(novelId)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Void> deleteBySourceId(String novelId, String sourceType, String sourceId) {
+        log.info("删除源的向量，小说ID: {}, 源类型: {}, 源ID: {}", novelId, sourceType, sourceId);
+        return Mono.<Void>fromCallable(() -> {
+            removeWhere(novelId, entry -> sourceId.equals(entry.metadata().get("sourceId"))
+                    && (sourceType == null || sourceType.equals(entry.metadata().get("sourceType"))));
+            return null;
+        })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(e -> !(e instanceof VectorStoreException),
+                        e -> new VectorStoreException("删除向量失败: " + e.getMessage(), e));
+    }
+
+    @Override
+    public void close() {
+        for (VectorPartition partition : partitions.values()) {
+            try {
+                partition.close();
+            } catch (IOException e) {
+                log.warn("关闭向量分区失败: {}", e.getMessage());
+            }
+        }
+        partitions.clear();
+    }
+
+    private List<VectorPartition> targetPartitions(Object novelId) {
+        if (novelId == null) {
+            return new ArrayList<>(partitions.values());
+        }
+        VectorPartition partition = partitions.get(partitionKey(novelId));
+        return partition != null ? List.of(partition) : List.of();
+    }
+
+    /**
+     * 在分区表的槽内销毁分区：销毁完成前同一分区键上的 computeIfAbsent 会等待，
+     * 不会出现新分区刚打开文件就被删除目录的情况
+     */
+    private void destroyPartition(String key) {
+        partitions.computeIfPresent(key, (k, partition) -> {
+            try {
+                partition.destroy();
+            } catch (IOException e) {
+                throw new VectorStoreException("删除向量分区失败: " + e.getMessage(), e);
+            }
+            return null;
+        });
+    }
+
+    private VectorPartition partition(String key) {
+        return partitions.computeIfAbsent(key, k -> new VectorPartition(baseDirectory.resolve(k), dimension, objectMapper));
+    }
+
+    /**
+     * 分区目录名：小说ID只保留文件名安全的字符
+     */
+    private static String partitionKey(Object novelId) {
+        if (novelId == null || novelId.toString().isBlank()) {
+            return SHARED_PARTITION;
+        }
+        return novelId.toString().replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    /**
+     * 与 Chroma 实现一致，元数据值统一保存为字符串
+     */
+    private static Map<String, Object> stringifyMetadata(Map<String, Object> metadata) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (metadata != null) {
+            metadata.forEach((key, value) -> {
+                if (value != null) {
+                    result.put(key, value.toString());
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 维度不一致时用0填充或截断（与 Chroma 实现的处理方式一致）
+     */
+    private float[] adjustDimension(float[] vector) {
+        if (vector == null || vector.length == 0) {
+            throw new VectorStoreException("向量不能为空");
+        }
+        if (vector.length == dimension) {
+            return vector;
+        }
+        log.warn("向量维度 {} 与期望维度 {} 不匹配，正在自动调整", vector.length, dimension);
+        float[] adjusted = new float[dimension];
+        System.arraycopy(vector, 0, adjusted, 0, Math.min(vector.length, dimension));
+        return adjusted;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    private static SearchResult toSearchResult(VectorPartition.Hit hit) {
+        SearchResult result = new SearchResult();
+        result.setId(hit.entry().id());
+        result.setContent(hit.entry().content());
+        result.setScore(hit.score());
+        result.setMetadata(hit.entry().metadata() != null ? new HashMap<>(hit.entry().metadata()) : new HashMap<>());
+        return result;
+    }
+}
@@ -0,0 +1,21 @@
+package com.ainovel.server.service.vectorstore;
+
+/**
+ * 当前进程使用的 LangChain4j 嵌入存储的身份
+ *
+ * 场景索引状态（片段哈希 → 向量ID）保存在 MongoDB 中，只有在写入它的那个存储里才有意义：
+ * 存储换了集合、或者本身随进程重启而丢失时，必须把旧状态当作不存在，否则增量索引会认为片段已嵌入而跳过。
+ *
+ * @param type 存储类型（chroma / in-memory / embedded）
+ * @param name 集合名或存储路径
+ * @param persistent 存储内容是否能跨进程重启保留；不能保留时不记录索引状态
+ */
+public record EmbeddingStoreIdentity(String type, String name, boolean persistent) {
+
+    /**
+     * 写入场景索引状态的存储标识，不同标识的索引状态互不复用
+     */
+    public String key() {
+        return type + ":" + name;
+    }
+}
@@ -0,0 +1,168 @@
+package com.ainovel.server.service.vectorstore;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import dev.langchain4j.store.embedding.filter.Filter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 将业务层使用的元数据过滤Map转换为LangChain4j的Filter表达式，由向量存储在检索时执行过滤
+ *
+ * 约定：
+ * - 多个条件之间为 AND 关系
+ * - 集合类型的值转换为 IN 条件
+ * - 其他值按字符串比较（写入向量存储时元数据值均已转为字符串）
+ * - "keywords" 不是元数据条件，而是检索后的软过滤条件，不参与转换
+ */
+@Slf4j
+public final class MetadataFilters {
+
+    /**
+     * 关键词过滤键
+     */
+    public static final String KEYWORDS_KEY = "keywords";
+
+    private MetadataFilters() {}
+
+    /**
+     * 转换过滤条件
+     *
+     * @param filter 过滤条件Map
+     * @return Filter表达式，没有有效条件时返回null
+     */
+    public static Filter toFilter(Map<String, Object> filter) {
+        if (filter == null || filter.isEmpty()) {
+            return null;
+        }
+
+        Filter result = null;
+        for (Map.Entry<String, Object> entry : filter.entrySet()) {
+            if (KEYWORDS_KEY.equals(entry.getKey()) || entry.getValue() == null) {
+                continue;
+            }
+            Filter condition = toCondition(entry.getKey(), entry.getValue());
+            if (condition != null) {
+                result = result == null ? condition : result.and(condition);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 提取关键词列表
+     *
+     * @param filter 过滤条件Map
+     * @return 关键词列表，没有时返回空列表
+     */
+    public static List<String> keywords(Map<String, Object> filter) {
+        if (filter == null || !(filter.get(KEYWORDS_KEY) instanceof Collection<?> values)) {
+            return List.of();
+        }
+        return values.stream()
+                .filter(Objects::nonNull)
+                .map(Object::toString)
+                .toList();
+    }
+
+    /**
+     * 在内存中判断元数据是否满足过滤条件，语义与 {@link #toFilter(Map)} 一致
+     *
+     * @param metadata 元数据
+     * @param filter 过滤条件Map
+     * @return 是否满足全部条件
+     */
+    public static boolean matches(Map<String, Object> metadata, Map<String, Object> filter) {
+        if (filter == null || filter.isEmpty()) {
+            return true;
+        }
+        for (Map.Entry<String, Object> entry : filter.entrySet()) {
+            if (KEYWORDS_KEY.equals(entry.getKey()) || entry.getValue() == null) {
+                continue;
+            }
+            Object actual = metadata != null ? metadata.get(entry.getKey()) : null;
+            if (actual == null) {
+                return false;
+            }
+            String actualString = actual.toString();
+            if (entry.getValue() instanceof Collection<?> values) {
+                if (!values.isEmpty() && values.stream().noneMatch(v -> v != null && v.toString().equals(actualString))) {
+                    return false;
+                }
+            } else if (!entry.getValue().toString().equals(actualString)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 关键词软过滤：优先匹配元数据中的关键词，否则匹配内容；过滤后结果太少时保留原始结果
+     *
+     * @param results 按相似度排序的检索结果
+     * @param keywords 关键词列表
+     * @param limit 期望的结果数量
+     * @return 过滤后的结果（未截断）
+     */
+    public static List<SearchResult> applyKeywordFilter(List<SearchResult> results, List<String> keywords, int limit) {
+        if (keywords == null || keywords.isEmpty()) {
+            return results;
+        }
+        List<String> lowerKeywords = keywords.stream()
+                .map(keyword -> keyword.toLowerCase(Locale.ROOT))
+                .toList();
+
+        List<SearchResult> keywordFilteredResults = results.stream()
+                .filter(result -> matchesKeywords(result, lowerKeywords))
+                .toList();
+
+        // 如果关键词过滤后结果太少，保留原始结果
+        if (keywordFilteredResults.size() < Math.max(limit / 2, 5)) {
+            log.info("关键词过滤后结果太少 ({}), 保留原始结果", keywordFilteredResults.size());
+            return results;
+        }
+        log.info("关键词过滤后剩余结果数量: {}", keywordFilteredResults.size());
+        return keywordFilteredResults;
+    }
+
+    private static boolean matchesKeywords(SearchResult result, List<String> lowerKeywords) {
+        // 从元数据中获取存储的关键词（如果有）
+        if (result.getMetadata() != null && result.getMetadata().get(KEYWORDS_KEY) instanceof Collection<?> stored
+                && !stored.isEmpty()) {
+            return lowerKeywords.stream()
+                    .anyMatch(keyword -> stored.stream()
+                            .filter(Objects::nonNull)
+                            .map(value -> value.toString().toLowerCase(Locale.ROOT))
+                            .anyMatch(value -> value.contains(keyword) || keyword.contains(value)));
+        }
+
+        // 回退到内容匹配
+        String content = result.getContent();
+        if (content != null && !content.isEmpty()) {
+            String lowerContent = content.toLowerCase(Locale.ROOT);
+            return lowerKeywords.stream().anyMatch(lowerContent::contains);
+        }
+        return false;
+    }
+
+    private static Filter toCondition(String key, Object value) {
+        if (value instanceof Collection<?> values) {
+            List<String> strings = values.stream()
+                    .filter(Objects::nonNull)
+                    .map(Object::toString)
+                    .toList();
+            if (strings.isEmpty()) {
+                return null;
+            }
+            return strings.size() == 1
+                    ? metadataKey(key).isEqualTo(strings.get(0))
+                    : metadataKey(key).isIn(strings);
+        }
+        return metadataKey(key).isEqualTo(value.toString());
+    }
+}
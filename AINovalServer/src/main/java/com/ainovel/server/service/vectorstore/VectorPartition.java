@@ -0,0 +1,620 @@
+package com.ainovel.server.service.vectorstore;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 内嵌向量存储的单个分区（通常对应一本小说）
+ *
+ * 文件布局（同一目录内按代号区分，第 0 代沿用无代号的文件名）：
+ * - vectors[.N].f32：按槽位顺序存放的定长向量（已做L2归一化），通过内存映射读写，检索直接在映射上计算
+ * - records[.N].log：追加写的记录日志（JSON行），add 记录槽位对应的ID、内容和元数据，del 记录删除的槽位
+ * - CURRENT：当前代号，压缩完成后原子替换
+ *
+ * 分区在首次访问时才打开：只回放一次日志，堆上只保留每个槽位的ID、元数据与日志偏移，
+ * 内容在命中后按偏移从日志读取。向量先写入映射文件，再追加日志行；日志行是写入的提交点，
+ * 崩溃后未提交的槽位会被后续写入覆盖。删除只写墓碑，墓碑过多时压缩为新一代文件。
+ *
+ * 映射缓冲区由 GC 回收，不做显式解除映射：压缩不移动或覆盖仍被映射的文件，只切换 CURRENT，
+ * 旧一代文件删除失败（如 Windows 上映射未释放）时留到下次打开分区再清理。
+ *
+ * 分区被关闭或销毁后不再接受写入（{@link #addAll} 返回 false），由调用方重新获取分区。
+ */
+@Slf4j
+final class VectorPartition implements Closeable {
+
+    private static final String CURRENT_FILE = "CURRENT";
+    private static final Pattern GENERATION_FILE = Pattern.compile("(vectors|records)(?:\\.(\\d+))?\\.(f32|log)");
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int COMPACT_MIN_DELETED = 1024;
+    // 检索时每次从映射中批量读取的槽位数
+    private static final int SCAN_BLOCK_SLOTS = 256;
+    // 旧版本按目录重命名压缩留下的临时目录
+    private static final String COMPACT_SUFFIX = ".compact";
+    private static final String OLD_SUFFIX = ".old";
+
+    /**
+     * 写入或命中的一条记录
+     */
+    record Entry(String id, String content, Map<String, Object> metadata) {}
+
+    /**
+     * 常驻内存的槽位信息：内容不在堆上，按 offset/length 从记录日志读取
+     */
+    record Stored(String id, Map<String, Object> metadata, long offset, int length) {}
+
+    /**
+     * 检索命中，vector 为归一化后的向量副本
+     */
+    record Hit(Entry entry, double score, float[] vector) {}
+
+    /**
+     * 日志行
+     */
+    record LogRecord(String op, int slot, String id, String content, Map<String, Object> metadata) {}
+
+    private final Path directory;
+    private final int dimension;
+    private final ObjectMapper objectMapper;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 槽位 -> 记录，已删除的槽位为 null
+    private final List<Stored> slots = new ArrayList<>();
+    private int liveCount;
+
+    private volatile boolean opened;
+    private boolean closed;
+    private long generation;
+    private FileChannel vectorChannel;
+    private MappedByteBuffer mapped;
+    private FloatBuffer vectors;
+    private int capacity;
+    private FileChannel recordChannel;
+    private long recordSize;
+
+    /**
+     * 只记录分区位置，文件在首次访问时打开
+     */
+    VectorPartition(Path directory, int dimension, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.dimension = dimension;
+        this.objectMapper = objectMapper;
+    }
+
+    int size() throws IOException {
+        ensureOpen();
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 批量写入记录，向量需已归一化且维度与分区一致
+     *
+     * @return 分区已关闭或销毁时返回 false，记录未写入
+     */
+    boolean addAll(List<Entry> newEntries, List<float[]> newVectors) throws IOException {
+        ensureOpen();
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            ensureCapacity(slots.size() + newEntries.size());
+            List<LogRecord> records = new ArrayList<>(newEntries.size());
+            for (int i = 0; i < newEntries.size(); i++) {
+                Entry entry = newEntries.get(i);
+                int slot = slots.size() + i;
+                vectors.put(slot * dimension, newVectors.get(i));
+                records.add(new LogRecord("add", slot, entry.id(), entry.content(), entry.metadata()));
+            }
+            mapped.force();
+            List<Stored> stored = appendLog(records);
+            slots.addAll(stored);
+            liveCount += stored.size();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除满足条件的记录，条件只能依据ID与元数据
+     *
+     * @return 删除的记录数
+     */
+    int removeIf(Predicate<Stored> predicate) throws IOException {
+        ensureOpen();
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return 0;
+            }
+            List<LogRecord> tombstones = new ArrayList<>();
+            for (int slot = 0; slot < slots.size(); slot++) {
+                Stored stored = slots.get(slot);
+                if (stored != null && predicate.test(stored)) {
+                    tombstones.add(new LogRecord("del", slot, null, null, null));
+                }
+            }
+            if (tombstones.isEmpty()) {
+                return 0;
+            }
+            appendLog(tombstones);
+            for (LogRecord tombstone : tombstones) {
+                slots.set(tombstone.slot(), null);
+            }
+            liveCount -= tombstones.size();
+            int deleted = slots.size() - liveCount;
+            if (deleted >= COMPACT_MIN_DELETED && deleted > liveCount) {
+                compact();
+            }
+            return tombstones.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 精确检索：按块从映射文件读取向量，对满足过滤条件的记录计算余弦相似度，返回得分最高的 limit 条。
+     * 耗时与分区记录数成正比，适用于单本小说规模的分区
+     *
+     * @param query 已归一化的查询向量
+     */
+    List<Hit> search(float[] query, Predicate<Map<String, Object>> filter, int limit) throws IOException {
+        ensureOpen();
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return List.of();
+            }
+            PriorityQueue<Candidate> top = new PriorityQueue<>(limit + 1, Comparator.comparingDouble(Candidate::score));
+            float[] block = new float[SCAN_BLOCK_SLOTS * dimension];
+            for (int start = 0; start < slots.size(); start += SCAN_BLOCK_SLOTS) {
+                int count = Math.min(SCAN_BLOCK_SLOTS, slots.size() - start);
+                boolean loaded = false;
+                for (int i = 0; i < count; i++) {
+                    Stored stored = slots.get(start + i);
+                    if (stored == null || !filter.test(stored.metadata())) {
+                        continue;
+                    }
+                    if (!loaded) {
+                        // 整块只在有候选时读取一次，避免逐个元素的边界检查
+                        vectors.get(start * dimension, block, 0, count * dimension);
+                        loaded = true;
+                    }
+                    double score = relevance(dot(query, block, i * dimension));
+                    if (top.size() < limit) {
+                        top.add(new Candidate(start + i, score));
+                    } else if (score > top.peek().score()) {
+                        top.poll();
+                        top.add(new Candidate(start + i, score));
+                    }
+                }
+            }
+            // 只为最终命中复制向量并读取内容
+            List<Hit> hits = new ArrayList<>(top.size());
+            for (Candidate candidate : top) {
+                Stored stored = slots.get(candidate.slot());
+                float[] vector = new float[dimension];
+                vectors.get(candidate.slot() * dimension, vector);
+                hits.add(new Hit(new Entry(stored.id(), readContent(stored), stored.metadata()),
+                        candidate.score(), vector));
+            }
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 检索候选：槽位与得分
+     */
+    private record Candidate(int slot, double score) {}
+
+    /**
+     * 关闭分区并删除全部文件
+     */
+    void destroy() throws IOException {
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            closeFiles();
+            slots.clear();
+            liveCount = 0;
+            deleteDirectory(directory);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            closeFiles();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private double dot(float[] query, float[] block, int offset) {
+        double sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += query[i] * block[offset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * 与 LangChain4j 的相关度一致：将余弦相似度 [-1, 1] 映射到 [0, 1]
+     */
+    private static double relevance(double cosine) {
+        return (cosine + 1) / 2;
+    }
+
+    // ==================== 打开与回放 ====================
+
+    /**
+     * 首次访问时打开分区；已关闭或销毁的分区不再打开
+     */
+    private void ensureOpen() throws IOException {
+        if (opened) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (opened || closed) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            recoverLegacyCompaction(directory);
+            Files.createDirectories(directory);
+            generation = readGeneration();
+            removeStaleGenerations();
+            replayLog();
+            openFiles();
+            opened = true;
+            log.info("向量分区已打开: {}，记录数: {}，耗时: {} ms", directory.getFileName(), liveCount,
+                    System.currentTimeMillis() - start);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void replayLog() throws IOException {
+        Path recordFile = recordFile(generation);
+        if (!Files.exists(recordFile)) {
+            return;
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(recordFile))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long offset = 0;
+            long lineStart = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                offset++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                replayLine(line.toByteArray(), lineStart);
+                line.reset();
+                lineStart = offset;
+            }
+            if (line.size() > 0) {
+                replayLine(line.toByteArray(), lineStart);
+            }
+        }
+        liveCount = (int) slots.stream().filter(stored -> stored != null).count();
+    }
+
+    private void replayLine(byte[] line, long offset) {
+        if (line.length == 0) {
+            return;
+        }
+        LogRecord record;
+        try {
+            record = objectMapper.readValue(line, LogRecord.class);
+        } catch (IOException e) {
+            // 只可能是崩溃时写了一半的最后一行
+            log.warn("跳过无法解析的向量记录: {}", directory);
+            return;
+        }
+        if ("add".equals(record.op())) {
+            while (slots.size() < record.slot()) {
+                slots.add(null);
+            }
+            Stored stored = new Stored(record.id(), record.metadata(), offset, line.length);
+            if (record.slot() < slots.size()) {
+                slots.set(record.slot(), stored);
+            } else {
+                slots.add(stored);
+            }
+        } else if ("del".equals(record.op()) && record.slot() < slots.size()) {
+            slots.set(record.slot(), null);
+        }
+    }
+
+    private void openFiles() throws IOException {
+        vectorChannel = FileChannel.open(vectorFile(generation),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long existingSlots = vectorChannel.size() / ((long) dimension * Float.BYTES);
+        capacity = 0;
+        map(Math.max(INITIAL_CAPACITY, (int) Math.max(existingSlots, slots.size())));
+        recordChannel = FileChannel.open(recordFile(generation),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recordSize = recordChannel.size();
+        if (recordSize > 0) {
+            ByteBuffer last = ByteBuffer.allocate(1);
+            recordChannel.read(last, recordSize - 1);
+            if (last.get(0) != '\n') {
+                // 上次崩溃留下的半行不能与新记录拼接在一起
+                recordChannel.write(ByteBuffer.wrap(new byte[] {'\n'}), recordSize);
+                recordSize++;
+            }
+        }
+    }
+
+    private void closeFiles() throws IOException {
+        // 映射缓冲区随引用释放由 GC 回收
+        if (mapped != null) {
+            mapped.force();
+            mapped = null;
+            vectors = null;
+        }
+        if (vectorChannel != null) {
+            vectorChannel.close();
+            vectorChannel = null;
+        }
+        if (recordChannel != null) {
+            recordChannel.close();
+            recordChannel = null;
+        }
+    }
+
+    private void ensureCapacity(int required) throws IOException {
+        if (required <= capacity) {
+            return;
+        }
+        int newCapacity = capacity;
+        while (newCapacity < required) {
+            newCapacity = newCapacity * 2;
+        }
+        map(newCapacity);
+    }
+
+    private void map(int slotCount) throws IOException {
+        long bytes = (long) slotCount * dimension * Float.BYTES;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("向量分区超过单文件映射上限: " + directory);
+        }
+        if (mapped != null) {
+            // 扩容后旧映射不再使用，落盘后交给 GC 释放（调用方持有写锁，没有并发读）
+            mapped.force();
+        }
+        mapped = vectorChannel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        vectors = mapped.asFloatBuffer();
+        capacity = slotCount;
+    }
+
+    // ==================== 记录日志 ====================
+
+    /**
+     * 一次写入追加一批日志行，返回各行对应的槽位信息
+     */
+    private List<Stored> appendLog(List<LogRecord> records) throws IOException {
+        ByteArrayOutputStream batch = new ByteArrayOutputStream();
+        List<Stored> stored = new ArrayList<>(records.size());
+        for (LogRecord record : records) {
+            byte[] line = objectMapper.writeValueAsBytes(record);
+            stored.add(new Stored(record.id(), record.metadata(), recordSize + batch.size(), line.length));
+            batch.write(line);
+            batch.write('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+        long position = recordSize;
+        while (buffer.hasRemaining()) {
+            position += recordChannel.write(buffer, position);
+        }
+        recordSize = position;
+        return stored;
+    }
+
+    private String readContent(Stored stored) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(stored.length());
+        long position = stored.offset();
+        while (buffer.hasRemaining()) {
+            int read = recordChannel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("向量记录日志被截断: " + directory);
+            }
+            position += read;
+        }
+        return objectMapper.readValue(buffer.array(), LogRecord.class).content();
+    }
+
+    // ==================== 压缩 ====================
+
+    /**
+     * 去除墓碑：将存活记录按新槽位写成下一代文件，再原子替换 CURRENT 切换过去，
+     * 向量文件和记录日志始终成对生效，旧一代文件在切换后删除
+     */
+    private void compact() throws IOException {
+        long nextGeneration = generation + 1;
+        int newCapacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, liveCount)) * 2);
+        Files.deleteIfExists(vectorFile(nextGeneration));
+        Files.deleteIfExists(recordFile(nextGeneration));
+
+        List<Stored> live = new ArrayList<>(liveCount);
+        try (FileChannel vectorTarget = FileChannel.open(vectorFile(nextGeneration), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+                FileChannel recordTarget = FileChannel.open(recordFile(nextGeneration), StandardOpenOption.CREATE_NEW,
+                        StandardOpenOption.WRITE)) {
+            MappedByteBuffer target = vectorTarget.map(FileChannel.MapMode.READ_WRITE, 0,
+                    (long) newCapacity * dimension * Float.BYTES);
+            FloatBuffer targetVectors = target.asFloatBuffer();
+            float[] buffer = new float[dimension];
+            long offset = 0;
+            for (int slot = 0; slot < slots.size(); slot++) {
+                Stored stored = slots.get(slot);
+                if (stored == null) {
+                    continue;
+                }
+                vectors.get(slot * dimension, buffer);
+                targetVectors.put(live.size() * dimension, buffer);
+                byte[] line = objectMapper.writeValueAsBytes(new LogRecord("add", live.size(), stored.id(),
+                        readContent(stored), stored.metadata()));
+                ByteBuffer bytes = ByteBuffer.allocate(line.length + 1).put(line).put((byte) '\n').flip();
+                while (bytes.hasRemaining()) {
+                    recordTarget.write(bytes);
+                }
+                live.add(new Stored(stored.id(), stored.metadata(), offset, line.length));
+                offset += line.length + 1;
+            }
+            target.force();
+            recordTarget.force(true);
+        }
+
+        long previousGeneration = generation;
+        writeGeneration(nextGeneration);
+        closeFiles();
+        generation = nextGeneration;
+        deleteGenerationQuietly(previousGeneration);
+
+        slots.clear();
+        slots.addAll(live);
+        liveCount = live.size();
+        openFiles();
+        log.info("向量分区已压缩: {}，代号: {}，存活记录数: {}", directory.getFileName(), generation, liveCount);
+    }
+
+    private long readGeneration() throws IOException {
+        Path current = directory.resolve(CURRENT_FILE);
+        if (!Files.exists(current)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(Files.readString(current, StandardCharsets.UTF_8).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("向量分区代号文件损坏: " + current, e);
+        }
+    }
+
+    private void writeGeneration(long value) throws IOException {
+        Path temp = directory.resolve(CURRENT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(Long.toString(value).getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CURRENT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 清理不属于当前代号的文件：中断的压缩产物，或上次未能删除的旧一代文件
+     */
+    private void removeStaleGenerations() throws IOException {
+        Files.deleteIfExists(directory.resolve(CURRENT_FILE + ".tmp"));
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Matcher matcher = GENERATION_FILE.matcher(file.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                long fileGeneration = matcher.group(2) != null ? Long.parseLong(matcher.group(2)) : 0;
+                if (fileGeneration != generation) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private void deleteGenerationQuietly(long value) {
+        for (Path file : List.of(vectorFile(value), recordFile(value))) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.debug("旧一代向量文件暂时无法删除，下次打开分区时清理: {}", file);
+            }
+        }
+    }
+
+    private Path vectorFile(long value) {
+        return directory.resolve(value == 0 ? "vectors.f32" : "vectors." + value + ".f32");
+    }
+
+    private Path recordFile(long value) {
+        return directory.resolve(value == 0 ? "records.log" : "records." + value + ".log");
+    }
+
+    /**
+     * 恢复旧版本按目录重命名压缩时被中断的分区，并清理残留目录
+     */
+    private static void recoverLegacyCompaction(Path directory) throws IOException {
+        Path compactDir = siblingPath(directory, COMPACT_SUFFIX);
+        Path oldDir = siblingPath(directory, OLD_SUFFIX);
+        if (!Files.exists(directory) && Files.exists(oldDir)) {
+            if (Files.exists(compactDir)) {
+                Files.move(compactDir, directory, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                Files.move(oldDir, directory, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        deleteDirectory(compactDir);
+        deleteDirectory(oldDir);
+    }
+
+    static boolean isTransientDirectory(Path path) {
+        String name = path.getFileName().toString();
+        return name.endsWith(COMPACT_SUFFIX) || name.endsWith(OLD_SUFFIX);
+    }
+
+    private static Path siblingPath(Path directory, String suffix) {
+        return directory.resolveSibling(directory.getFileName().toString() + suffix);
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+}
@@ -0,0 +1,115 @@
+package com.ainovel.server.task;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 任务执行运行时：决定后台任务与阻塞式模型调用运行在哪类线程上
+ *
+ * task.execution.mode:
+ * - elastic（默认）：保持原有行为，任务在 Reactor boundedElastic 线程池上执行
+ * - virtual：每个任务在独立的虚拟线程上执行；LangChain4j 的同步模型调用也切到虚拟线程，
+ *   并按提供商用信号量限制并发，阻塞的 LLM 调用不再与 Mongo 等 I/O 争抢 boundedElastic 线程
+ *
+ * 提供商并发上限：task.execution.provider-concurrency.default 为默认值，
+ * task.execution.provider-concurrency.overrides 按 "gemini=4,openai=16" 的格式单独覆盖。
+ */
+@Slf4j
+@Component
+public class TaskExecutionRuntime {
+
+    private static final String MODE_VIRTUAL = "virtual";
+
+    private final boolean virtualMode;
+    private final Scheduler virtualScheduler;
+    private final int defaultProviderPermits;
+    private final Map<String, Integer> providerPermitOverrides;
+    private final Map<String, Semaphore> providerSemaphores = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TaskExecutionRuntime(@Qualifier("virtualThreadExecutor") ExecutorService virtualThreadExecutor,
+                                @Value("${task.execution.mode:elastic}") String mode,
+                                @Value("${task.execution.provider-concurrency.default:8}") int defaultProviderPermits,
+                                @Value("${task.execution.provider-concurrency.overrides:}") String overrides) {
+        this.virtualMode = MODE_VIRTUAL.equalsIgnoreCase(mode != null ? mode.trim() : null);
+        this.virtualScheduler = Schedulers.fromExecutorService(virtualThreadExecutor, "task-virtual");
+        this.defaultProviderPermits = Math.max(1, defaultProviderPermits);
+        this.providerPermitOverrides = parseOverrides(overrides);
+        log.info("任务执行模式: {}, 提供商默认并发: {}, 单独配置: {}", virtualMode ? MODE_VIRTUAL : "elastic",
+                this.defaultProviderPermits, providerPermitOverrides);
+    }
+
+    /**
+     * 是否为虚拟线程执行模式
+     */
+    public boolean isVirtualMode() {
+        return virtualMode;
+    }
+
+    /**
+     * 任务执行所用的调度器
+     */
+    public Scheduler taskScheduler() {
+        return virtualMode ? virtualScheduler : Schedulers.boundedElastic();
+    }
+
+    /**
+     * 包装一次同步阻塞的模型调用：虚拟线程模式下在虚拟线程上获取提供商许可后执行，结束（含取消）时释放许可；
+     * 其他模式切到 boundedElastic 执行，调用方在事件循环或 parallel 线程上订阅时也不会在非阻塞线程上阻塞。
+     *
+     * @param providerName 提供商名称
+     * @param blockingCall 在订阅线程上同步执行模型调用的 Mono
+     */
+    public <T> Mono<T> limitBlockingModelCall(String providerName, Mono<T> blockingCall) {
+        if (!virtualMode) {
+            return blockingCall.subscribeOn(Schedulers.boundedElastic());
+        }
+        Semaphore permits = providerSemaphores.computeIfAbsent(providerKey(providerName),
+                key -> new Semaphore(providerPermitOverrides.getOrDefault(key, defaultProviderPermits), true));
+        return Mono.using(
+                () -> {
+                    // 在虚拟线程上阻塞等待许可，代价只是挂起该虚拟线程
+                    permits.acquire();
+                    return permits;
+                },
+                acquired -> blockingCall,
+                Semaphore::release)
+            .subscribeOn(virtualScheduler);
+    }
+
+    private static String providerKey(String providerName) {
+        return providerName != null ? providerName.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static Map<String, Integer> parseOverrides(String overrides) {
+        Map<String, Integer> result = new ConcurrentHashMap<>();
+        if (overrides == null || overrides.isBlank()) {
+            return result;
+        }
+        for (String part : overrides.split(",")) {
+            String[] kv = part.split("=");
+            if (kv.length != 2) {
+                continue;
+            }
+            try {
+                result.put(providerKey(kv[0].trim()), Math.max(1, Integer.parseInt(kv[1].trim())));
+            } catch (NumberFormatException e) {
+                log.warn("忽略无效的提供商并发配置: {}", part);
+            }
+        }
+        return result;
+    }
+}
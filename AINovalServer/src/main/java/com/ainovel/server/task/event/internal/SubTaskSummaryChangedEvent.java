@@ -0,0 +1,46 @@
+package com.ainovel.server.task.event.internal;
+
+import java.util.Map;
+
+/**
+ * 父任务的子任务状态摘要已更新事件
+ * 由子任务状态聚合在每个刷新窗口内最多发布一次，taskId/taskType/userId 均为父任务的信息
+ */
+public class SubTaskSummaryChangedEvent extends TaskApplicationEvent {
+
+    private final Map<String, Integer> statusSummary;
+
+    /**
+     * 创建子任务状态摘要更新事件
+     *
+     * @param source 事件源
+     * @param parentTaskId 父任务ID
+     * @param parentTaskType 父任务类型
+     * @param userId 用户ID
+     * @param statusSummary 刷新后的子任务状态计数（状态名 -> 数量）
+     */
+    public SubTaskSummaryChangedEvent(Object source, String parentTaskId, String parentTaskType, String userId,
+                                      Map<String, Integer> statusSummary) {
+        super(source, parentTaskId, parentTaskType, userId);
+        this.statusSummary = statusSummary != null ? Map.copyOf(statusSummary) : Map.of();
+    }
+
+    /**
+     * 获取子任务状态计数
+     *
+     * @return 状态名 -> 数量
+     */
+    public Map<String, Integer> getStatusSummary() {
+        return statusSummary;
+    }
+
+    /**
+     * 获取特定状态的子任务数量
+     *
+     * @param status 状态名
+     * @return 该状态的子任务数量
+     */
+    public int getCount(String status) {
+        return statusSummary.getOrDefault(status, 0);
+    }
+}
@@ -4,6 +4,7 @@ import com.ainovel.server.domain.model.Scene;
 import com.ainovel.server.service.NovelAIService;
 import com.ainovel.server.service.SceneService;
 import com.ainovel.server.service.UserAIModelConfigService;
+import com.ainovel.server.service.cache.NovelContentCache;
 import com.ainovel.server.task.BackgroundTaskExecutable;
 import com.ainovel.server.task.TaskContext;
 import com.ainovel.server.task.dto.summarygeneration.GenerateSummaryParameters;
@@ -36,17 +37,20 @@ public class GenerateSummaryTaskExecutable extends BaseAITaskExecutor
     private final SceneService sceneService;
     private final NovelAIService novelAIService;
     private final ReactiveMongoTemplate reactiveMongoTemplate;
+    private final NovelContentCache contentCache;
     
     public GenerateSummaryTaskExecutable(
             SceneService sceneService,
             NovelAIService novelAIService, 
             UserAIModelConfigService userAIModelConfigService,
             ReactiveMongoTemplate reactiveMongoTemplate,
-            EnhancedRateLimiterService rateLimiterService) {
+            EnhancedRateLimiterService rateLimiterService,
+            NovelContentCache contentCache) {
         super(userAIModelConfigService, rateLimiterService);
         this.sceneService = sceneService;
         this.novelAIService = novelAIService;
         this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.contentCache = contentCache;
     }
 
     @Override
@@ -87,7 +91,7 @@ public class GenerateSummaryTaskExecutable extends BaseAITaskExecutor
                             }
                             log.info("[任务:{}] 场景 {} 摘要生成成功，长度: {}", requestId, sceneId, generatedSummary.length());
 
-                            return updateSceneSummaryAtomic(sceneId, actualVersion, generatedSummary)
+                            return updateSceneSummaryAtomic(sceneId, scene.getNovelId(), actualVersion, generatedSummary)
                                 .flatMap(updateSuccess -> {
                                     if (updateSuccess) {
                                         return Mono.just(GenerateSummaryResult.builder()
@@ -101,7 +105,7 @@ public class GenerateSummaryTaskExecutable extends BaseAITaskExecutor
                                         return sceneService.findSceneById(sceneId)
                                             .switchIfEmpty(Mono.error(new IllegalStateException("场景不存在: " + sceneId)))
                                             .flatMap(latestScene -> 
-                                                updateSceneSummaryAtomic(sceneId, latestScene.getVersion(), generatedSummary)
+                                                updateSceneSummaryAtomic(sceneId, latestScene.getNovelId(), latestScene.getVersion(), generatedSummary)
                                                     .flatMap(retrySuccess -> {
                                                         if (retrySuccess) {
                                                             return Mono.just(GenerateSummaryResult.builder()
@@ -122,7 +126,10 @@ public class GenerateSummaryTaskExecutable extends BaseAITaskExecutor
             });
     }
 
-    private Mono<Boolean> updateSceneSummaryAtomic(String sceneId, int expectedVersion, String summary) {
+    /**
+     * 按版本号原子写入场景摘要；写入成功后失效该小说的渲染缓存，摘要类占位符随之重新渲染
+     */
+    private Mono<Boolean> updateSceneSummaryAtomic(String sceneId, String novelId, int expectedVersion, String summary) {
         Query query = Query.query(Criteria.where("_id").is(sceneId)
                 .and("version").is(expectedVersion));
         
@@ -132,6 +139,11 @@ public class GenerateSummaryTaskExecutable extends BaseAITaskExecutor
         
         return reactiveMongoTemplate.updateFirst(query, update, Scene.class)
                 .map(updateResult -> updateResult.getModifiedCount() > 0)
+                .doOnNext(updated -> {
+                    if (updated) {
+                        contentCache.invalidateNovel(novelId);
+                    }
+                })
                 .onErrorResume(OptimisticLockingFailureException.class, e -> {
                     log.warn("原子更新场景 {} 摘要时发生乐观锁冲突 (期望版本: {})", sceneId, expectedVersion);
                     return Mono.just(false);
@@ -5,6 +5,7 @@ import com.ainovel.server.repository.BackgroundTaskRepository;
 import com.ainovel.server.task.dto.nextsummaries.GenerateNextSummariesOnlyProgress;
 import com.ainovel.server.task.dto.nextsummaries.GenerateNextSummariesOnlyResult;
 import com.ainovel.server.task.dto.nextsummaries.GenerateSingleSummaryResult;
+import com.ainovel.server.task.event.internal.SubTaskSummaryChangedEvent;
 import com.ainovel.server.task.event.internal.TaskCompletedEvent;
 import com.ainovel.server.task.event.internal.TaskFailedEvent;
 import com.ainovel.server.task.model.BackgroundTask;
@@ -20,186 +21,168 @@ import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
 
 /**
  * 自动续写小说章节摘要任务状态聚合器
- * 监听子任务完成和失败事件，更新父任务的状态和进度
+ * 监听子任务状态摘要的合并更新事件，按子任务计数更新父任务的状态和进度；
+ * 子任务完成和失败事件只用于记录当前处理到的章节索引
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class NextSummariesStateAggregator {
 
+    private static final String PARENT_TASK_TYPE = "GENERATE_NEXT_SUMMARIES_ONLY";
+
     private final TaskStateService taskStateService;
     private final BackgroundTaskRepository backgroundTaskRepository;
+    // 父任务ID -> 最近处理的章节索引
+    private final ConcurrentHashMap<String, Integer> currentIndexes = new ConcurrentHashMap<>();
     // 缓存处理过的事件ID，避免重复处理
     private final ConcurrentHashMap<String, Boolean> processedEventIds = new ConcurrentHashMap<>();
 
     /**
-     * 处理单个章节摘要生成任务完成事件
+     * 处理单个章节摘要生成任务完成事件：只记录最新的章节索引，计数由子任务状态摘要提供
      */
     @EventListener
     @Async
     public void onSingleSummaryTaskCompleted(TaskCompletedEvent event) {
+        if (!"GENERATE_SINGLE_SUMMARY".equals(event.getTaskType())) {
+            return; // 只处理单个章节摘要生成任务
+        }
+
         if (!checkAndMarkEventProcessed(event.getEventId())) {
             log.debug("事件已处理，跳过: {}", event.getEventId());
             return;
         }
 
-        if (!"GENERATE_SINGLE_SUMMARY".equals(event.getTaskType())) {
-            return; // 只处理单个章节摘要生成任务
+        if (event.getResult() instanceof GenerateSingleSummaryResult summaryResult) {
+            recordCurrentIndex(event.getTaskId(), task -> summaryResult.getChapterIndex());
+        } else {
+            log.warn("任务结果类型错误，期望 GenerateSingleSummaryResult，实际: {}",
+                    event.getResult() != null ? event.getResult().getClass().getName() : "null");
         }
-
-        String taskId = event.getTaskId();
-        log.debug("接收到单个章节摘要生成任务完成事件: {}", taskId);
-        
-        // 使用响应式方式处理
-        taskStateService.getTask(taskId)
-            .switchIfEmpty(Mono.<BackgroundTask>defer(() -> {
-                log.warn("找不到任务: {}", taskId);
-                return Mono.empty();
-            }))
-            .filter(task -> task.getParentTaskId() != null && !task.getParentTaskId().isEmpty())
-            .flatMap(task -> {
-                String parentTaskId = task.getParentTaskId();
-                log.debug("处理单个章节摘要生成子任务 {} 完成事件，父任务: {}", taskId, parentTaskId);
-                
-                // 获取子任务结果
-                Object result = event.getResult();
-                if (!(result instanceof GenerateSingleSummaryResult)) {
-                    log.warn("任务结果类型错误，期望 GenerateSingleSummaryResult，实际: {}", 
-                            result != null ? result.getClass().getName() : "null");
-                    return Mono.empty();
-                }
-                
-                GenerateSingleSummaryResult summaryResult = (GenerateSingleSummaryResult) result;
-                
-                return taskStateService.getTask(parentTaskId)
-                    .switchIfEmpty(Mono.<BackgroundTask>defer(() -> {
-                        log.warn("找不到父任务: {}", parentTaskId);
-                        return Mono.empty();
-                    }))
-                    .flatMap(parentTask -> updateParentTaskProgress(parentTask, summaryResult, true));
-            })
-            .subscribe(
-                success -> {},
-                error -> log.error("处理单个章节摘要生成任务完成事件失败", error)
-            );
     }
 
     /**
-     * 处理单个章节摘要生成任务失败事件
+     * 处理单个章节摘要生成任务失败事件：只记录最新的章节索引，计数由子任务状态摘要提供
      */
     @EventListener
     @Async
     public void onSingleSummaryTaskFailed(TaskFailedEvent event) {
+        if (!"GENERATE_SINGLE_SUMMARY".equals(event.getTaskType())) {
+            return; // 只处理单个章节摘要生成任务
+        }
+
         if (!checkAndMarkEventProcessed(event.getEventId())) {
             log.debug("事件已处理，跳过: {}", event.getEventId());
             return;
         }
 
-        if (!"GENERATE_SINGLE_SUMMARY".equals(event.getTaskType())) {
-            return; // 只处理单个章节摘要生成任务
+        // 从子任务参数获取当前章节索引
+        recordCurrentIndex(event.getTaskId(),
+                task -> (int) ReflectionUtil.getPropertyValue(task.getParameters(), "chapterIndex", 0));
+    }
+
+    /**
+     * 处理子任务状态摘要更新事件（每个刷新窗口每个父任务最多一次）
+     */
+    @EventListener
+    @Async
+    public void onSubTaskSummaryChanged(SubTaskSummaryChangedEvent event) {
+        if (!PARENT_TASK_TYPE.equals(event.getTaskType())) {
+            return;
         }
 
-        String taskId = event.getTaskId();
-        log.debug("接收到单个章节摘要生成任务失败事件: {}", taskId);
-        
-        // 使用响应式方式处理
-        taskStateService.getTask(taskId)
+        if (!checkAndMarkEventProcessed(event.getEventId())) {
+            log.debug("事件已处理，跳过: {}", event.getEventId());
+            return;
+        }
+
+        String parentTaskId = event.getTaskId();
+        taskStateService.getTask(parentTaskId)
             .switchIfEmpty(Mono.<BackgroundTask>defer(() -> {
-                log.warn("找不到任务: {}", taskId);
+                log.warn("找不到父任务: {}", parentTaskId);
                 return Mono.empty();
             }))
-            .filter(task -> task.getParentTaskId() != null && !task.getParentTaskId().isEmpty())
-            .flatMap(task -> {
-                String parentTaskId = task.getParentTaskId();
-                log.debug("处理单个章节摘要生成子任务 {} 失败事件，父任务: {}", taskId, parentTaskId);
-                
-                // 获取子任务参数
-                Object parameters = task.getParameters();
-                
-                // 从子任务获取当前章节索引
-                final int chapterIndex;
-                if (parameters != null) {
-                    chapterIndex = (int) ReflectionUtil.getPropertyValue(parameters, "chapterIndex", 0);
-                } else {
-                    chapterIndex = 0;
-                }
-                
-                // 创建一个空的结果，用于更新父任务进度
-                GenerateSingleSummaryResult failedResult = GenerateSingleSummaryResult.builder()
-                        .chapterIndex(chapterIndex)
-                        .chapterId(null)
-                        .summary(null)
-                        .chapterTitle(null)
-                        .build();
-                
-                return taskStateService.getTask(parentTaskId)
-                    .switchIfEmpty(Mono.<BackgroundTask>defer(() -> {
-                        log.warn("找不到父任务: {}", parentTaskId);
-                        return Mono.empty();
-                    }))
-                    .flatMap(parentTask -> updateParentTaskProgress(parentTask, failedResult, false));
-            })
+            .flatMap(parentTask -> updateParentTaskProgress(parentTask, event.getStatusSummary()))
             .subscribe(
                 success -> {},
-                error -> log.error("处理单个章节摘要生成任务失败事件失败", error)
+                error -> log.error("处理自动续写摘要任务进度更新失败", error)
             );
     }
 
     /**
-     * 更新父任务进度
+     * 按子任务状态计数更新父任务进度
      * 
      * @param parentTask 父任务
-     * @param summaryResult 子任务结果
-     * @param success 是否成功
+     * @param statusSummary 子任务状态计数
      * @return 完成信号
      */
-    private Mono<Void> updateParentTaskProgress(BackgroundTask parentTask, GenerateSingleSummaryResult summaryResult, boolean success) {
+    private Mono<Void> updateParentTaskProgress(BackgroundTask parentTask, Map<String, Integer> statusSummary) {
         final String parentTaskId = parentTask.getId();
         
         // 获取现有的进度信息
         Object currentProgress = parentTask.getProgress();
-        GenerateNextSummariesOnlyProgress progress;
-        
-        if (currentProgress instanceof GenerateNextSummariesOnlyProgress) {
-            progress = (GenerateNextSummariesOnlyProgress) currentProgress;
-        } else {
-            // 如果进度对象不存在或类型不匹配，创建一个新的
-            progress = new GenerateNextSummariesOnlyProgress();
-            progress.setTotal(0);
-            progress.setCompleted(0);
-            progress.setFailed(0);
-            progress.setCurrentIndex(0);
-        }
+        final int total = currentProgress instanceof GenerateNextSummariesOnlyProgress progress ? progress.getTotal() : 0;
         
         // 更新进度
         final GenerateNextSummariesOnlyProgress updatedProgress = new GenerateNextSummariesOnlyProgress();
-        updatedProgress.setTotal(progress.getTotal());
-        updatedProgress.setCompleted(success ? progress.getCompleted() + 1 : progress.getCompleted());
-        updatedProgress.setFailed(success ? progress.getFailed() : progress.getFailed() + 1);
-        
-        // 获取最新章节索引
-        updatedProgress.setCurrentIndex(summaryResult.getChapterIndex());
+        updatedProgress.setTotal(total);
+        updatedProgress.setCompleted(count(statusSummary, TaskStatus.COMPLETED));
+        updatedProgress.setFailed(count(statusSummary, TaskStatus.FAILED) + count(statusSummary, TaskStatus.DEAD_LETTER));
+        updatedProgress.setCurrentIndex(currentIndexes.getOrDefault(parentTaskId,
+                currentProgress instanceof GenerateNextSummariesOnlyProgress progress ? progress.getCurrentIndex() : 0));
         
         // 更新父任务进度
         return taskStateService.recordProgress(parentTaskId, updatedProgress)
             .then(Mono.defer(() -> {
                 // 判断任务是否已完成
                 boolean completed = (updatedProgress.getCompleted() + updatedProgress.getFailed() >= updatedProgress.getTotal());
-                if (completed) {
-                    log.info("父任务所有子任务已处理完毕，开始更新最终状态，成功: {}，失败: {}，总数: {}", 
-                            updatedProgress.getCompleted(), updatedProgress.getFailed(), updatedProgress.getTotal());
-                    
-                    // 更新任务最终状态
-                    return updateTaskFinalState(parentTask, updatedProgress);
+                if (!completed) {
+                    return Mono.empty();
                 }
-                return Mono.empty();
+                // 以子任务实际状态为准再确认一次
+                return taskStateService.rebuildSubTaskStatusSummary(parentTaskId)
+                    .flatMap(exactSummary -> {
+                        updatedProgress.setCompleted(count(exactSummary, TaskStatus.COMPLETED));
+                        updatedProgress.setFailed(count(exactSummary, TaskStatus.FAILED) + count(exactSummary, TaskStatus.DEAD_LETTER));
+                        if (updatedProgress.getCompleted() + updatedProgress.getFailed() < updatedProgress.getTotal()) {
+                            return Mono.empty();
+                        }
+                        log.info("父任务所有子任务已处理完毕，开始更新最终状态，成功: {}，失败: {}，总数: {}", 
+                                updatedProgress.getCompleted(), updatedProgress.getFailed(), updatedProgress.getTotal());
+                        currentIndexes.remove(parentTaskId);
+                        
+                        // 更新任务最终状态
+                        return updateTaskFinalState(parentTask, updatedProgress);
+                    });
             }));
     }
 
+    /**
+     * 记录子任务所属父任务的最新章节索引
+     */
+    private void recordCurrentIndex(String childTaskId, ToIntFunction<BackgroundTask> chapterIndexOf) {
+        taskStateService.getTask(childTaskId)
+            .filter(task -> task.getParentTaskId() != null && !task.getParentTaskId().isEmpty())
+            .subscribe(
+                task -> currentIndexes.merge(task.getParentTaskId(), chapterIndexOf.applyAsInt(task), Math::max),
+                error -> log.warn("记录章节索引失败: {}", error.getMessage())
+            );
+    }
+
+    private static int count(Map<String, Integer> statusSummary, TaskStatus status) {
+        if (statusSummary == null) {
+            return 0;
+        }
+        Integer value = statusSummary.get(status.name());
+        return value != null ? Math.max(0, value) : 0;
+    }
+
     /**
      * 更新任务最终状态
      */
@@ -262,19 +245,13 @@ public class NextSummariesStateAggregator {
                     result.setFailedSteps(new ArrayList<>());
                 }
                 
-                // 使用响应式API更新任务状态
-                return taskStateService.recordCompletion(taskId, result)
-                    .then(taskStateService.getTask(taskId))
-                    .flatMap(updatedTask -> {
-                        if (updatedTask == null) {
-                            log.warn("更新父任务 {} 最终状态失败", taskId);
-                            return Mono.empty();
-                        } else {
+                // 只有仍在进行中时才写入最终状态，并发的摘要事件不会重复收尾
+                return taskStateService.recordFinalStateIfActive(taskId, finalStatus, result, null)
+                    .doOnNext(won -> {
+                        if (won) {
                             log.info("父任务 {} 已更新为最终状态: {}", taskId, finalStatus);
-                            
-                            // 手动更新任务状态
-                            updatedTask.setStatus(finalStatus);
-                            return Mono.from(backgroundTaskRepository.save(updatedTask));
+                        } else {
+                            log.debug("父任务 {} 已由其他处理者收尾，跳过", taskId);
                         }
                     })
                     .then();
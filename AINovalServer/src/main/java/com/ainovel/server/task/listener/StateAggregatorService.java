@@ -1,7 +1,6 @@
 package com.ainovel.server.task.listener;
 
 import com.ainovel.server.task.event.internal.*;
-import com.ainovel.server.task.model.TaskStatus;
 import com.ainovel.server.task.service.TaskStateService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -112,19 +111,8 @@ public class StateAggregatorService {
             
             log.debug("处理任务完成事件: {}", event.getTaskId());
             
+            // 父任务的子任务状态计数在状态迁移中随之原子更新
             return taskStateService.recordCompletion(event.getTaskId(), event.getResult())
-                .then(taskStateService.getTask(event.getTaskId())) // 获取任务以检查父任务ID
-                .flatMap(task -> {
-                    if (task != null && task.getParentTaskId() != null) {
-                        log.debug("更新父任务{}的子任务状态摘要", task.getParentTaskId());
-                        return taskStateService.updateSubTaskStatusSummary(
-                                task.getParentTaskId(), task.getId(), TaskStatus.RUNNING, TaskStatus.COMPLETED)
-                            .doOnError(e -> log.warn("无法更新父任务{}的子任务状态摘要: {}", 
-                                                    task.getParentTaskId(), e.getMessage()));
-                    } else {
-                        return Mono.empty();
-                    }
-                })
                 .doOnError(e -> log.warn("无法将任务{}标记为已完成: {}", event.getTaskId(), e.getMessage()));
         });
     }
@@ -141,22 +129,9 @@ public class StateAggregatorService {
             }
             
             log.debug("处理任务失败事件: {}", event.getTaskId());
-            TaskStatus newStatus = event.isDeadLetter() ? TaskStatus.DEAD_LETTER : TaskStatus.FAILED;
 
+            // 父任务的子任务状态计数在状态迁移中按实际的前置状态原子更新
             return taskStateService.recordFailure(event.getTaskId(), event.getErrorInfo(), event.isDeadLetter())
-                .then(taskStateService.getTask(event.getTaskId())) // 获取任务以检查父任务ID
-                .flatMap(task -> {
-                    if (task != null && task.getParentTaskId() != null) {
-                        log.debug("更新父任务{}的子任务状态摘要", task.getParentTaskId());
-                        // 假设失败前是RUNNING，实际可能需要从事件获取更准确的前置状态
-                        return taskStateService.updateSubTaskStatusSummary(
-                                task.getParentTaskId(), task.getId(), TaskStatus.RUNNING, newStatus)
-                            .doOnError(e -> log.warn("无法更新父任务{}的子任务状态摘要: {}", 
-                                                    task.getParentTaskId(), e.getMessage()));
-                    } else {
-                        return Mono.empty();
-                    }
-                })
                 .doOnError(e -> log.warn("无法将任务{}标记为失败: {}", event.getTaskId(), e.getMessage()));
         });
     }
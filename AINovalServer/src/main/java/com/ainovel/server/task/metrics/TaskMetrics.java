@@ -8,9 +8,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
+import java.time.Duration;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * 任务系统的指标收集器，记录各种任务执行指标
@@ -32,6 +34,10 @@ public class TaskMetrics {
     // 活跃任务数量
     private final Map<String, AtomicInteger> activeTasksGauges = new ConcurrentHashMap<>();
     
+    // 本地队列指标（按通道）
+    private final Map<String, Timer> queueWaitTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> queueRejectedCounters = new ConcurrentHashMap<>();
+    
     // 总体统计
     private Counter totalSubmitted;
     private Counter totalCompleted;
@@ -164,4 +170,38 @@ public class TaskMetrics {
                   .register(meterRegistry)
         ).increment();
     }
-} 
\ No newline at end of file
+    
+    /**
+     * 注册本地队列深度指标
+     */
+    public void registerQueueDepth(String lane, Supplier<Number> depth) {
+        Gauge.builder("tasks.queue.depth", depth)
+             .tag("lane", lane)
+             .description("本地队列中等待的任务数")
+             .register(meterRegistry);
+    }
+    
+    /**
+     * 记录任务在本地队列中的等待时间
+     */
+    public void recordQueueWait(String lane, Duration waitTime) {
+        queueWaitTimers.computeIfAbsent(lane, l ->
+            Timer.builder("tasks.queue.wait")
+                 .tag("lane", l)
+                 .description("任务在本地队列中的等待时间")
+                 .register(meterRegistry)
+        ).record(waitTime);
+    }
+    
+    /**
+     * 记录因本地队列已满而暂缓入队的任务
+     */
+    public void recordQueueRejected(String lane) {
+        queueRejectedCounters.computeIfAbsent(lane, l ->
+            Counter.builder("tasks.queue.rejected")
+                  .tag("lane", l)
+                  .description("本地队列已满时暂缓入队的任务数")
+                  .register(meterRegistry)
+        ).increment();
+    }
+}
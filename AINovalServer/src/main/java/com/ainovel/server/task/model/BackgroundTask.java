@@ -98,6 +98,11 @@ public class BackgroundTask {
      */
     private Map<String, Integer> subTaskStatusSummary;
     
+    /**
+     * 子任务状态摘要对应的统计开始时间，只允许更晚的统计结果覆盖摘要
+     */
+    private Instant subTaskStatusSummaryCountedAt;
+    
     /**
      * 版本号，用于乐观锁
      */
@@ -3,14 +3,19 @@ package com.ainovel.server.task.service;
 import com.ainovel.server.config.AIProviderEnum;
 import com.ainovel.server.config.ProviderRateLimitConfig;
 import com.ainovel.server.task.service.factory.RateLimitStrategyFactory;
+import com.ainovel.server.task.service.ratelimit.DistributedRateLimitEngine;
 import com.ainovel.server.task.service.retry.RabbitMQRetryManager;
 import com.ainovel.server.task.service.strategy.IRateLimitStrategy;
 import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 import com.ainovel.server.config.RateLimitConfigurationManager;
 
+import java.time.Duration;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -23,6 +28,7 @@ import java.util.concurrent.ConcurrentHashMap;
  * 3. RabbitMQ重试机制集成
  * 4. 并发安全的配置管理
  * 5. 智能错误处理和监控
+ * 6. 供应商全局配额（所有用户、所有节点合计的每分钟请求数，Redis 模式下跨节点生效）
  */
 @Slf4j
 @Service
@@ -32,9 +38,26 @@ public class EnhancedRateLimiterService {
     private final RateLimitStrategyFactory strategyFactory;
     private final RabbitMQRetryManager retryManager;
     private final RateLimitConfigurationManager rateLimitConfigurationManager;
+    private final DistributedRateLimitEngine rateLimitEngine;
+    
+    private static final Duration GLOBAL_QUOTA_WINDOW = Duration.ofMinutes(1);
+    
+    // 供应商全局每分钟请求上限，格式 "gemini=30,openai=3000"，为空则不限制
+    @Value("${task.ratelimiter.global.requests-per-minute:}")
+    private String globalRequestsPerMinute;
+    
+    private Map<String, Long> globalQuotas = Map.of();
     
     // 配置缓存 - 按用户和模型分组
-    private final ConcurrentHashMap<String, ProviderRateLimitConfig> configCache = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<ConfigKey, ProviderRateLimitConfig> configCache = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    void initGlobalQuotas() {
+        this.globalQuotas = parseGlobalQuotas(globalRequestsPerMinute);
+        if (!globalQuotas.isEmpty()) {
+            log.info("供应商全局配额(每分钟): {}, 计数引擎: {}", globalQuotas, rateLimitEngine.getName());
+        }
+    }
     
     /**
      * 尝试获取AI服务限流许可
@@ -53,8 +76,11 @@ public class EnhancedRateLimiterService {
             // 获取限流策略
             IRateLimitStrategy strategy = strategyFactory.getStrategy(config.getRateLimitStrategy());
             
-            // 尝试获取许可
-            return strategy.tryAcquire(config, requestId)
+            // 先检查供应商全局配额，再走用户/模型维度的策略限流
+            return checkGlobalQuota(providerCode, requestId)
+                    .flatMap(withinQuota -> withinQuota
+                            ? strategy.tryAcquire(config, requestId)
+                            : Mono.just(false))
                     .map(permitted -> {
                         if (permitted) {
                             log.debug("限流许可获取成功: provider={}, user={}, model={}, requestId={}", 
@@ -175,11 +201,49 @@ public class EnhancedRateLimiterService {
         return Mono.empty();
     }
     
+    /**
+     * 检查供应商全局配额；未配置该供应商时直接放行
+     */
+    private Mono<Boolean> checkGlobalQuota(String providerCode, String requestId) {
+        if (providerCode == null) {
+            return Mono.just(true);
+        }
+        Long limit = globalQuotas.get(providerCode.toLowerCase());
+        if (limit == null) {
+            return Mono.just(true);
+        }
+        return rateLimitEngine.tryAcquireInWindow("global:" + providerCode.toLowerCase(), GLOBAL_QUOTA_WINDOW, limit)
+                .doOnNext(acquired -> {
+                    if (!acquired) {
+                        log.warn("达到供应商全局配额: provider={}, limit={}/min, requestId={}", providerCode, limit, requestId);
+                    }
+                });
+    }
+    
+    private static Map<String, Long> parseGlobalQuotas(String spec) {
+        Map<String, Long> result = new ConcurrentHashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return result;
+        }
+        for (String part : spec.split(",")) {
+            String[] kv = part.split("=");
+            if (kv.length != 2) {
+                continue;
+            }
+            try {
+                result.put(kv[0].trim().toLowerCase(), Math.max(1L, Long.parseLong(kv[1].trim())));
+            } catch (NumberFormatException e) {
+                log.warn("忽略无效的供应商全局配额配置: {}", part);
+            }
+        }
+        return result;
+    }
+    
     /**
      * 获取或创建供应商配置
      */
     private ProviderRateLimitConfig getOrCreateConfig(String providerCode, String userId, String modelName) {
-        String cacheKey = buildCacheKey(providerCode, userId, modelName);
+        ConfigKey cacheKey = ConfigKey.of(providerCode, userId, modelName);
 
         ProviderRateLimitConfig existing = configCache.get(cacheKey);
         if (existing != null) {
@@ -204,16 +268,18 @@ public class EnhancedRateLimiterService {
      * 从缓存获取配置
      */
     private ProviderRateLimitConfig getConfigFromCache(String providerCode, String userId, String modelName) {
-        String cacheKey = buildCacheKey(providerCode, userId, modelName);
-        return configCache.get(cacheKey);
+        return configCache.get(ConfigKey.of(providerCode, userId, modelName));
     }
     
     /**
-     * 构建缓存键
+     * 配置缓存键
+     * 用组合键代替每次 String.format 拼接：三个字段的 hashCode 均已由 String 缓存，查找时不再解析格式串、不再复制字符
      */
-    private String buildCacheKey(String providerCode, String userId, String modelName) {
-        return String.format("%s:%s:%s", providerCode, userId != null ? userId : "system", 
-                modelName != null ? modelName : "default");
+    private record ConfigKey(String providerCode, String userId, String modelName) {
+        static ConfigKey of(String providerCode, String userId, String modelName) {
+            return new ConfigKey(providerCode, userId != null ? userId : "system",
+                    modelName != null ? modelName : "default");
+        }
     }
     
     /**
@@ -135,15 +135,23 @@ public interface TaskStateService {
     Flux<BackgroundTask> getSubTasks(String parentTaskId);
     
     /**
-     * 更新子任务状态摘要
+     * 按子任务的实际状态重建父任务的子任务状态摘要（修复路径；正常情况下计数随子任务状态迁移以 $inc 原子更新）
      * @param parentTaskId 父任务ID
-     * @param childTaskId 子任务ID
-     * @param oldStatus 旧状态
-     * @param newStatus 新状态
-     * @return 完成信号
+     * @return 重建后的状态计数（状态名 -> 数量）
+     */
+    Mono<Map<String, Integer>> rebuildSubTaskStatusSummary(String parentTaskId);
+    
+    /**
+     * 仅当任务仍在进行中（QUEUED/RUNNING/RETRYING）时写入最终状态
+     * 多个并发的处理者同时收尾同一个父任务时，只有一个能写入成功
+     * @param taskId 任务ID
+     * @param finalStatus 最终状态
+     * @param result 任务结果，可为null
+     * @param errorInfo 错误信息，可为null
+     * @return 是否由本次调用写入了最终状态
      */
-    Mono<Void> updateSubTaskStatusSummary(String parentTaskId, String childTaskId, 
-                                        TaskStatus oldStatus, TaskStatus newStatus);
+    Mono<Boolean> recordFinalStateIfActive(String taskId, TaskStatus finalStatus, Object result,
+                                           Map<String, Object> errorInfo);
     
     /**
      * 记录任务取消
@@ -0,0 +1,228 @@
+package com.ainovel.server.task.service.impl;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.ainovel.server.task.event.internal.SubTaskSummaryChangedEvent;
+import com.ainovel.server.task.model.BackgroundTask;
+import com.ainovel.server.task.model.TaskStatus;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 子任务状态摘要聚合器
+ *
+ * 计数：子任务的每次状态迁移由 {@link TaskStateServiceImpl} 以条件 findAndModify 完成，只有真正改变了子任务状态的那次
+ * 调用会拿到旧状态，随即调用 {@link #applyTransition} 对父任务的 subTaskStatusSummary 做一次原子 $inc（旧状态 -1、新状态 +1），
+ * 每次迁移的开销是 O(1)，与子任务数量无关。
+ *
+ * 事件：计数写入后只把父任务标记为已变化，每个刷新窗口（task.subtask-summary.flush-interval-ms）读取一次父任务的当前计数
+ * 并发布一次 {@link SubTaskSummaryChangedEvent}，上百个子任务同时收尾时处理者不会被逐条触发。
+ *
+ * 修复：按子任务实际状态整体重新统计（{@link #rebuild}）只作为修复路径——$inc 写入失败的父任务在下个窗口重新统计，
+ * 启动时重新统计仍在进行中的父任务（进程在子任务落库与父任务 $inc 之间退出时会漏记），收尾前再统计一次确认。
+ * 重新统计写入时带上统计开始时间，先开始但后写完的统计不会覆盖更新的统计。
+ */
+@Slf4j
+@Component
+public class SubTaskStatusSummaryAggregator {
+
+    private static final String SUMMARY_FIELD = "subTaskStatusSummary";
+    private static final String COUNTED_AT_FIELD = "subTaskStatusSummaryCountedAt";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    /** 计数已变化、待发布事件的父任务 */
+    private final Set<String> changedParents = ConcurrentHashMap.newKeySet();
+    /** $inc 写入失败、需要按子任务实际状态重新统计的父任务 */
+    private final Set<String> parentsToRepair = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+
+    @Autowired
+    public SubTaskStatusSummaryAggregator(ReactiveMongoTemplate mongoTemplate,
+                                          ApplicationEventPublisher eventPublisher) {
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * 对父任务计数应用一次子任务状态迁移，须在子任务状态已被本次调用改变之后调用（每次迁移恰好一次）
+     *
+     * @param parentTaskId 父任务ID
+     * @param oldStatus 旧状态，新建子任务时为null
+     * @param newStatus 新状态
+     */
+    public Mono<Void> applyTransition(String parentTaskId, TaskStatus oldStatus, TaskStatus newStatus) {
+        if (parentTaskId == null || oldStatus == newStatus) {
+            return Mono.empty();
+        }
+        Update update = new Update()
+            .inc(SUMMARY_FIELD + "." + newStatus.name(), 1)
+            .set("timestamps.updatedAt", Instant.now());
+        if (oldStatus != null) {
+            update.inc(SUMMARY_FIELD + "." + oldStatus.name(), -1);
+        }
+        return mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(parentTaskId)), update, BackgroundTask.class)
+            .doOnSuccess(result -> changedParents.add(parentTaskId))
+            .onErrorResume(e -> {
+                // 子任务状态已落库，计数交给下个窗口按实际状态重新统计
+                log.warn("父任务{}的子任务计数更新失败，下个窗口重新统计: {}", parentTaskId, e.getMessage());
+                parentsToRepair.add(parentTaskId);
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    /**
+     * 定时刷新：每个父任务每个窗口最多发布一次摘要事件
+     */
+    @Scheduled(fixedDelayString = "${task.subtask-summary.flush-interval-ms:500}")
+    public void scheduledFlush() {
+        if ((changedParents.isEmpty() && parentsToRepair.isEmpty()) || !flushing.compareAndSet(false, true)) {
+            return;
+        }
+        flush()
+            .doFinally(signal -> flushing.set(false))
+            .subscribe(
+                count -> log.debug("子任务状态摘要事件发布完成，父任务数: {}", count),
+                e -> log.error("子任务状态摘要刷新失败: {}", e.getMessage(), e));
+    }
+
+    /**
+     * 修复计数写入失败的父任务，并为计数有变化的父任务发布一次摘要事件
+     *
+     * @return 本次处理的父任务数量
+     */
+    public Mono<Long> flush() {
+        List<String> repairs = new ArrayList<>(parentsToRepair);
+        List<String> changed = new ArrayList<>(changedParents);
+        Flux<String> repaired = Flux.fromIterable(repairs)
+            .filter(parentsToRepair::remove)
+            .flatMap(parentTaskId -> recount(parentTaskId)
+                .doOnNext(parentTask -> publishSummaryChanged(parentTask))
+                .map(BackgroundTask::getId)
+                .onErrorResume(e -> {
+                    log.warn("父任务{}的子任务计数重新统计失败，下次重试: {}", parentTaskId, e.getMessage());
+                    parentsToRepair.add(parentTaskId);
+                    return Mono.empty();
+                }), 4);
+        Flux<String> published = Flux.fromIterable(changed)
+            // 先取走标记再读取：标记之前写入的 $inc 都已包含在读到的计数中
+            .filter(changedParents::remove)
+            .flatMap(parentTaskId -> findSummary(parentTaskId)
+                .doOnNext(this::publishSummaryChanged)
+                .map(BackgroundTask::getId)
+                .onErrorResume(e -> {
+                    changedParents.add(parentTaskId);
+                    return Mono.empty();
+                }), 8);
+        return repaired.concatWith(published).count();
+    }
+
+    private Mono<BackgroundTask> findSummary(String parentTaskId) {
+        Query query = new Query(Criteria.where("_id").is(parentTaskId));
+        query.fields().include("taskType").include("userId").include(SUMMARY_FIELD);
+        return mongoTemplate.findOne(query, BackgroundTask.class);
+    }
+
+    /**
+     * 按子任务实际状态统计并写入父任务计数；统计开始时间早于已写入的统计时不覆盖
+     *
+     * @return 写入后的父任务（未写入时为空）
+     */
+    private Mono<BackgroundTask> recount(String parentTaskId) {
+        Instant countedAt = Instant.now();
+        return countChildren(parentTaskId)
+            .flatMap(counts -> {
+                Query query = new Query(Criteria.where("_id").is(parentTaskId)
+                    .orOperator(Criteria.where(COUNTED_AT_FIELD).exists(false),
+                                Criteria.where(COUNTED_AT_FIELD).lte(countedAt)));
+                Update update = new Update()
+                    .set(SUMMARY_FIELD, counts)
+                    .set(COUNTED_AT_FIELD, countedAt)
+                    .set("timestamps.updatedAt", Instant.now());
+                return mongoTemplate.findAndModify(query, update,
+                        FindAndModifyOptions.options().returnNew(true), BackgroundTask.class);
+            });
+    }
+
+    /**
+     * 按子任务的实际状态统计父任务的计数（不写库）
+     *
+     * @param parentTaskId 父任务ID
+     * @return 状态名 -> 数量
+     */
+    public Mono<Map<String, Integer>> countChildren(String parentTaskId) {
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(Criteria.where("parentTaskId").is(parentTaskId)),
+            Aggregation.group("status").count().as("count"));
+        return mongoTemplate.aggregate(aggregation, BackgroundTask.class, Document.class)
+            .filter(doc -> doc.get("_id") != null)
+            .collectMap(doc -> doc.get("_id").toString(),
+                        doc -> doc.get("count") instanceof Number n ? n.intValue() : 0,
+                        HashMap::new);
+    }
+
+    /**
+     * 按子任务的实际状态立即重建父任务的计数并写库（修复路径）
+     *
+     * 重建由摘要事件的处理者在收尾前调用，不发布事件，避免处理者被自己的重建再次触发
+     *
+     * @param parentTaskId 父任务ID
+     * @return 重建后的计数（状态名 -> 数量）
+     */
+    public Mono<Map<String, Integer>> rebuild(String parentTaskId) {
+        return recount(parentTaskId)
+            .map(parentTask -> parentTask.getSubTaskStatusSummary() != null
+                ? parentTask.getSubTaskStatusSummary() : Map.<String, Integer>of())
+            .switchIfEmpty(Mono.defer(() -> countChildren(parentTaskId)));
+    }
+
+    /**
+     * 启动时重建仍在进行中的父任务的计数（上次进程在子任务落库与父任务 $inc 之间退出时会漏记）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildActiveParentsOnStartup() {
+        Query query = new Query(Criteria.where(SUMMARY_FIELD).exists(true)
+            .and("status").in(TaskStatus.QUEUED, TaskStatus.RUNNING, TaskStatus.RETRYING));
+        query.fields().include("_id");
+        mongoTemplate.find(query, BackgroundTask.class)
+            .flatMap(parent -> rebuild(parent.getId()), 4)
+            .count()
+            .subscribe(
+                count -> {
+                    if (count > 0) {
+                        log.info("已按子任务状态重建父任务计数，父任务数: {}", count);
+                    }
+                },
+                e -> log.error("重建父任务子任务计数失败: {}", e.getMessage(), e));
+    }
+
+    private void publishSummaryChanged(BackgroundTask parentTask) {
+        eventPublisher.publishEvent(new SubTaskSummaryChangedEvent(this, parentTask.getId(),
+            parentTask.getTaskType(), parentTask.getUserId(), parentTask.getSubTaskStatusSummary()));
+    }
+
+}
@@ -2,6 +2,7 @@ package com.ainovel.server.task.service.impl;
 
 import com.ainovel.server.task.BackgroundTaskExecutable;
 import com.ainovel.server.task.TaskContext;
+import com.ainovel.server.task.TaskExecutionRuntime;
 import com.ainovel.server.task.TaskContextImpl;
 import com.ainovel.server.task.service.TaskExecutorService;
 import com.ainovel.server.task.service.TaskStateService;
@@ -32,16 +33,20 @@ public class TaskExecutorServiceImpl implements TaskExecutorService {
     
     private final Map<String, BackgroundTaskExecutable<?, ?>> executors = new HashMap<>();
     private final TaskStateService taskStateService;
+    private final TaskExecutionRuntime executionRuntime;
     
     /**
      * 构造函数，注入所有BackgroundTaskExecutable实现
      * 
      * @param executables 任务执行器列表
      * @param taskStateService 任务状态服务
+     * @param executionRuntime 任务执行运行时
      */
     @Autowired
-    public TaskExecutorServiceImpl(List<BackgroundTaskExecutable<?, ?>> executables, TaskStateService taskStateService) {
+    public TaskExecutorServiceImpl(List<BackgroundTaskExecutable<?, ?>> executables, TaskStateService taskStateService,
+                                   TaskExecutionRuntime executionRuntime) {
         this.taskStateService = taskStateService;
+        this.executionRuntime = executionRuntime;
         for (BackgroundTaskExecutable<?, ?> executable : executables) {
             String taskType = executable.getTaskType();
             executors.put(taskType, executable);
@@ -68,7 +73,12 @@ public class TaskExecutorServiceImpl implements TaskExecutorService {
         
         long startTime = System.currentTimeMillis();
         
-        return executable.execute(context)
+        // 虚拟线程模式下每个任务在独立的虚拟线程上开始执行，执行器中的同步调用不占用 boundedElastic 线程
+        Mono<R> execution = executionRuntime.isVirtualMode()
+            ? Mono.defer(() -> executable.execute(context)).subscribeOn(executionRuntime.taskScheduler())
+            : executable.execute(context);
+        
+        return execution
             .map(result -> {
                 long executionTime = System.currentTimeMillis() - startTime;
                 logger.debug("任务执行成功: {}, 任务ID: {}, 耗时: {}ms", executable.getTaskType(), context.getTaskId(), executionTime);
@@ -36,14 +36,17 @@ public class TaskStateServiceImpl implements TaskStateService {
     private final BackgroundTaskRepository taskRepository;
     private final ReactiveMongoTemplate mongoTemplate;
     private final ObjectMapper objectMapper;
+    private final SubTaskStatusSummaryAggregator subTaskSummaryAggregator;
     
     @Autowired
     public TaskStateServiceImpl(BackgroundTaskRepository taskRepository, 
                              ReactiveMongoTemplate mongoTemplate,
-                             ObjectMapper objectMapper) {
+                             ObjectMapper objectMapper,
+                             SubTaskStatusSummaryAggregator subTaskSummaryAggregator) {
         this.taskRepository = taskRepository;
         this.mongoTemplate = mongoTemplate;
         this.objectMapper = objectMapper;
+        this.subTaskSummaryAggregator = subTaskSummaryAggregator;
     }
 
     @Override
@@ -83,7 +86,9 @@ public class TaskStateServiceImpl implements TaskStateService {
         timestamps.setUpdatedAt(now);
         task.setTimestamps(timestamps);
         
-        return taskRepository.save(task);
+        return taskRepository.save(task)
+                .flatMap(saved -> subTaskSummaryAggregator.applyTransition(parentTaskId, null, TaskStatus.QUEUED)
+                        .thenReturn(saved));
     }
     
     /**
@@ -116,9 +121,7 @@ public class TaskStateServiceImpl implements TaskStateService {
                 .set("timestamps.startedAt", now)
                 .set("timestamps.updatedAt", now);
         
-        return mongoTemplate.findAndModify(query, update, BackgroundTask.class)
-                .map(task -> true)
-                .defaultIfEmpty(false)
+        return transition(query, update, TaskStatus.RUNNING)
                 .onErrorResume(e -> {
                     log.error("Error when trying to set task {} to running state: {}", taskId, e.getMessage());
                     return Mono.just(false);
@@ -151,8 +154,7 @@ public class TaskStateServiceImpl implements TaskStateService {
                 .set("timestamps.completedAt", now)
                 .set("timestamps.updatedAt", now);
         
-        return mongoTemplate.updateFirst(query, update, BackgroundTask.class)
-                .then();
+        return transition(query, update, TaskStatus.COMPLETED).then();
     }
     
     @Override
@@ -171,8 +173,7 @@ public class TaskStateServiceImpl implements TaskStateService {
             update.set("timestamps.completedAt", now); // 死信也视为一种"完成"
         }
         
-        return mongoTemplate.updateFirst(query, update, BackgroundTask.class)
-                .then();
+        return transition(query, update, newStatus).then();
     }
     
     @Override
@@ -221,8 +222,7 @@ public class TaskStateServiceImpl implements TaskStateService {
                 .set("nextAttemptTimestamp", nextAttemptTime)
                 .set("timestamps.updatedAt", now);
         
-        return mongoTemplate.updateFirst(query, update, BackgroundTask.class)
-                .then();
+        return transition(query, update, TaskStatus.RETRYING).then();
     }
     
     @Override
@@ -238,8 +238,7 @@ public class TaskStateServiceImpl implements TaskStateService {
                 .inc("retryCount", 1)
                 .set("timestamps.updatedAt", now);
         
-        return mongoTemplate.updateFirst(query, update, BackgroundTask.class)
-                .then();
+        return transition(query, update, TaskStatus.RETRYING).then();
     }
     
     @Override
@@ -253,8 +252,7 @@ public class TaskStateServiceImpl implements TaskStateService {
                 .set("timestamps.completedAt", now)
                 .set("timestamps.updatedAt", now);
         
-        return mongoTemplate.updateFirst(query, update, BackgroundTask.class)
-                .then();
+        return transition(query, update, TaskStatus.CANCELLED).then();
     }
     
     @Override
@@ -277,40 +275,33 @@ public class TaskStateServiceImpl implements TaskStateService {
     }
 
     @Override
-    public Mono<Void> updateSubTaskStatusSummary(String parentTaskId, String childTaskId, 
-                                               TaskStatus oldStatus, TaskStatus newStatus) {
+    public Mono<Map<String, Integer>> rebuildSubTaskStatusSummary(String parentTaskId) {
         if (parentTaskId == null) {
             return Mono.empty();
         }
-            
-        return Mono.zip(
-                // 减少旧状态计数
-                decrementStatusCount(parentTaskId, oldStatus),
-                // 增加新状态计数
-                incrementStatusCount(parentTaskId, newStatus)
-            ).then();
+        return subTaskSummaryAggregator.rebuild(parentTaskId);
     }
-    
-    private Mono<Void> decrementStatusCount(String parentTaskId, TaskStatus status) {
-        if (status == null) {
-            return Mono.empty(); // 如果是初始状态变更（无旧状态），不需要减少
-        }
+
+    @Override
+    public Mono<Boolean> recordFinalStateIfActive(String taskId, TaskStatus finalStatus, Object result,
+                                                  Map<String, Object> errorInfo) {
+        Instant now = Instant.now();
         
-        String statusKey = "subTaskStatusSummary." + status.name();
-        Query query = new Query(Criteria.where("_id").is(parentTaskId));
-        Update update = new Update().inc(statusKey, -1);
+        Query query = new Query(Criteria.where("_id").is(taskId)
+                                   .and("status").in(TaskStatus.QUEUED, TaskStatus.RUNNING, TaskStatus.RETRYING));
         
-        return mongoTemplate.updateFirst(query, update, BackgroundTask.class)
-                .then();
-    }
-    
-    private Mono<Void> incrementStatusCount(String parentTaskId, TaskStatus status) {
-        String statusKey = "subTaskStatusSummary." + status.name();
-        Query query = new Query(Criteria.where("_id").is(parentTaskId));
-        Update update = new Update().inc(statusKey, 1);
+        Update update = new Update()
+                .set("status", finalStatus)
+                .set("timestamps.completedAt", now)
+                .set("timestamps.updatedAt", now);
+        if (result != null) {
+            update.set("result", result);
+        }
+        if (errorInfo != null) {
+            update.set("errorInfo", errorInfo);
+        }
         
-        return mongoTemplate.updateFirst(query, update, BackgroundTask.class)
-                .then();
+        return transition(query, update, finalStatus);
     }
 
     @Override
@@ -326,8 +317,21 @@ public class TaskStateServiceImpl implements TaskStateService {
                 .set("timestamps.completedAt", now)
                 .set("timestamps.updatedAt", now);
         
+        return transition(query, update, TaskStatus.CANCELLED);
+    }
+
+    /**
+     * 执行一次状态迁移：以 findAndModify 取回迁移前的状态，只有真正改变了状态的那次调用
+     * 对父任务计数做一次 $inc，并发或重复的迁移不会重复计数
+     *
+     * @return 是否匹配并更新了任务
+     */
+    private Mono<Boolean> transition(Query query, Update update, TaskStatus newStatus) {
+        query.fields().include("status").include("parentTaskId");
         return mongoTemplate.findAndModify(query, update, BackgroundTask.class)
-                .map(task -> true)
+                .flatMap(previous -> subTaskSummaryAggregator
+                        .applyTransition(previous.getParentTaskId(), previous.getStatus(), newStatus)
+                        .thenReturn(true))
                 .defaultIfEmpty(false);
     }
 } 
\ No newline at end of file
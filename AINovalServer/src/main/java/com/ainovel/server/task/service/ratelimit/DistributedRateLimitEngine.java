@@ -0,0 +1,105 @@
+package com.ainovel.server.task.service.ratelimit;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * 限流策略使用的计数引擎入口
+ *
+ * - task.ratelimiter.type=redis 时优先走 {@link RedisRateLimitEngine}，配额在所有节点间共享
+ * - Redis 调用出错或超时时，本次及随后一段冷却期内改用进程内 {@link LocalRateLimitEngine}，
+ *   冷却期结束后自动重新尝试 Redis；降级期间各节点独立计数，限流只会变宽松、不会阻断请求
+ * - 未启用 Redis 时始终使用进程内引擎，行为与原先各策略自带的令牌桶一致
+ */
+@Slf4j
+@Component
+public class DistributedRateLimitEngine implements RateLimitEngine {
+
+    private final RedisRateLimitEngine redisEngine;
+    private final LocalRateLimitEngine localEngine = new LocalRateLimitEngine();
+    private final long fallbackCooldownMillis;
+
+    private volatile long degradedUntil = 0L;
+
+    public DistributedRateLimitEngine(ObjectProvider<RedisRateLimitEngine> redisEngineProvider,
+                                      @Value("${task.ratelimiter.redis.fallback-cooldown-seconds:30}") long fallbackCooldownSeconds) {
+        this.redisEngine = redisEngineProvider.getIfAvailable();
+        this.fallbackCooldownMillis = Math.max(1, fallbackCooldownSeconds) * 1000L;
+    }
+
+    @Override
+    public String getName() {
+        return useRedis() ? "redis" : "local";
+    }
+
+    /**
+     * 当前是否处于 Redis 降级状态
+     */
+    public boolean isDegraded() {
+        return redisEngine != null && !useRedis();
+    }
+
+    @Override
+    public Mono<Boolean> tryAcquire(String key, double ratePerSecond, int capacity) {
+        return route(engine -> engine.tryAcquire(key, ratePerSecond, capacity));
+    }
+
+    @Override
+    public Mono<Integer> availableTokens(String key, double ratePerSecond, int capacity) {
+        return route(engine -> engine.availableTokens(key, ratePerSecond, capacity));
+    }
+
+    @Override
+    public Mono<Boolean> tryAcquireInWindow(String key, Duration window, long limit) {
+        return route(engine -> engine.tryAcquireInWindow(key, window, limit));
+    }
+
+    @Override
+    public Mono<Long> countInWindow(String key, Duration window) {
+        return route(engine -> engine.countInWindow(key, window));
+    }
+
+    @Override
+    public Mono<Void> reset(String key) {
+        // 两边都清，避免降级期间残留的本地状态在下次降级时复用
+        Mono<Void> local = localEngine.reset(key);
+        if (redisEngine == null) {
+            return local;
+        }
+        return local.then(redisEngine.reset(key)
+                .onErrorResume(e -> {
+                    markDegraded(e);
+                    return Mono.empty();
+                }));
+    }
+
+    private <T> Mono<T> route(Function<RateLimitEngine, Mono<T>> operation) {
+        if (!useRedis()) {
+            return operation.apply(localEngine);
+        }
+        return operation.apply(redisEngine)
+                .onErrorResume(e -> {
+                    markDegraded(e);
+                    return operation.apply(localEngine);
+                });
+    }
+
+    private boolean useRedis() {
+        return redisEngine != null && System.currentTimeMillis() >= degradedUntil;
+    }
+
+    private void markDegraded(Throwable error) {
+        long now = System.currentTimeMillis();
+        if (now >= degradedUntil) {
+            log.warn("Redis 限流不可用，{} 秒内降级为本地限流: {}", fallbackCooldownMillis / 1000, error.toString());
+        }
+        degradedUntil = now + fallbackCooldownMillis;
+    }
+}
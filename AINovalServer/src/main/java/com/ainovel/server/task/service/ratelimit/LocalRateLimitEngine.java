@@ -0,0 +1,194 @@
+package com.ainovel.server.task.service.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 进程内限流计数引擎
+ * 单节点部署时直接使用；分布式模式下作为 Redis 不可用时的降级实现（此时每个节点各自计数）
+ *
+ * 令牌桶为无锁实现：令牌数与上次补充时间打包在一个 long 中，补充与扣减通过一次 CAS 完成，
+ * 突发流式请求下不再在 synchronized 块内串行做补充计算
+ */
+public class LocalRateLimitEngine implements RateLimitEngine {
+
+    private final Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    private final Cache<String, SlidingWindow> windows = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(Duration.ofDays(2))
+            .build();
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    @Override
+    public Mono<Boolean> tryAcquire(String key, double ratePerSecond, int capacity) {
+        // 纯内存计算，直接求值，不经过 fromSupplier 的额外订阅开销
+        return Mono.just(bucket(key, capacity).tryConsume(ratePerSecond, capacity));
+    }
+
+    @Override
+    public Mono<Integer> availableTokens(String key, double ratePerSecond, int capacity) {
+        TokenBucket bucket = buckets.getIfPresent(key);
+        return Mono.just(bucket != null ? bucket.available(ratePerSecond, capacity) : 0);
+    }
+
+    @Override
+    public Mono<Boolean> tryAcquireInWindow(String key, Duration window, long limit) {
+        return Mono.fromSupplier(() -> windows.get(key, k -> new SlidingWindow())
+                .tryAcquire(window.toMillis(), limit));
+    }
+
+    @Override
+    public Mono<Long> countInWindow(String key, Duration window) {
+        return Mono.fromSupplier(() -> {
+            SlidingWindow sliding = windows.getIfPresent(key);
+            return sliding != null ? sliding.estimate(window.toMillis()) : 0L;
+        });
+    }
+
+    @Override
+    public Mono<Void> reset(String key) {
+        return Mono.fromRunnable(() -> {
+            buckets.invalidate(key);
+            windows.invalidate(key);
+        });
+    }
+
+    private TokenBucket bucket(String key, int capacity) {
+        // 命中时不创建捕获 lambda
+        TokenBucket bucket = buckets.getIfPresent(key);
+        if (bucket == null) {
+            bucket = buckets.get(key, k -> new TokenBucket(capacity));
+        }
+        return bucket;
+    }
+
+    /**
+     * 无锁令牌桶；速率与容量每次由调用方传入，策略动态调速时无需重建桶
+     *
+     * state 布局：高 40 位为上次补充时间（相对 EPOCH 的毫秒数，约 34 年），
+     * 低 24 位为令牌数（单位千分之一令牌，上限约 16777 个令牌）。
+     * 「毫秒 × 每秒令牌数」恰好等于千分之一令牌数，补充计算只需一次乘法。
+     */
+    static final class TokenBucket {
+        private static final int TOKEN_BITS = 24;
+        private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+        private static final long MILLI = 1000L;
+        static final int MAX_TOKENS = (int) (TOKEN_MASK / MILLI);
+        private static final long EPOCH = System.currentTimeMillis();
+
+        private final AtomicLong state;
+
+        TokenBucket(int capacity) {
+            this.state = new AtomicLong(pack(elapsedNow(), clampCapacity(capacity) * MILLI));
+        }
+
+        boolean tryConsume(double rate, int capacity) {
+            long capacityMilli = clampCapacity(capacity) * MILLI;
+            while (true) {
+                long current = state.get();
+                long now = elapsedNow();
+                long refilled = refill(current, now, rate, capacityMilli);
+                long tokens = refilled & TOKEN_MASK;
+                if (tokens < MILLI) {
+                    // 令牌不足时不回写补充结果，下次调用会基于同一起点重新计算，不丢失补充量
+                    return false;
+                }
+                if (state.compareAndSet(current, refilled - MILLI)) {
+                    return true;
+                }
+                Thread.onSpinWait();
+            }
+        }
+
+        int available(double rate, int capacity) {
+            long refilled = refill(state.get(), elapsedNow(), rate, clampCapacity(capacity) * MILLI);
+            return (int) ((refilled & TOKEN_MASK) / MILLI);
+        }
+
+        /**
+         * 计算补充后的 state（不修改桶）；时间戳只推进到已折算为令牌的那部分，余下的零头留给下次
+         */
+        private static long refill(long current, long now, double rate, long capacityMilli) {
+            long last = current >>> TOKEN_BITS;
+            long tokens = Math.min(current & TOKEN_MASK, capacityMilli);
+            long elapsed = now - last;
+            if (elapsed <= 0 || rate <= 0) {
+                return pack(last, tokens);
+            }
+            long added = (long) (elapsed * rate);
+            if (added <= 0) {
+                return pack(last, tokens);
+            }
+            if (added >= capacityMilli - tokens) {
+                return pack(now, capacityMilli);
+            }
+            long advanced = Math.min(elapsed, (long) Math.ceil(added / rate));
+            return pack(last + advanced, tokens + added);
+        }
+
+        private static long pack(long time, long tokens) {
+            return (time << TOKEN_BITS) | tokens;
+        }
+
+        private static long elapsedNow() {
+            return System.currentTimeMillis() - EPOCH;
+        }
+
+        private static long clampCapacity(int capacity) {
+            return Math.max(1, Math.min(capacity, MAX_TOKENS));
+        }
+    }
+
+    /**
+     * 滑动窗口计数器：当前窗口计数 + 上一窗口计数按剩余比例加权，O(1) 内存
+     */
+    private static final class SlidingWindow {
+        private long windowIndex = Long.MIN_VALUE;
+        private long current;
+        private long previous;
+
+        synchronized boolean tryAcquire(long windowMillis, long limit) {
+            long now = System.currentTimeMillis();
+            roll(now, windowMillis);
+            if (weighted(now, windowMillis) + 1 > limit) {
+                return false;
+            }
+            current++;
+            return true;
+        }
+
+        synchronized long estimate(long windowMillis) {
+            long now = System.currentTimeMillis();
+            roll(now, windowMillis);
+            return weighted(now, windowMillis);
+        }
+
+        private void roll(long now, long windowMillis) {
+            long index = now / windowMillis;
+            if (index == windowIndex) {
+                return;
+            }
+            previous = index == windowIndex + 1 ? current : 0;
+            current = 0;
+            windowIndex = index;
+        }
+
+        private long weighted(long now, long windowMillis) {
+            double elapsedRatio = (double) (now % windowMillis) / windowMillis;
+            return (long) Math.floor(previous * (1 - elapsedRatio)) + current;
+        }
+    }
+}
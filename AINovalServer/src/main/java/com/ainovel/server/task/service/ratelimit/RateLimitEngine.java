@@ -0,0 +1,53 @@
+package com.ainovel.server.task.service.ratelimit;
+
+import java.time.Duration;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * 限流计数引擎
+ * 为各限流策略提供令牌桶与滑动窗口两种原子计数原语，策略只决定速率、容量与窗口大小，
+ * 计数状态放在哪里（进程内 / Redis）由引擎实现决定
+ */
+public interface RateLimitEngine {
+
+    /**
+     * 引擎名称
+     */
+    String getName();
+
+    /**
+     * 令牌桶：尝试取走一个令牌
+     *
+     * @param key 限流键
+     * @param ratePerSecond 每秒补充的令牌数
+     * @param capacity 桶容量（突发上限）
+     * @return 是否取到令牌
+     */
+    Mono<Boolean> tryAcquire(String key, double ratePerSecond, int capacity);
+
+    /**
+     * 令牌桶：当前可用令牌数（不消耗）；从未取过令牌的键返回 0，且不会因查询而创建桶
+     */
+    Mono<Integer> availableTokens(String key, double ratePerSecond, int capacity);
+
+    /**
+     * 滑动窗口计数：窗口内请求数未达上限时计入一次
+     *
+     * @param key 限流键
+     * @param window 窗口大小
+     * @param limit 窗口内允许的请求数
+     * @return 是否允许
+     */
+    Mono<Boolean> tryAcquireInWindow(String key, Duration window, long limit);
+
+    /**
+     * 滑动窗口计数：当前窗口内的估算请求数
+     */
+    Mono<Long> countInWindow(String key, Duration window);
+
+    /**
+     * 清除指定键的全部计数状态（令牌桶与滑动窗口）
+     */
+    Mono<Void> reset(String key);
+}
@@ -0,0 +1,170 @@
+package com.ainovel.server.task.service.ratelimit;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * 基于 Redis 的分布式限流计数引擎
+ *
+ * - 令牌桶与滑动窗口均由 Lua 脚本在 Redis 内原子完成「补充/判断/扣减」，多节点共享同一份配额
+ * - 时间取自 Redis 的 TIME，避免各节点时钟漂移影响补充速率
+ * - 每个限流键只占一个 Hash，键名带 {hash tag}，集群模式下同一限流键的两个结构落在同一槽位
+ * - 调用失败（连接断开、超时）直接以错误返回，由 {@link DistributedRateLimitEngine} 降级到进程内计数
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "task.ratelimiter.type", havingValue = "redis")
+public class RedisRateLimitEngine implements RateLimitEngine {
+
+    /**
+     * 令牌桶脚本
+     * ARGV: 每秒速率, 容量, 本次扣减数(0 表示只查询)
+     * 返回: 扣减成功/查询时为剩余令牌数(向下取整)，扣减失败为 -1；查询不存在的桶返回 0 且不创建
+     */
+    private static final RedisScript<Long> TOKEN_BUCKET_SCRIPT = RedisScript.of("""
+            local rate = tonumber(ARGV[1])
+            local capacity = tonumber(ARGV[2])
+            local requested = tonumber(ARGV[3])
+            local t = redis.call('TIME')
+            local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+            local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(state[1])
+            local ts = tonumber(state[2])
+            if tokens == nil or ts == nil then
+              if requested == 0 then
+                return 0
+              end
+              tokens = capacity
+              ts = now
+            end
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate / 1000)
+            local result = math.floor(tokens)
+            if requested > 0 then
+              if tokens >= requested then
+                tokens = tokens - requested
+                result = math.floor(tokens)
+              else
+                result = -1
+              end
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+            redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate * 1000) + 1000)
+            return result
+            """, Long.class);
+
+    /**
+     * 滑动窗口计数脚本（当前窗口计数 + 上一窗口按剩余比例加权）
+     * ARGV: 窗口毫秒数, 窗口上限, 是否计入(0 表示只查询)
+     * 返回: 计入成功/查询时为当前估算请求数，超限为 -1
+     */
+    private static final RedisScript<Long> SLIDING_WINDOW_SCRIPT = RedisScript.of("""
+            local windowMs = tonumber(ARGV[1])
+            local limit = tonumber(ARGV[2])
+            local acquire = tonumber(ARGV[3])
+            local t = redis.call('TIME')
+            local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+            local index = math.floor(now / windowMs)
+            local state = redis.call('HMGET', KEYS[1], 'idx', 'cur', 'prev')
+            local idx = tonumber(state[1])
+            local cur = tonumber(state[2]) or 0
+            local prev = tonumber(state[3]) or 0
+            if idx ~= index then
+              if idx == index - 1 then prev = cur else prev = 0 end
+              cur = 0
+            end
+            local ratio = (now % windowMs) / windowMs
+            local estimate = math.floor(prev * (1 - ratio)) + cur
+            if acquire > 0 then
+              if estimate + 1 > limit then
+                return -1
+              end
+              cur = cur + 1
+              estimate = estimate + 1
+            end
+            redis.call('HSET', KEYS[1], 'idx', tostring(index), 'cur', tostring(cur), 'prev', tostring(prev))
+            redis.call('PEXPIRE', KEYS[1], windowMs * 2)
+            return estimate
+            """, Long.class);
+
+    private static final double MIN_RATE = 0.001;
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+    private final Duration timeout;
+
+    public RedisRateLimitEngine(ReactiveStringRedisTemplate redisTemplate,
+                                @Value("${task.ratelimiter.redis.key-prefix:ainovel:rl:}") String keyPrefix,
+                                @Value("${task.ratelimiter.redis.timeout-ms:200}") long timeoutMs) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+        this.timeout = Duration.ofMillis(Math.max(10, timeoutMs));
+        log.info("Redis 分布式限流引擎已启用: keyPrefix={}, timeout={}ms", keyPrefix, this.timeout.toMillis());
+    }
+
+    @Override
+    public String getName() {
+        return "redis";
+    }
+
+    @Override
+    public Mono<Boolean> tryAcquire(String key, double ratePerSecond, int capacity) {
+        return runTokenBucket(key, ratePerSecond, capacity, 1).map(result -> result >= 0);
+    }
+
+    @Override
+    public Mono<Integer> availableTokens(String key, double ratePerSecond, int capacity) {
+        return runTokenBucket(key, ratePerSecond, capacity, 0).map(result -> (int) Math.max(0, result));
+    }
+
+    @Override
+    public Mono<Boolean> tryAcquireInWindow(String key, Duration window, long limit) {
+        return runSlidingWindow(key, window, limit, 1).map(result -> result >= 0);
+    }
+
+    @Override
+    public Mono<Long> countInWindow(String key, Duration window) {
+        return runSlidingWindow(key, window, Long.MAX_VALUE, 0).map(result -> Math.max(0, result));
+    }
+
+    @Override
+    public Mono<Void> reset(String key) {
+        return redisTemplate.delete(bucketKey(key), windowKey(key))
+                .timeout(timeout)
+                .then();
+    }
+
+    private Mono<Long> runTokenBucket(String key, double ratePerSecond, int capacity, int requested) {
+        return redisTemplate.execute(TOKEN_BUCKET_SCRIPT, List.of(bucketKey(key)), List.of(
+                        String.valueOf(Math.max(MIN_RATE, ratePerSecond)),
+                        String.valueOf(Math.max(1, capacity)),
+                        String.valueOf(requested)))
+                .next()
+                .timeout(timeout);
+    }
+
+    private Mono<Long> runSlidingWindow(String key, Duration window, long limit, int acquire) {
+        return redisTemplate.execute(SLIDING_WINDOW_SCRIPT, List.of(windowKey(key)), List.of(
+                        String.valueOf(Math.max(1, window.toMillis())),
+                        String.valueOf(limit),
+                        String.valueOf(acquire)))
+                .next()
+                .timeout(timeout);
+    }
+
+    private String bucketKey(String key) {
+        return keyPrefix + "tb:{" + key + "}";
+    }
+
+    private String windowKey(String key) {
+        return keyPrefix + "sw:{" + key + "}";
+    }
+}
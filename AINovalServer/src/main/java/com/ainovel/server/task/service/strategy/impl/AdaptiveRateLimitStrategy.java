@@ -1,7 +1,9 @@
 package com.ainovel.server.task.service.strategy.impl;
 
 import com.ainovel.server.config.ProviderRateLimitConfig;
+import com.ainovel.server.task.service.ratelimit.DistributedRateLimitEngine;
 import com.ainovel.server.task.service.strategy.IRateLimitStrategy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
@@ -11,6 +13,7 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * 自适应限流策略
  * 根据错误率和成功率动态调整限流参数
+ * 令牌桶由 {@link DistributedRateLimitEngine} 保存；错误率统计与速率调整按节点本地维护
  * 
  * 适用场景：
  * - 未知API限制的探索性使用
@@ -19,27 +22,33 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class AdaptiveRateLimitStrategy implements IRateLimitStrategy {
     
-    private final ConcurrentHashMap<String, AdaptiveTokenBucket> buckets = new ConcurrentHashMap<>();
+    private static final String KEY_PREFIX = "adaptive:";
+    
+    private final DistributedRateLimitEngine engine;
+    private final ConcurrentHashMap<String, AdaptiveRateState> states = new ConcurrentHashMap<>();
     
     @Override
     public Mono<Boolean> tryAcquire(ProviderRateLimitConfig config, String requestId) {
         String key = config.getRateLimiterKey();
-        AdaptiveTokenBucket bucket = buckets.computeIfAbsent(key, k -> 
-            new AdaptiveTokenBucket(config.getEffectiveRate(), config.getEffectiveBurstCapacity()));
-        
-        boolean acquired = bucket.tryConsume();
-        
-        if (acquired) {
-            log.debug("自适应策略许可获取成功: key={}, currentRate={}, requestId={}", 
-                    key, bucket.getCurrentRate(), requestId);
-        } else {
-            log.warn("自适应策略许可获取失败: key={}, available={}, errorRate={}, requestId={}", 
-                    key, bucket.getAvailableTokens(), bucket.getErrorRate(), requestId);
-        }
-        
-        return Mono.just(acquired);
+        AdaptiveRateState state = states.computeIfAbsent(key, k -> 
+            new AdaptiveRateState(config.getEffectiveRate(), config.getEffectiveBurstCapacity()));
+        
+        double currentRate = state.adjustRateIfNeeded();
+        
+        return engine.tryAcquire(config.getScopedRateLimiterKey(KEY_PREFIX), currentRate, state.getBaseCapacity())
+                .doOnNext(acquired -> {
+                    if (acquired) {
+                        state.recordRequest();
+                        log.debug("自适应策略许可获取成功: key={}, currentRate={}, requestId={}", 
+                                key, currentRate, requestId);
+                    } else {
+                        log.warn("自适应策略许可获取失败: key={}, currentRate={}, errorRate={}, requestId={}", 
+                                key, currentRate, state.getErrorRate(), requestId);
+                    }
+                });
     }
     
     @Override
@@ -51,22 +60,23 @@ public class AdaptiveRateLimitStrategy implements IRateLimitStrategy {
     @Override
     public Mono<Integer> getAvailablePermits(ProviderRateLimitConfig config) {
         String key = config.getRateLimiterKey();
-        AdaptiveTokenBucket bucket = buckets.get(key);
-        int available = bucket != null ? bucket.getAvailableTokens() : 0;
-        
-        log.debug("自适应策略可用许可: key={}, available={}", key, available);
-        return Mono.just(available);
+        AdaptiveRateState state = states.get(key);
+        if (state == null) {
+            return Mono.just(0);
+        }
+        return engine.availableTokens(config.getScopedRateLimiterKey(KEY_PREFIX), state.getCurrentRate(), state.getBaseCapacity())
+                .doOnNext(available -> log.debug("自适应策略可用许可: key={}, available={}", key, available));
     }
     
     @Override
     public Mono<Void> recordError(ProviderRateLimitConfig config, String errorType, String requestId) {
         String key = config.getRateLimiterKey();
-        AdaptiveTokenBucket bucket = buckets.get(key);
+        AdaptiveRateState state = states.get(key);
         
-        if (bucket != null) {
-            bucket.recordError(errorType);
+        if (state != null) {
+            state.recordError(errorType);
             log.info("自适应策略记录错误: key={}, errorType={}, newRate={}, requestId={}", 
-                    key, errorType, bucket.getCurrentRate(), requestId);
+                    key, errorType, state.getCurrentRate(), requestId);
         }
         
         return Mono.empty();
@@ -75,12 +85,12 @@ public class AdaptiveRateLimitStrategy implements IRateLimitStrategy {
     @Override
     public Mono<Void> recordSuccess(ProviderRateLimitConfig config, String requestId) {
         String key = config.getRateLimiterKey();
-        AdaptiveTokenBucket bucket = buckets.get(key);
+        AdaptiveRateState state = states.get(key);
         
-        if (bucket != null) {
-            bucket.recordSuccess();
+        if (state != null) {
+            state.recordSuccess();
             log.debug("自适应策略记录成功: key={}, newRate={}, requestId={}", 
-                    key, bucket.getCurrentRate(), requestId);
+                    key, state.getCurrentRate(), requestId);
         }
         
         return Mono.empty();
@@ -89,9 +99,9 @@ public class AdaptiveRateLimitStrategy implements IRateLimitStrategy {
     @Override
     public Mono<Void> reset(ProviderRateLimitConfig config) {
         String key = config.getRateLimiterKey();
-        buckets.remove(key);
-        log.info("自适应策略重置: key={}", key);
-        return Mono.empty();
+        states.remove(key);
+        return engine.reset(config.getScopedRateLimiterKey(KEY_PREFIX))
+                .doOnSuccess(v -> log.info("自适应策略重置: key={}", key));
     }
     
     @Override
@@ -100,15 +110,13 @@ public class AdaptiveRateLimitStrategy implements IRateLimitStrategy {
     }
     
     /**
-     * 自适应令牌桶实现
-     * 支持根据错误率动态调整速率
+     * 自适应速率状态
+     * 支持根据错误率动态调整速率，令牌本身由限流引擎计数
      */
-    private static class AdaptiveTokenBucket {
+    private static class AdaptiveRateState {
         private final double baseRate;
         private final int baseCapacity;
         private volatile double currentRate;
-        private volatile double tokens;
-        private volatile long lastRefill;
         
         // 统计信息
         private volatile int errorCount = 0;
@@ -122,34 +130,17 @@ public class AdaptiveRateLimitStrategy implements IRateLimitStrategy {
         private static final double MAX_RATE_MULTIPLIER = 2.0; // 最大速率倍数
         private static final double MIN_RATE_MULTIPLIER = 0.1; // 最小速率倍数
         
-        public AdaptiveTokenBucket(double rate, int capacity) {
+        public AdaptiveRateState(double rate, int capacity) {
             this.baseRate = rate;
             this.baseCapacity = capacity;
             this.currentRate = rate;
-            this.tokens = capacity;
-            this.lastRefill = System.currentTimeMillis();
         }
         
-        public synchronized boolean tryConsume() {
-            refill();
-            adjustRateIfNeeded();
-            
-            if (tokens >= 1.0) {
-                tokens -= 1.0;
-                totalRequests++;
-                return true;
-            }
-            return false;
-        }
-        
-        private void refill() {
-            long now = System.currentTimeMillis();
-            double elapsed = (now - lastRefill) / 1000.0;
-            tokens = Math.min(baseCapacity, tokens + elapsed * currentRate);
-            lastRefill = now;
+        public synchronized void recordRequest() {
+            totalRequests++;
         }
         
-        public void recordError(String errorType) {
+        public synchronized void recordError(String errorType) {
             errorCount++;
             totalRequests++;
             
@@ -160,17 +151,17 @@ public class AdaptiveRateLimitStrategy implements IRateLimitStrategy {
             }
         }
         
-        public void recordSuccess() {
+        public synchronized void recordSuccess() {
             successCount++;
             totalRequests++;
         }
         
-        private void adjustRateIfNeeded() {
+        public synchronized double adjustRateIfNeeded() {
             long now = System.currentTimeMillis();
             
             // 检查是否需要调整
             if (now - lastAdjustment < ADJUSTMENT_INTERVAL || totalRequests < MIN_SAMPLES) {
-                return;
+                return currentRate;
             }
             
             double errorRate = (double) errorCount / totalRequests;
@@ -193,6 +184,7 @@ public class AdaptiveRateLimitStrategy implements IRateLimitStrategy {
             errorCount = errorCount / 2;
             successCount = successCount / 2;
             totalRequests = totalRequests / 2;
+            return currentRate;
         }
         
         private double calculateRateMultiplier(double errorRate) {
@@ -217,9 +209,8 @@ public class AdaptiveRateLimitStrategy implements IRateLimitStrategy {
             return totalRequests > 0 ? (double) errorCount / totalRequests : 0.0;
         }
         
-        public int getAvailableTokens() {
-            refill();
-            return (int) tokens;
+        public int getBaseCapacity() {
+            return baseCapacity;
         }
     }
 } 
\ No newline at end of file
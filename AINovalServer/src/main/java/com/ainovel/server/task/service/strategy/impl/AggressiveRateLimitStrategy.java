@@ -1,7 +1,9 @@
 package com.ainovel.server.task.service.strategy.impl;
 
 import com.ainovel.server.config.ProviderRateLimitConfig;
+import com.ainovel.server.task.service.ratelimit.DistributedRateLimitEngine;
 import com.ainovel.server.task.service.strategy.IRateLimitStrategy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
@@ -11,6 +13,7 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * 激进限流策略
  * 高性能、高并发的限流实现
+ * 令牌桶由 {@link DistributedRateLimitEngine} 保存；降速/恢复状态按节点本地维护，只影响本节点的补充速率
  * 
  * 适用场景：
  * - 高配额的付费API
@@ -19,32 +22,32 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class AggressiveRateLimitStrategy implements IRateLimitStrategy {
     
-    private final ConcurrentHashMap<String, EnhancedTokenBucket> buckets = new ConcurrentHashMap<>();
+    private static final String KEY_PREFIX = "aggressive:";
+    
+    private final DistributedRateLimitEngine engine;
+    private final ConcurrentHashMap<String, SlowdownState> slowdowns = new ConcurrentHashMap<>();
     
     @Override
     public Mono<Boolean> tryAcquire(ProviderRateLimitConfig config, String requestId) {
         String key = config.getRateLimiterKey();
         
         // 激进策略：使用更大的速率和容量
-        double enhancedRate = config.getEffectiveRate() * 2.0;
+        double enhancedRate = currentRate(key, config);
         int enhancedCapacity = config.getEffectiveBurstCapacity() * 2;
         
-        EnhancedTokenBucket bucket = buckets.computeIfAbsent(key, k -> 
-            new EnhancedTokenBucket(enhancedRate, enhancedCapacity));
-        
-        boolean acquired = bucket.tryConsume();
-        
-        if (acquired) {
-            log.debug("激进策略许可获取成功: key={}, enhancedRate={}, requestId={}", 
-                    key, enhancedRate, requestId);
-        } else {
-            log.warn("激进策略许可获取失败: key={}, available={}, requestId={}", 
-                    key, bucket.getAvailableTokens(), requestId);
-        }
-        
-        return Mono.just(acquired);
+        return engine.tryAcquire(config.getScopedRateLimiterKey(KEY_PREFIX), enhancedRate, enhancedCapacity)
+                .doOnNext(acquired -> {
+                    if (acquired) {
+                        log.debug("激进策略许可获取成功: key={}, enhancedRate={}, requestId={}", 
+                                key, enhancedRate, requestId);
+                    } else {
+                        log.warn("激进策略许可获取失败: key={}, enhancedRate={}, requestId={}", 
+                                key, enhancedRate, requestId);
+                    }
+                });
     }
     
     @Override
@@ -56,21 +59,17 @@ public class AggressiveRateLimitStrategy implements IRateLimitStrategy {
     @Override
     public Mono<Integer> getAvailablePermits(ProviderRateLimitConfig config) {
         String key = config.getRateLimiterKey();
-        EnhancedTokenBucket bucket = buckets.get(key);
-        int available = bucket != null ? bucket.getAvailableTokens() : 0;
-        
-        log.debug("激进策略可用许可: key={}, available={}", key, available);
-        return Mono.just(available);
+        return engine.availableTokens(config.getScopedRateLimiterKey(KEY_PREFIX), currentRate(key, config),
+                        config.getEffectiveBurstCapacity() * 2)
+                .doOnNext(available -> log.debug("激进策略可用许可: key={}, available={}", key, available));
     }
     
     @Override
     public Mono<Void> recordError(ProviderRateLimitConfig config, String errorType, String requestId) {
         String key = config.getRateLimiterKey();
-        EnhancedTokenBucket bucket = buckets.get(key);
-        
-        if (bucket != null && (errorType.contains("429") || errorType.contains("quota"))) {
+        if (errorType.contains("429") || errorType.contains("quota")) {
             // 遇到配额错误时，临时降低速率
-            bucket.temporarySlowdown();
+            slowdowns.computeIfAbsent(key, k -> new SlowdownState()).temporarySlowdown();
             log.warn("激进策略临时降速: key={}, errorType={}, requestId={}", key, errorType, requestId);
         }
         
@@ -80,10 +79,10 @@ public class AggressiveRateLimitStrategy implements IRateLimitStrategy {
     @Override
     public Mono<Void> recordSuccess(ProviderRateLimitConfig config, String requestId) {
         String key = config.getRateLimiterKey();
-        EnhancedTokenBucket bucket = buckets.get(key);
+        SlowdownState state = slowdowns.get(key);
         
-        if (bucket != null) {
-            bucket.recordSuccess();
+        if (state != null) {
+            state.recordSuccess();
         }
         
         log.debug("激进策略记录成功: key={}, requestId={}", key, requestId);
@@ -93,9 +92,9 @@ public class AggressiveRateLimitStrategy implements IRateLimitStrategy {
     @Override
     public Mono<Void> reset(ProviderRateLimitConfig config) {
         String key = config.getRateLimiterKey();
-        buckets.remove(key);
-        log.info("激进策略重置: key={}", key);
-        return Mono.empty();
+        slowdowns.remove(key);
+        return engine.reset(config.getScopedRateLimiterKey(KEY_PREFIX))
+                .doOnSuccess(v -> log.info("激进策略重置: key={}", key));
     }
     
     @Override
@@ -104,15 +103,20 @@ public class AggressiveRateLimitStrategy implements IRateLimitStrategy {
     }
     
     /**
-     * 增强型令牌桶实现
+     * 当前补充速率：基础速率翻倍，处于降速期时再乘以降速系数
+     */
+    private double currentRate(String key, ProviderRateLimitConfig config) {
+        double enhancedRate = config.getEffectiveRate() * 2.0;
+        SlowdownState state = slowdowns.get(key);
+        return state != null ? enhancedRate * state.rateFactor() : enhancedRate;
+    }
+    
+    /**
+     * 降速状态
      * 支持动态调整和快速恢复
      */
-    private static class EnhancedTokenBucket {
-        private final double baseRate;
-        private final int baseCapacity;
-        private volatile double currentRate;
-        private volatile double tokens;
-        private volatile long lastRefill;
+    private static class SlowdownState {
+        private volatile double rateFactor = 1.0;
         private volatile long lastSlowdown = 0;
         private volatile int successCount = 0;
         
@@ -121,50 +125,24 @@ public class AggressiveRateLimitStrategy implements IRateLimitStrategy {
         private static final double SLOWDOWN_FACTOR = 0.3;   // 降速到30%
         private static final int RECOVERY_THRESHOLD = 5;     // 5次成功后恢复
         
-        public EnhancedTokenBucket(double rate, int capacity) {
-            this.baseRate = rate;
-            this.baseCapacity = capacity;
-            this.currentRate = rate;
-            this.tokens = capacity;
-            this.lastRefill = System.currentTimeMillis();
-        }
-        
-        public synchronized boolean tryConsume() {
-            refill();
-            if (tokens >= 1.0) {
-                tokens -= 1.0;
-                return true;
-            }
-            return false;
-        }
-        
-        private void refill() {
-            long now = System.currentTimeMillis();
-            double elapsed = (now - lastRefill) / 1000.0;
-            
+        public synchronized double rateFactor() {
             // 检查是否需要恢复正常速率
-            if (now - lastSlowdown > SLOWDOWN_DURATION && successCount >= RECOVERY_THRESHOLD) {
-                currentRate = baseRate;
+            if (rateFactor < 1.0 && System.currentTimeMillis() - lastSlowdown > SLOWDOWN_DURATION
+                    && successCount >= RECOVERY_THRESHOLD) {
+                rateFactor = 1.0;
                 successCount = 0;
             }
-            
-            tokens = Math.min(baseCapacity, tokens + elapsed * currentRate);
-            lastRefill = now;
+            return rateFactor;
         }
         
-        public void temporarySlowdown() {
-            currentRate = baseRate * SLOWDOWN_FACTOR;
+        public synchronized void temporarySlowdown() {
+            rateFactor = SLOWDOWN_FACTOR;
             lastSlowdown = System.currentTimeMillis();
             successCount = 0;
         }
         
-        public void recordSuccess() {
+        public synchronized void recordSuccess() {
             successCount++;
         }
-        
-        public int getAvailableTokens() {
-            refill();
-            return (int) tokens;
-        }
     }
-} 
\ No newline at end of file
+}
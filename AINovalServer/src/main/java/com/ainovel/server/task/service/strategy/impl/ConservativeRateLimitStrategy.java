@@ -1,73 +1,62 @@
 package com.ainovel.server.task.service.strategy.impl;
 
 import com.ainovel.server.config.ProviderRateLimitConfig;
+import com.ainovel.server.task.service.ratelimit.DistributedRateLimitEngine;
 import com.ainovel.server.task.service.strategy.IRateLimitStrategy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 保守限流策略
  * 专门用于配额敏感的API，如Gemini免费层(200次/天)
  * 
  * 特点:
- * 1. 严格的日限额控制
- * 2. 时间窗口重置
- * 3. 并发安全的计数器
+ * 1. 日限额控制：按 UTC 对齐的 24 小时窗口计数，上一窗口的计数按当前窗口剩余比例加权计入，
+ *    近似最近 24 小时的滑动用量；这是估算值，不保证任意自然日（或任意 24 小时）内的实际用量都不超过限额
+ * 2. 计数由 {@link DistributedRateLimitEngine} 原子完成，多节点共享同一份日配额
+ * 3. 连续错误与紧急限制按节点本地维护
  * 4. 自动错误恢复
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class ConservativeRateLimitStrategy implements IRateLimitStrategy {
     
-    // 并发安全的计数器 - 按配置键分组
-    private final ConcurrentHashMap<String, AtomicInteger> dailyCounters = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, AtomicLong> lastResetTime = new ConcurrentHashMap<>();
+    private static final String KEY_PREFIX = "conservative:";
+    private static final Duration DAILY_WINDOW = Duration.ofDays(1);
+    
+    private final DistributedRateLimitEngine engine;
+    
     private final ConcurrentHashMap<String, AtomicInteger> consecutiveErrors = new ConcurrentHashMap<>();
+    // 紧急限制：触发时窗口内用量 + 少量余量，作为日限额上限，持续一个窗口
+    private final ConcurrentHashMap<String, EmergencyCap> emergencyCaps = new ConcurrentHashMap<>();
     
     // Gemini特定限制
     private static final int GEMINI_DAILY_LIMIT = 20000000;
     private static final int GEMINI_SAFETY_BUFFER = 2000; // 保留20次作为安全缓冲
+    private static final int EMERGENCY_ALLOWANCE = 5;
     
     @Override
     public Mono<Boolean> tryAcquire(ProviderRateLimitConfig config, String requestId) {
         String key = config.getRateLimiterKey();
         
-        return checkAndResetDaily(key)
-                .flatMap(reset -> {
-                    // 检查日限额
-                    AtomicInteger counter = dailyCounters.computeIfAbsent(key, k -> new AtomicInteger(0));
-                    int currentCount = counter.get();
-                    
-                    // 动态限制：根据错误率调整
-                    int effectiveLimit = calculateEffectiveLimit(config, key);
-                    
-                    if (currentCount >= effectiveLimit) {
-                        log.warn("达到日限额: key={}, count={}, limit={}, requestId={}", 
-                                key, currentCount, effectiveLimit, requestId);
-                        return Mono.just(false);
-                    }
-                    
-                    // 原子性增加计数
-                    int newCount = counter.incrementAndGet();
-                    
-                    // 双重检查，防止竞争条件
-                    if (newCount > effectiveLimit) {
-                        counter.decrementAndGet(); // 回滚
-                        log.warn("并发竞争导致超限，回滚: key={}, newCount={}, limit={}, requestId={}", 
-                                key, newCount, effectiveLimit, requestId);
-                        return Mono.just(false);
+        // 动态限制：根据错误率调整
+        int effectiveLimit = calculateEffectiveLimit(config, key);
+        
+        return engine.tryAcquireInWindow(config.getScopedRateLimiterKey(KEY_PREFIX), DAILY_WINDOW, effectiveLimit)
+                .doOnNext(acquired -> {
+                    if (acquired) {
+                        log.debug("获取限流许可成功: key={}, limit={}, requestId={}", key, effectiveLimit, requestId);
+                    } else {
+                        log.warn("达到日限额: key={}, limit={}, engine={}, requestId={}", 
+                                key, effectiveLimit, engine.getName(), requestId);
                     }
-                    
-                    log.debug("获取限流许可成功: key={}, count={}, requestId={}", key, newCount, requestId);
-                    return Mono.just(true);
                 })
                 .onErrorResume(ex -> {
                     log.error("限流检查失败: key={}, requestId={}, error={}", key, requestId, ex.getMessage());
@@ -84,10 +73,9 @@ public class ConservativeRateLimitStrategy implements IRateLimitStrategy {
     @Override
     public Mono<Integer> getAvailablePermits(ProviderRateLimitConfig config) {
         String key = config.getRateLimiterKey();
-        AtomicInteger counter = dailyCounters.get(key);
-        int used = counter != null ? counter.get() : 0;
         int limit = calculateEffectiveLimit(config, key);
-        return Mono.just(Math.max(0, limit - used));
+        return engine.countInWindow(config.getScopedRateLimiterKey(KEY_PREFIX), DAILY_WINDOW)
+                .map(used -> (int) Math.max(0, limit - used));
     }
     
     @Override
@@ -127,12 +115,11 @@ public class ConservativeRateLimitStrategy implements IRateLimitStrategy {
     public Mono<Void> reset(ProviderRateLimitConfig config) {
         String key = config.getRateLimiterKey();
         
-        dailyCounters.remove(key);
-        lastResetTime.remove(key);
         consecutiveErrors.remove(key);
+        emergencyCaps.remove(key);
         
-        log.info("重置限流器状态: key={}", key);
-        return Mono.empty();
+        return engine.reset(config.getScopedRateLimiterKey(KEY_PREFIX))
+                .doOnSuccess(v -> log.info("重置限流器状态: key={}", key));
     }
     
     @Override
@@ -140,48 +127,6 @@ public class ConservativeRateLimitStrategy implements IRateLimitStrategy {
         return "CONSERVATIVE";
     }
     
-    /**
-     * 检查并重置日计数器
-     */
-    private Mono<Boolean> checkAndResetDaily(String key) {
-        AtomicLong lastReset = lastResetTime.computeIfAbsent(key, k -> new AtomicLong(0));
-        long now = System.currentTimeMillis();
-        long resetTime = lastReset.get();
-        
-        // 检查是否需要重置 (新的一天)
-        if (shouldResetDaily(resetTime, now)) {
-            synchronized (lastReset) {
-                // 双重检查锁定
-                if (shouldResetDaily(lastReset.get(), now)) {
-                    dailyCounters.remove(key);
-                    consecutiveErrors.remove(key);
-                    lastReset.set(now);
-                    
-                    log.info("重置日限额计数器: key={}", key);
-                    return Mono.just(true);
-                }
-            }
-        }
-        
-        return Mono.just(false);
-    }
-    
-    /**
-     * 判断是否应该重置日计数器
-     */
-    private boolean shouldResetDaily(long lastResetTime, long currentTime) {
-        if (lastResetTime == 0) return true;
-        
-        LocalDateTime lastReset = LocalDateTime.ofInstant(
-                java.time.Instant.ofEpochMilli(lastResetTime), 
-                java.time.ZoneId.systemDefault());
-        LocalDateTime now = LocalDateTime.ofInstant(
-                java.time.Instant.ofEpochMilli(currentTime), 
-                java.time.ZoneId.systemDefault());
-        
-        return !lastReset.toLocalDate().equals(now.toLocalDate());
-    }
-    
     /**
      * 计算有效限制（考虑错误率和安全缓冲）
      */
@@ -207,6 +152,16 @@ public class ConservativeRateLimitStrategy implements IRateLimitStrategy {
             }
         }
         
+        // 紧急限制期内不超过触发时的用量 + 余量
+        EmergencyCap cap = emergencyCaps.get(key);
+        if (cap != null) {
+            if (cap.expiresAt() > System.currentTimeMillis()) {
+                safeLimit = (int) Math.min(safeLimit, cap.limit());
+            } else {
+                emergencyCaps.remove(key, cap);
+            }
+        }
+        
         return Math.max(1, safeLimit); // 至少保留1次机会
     }
     
@@ -217,17 +172,15 @@ public class ConservativeRateLimitStrategy implements IRateLimitStrategy {
         String key = config.getRateLimiterKey();
         
         // 立即设置为接近限制（保留5次机会）
-        Object dailyLimitObj = config.getMetric("dailyLimit");
-        int baseLimit = dailyLimitObj instanceof Number ? ((Number) dailyLimitObj).intValue() : GEMINI_DAILY_LIMIT;
-
-        AtomicInteger counter = dailyCounters.get(key);
-        if (counter != null) {
-            counter.set(Math.max(0, baseLimit - 5));
-        }
-        
-        log.error("触发紧急限制: key={}, requestId={}", key, requestId);
-        return Mono.empty();
+        return engine.countInWindow(config.getScopedRateLimiterKey(KEY_PREFIX), DAILY_WINDOW)
+                .doOnNext(used -> {
+                    emergencyCaps.put(key, new EmergencyCap(used + EMERGENCY_ALLOWANCE,
+                            System.currentTimeMillis() + DAILY_WINDOW.toMillis()));
+                    log.error("触发紧急限制: key={}, used={}, requestId={}", key, used, requestId);
+                })
+                .then();
     }
     
-
-} 
\ No newline at end of file
+    private record EmergencyCap(long limit, long expiresAt) {
+    }
+}
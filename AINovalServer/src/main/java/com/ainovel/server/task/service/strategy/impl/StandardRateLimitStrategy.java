@@ -1,16 +1,16 @@
 package com.ainovel.server.task.service.strategy.impl;
 
 import com.ainovel.server.config.ProviderRateLimitConfig;
+import com.ainovel.server.task.service.ratelimit.DistributedRateLimitEngine;
 import com.ainovel.server.task.service.strategy.IRateLimitStrategy;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import reactor.core.publisher.Mono;
 
-import java.util.concurrent.ConcurrentHashMap;
-
 /**
  * 标准限流策略
- * 基于令牌桶算法的标准限流实现
+ * 基于令牌桶算法的标准限流实现，令牌桶状态由 {@link DistributedRateLimitEngine} 保存（本地或 Redis）
  * 
  * 适用场景：
  * - 付费API的一般限流需求
@@ -19,26 +19,25 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class StandardRateLimitStrategy implements IRateLimitStrategy {
     
-    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private static final String KEY_PREFIX = "standard:";
+    
+    private final DistributedRateLimitEngine engine;
     
     @Override
     public Mono<Boolean> tryAcquire(ProviderRateLimitConfig config, String requestId) {
         String key = config.getRateLimiterKey();
-        TokenBucket bucket = buckets.computeIfAbsent(key, k -> 
-            new TokenBucket(config.getEffectiveRate(), config.getEffectiveBurstCapacity()));
-        
-        boolean acquired = bucket.tryConsume();
         
-        if (acquired) {
-            log.debug("标准策略许可获取成功: key={}, requestId={}", key, requestId);
-        } else {
-            log.warn("标准策略许可获取失败: key={}, available={}, requestId={}", 
-                    key, bucket.getAvailableTokens(), requestId);
-        }
-        
-        return Mono.just(acquired);
+        return engine.tryAcquire(config.getScopedRateLimiterKey(KEY_PREFIX), config.getEffectiveRate(), config.getEffectiveBurstCapacity())
+                .doOnNext(acquired -> {
+                    if (acquired) {
+                        log.debug("标准策略许可获取成功: key={}, engine={}, requestId={}", key, engine.getName(), requestId);
+                    } else {
+                        log.warn("标准策略许可获取失败: key={}, engine={}, requestId={}", key, engine.getName(), requestId);
+                    }
+                });
     }
     
     @Override
@@ -50,11 +49,8 @@ public class StandardRateLimitStrategy implements IRateLimitStrategy {
     @Override
     public Mono<Integer> getAvailablePermits(ProviderRateLimitConfig config) {
         String key = config.getRateLimiterKey();
-        TokenBucket bucket = buckets.get(key);
-        int available = bucket != null ? bucket.getAvailableTokens() : 0;
-        
-        log.debug("标准策略可用许可: key={}, available={}", key, available);
-        return Mono.just(available);
+        return engine.availableTokens(config.getScopedRateLimiterKey(KEY_PREFIX), config.getEffectiveRate(), config.getEffectiveBurstCapacity())
+                .doOnNext(available -> log.debug("标准策略可用许可: key={}, available={}", key, available));
     }
     
     @Override
@@ -76,51 +72,12 @@ public class StandardRateLimitStrategy implements IRateLimitStrategy {
     @Override
     public Mono<Void> reset(ProviderRateLimitConfig config) {
         String key = config.getRateLimiterKey();
-        buckets.remove(key);
-        log.info("标准策略重置: key={}", key);
-        return Mono.empty();
+        return engine.reset(config.getScopedRateLimiterKey(KEY_PREFIX))
+                .doOnSuccess(v -> log.info("标准策略重置: key={}", key));
     }
     
     @Override
     public String getStrategyName() {
         return "STANDARD";
     }
-    
-    /**
-     * 令牌桶实现
-     */
-    private static class TokenBucket {
-        private final double rate;
-        private final int capacity;
-        private volatile double tokens;
-        private volatile long lastRefill;
-        
-        public TokenBucket(double rate, int capacity) {
-            this.rate = rate;
-            this.capacity = capacity;
-            this.tokens = capacity;
-            this.lastRefill = System.currentTimeMillis();
-        }
-        
-        public synchronized boolean tryConsume() {
-            refill();
-            if (tokens >= 1.0) {
-                tokens -= 1.0;
-                return true;
-            }
-            return false;
-        }
-        
-        private void refill() {
-            long now = System.currentTimeMillis();
-            double elapsed = (now - lastRefill) / 1000.0;
-            tokens = Math.min(capacity, tokens + elapsed * rate);
-            lastRefill = now;
-        }
-        
-        public int getAvailableTokens() {
-            refill();
-            return (int) tokens;
-        }
-    }
-} 
\ No newline at end of file
+}
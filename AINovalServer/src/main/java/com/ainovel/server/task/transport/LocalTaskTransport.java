@@ -4,9 +4,15 @@ import com.ainovel.server.task.service.TaskExecutorService;
 import com.ainovel.server.task.BackgroundTaskExecutable;
 import com.ainovel.server.task.TaskContext;
 import com.ainovel.server.task.TaskContextImpl;
+import com.ainovel.server.task.TaskExecutionRuntime;
 import com.ainovel.server.task.ExecutionResult;
+import com.ainovel.server.task.metrics.TaskMetrics;
 import com.ainovel.server.task.model.BackgroundTask;
 import com.ainovel.server.task.model.TaskStatus;
+import com.ainovel.server.task.transport.PriorityTaskQueue.Lane;
+import com.ainovel.server.task.transport.PriorityTaskQueue.OfferResult;
+import com.ainovel.server.task.transport.PriorityTaskQueue.QueuedTask;
+import com.ainovel.server.repository.BackgroundTaskRepository;
 import lombok.extern.slf4j.Slf4j;
 import com.ainovel.server.task.service.TaskSubmissionService;
 import com.ainovel.server.config.TaskConversionConfig;
@@ -17,37 +23,55 @@ import com.ainovel.server.task.event.internal.TaskRetryingEvent;
 import com.ainovel.server.task.event.internal.TaskCancelledEvent;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
-import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
-import reactor.core.publisher.Sinks;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
- * 本地内存传输实现：使用 Reactor Sinks.Many 作为本地任务队列，多个并发消费者执行。
+ * 本地内存传输实现：有界优先级队列 + 固定数量的并发执行槽。
+ *
+ * - 交互类任务与批量类任务（task.local.bulk-task-types）分通道排队，通道内按用户轮转，见 {@link PriorityTaskQueue}
+ * - 任务状态本身持久化在 MongoDB 中，内存队列只保存任务ID：
+ *   启动时从库中恢复 QUEUED/RETRYING 任务；队列已满时任务暂留库中，待队列回落到一半以下时再回填
+ * - 队列深度、排队等待时间、暂缓入队次数通过 {@link TaskMetrics} 导出
  */
 @Slf4j
 @Component
 @ConditionalOnProperty(name = "task.transport", havingValue = "local")
 public class LocalTaskTransport implements TaskTransport {
 
+    private static final List<TaskStatus> PENDING_STATUSES = List.of(TaskStatus.QUEUED, TaskStatus.RETRYING);
+
     private final TaskStateService taskStateService;
     private final TaskExecutorService taskExecutorService;
     private final ApplicationEventPublisher eventPublisher;
     private final TaskSubmissionService taskSubmissionService;
     private final TaskConversionConfig taskConversionConfig;
+    private final BackgroundTaskRepository backgroundTaskRepository;
+    private final TaskMetrics taskMetrics;
+    private final TaskExecutionRuntime executionRuntime;
 
-    // 无界多播 sink（背压策略：buffer），用于本地队列
-    private final Sinks.Many<String> taskSink;
+    private final PriorityTaskQueue taskQueue;
+    private final Set<String> bulkTaskTypes;
     private final int concurrency;
-    private final AtomicBoolean started = new AtomicBoolean(false);
-    private Disposable consumerSubscription;
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    // 曾因队列已满而未入队的任务仍留在库中，需要回填
+    private final AtomicBoolean overflowed = new AtomicBoolean(false);
+    private final AtomicBoolean reloading = new AtomicBoolean(false);
     private final String executionNodeId = "local-node";
     private final long[] retryDelays;
 
@@ -57,28 +81,38 @@ public class LocalTaskTransport implements TaskTransport {
                               ApplicationEventPublisher eventPublisher,
                               TaskSubmissionService taskSubmissionService,
                               TaskConversionConfig taskConversionConfig,
+                              BackgroundTaskRepository backgroundTaskRepository,
+                              TaskMetrics taskMetrics,
+                              TaskExecutionRuntime executionRuntime,
                               @org.springframework.beans.factory.annotation.Value("${task.local.concurrency:4}") int concurrency,
+                              @org.springframework.beans.factory.annotation.Value("${task.local.queue-capacity:10000}") int queueCapacity,
+                              @org.springframework.beans.factory.annotation.Value("${task.local.interactive-weight:4}") int interactiveWeight,
+                              @org.springframework.beans.factory.annotation.Value("${task.local.bulk-task-types:BATCH_GENERATE_SUMMARY,GENERATE_SUMMARY}") String bulkTaskTypesStr,
                               @org.springframework.beans.factory.annotation.Value("${task.retry.delays:15000,60000,300000}") String retryDelaysStr) {
         this.taskStateService = taskStateService;
         this.taskExecutorService = taskExecutorService;
         this.eventPublisher = eventPublisher;
         this.taskSubmissionService = taskSubmissionService;
         this.taskConversionConfig = taskConversionConfig;
-        this.taskSink = Sinks.many().unicast().onBackpressureBuffer();
+        this.backgroundTaskRepository = backgroundTaskRepository;
+        this.taskMetrics = taskMetrics;
+        this.executionRuntime = executionRuntime;
+        this.taskQueue = new PriorityTaskQueue(queueCapacity, interactiveWeight);
+        this.bulkTaskTypes = Arrays.stream(bulkTaskTypesStr.split(","))
+            .map(String::trim)
+            .filter(type -> !type.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
         this.concurrency = Math.max(1, concurrency);
         this.retryDelays = parseRetryDelays(retryDelaysStr);
-        startConsumersIfNeeded();
+        for (Lane lane : Lane.values()) {
+            taskMetrics.registerQueueDepth(laneTag(lane), () -> taskQueue.size(lane));
+        }
+        log.info("LocalTaskTransport 启动: 并发={}, 队列容量={}, 批量任务类型={}", this.concurrency, taskQueue.capacity(), bulkTaskTypes);
     }
 
     @Override
     public Mono<Void> dispatchTask(String taskId, String userId, String taskType, Object parameters) {
-        return Mono.fromRunnable(() -> {
-            Sinks.EmitResult result = taskSink.tryEmitNext(taskId);
-            if (result.isFailure()) {
-                log.error("本地队列入队失败: taskId={}, result={}", taskId, result);
-                throw new IllegalStateException("Local task queue emit failed: " + result);
-            }
-        });
+        return Mono.fromRunnable(() -> enqueue(taskId, userId, taskType));
     }
 
     @Override
@@ -87,17 +121,112 @@ public class LocalTaskTransport implements TaskTransport {
                 .then(dispatchTask(taskId, userId, taskType, parameters));
     }
 
-    private void startConsumersIfNeeded() {
-        if (started.compareAndSet(false, true)) {
-            consumerSubscription = taskSink.asFlux()
-                .publishOn(Schedulers.boundedElastic())
-                .flatMap(this::processTaskIdSafely, concurrency)
-                .onErrorContinue((e, v) -> log.error("本地队列消费异常: {}, value={}", e.toString(), v, e))
+    /**
+     * 启动时恢复库中待执行的任务（上次进程退出时仍在队列中或等待重试的任务）
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverPendingTasks() {
+        loadPendingTasks(true)
+            .subscribe(
+                count -> log.info("LocalTaskTransport 启动恢复完成，恢复任务数: {}", count),
+                e -> log.error("LocalTaskTransport 启动恢复失败: {}", e.getMessage(), e));
+    }
+
+    private void enqueue(String taskId, String userId, String taskType) {
+        Lane lane = bulkTaskTypes.contains(taskType) ? Lane.BULK : Lane.INTERACTIVE;
+        OfferResult result = taskQueue.offer(new QueuedTask(taskId, userId, taskType, lane, System.nanoTime()));
+        if (result == OfferResult.FULL) {
+            // 任务已持久化为 QUEUED/RETRYING，不入内存队列也不会丢失，队列回落后回填
+            overflowed.set(true);
+            taskMetrics.recordQueueRejected(laneTag(lane));
+            log.warn("本地队列已满，任务暂留库中等待回填: taskId={}, taskType={}, capacity={}", taskId, taskType, taskQueue.capacity());
+            return;
+        }
+        if (result == OfferResult.ACCEPTED) {
+            drain();
+        }
+    }
+
+    /**
+     * 在并发槽位允许的范围内从队列取出任务执行；任务结束时释放槽位并再次调用
+     */
+    private void drain() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= concurrency) {
+                return;
+            }
+            if (!inFlight.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            QueuedTask next = taskQueue.poll();
+            if (next == null) {
+                inFlight.decrementAndGet();
+                // 释放槽位期间可能有新任务入队而其 drain 因槽位已满返回，需再检查一次
+                if (taskQueue.size() == 0) {
+                    refillIfNeeded();
+                    return;
+                }
+                continue;
+            }
+            taskMetrics.recordQueueWait(laneTag(next.lane()), Duration.ofNanos(System.nanoTime() - next.enqueuedAtNanos()));
+            processTaskIdSafely(next.taskId())
+                .subscribeOn(executionRuntime.taskScheduler())
+                .doFinally(signal -> {
+                    inFlight.decrementAndGet();
+                    drain();
+                })
                 .subscribe();
-            log.info("LocalTaskTransport 启动并发消费者: {}", concurrency);
+            refillIfNeeded();
+        }
+    }
+
+    private void refillIfNeeded() {
+        if (!overflowed.get() || taskQueue.size() > taskQueue.capacity() / 2) {
+            return;
+        }
+        if (reloading.compareAndSet(false, true)) {
+            overflowed.set(false);
+            loadPendingTasks(false)
+                .doFinally(signal -> reloading.set(false))
+                .subscribe(
+                    count -> log.info("本地队列回填任务数: {}", count),
+                    e -> {
+                        overflowed.set(true);
+                        log.error("本地队列回填失败: {}", e.getMessage(), e);
+                    });
         }
     }
 
+    /**
+     * 从库中按创建时间加载待执行任务并入队，最多加载一个队列容量。
+     *
+     * @param startup 启动恢复时为未到期的重试任务重新安排延迟；回填时这些任务已有本进程的延迟调度，直接跳过
+     */
+    private Mono<Long> loadPendingTasks(boolean startup) {
+        Instant now = Instant.now();
+        PageRequest page = PageRequest.of(0, taskQueue.capacity(), Sort.by(Sort.Direction.ASC, "timestamps.createdAt"));
+        return backgroundTaskRepository.findByStatusIn(PENDING_STATUSES, page)
+            .filter(task -> {
+                Instant nextAttempt = task.getNextAttemptTimestamp();
+                if (task.getStatus() != TaskStatus.RETRYING || nextAttempt == null || !nextAttempt.isAfter(now)) {
+                    return true;
+                }
+                if (startup) {
+                    long delay = Duration.between(now, nextAttempt).toMillis();
+                    dispatchDelayedRetryTask(task.getId(), task.getUserId(), task.getTaskType(), null, task.getRetryCount(), delay)
+                        .subscribe(null, e -> log.error("恢复延迟重试任务失败: taskId={}, error={}", task.getId(), e.getMessage()));
+                }
+                return false;
+            })
+            .doOnNext(task -> enqueue(task.getId(), task.getUserId(), task.getTaskType()))
+            .count();
+    }
+
+    private static String laneTag(Lane lane) {
+        return lane.name().toLowerCase();
+    }
+
     private Mono<Void> processTaskIdSafely(String taskId) {
         return processTask(taskId)
             .onErrorResume(e -> {
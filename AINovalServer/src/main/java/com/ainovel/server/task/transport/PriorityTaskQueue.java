@@ -0,0 +1,147 @@
+package com.ainovel.server.task.transport;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 本地任务队列：有界、分通道、按用户公平
+ *
+ * - 交互通道与批量通道分开排队，两个通道都有任务时按权重出队（每 interactiveWeight 个交互任务出一个批量任务），
+ *   批量子任务洪峰不会饿死交互任务，批量任务也不会被无限期推迟
+ * - 通道内按用户轮转出队，同一用户的任务保持提交顺序
+ * - 总容量有界，已在队列中的任务ID不会重复入队
+ *
+ * 所有方法在同一把锁内完成，队列操作本身都是 O(1)。
+ */
+class PriorityTaskQueue {
+
+    /**
+     * 任务通道
+     */
+    enum Lane {
+        INTERACTIVE,
+        BULK
+    }
+
+    /**
+     * 入队结果
+     */
+    enum OfferResult {
+        ACCEPTED,
+        DUPLICATE,
+        FULL
+    }
+
+    /**
+     * 队列中的任务
+     *
+     * @param taskId 任务ID
+     * @param userId 用户ID
+     * @param taskType 任务类型
+     * @param lane 所属通道
+     * @param enqueuedAtNanos 入队时间（用于统计等待时长）
+     */
+    record QueuedTask(String taskId, String userId, String taskType, Lane lane, long enqueuedAtNanos) {
+    }
+
+    private final int capacity;
+    private final int interactiveWeight;
+    private final LaneQueue interactive = new LaneQueue();
+    private final LaneQueue bulk = new LaneQueue();
+    private final Set<String> queuedTaskIds = new HashSet<>();
+    private int interactiveStreak = 0;
+
+    PriorityTaskQueue(int capacity, int interactiveWeight) {
+        this.capacity = Math.max(1, capacity);
+        this.interactiveWeight = Math.max(1, interactiveWeight);
+    }
+
+    synchronized OfferResult offer(QueuedTask task) {
+        if (queuedTaskIds.contains(task.taskId())) {
+            return OfferResult.DUPLICATE;
+        }
+        if (queuedTaskIds.size() >= capacity) {
+            return OfferResult.FULL;
+        }
+        queuedTaskIds.add(task.taskId());
+        laneQueue(task.lane()).offer(task);
+        return OfferResult.ACCEPTED;
+    }
+
+    synchronized QueuedTask poll() {
+        QueuedTask next;
+        if (!interactive.isEmpty() && (bulk.isEmpty() || interactiveStreak < interactiveWeight)) {
+            next = interactive.poll();
+            interactiveStreak = bulk.isEmpty() ? 0 : interactiveStreak + 1;
+        } else {
+            next = bulk.poll();
+            interactiveStreak = 0;
+        }
+        if (next != null) {
+            queuedTaskIds.remove(next.taskId());
+        }
+        return next;
+    }
+
+    synchronized int size() {
+        return queuedTaskIds.size();
+    }
+
+    synchronized int size(Lane lane) {
+        return laneQueue(lane).size;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    private LaneQueue laneQueue(Lane lane) {
+        return lane == Lane.BULK ? bulk : interactive;
+    }
+
+    /**
+     * 单个通道：每个用户一个FIFO队列，有任务的用户按轮转顺序排队
+     */
+    private static final class LaneQueue {
+        private final Map<String, Deque<QueuedTask>> byUser = new HashMap<>();
+        private final Deque<String> userRotation = new ArrayDeque<>();
+        private int size = 0;
+
+        void offer(QueuedTask task) {
+            String userKey = task.userId() != null ? task.userId() : "";
+            Deque<QueuedTask> userQueue = byUser.get(userKey);
+            if (userQueue == null) {
+                userQueue = new ArrayDeque<>();
+                byUser.put(userKey, userQueue);
+                userRotation.addLast(userKey);
+            }
+            userQueue.addLast(task);
+            size++;
+        }
+
+        QueuedTask poll() {
+            String userKey = userRotation.pollFirst();
+            if (userKey == null) {
+                return null;
+            }
+            Deque<QueuedTask> userQueue = byUser.get(userKey);
+            QueuedTask task = userQueue.pollFirst();
+            if (userQueue.isEmpty()) {
+                byUser.remove(userKey);
+            } else {
+                // 该用户还有任务，排到轮转末尾
+                userRotation.addLast(userKey);
+            }
+            size--;
+            return task;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
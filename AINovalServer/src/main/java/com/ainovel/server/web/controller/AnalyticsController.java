@@ -17,8 +17,10 @@ import com.ainovel.server.security.CurrentUser;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import com.ainovel.server.domain.model.analytics.WritingEvent;
 import com.ainovel.server.domain.model.observability.LLMTrace;
+import com.ainovel.server.domain.model.observability.LLMUsageRollup;
 import com.ainovel.server.repository.NovelRepository;
 import com.ainovel.server.service.ai.observability.LLMTraceService;
+import com.ainovel.server.service.ai.observability.LLMUsageRollupService;
 import com.ainovel.server.service.analytics.WritingAnalyticsService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -35,6 +37,7 @@ import reactor.core.publisher.Mono;
 public class AnalyticsController {
 
     private final LLMTraceService llmTraceService;
+    private final LLMUsageRollupService rollupService;
     private final NovelRepository novelRepository;
     private final WritingAnalyticsService writingAnalyticsService;
 
@@ -47,6 +50,13 @@ public class AnalyticsController {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime monthStart = now.withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0).withNano(0);
         
+        // 调用量统计读取预聚合数据，按业务类型汇总一次供下面多项指标共用
+        LLMUsageRollupService.Filter userFilter = LLMUsageRollupService.Filter.ofUser(userId);
+        Mono<Map<String, LLMUsageRollupService.Totals>> usageByFeature = rollupService.aggregate(
+                rollupService.findRollupsInRange(userFilter, null, null),
+                rollup -> rollup.getBusinessType() != null ? rollup.getBusinessType() : "")
+            .cache();
+        
         return Mono.zip(
                 // 总字数统计
                 novelRepository.findByAuthorId(userId)
@@ -62,43 +72,23 @@ public class AnalyticsController {
                     .reduce(0, Integer::sum),
                 
                 // Token统计（累计）
-                llmTraceService.findTracesByUserId(userId, org.springframework.data.domain.PageRequest.of(0, 10000))
-                    .filter(trace -> trace.getResponse() != null && 
-                            trace.getResponse().getMetadata() != null && 
-                            trace.getResponse().getMetadata().getTokenUsage() != null)
-                    .map(trace -> {
-                        Integer total = trace.getResponse().getMetadata().getTokenUsage().getTotalTokenCount();
-                        return total != null ? total : 0;
-                    })
-                    .reduce(0, Integer::sum),
+                usageByFeature.map(byFeature -> byFeature.values().stream()
+                        .mapToLong(LLMUsageRollupService.Totals::getTotalTokens).sum()),
                 
                 // 本月Token统计
-                llmTraceService.findTracesByUserId(userId, org.springframework.data.domain.PageRequest.of(0, 10000))
-                    .filter(trace -> !trace.getCreatedAt().isBefore(monthStart.atZone(java.time.ZoneId.systemDefault()).toInstant()))
-                    .filter(trace -> trace.getResponse() != null && 
-                            trace.getResponse().getMetadata() != null && 
-                            trace.getResponse().getMetadata().getTokenUsage() != null)
-                    .map(trace -> {
-                        Integer total = trace.getResponse().getMetadata().getTokenUsage().getTotalTokenCount();
-                        return total != null ? total : 0;
-                    })
-                    .reduce(0, Integer::sum),
+                rollupService.total(rollupService.findRollupsInRange(userFilter, monthStart, now))
+                    .map(LLMUsageRollupService.Totals::getTotalTokens),
                 
-                // 功能使用次数（今日之外的全部调用次数）
-                llmTraceService.findTracesByUserId(userId, org.springframework.data.domain.PageRequest.of(0, 10000))
-                    .count(),
+                // 功能使用次数（全部调用次数）
+                usageByFeature.map(byFeature -> byFeature.values().stream()
+                        .mapToLong(LLMUsageRollupService.Totals::getCalls).sum()),
                 
                 // 最受欢迎功能
-                llmTraceService.findTracesByUserId(userId, org.springframework.data.domain.PageRequest.of(0, 10000))
-                    .filter(trace -> trace.getBusinessType() != null)
-                    .map(LLMTrace::getBusinessType)
-                    .collectList()
-                    .map(businessTypes -> businessTypes.stream()
-                            .collect(Collectors.groupingBy(type -> type, Collectors.counting()))
-                            .entrySet().stream()
-                            .max(Map.Entry.comparingByValue())
-                            .map(entry -> getBusinessTypeName(entry.getKey()))
-                            .orElse("智能续写")),
+                usageByFeature.map(byFeature -> byFeature.entrySet().stream()
+                        .filter(entry -> !entry.getKey().isEmpty())
+                        .max(Comparator.comparingLong(entry -> entry.getValue().getCalls()))
+                        .map(entry -> getBusinessTypeName(entry.getKey()))
+                        .orElse("智能续写")),
                 
                 // 写作天数（改为根据写作事件统计）
                 writingAnalyticsService.countUniqueWritingDays(userId),
@@ -156,47 +146,31 @@ public class AnalyticsController {
                 end = now;
         }
         
-        return llmTraceService.findTracesByUserId(userId, org.springframework.data.domain.PageRequest.of(0, 10000))
-                .filter(trace -> trace.getCreatedAt().isAfter(start.atZone(java.time.ZoneId.systemDefault()).toInstant()) &&
-                        trace.getCreatedAt().isBefore(end.atZone(java.time.ZoneId.systemDefault()).toInstant()))
-                .filter(trace -> !isSettingGenerationCall(trace.getBusinessType())) // 过滤设定生成的工具调用
-                .filter(trace -> trace.getResponse() != null && 
-                        trace.getResponse().getMetadata() != null && 
-                        trace.getResponse().getMetadata().getTokenUsage() != null)
-                .collectList()
-                .map(traces -> {
-                    Map<String, Map<String, Integer>> groupedData = new HashMap<>();
-                    DateTimeFormatter formatter = getDateFormatter(viewMode);
-                    
-                    for (LLMTrace trace : traces) {
-                        LocalDate date = trace.getCreatedAt().atZone(java.time.ZoneId.systemDefault()).toLocalDate();
-                        String key = date.format(formatter);
-                        
-                        groupedData.computeIfAbsent(key, k -> {
-                            Map<String, Integer> dayData = new HashMap<>();
-                            dayData.put("inputTokens", 0);
-                            dayData.put("outputTokens", 0);
-                            return dayData;
-                        });
-                        
-                        var tokenUsage = trace.getResponse().getMetadata().getTokenUsage();
-                        groupedData.get(key).merge("inputTokens", 
-                            tokenUsage.getInputTokenCount() != null ? tokenUsage.getInputTokenCount() : 0, 
-                            Integer::sum);
-                        groupedData.get(key).merge("outputTokens", 
-                            tokenUsage.getOutputTokenCount() != null ? tokenUsage.getOutputTokenCount() : 0, 
-                            Integer::sum);
-                    }
+        DateTimeFormatter formatter = getDateFormatter(viewMode);
+        Flux<LLMUsageRollup> dailyRollups = rollupService.findRollups(LLMUsageRollup.Granularity.DAY,
+                        LLMUsageRollupService.Filter.ofUser(userId), start, end)
+                .filter(rollup -> !isSettingGenerationCall(rollup.getBusinessType())); // 过滤设定生成的工具调用
+        
+        return rollupService.aggregate(dailyRollups,
+                        rollup -> rollup.getBucketStart().atZone(java.time.ZoneId.systemDefault()).toLocalDate().format(formatter))
+                .map(byDate -> {
+                    Map<String, Map<String, Long>> groupedData = new HashMap<>();
+                    byDate.forEach((key, totals) -> {
+                        Map<String, Long> dayData = new HashMap<>();
+                        dayData.put("inputTokens", totals.getInputTokens());
+                        dayData.put("outputTokens", totals.getOutputTokens());
+                        groupedData.put(key, dayData);
+                    });
                     
                     List<Map<String, Object>> result = new ArrayList<>();
                     List<String> sortedKeys = new ArrayList<>(groupedData.keySet());
                     Collections.sort(sortedKeys);
                     
-                    int cumulativeInput = 0;
-                    int cumulativeOutput = 0;
+                    long cumulativeInput = 0;
+                    long cumulativeOutput = 0;
                     
                     for (String key : sortedKeys) {
-                        Map<String, Integer> dayData = groupedData.get(key);
+                        Map<String, Long> dayData = groupedData.get(key);
                         Map<String, Object> item = new HashMap<>();
                         
                         item.put("date", key);
@@ -319,35 +293,26 @@ public class AnalyticsController {
         log.info("获取用户 {} 的今日Token使用汇总", currentUser.getId());
         String userId = currentUser.getId();
         
-        LocalDate today = LocalDate.now();
-        var startOfDay = today.atStartOfDay().atZone(java.time.ZoneId.systemDefault()).toInstant();
-        var endOfDay = today.plusDays(1).atStartOfDay().atZone(java.time.ZoneId.systemDefault()).toInstant();
+        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
 
-        return llmTraceService.findTracesByUserId(userId, org.springframework.data.domain.PageRequest.of(0, 10000))
-                .filter(trace -> !trace.getCreatedAt().isBefore(startOfDay) && trace.getCreatedAt().isBefore(endOfDay))
-                .filter(trace -> !isSettingGenerationCall(trace.getBusinessType())) // 过滤设定生成的工具调用
-                .collectList()
-                .map(traces -> {
+        return rollupService.aggregate(
+                        rollupService.findRollupsInRange(LLMUsageRollupService.Filter.ofUser(userId), startOfDay, LocalDateTime.now()),
+                        rollup -> rollup.getBusinessType() != null ? rollup.getBusinessType() : "")
+                .map(byFeature -> {
                     Map<String, Object> summary = new HashMap<>();
 
-                    int totalRecords = traces.size();
-                    int totalTokens = traces.stream()
-                            .filter(t -> t.getResponse() != null && t.getResponse().getMetadata() != null && t.getResponse().getMetadata().getTokenUsage() != null)
-                            .mapToInt(t -> {
-                                var u = t.getResponse().getMetadata().getTokenUsage();
-                                int inTok = u.getInputTokenCount() != null ? u.getInputTokenCount() : 0;
-                                int outTok = u.getOutputTokenCount() != null ? u.getOutputTokenCount() : 0;
-                                return inTok + outTok;
-                            })
-                            .sum();
-
-                    double totalCost = traces.stream()
-                            .filter(t -> t.getResponse() != null && t.getResponse().getMetadata() != null && t.getResponse().getMetadata().getTokenUsage() != null)
-                            .mapToDouble(t -> {
-                                var u = t.getResponse().getMetadata().getTokenUsage();
-                                return calculateCost(u.getInputTokenCount(), u.getOutputTokenCount());
-                            })
-                            .sum();
+                    long totalRecords = 0;
+                    long totalTokens = 0;
+                    double totalCost = 0;
+                    for (Map.Entry<String, LLMUsageRollupService.Totals> entry : byFeature.entrySet()) {
+                        if (isSettingGenerationCall(entry.getKey())) {
+                            continue; // 过滤设定生成的工具调用
+                        }
+                        LLMUsageRollupService.Totals totals = entry.getValue();
+                        totalRecords += totals.getCalls();
+                        totalTokens += totals.getInputTokens() + totals.getOutputTokens();
+                        totalCost += calculateCost(totals.getInputTokens(), totals.getOutputTokens());
+                    }
 
                     summary.put("totalRecords", totalRecords);
                     summary.put("totalTokens", totalTokens);
@@ -419,9 +384,14 @@ public class AnalyticsController {
     }
 
     private double calculateCost(Integer inputTokens, Integer outputTokens) {
+        return calculateCost(inputTokens != null ? inputTokens.longValue() : 0L,
+                outputTokens != null ? outputTokens.longValue() : 0L);
+    }
+
+    private double calculateCost(long inputTokens, long outputTokens) {
         // 简单的成本计算，实际应该根据不同模型定价
-        double inputCost = (inputTokens != null ? inputTokens : 0) * 0.0001; // 每千token 0.1美元
-        double outputCost = (outputTokens != null ? outputTokens : 0) * 0.0002; // 输出更贵
+        double inputCost = inputTokens * 0.0001; // 每千token 0.1美元
+        double outputCost = outputTokens * 0.0002; // 输出更贵
         return inputCost + outputCost;
     }
 
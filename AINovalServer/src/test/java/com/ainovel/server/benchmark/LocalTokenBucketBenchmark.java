@@ -0,0 +1,117 @@
+package com.ainovel.server.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.ainovel.server.config.AIProviderEnum;
+import com.ainovel.server.config.ProviderRateLimitConfig;
+import com.ainovel.server.config.RateLimitDimensionEnum;
+import com.ainovel.server.config.RateLimitStrategyEnum;
+import com.ainovel.server.task.service.ratelimit.LocalRateLimitEngine;
+
+/**
+ * 本地令牌桶与限流键基准，8 个线程争用同一个限流键（突发流式请求的场景）
+ *
+ * - lockFreeBucket：当前的 CAS 令牌桶
+ * - synchronizedBucket：原实现，每次取令牌都在 synchronized 块内补充、扣减
+ * - memoizedKey / formattedKey：缓存的策略限流键与每次 String.format 拼接
+ *
+ * 速率设得很高，使桶基本不会耗尽，测到的是取令牌本身的开销而不是拒绝路径。
+ * 运行：在 IDE 中执行 main 方法，或 test-compile 后以测试类路径运行 org.openjdk.jmh.Main LocalTokenBucketBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class LocalTokenBucketBenchmark {
+
+    private static final String KEY = "standard:user:u-1:provider:openai:model:gpt-4o";
+    private static final double RATE = 10_000_000;
+    private static final int CAPACITY = 10_000;
+
+    private LocalRateLimitEngine engine;
+    private SynchronizedBucket synchronizedBucket;
+    private ProviderRateLimitConfig config;
+
+    @Setup
+    public void setup() {
+        engine = new LocalRateLimitEngine();
+        synchronizedBucket = new SynchronizedBucket(CAPACITY);
+        config = ProviderRateLimitConfig.builder()
+                .provider(AIProviderEnum.OPENAI)
+                .rateLimitStrategy(RateLimitStrategyEnum.STANDARD)
+                .dimension(RateLimitDimensionEnum.USER_PROVIDER_MODEL)
+                .userId("u-1")
+                .modelName("gpt-4o")
+                .build();
+    }
+
+    @Benchmark
+    public Boolean lockFreeBucket() {
+        return engine.tryAcquire(KEY, RATE, CAPACITY).block();
+    }
+
+    @Benchmark
+    public boolean synchronizedBucket() {
+        return synchronizedBucket.tryConsume(RATE, CAPACITY);
+    }
+
+    @Benchmark
+    public String memoizedKey() {
+        return config.getScopedRateLimiterKey("standard:");
+    }
+
+    @Benchmark
+    public String formattedKey() {
+        return String.format("%s%s", "standard:", RateLimitDimensionEnum.USER_PROVIDER_MODEL.generateKey(
+                RateLimitDimensionEnum.RateLimitKeyContext.of("openai", "u-1", "gpt-4o", null)));
+    }
+
+    /**
+     * 优化前的令牌桶实现
+     */
+    private static final class SynchronizedBucket {
+        private double tokens;
+        private long lastRefill;
+
+        SynchronizedBucket(int capacity) {
+            this.tokens = capacity;
+            this.lastRefill = System.currentTimeMillis();
+        }
+
+        synchronized boolean tryConsume(double rate, int capacity) {
+            long now = System.currentTimeMillis();
+            double elapsed = Math.max(0, now - lastRefill) / 1000.0;
+            tokens = Math.min(capacity, tokens + elapsed * rate);
+            lastRefill = now;
+            if (tokens >= 1.0) {
+                tokens -= 1.0;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LocalTokenBucketBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
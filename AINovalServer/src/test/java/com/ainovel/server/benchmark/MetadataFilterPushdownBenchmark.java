@@ -0,0 +1,125 @@
+package com.ainovel.server.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.ainovel.server.service.vectorstore.MetadataFilters;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+
+/**
+ * 元数据过滤下推基准
+ *
+ * 对比两种按小说检索的方式：
+ * - pushdown：把 MetadataFilters 转换出的 Filter 交给存储，在检索时过滤，直接取 limit 条
+ * - postFilter：原实现，不带条件取 limit*4 条后在 Java 里按元数据过滤（结果可能不足 limit 条）
+ *
+ * 使用进程内存储代替 Chroma，只衡量过滤位置带来的差异，不含网络开销。
+ * 运行：在 IDE 中执行 main 方法，或 test-compile 后以测试类路径运行 org.openjdk.jmh.Main MetadataFilterPushdownBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetadataFilterPushdownBenchmark {
+
+    private static final int DIMENSION = 384;
+    private static final int LIMIT = 10;
+
+    @Param({"20", "200"})
+    public int novels;
+
+    @Param({"20000"})
+    public int segments;
+
+    private InMemoryEmbeddingStore<TextSegment> store;
+    private Embedding query;
+    private Map<String, Object> filter;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        store = new InMemoryEmbeddingStore<>();
+        List<Embedding> embeddings = new ArrayList<>(segments);
+        List<TextSegment> textSegments = new ArrayList<>(segments);
+        for (int i = 0; i < segments; i++) {
+            Metadata metadata = new Metadata()
+                    .put("novelId", "novel-" + (i % novels))
+                    .put("sourceType", "scene")
+                    .put("sourceId", "scene-" + i);
+            textSegments.add(TextSegment.from("片段 " + i, metadata));
+            embeddings.add(randomEmbedding(random));
+        }
+        store.addAll(embeddings, textSegments);
+        query = randomEmbedding(random);
+        filter = Map.of("novelId", "novel-7", "sourceType", "scene");
+    }
+
+    @Benchmark
+    public List<EmbeddingMatch<TextSegment>> pushdown() {
+        return store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(query)
+                .maxResults(LIMIT)
+                .filter(MetadataFilters.toFilter(filter))
+                .build()).matches();
+    }
+
+    @Benchmark
+    public List<EmbeddingMatch<TextSegment>> postFilter() {
+        List<EmbeddingMatch<TextSegment>> candidates = store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(query)
+                .maxResults(LIMIT * 4)
+                .build()).matches();
+        List<EmbeddingMatch<TextSegment>> result = new ArrayList<>(LIMIT);
+        for (EmbeddingMatch<TextSegment> match : candidates) {
+            if (MetadataFilters.matches(match.embedded().metadata().toMap(), filter)) {
+                result.add(match);
+                if (result.size() == LIMIT) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Embedding randomEmbedding(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = random.nextFloat() - 0.5f;
+        }
+        Embedding embedding = Embedding.from(vector);
+        embedding.normalize();
+        return embedding;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MetadataFilterPushdownBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package com.ainovel.server.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.ainovel.server.service.ai.tokenizer.TokenCounter;
+import com.ainovel.server.service.ai.tokenizer.TokenizerEngine;
+
+/**
+ * token 计数基准
+ *
+ * - charRatio：原实现，字符数乘固定系数
+ * - bpeEncode：每次都用 BPE 词表完整编码
+ * - cachedRecount：经 TokenCounter 重复计数同一章节，命中指纹缓存
+ *
+ * 运行：在 IDE 中执行 main 方法，或 test-compile 后以测试类路径运行 org.openjdk.jmh.Main TokenCounterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenCounterBenchmark {
+
+    private static final String PARAGRAPH = "夜色沉沉，林远站在城墙上望着远处的火光。"
+            + "He whispered, \"The gate will open at dawn,\" and turned back to the stairs. ";
+
+    @Param({"gpt-4o", "claude-3-5-sonnet"})
+    public String model;
+
+    @Param({"1000", "8000"})
+    public int chars;
+
+    private TokenCounter counter;
+    private TokenizerEngine engine;
+    private String text;
+
+    @Setup
+    public void setup() {
+        counter = new TokenCounter(1.15, 0.9, 50_000, 256);
+        engine = counter.resolveEngine(model);
+        StringBuilder builder = new StringBuilder(chars + PARAGRAPH.length());
+        while (builder.length() < chars) {
+            builder.append(PARAGRAPH);
+        }
+        text = builder.substring(0, chars);
+        counter.countTokens(text, model);
+    }
+
+    @Benchmark
+    public long charRatio() {
+        return Math.round(text.length() * 1.3);
+    }
+
+    @Benchmark
+    public int bpeEncode() {
+        return engine.countTokens(text);
+    }
+
+    @Benchmark
+    public int cachedRecount() {
+        return counter.countTokens(text, model);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TokenCounterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,51 @@
+package com.ainovel.server.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.mock.env.MockEnvironment;
+
+/**
+ * RedisRateLimitEnvironmentPostProcessor 按限流器类型排除 Redis 自动配置的测试
+ */
+class RedisRateLimitEnvironmentPostProcessorTest {
+
+    private final RedisRateLimitEnvironmentPostProcessor processor = new RedisRateLimitEnvironmentPostProcessor();
+
+    @Test
+    void excludesRedisAutoConfigurationByDefault() {
+        MockEnvironment environment = new MockEnvironment();
+
+        processor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(environment.getProperty(RedisRateLimitEnvironmentPostProcessor.EXCLUDE_PROPERTY))
+                .contains("org.springframework.boot.autoconfigure.data.redis.RedisReactiveAutoConfiguration",
+                        "org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration");
+    }
+
+    @Test
+    void keepsExistingExclusions() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty(RedisRateLimitEnvironmentPostProcessor.RATE_LIMITER_TYPE_PROPERTY, "memory")
+                .withProperty(RedisRateLimitEnvironmentPostProcessor.EXCLUDE_PROPERTY, "com.example.SomeAutoConfiguration");
+
+        processor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(environment.getProperty(RedisRateLimitEnvironmentPostProcessor.EXCLUDE_PROPERTY))
+                .startsWith("com.example.SomeAutoConfiguration,")
+                .contains("RedisReactiveAutoConfiguration");
+    }
+
+    @Test
+    void leavesRedisAutoConfigurationEnabledForRedisRateLimiter() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty(RedisRateLimitEnvironmentPostProcessor.RATE_LIMITER_TYPE_PROPERTY, "redis");
+
+        processor.postProcessEnvironment(environment, new SpringApplication());
+
+        assertThat(environment.getPropertySources()
+                .contains(RedisRateLimitEnvironmentPostProcessor.PROPERTY_SOURCE_NAME)).isFalse();
+        assertThat(environment.getProperty(RedisRateLimitEnvironmentPostProcessor.EXCLUDE_PROPERTY)).isNull();
+    }
+}
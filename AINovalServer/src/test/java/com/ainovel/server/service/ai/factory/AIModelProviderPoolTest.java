@@ -0,0 +1,51 @@
+package com.ainovel.server.service.ai.factory;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+
+import com.ainovel.server.service.ai.AIModelProvider;
+
+/**
+ * AIModelProviderPool 淘汰实例时的延迟关闭测试
+ */
+class AIModelProviderPoolTest {
+
+    @Test
+    void evictedProviderStaysOpenDuringGracePeriod() throws Exception {
+        AIModelProvider provider = mock(AIModelProvider.class);
+        AIModelProviderPool pool = new AIModelProviderPool(factoryReturning(provider), true, 16, 30, 30);
+
+        pool.acquire("openai", "gpt-4o", "sk-test", null);
+        pool.invalidateAll();
+
+        // 淘汰监听器异步执行，留出时间确认它没有立即关闭实例
+        Thread.sleep(200);
+        verify(provider, never()).close();
+
+        pool.shutdown();
+        verify(provider, timeout(1_000)).close();
+    }
+
+    @Test
+    void zeroGraceClosesOnEviction() throws Exception {
+        AIModelProvider provider = mock(AIModelProvider.class);
+        AIModelProviderPool pool = new AIModelProviderPool(factoryReturning(provider), true, 16, 30, 0);
+
+        pool.acquire("openai", "gpt-4o", "sk-test", null);
+        pool.invalidateAll();
+
+        verify(provider, timeout(1_000)).close();
+    }
+
+    private static AIModelProviderFactory factoryReturning(AIModelProvider provider) {
+        AIModelProviderFactory factory = mock(AIModelProviderFactory.class);
+        when(factory.createProvider(any(), any(), any(), any())).thenReturn(provider);
+        return factory;
+    }
+}
@@ -0,0 +1,97 @@
+package com.ainovel.server.service.ai.observability;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.ainovel.server.domain.model.observability.LLMTrace;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * LLMTraceWriteBuffer 写库失败后的重试测试
+ */
+class LLMTraceWriteBufferTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedBatchIsRetriedUntilSaved() {
+        LLMTraceService traceService = mock(LLMTraceService.class);
+        when(traceService.saveBatch(anyList()))
+                .thenReturn(Mono.error(new IllegalStateException("mongo unavailable")))
+                .thenReturn(Mono.just(2));
+        LLMTraceWriteBuffer buffer = newBuffer(traceService, 3);
+
+        buffer.offer(failedCall("t-1"));
+        buffer.offer(LLMTrace.builder().traceId("t-2").build());
+
+        buffer.flushOnShutdown();
+        buffer.flushOnShutdown();
+
+        ArgumentCaptor<List<LLMTrace>> batches = ArgumentCaptor.forClass(List.class);
+        verify(traceService, times(2)).saveBatch(batches.capture());
+        assertThat(batches.getAllValues().get(1))
+                .extracting(LLMTrace::getTraceId)
+                .containsExactlyInAnyOrder("t-1", "t-2");
+
+        // 写入成功后缓冲清空，不再重写
+        buffer.flushOnShutdown();
+        verify(traceService, times(2)).saveBatch(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void newerVersionReplacesPendingRetry() {
+        LLMTraceService traceService = mock(LLMTraceService.class);
+        when(traceService.saveBatch(anyList()))
+                .thenReturn(Mono.error(new IllegalStateException("mongo unavailable")))
+                .thenReturn(Mono.just(1));
+        LLMTraceWriteBuffer buffer = newBuffer(traceService, 3);
+
+        buffer.offer(failedCall("t-1"));
+        buffer.flushOnShutdown();
+        LLMTrace newer = failedCall("t-1");
+        buffer.offer(newer);
+        buffer.flushOnShutdown();
+
+        ArgumentCaptor<List<LLMTrace>> batches = ArgumentCaptor.forClass(List.class);
+        verify(traceService, times(2)).saveBatch(batches.capture());
+        assertThat(batches.getAllValues().get(1)).containsExactly(newer);
+    }
+
+    @Test
+    void retriesAreBounded() {
+        LLMTraceService traceService = mock(LLMTraceService.class);
+        when(traceService.saveBatch(anyList())).thenReturn(Mono.error(new IllegalStateException("mongo unavailable")));
+        LLMTraceWriteBuffer buffer = newBuffer(traceService, 1);
+
+        buffer.offer(failedCall("t-1"));
+        buffer.flushOnShutdown();
+        buffer.flushOnShutdown();
+        buffer.flushOnShutdown();
+
+        // 首次写入 + 1 次重试
+        verify(traceService, times(2)).saveBatch(anyList());
+    }
+
+    private static LLMTraceWriteBuffer newBuffer(LLMTraceService traceService, int maxRetries) {
+        return new LLMTraceWriteBuffer(traceService, new SimpleMeterRegistry(), true, 100, 50, 0.1, maxRetries, 0);
+    }
+
+    private static LLMTrace failedCall(String traceId) {
+        return LLMTrace.builder()
+                .traceId(traceId)
+                .error(new LLMTrace.Error(Instant.now(), "boom", "RuntimeException", null))
+                .build();
+    }
+}
@@ -0,0 +1,63 @@
+package com.ainovel.server.service.ai.tokenizer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * TokenCounter 计数准确性测试
+ *
+ * OpenAI 词表的期望值取自 tiktoken 对同一文本的编码结果；Claude / Gemini 为校准近似，只校验校准关系
+ */
+class TokenCounterTest {
+
+    private static final String CJK_PARAGRAPH = "夜色沉沉，林远站在城墙上望着远处的火光，心中默念着师父临行前的嘱托。"
+            + "城门将在黎明时分打开，他必须在此之前把消息送到北营。";
+
+    private final TokenCounter counter = new TokenCounter(1.15, 0.9, 1_000, 0);
+
+    @Test
+    void cl100kMatchesTiktoken() {
+        assertThat(counter.countTokens("hello world", "gpt-4")).isEqualTo(2);
+        assertThat(counter.countTokens("tiktoken is great!", "gpt-4")).isEqualTo(6);
+    }
+
+    @Test
+    void o200kMatchesTiktoken() {
+        assertThat(counter.resolveEngine("gpt-4o").getName()).isEqualTo("o200k_base");
+        assertThat(counter.countTokens("hello world", "gpt-4o")).isEqualTo(2);
+    }
+
+    @Test
+    void o200kUsesItsOwnVocabulary() {
+        // o200k_base 对中文的合并更充分，同一段中文的 token 数明显少于 cl100k_base
+        int cl100k = counter.countTokens(CJK_PARAGRAPH, "gpt-4");
+        int o200k = counter.countTokens(CJK_PARAGRAPH, "gpt-4o");
+
+        assertThat(o200k).isLessThan(cl100k);
+    }
+
+    @Test
+    void approximateFamiliesApplyCalibration() {
+        int cl100k = counter.countTokens(CJK_PARAGRAPH, "gpt-4");
+        int o200k = counter.countTokens(CJK_PARAGRAPH, "gpt-4o");
+
+        assertThat(counter.countTokens(CJK_PARAGRAPH, "claude-3-5-sonnet")).isEqualTo((int) Math.ceil(cl100k * 1.15));
+        assertThat(counter.countTokens(CJK_PARAGRAPH, "gemini-2.0-flash")).isEqualTo((int) Math.ceil(o200k * 0.9));
+    }
+
+    @Test
+    void resolvesProviderPrefixedModelNames() {
+        assertThat(counter.resolveEngine("openai/gpt-4o").getName()).isEqualTo("o200k_base");
+        assertThat(counter.resolveEngine("google/gemini-2.5-pro").getName()).isEqualTo("gemini-approx");
+    }
+
+    @Test
+    void cachedCountEqualsFreshCount() {
+        int first = counter.countTokens(CJK_PARAGRAPH, "gpt-4o");
+        int second = counter.countTokens(CJK_PARAGRAPH, "gpt-4o");
+
+        assertThat(second).isEqualTo(first);
+        assertThat(counter.cacheSize()).isPositive();
+    }
+}
@@ -0,0 +1,141 @@
+package com.ainovel.server.service.impl.content;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.ainovel.server.repository.ModelPricingRepository;
+import com.ainovel.server.service.ai.tokenizer.TokenCounter;
+import com.ainovel.server.web.dto.request.UniversalAIRequestDto;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * ContextBudgetPlanner 的预算分配与获取后计量测试
+ */
+class ContextBudgetPlannerTest {
+
+    private static final String MODEL = "gpt-4";
+    private static final int BUDGET = 2_000;
+    private static final String SENTENCE = "The quick brown fox jumps over the lazy dog. ";
+
+    private final TokenCounter tokenCounter = new TokenCounter(1.15, 0.9, 1_000, 0);
+    private ContentProviderFactory factory;
+    private ContextBudgetPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        factory = new ContentProviderFactory();
+        planner = new ContextBudgetPlanner(factory, mock(ModelPricingRepository.class), tokenCounter);
+        ReflectionTestUtils.setField(planner, "enabled", true);
+        ReflectionTestUtils.setField(planner, "defaultContextTokens", BUDGET);
+        ReflectionTestUtils.setField(planner, "maxContextRatio", 1.0);
+        ReflectionTestUtils.setField(planner, "reservedOutputTokens", 1);
+        ReflectionTestUtils.setField(planner, "promptOverheadTokens", 0);
+        ReflectionTestUtils.setField(planner, "minTruncatedTokens", 50);
+    }
+
+    @Test
+    void unknownEstimateIsMeasuredAfterFetchAndTruncatedToRemainingBudget() {
+        String scene = SENTENCE.repeat(20);
+        factory.registerProvider("scene", new StubProvider(scene, scene.length()));
+        // 预估返回 0，内容远超预算
+        factory.registerProvider("snippet", new StubProvider(SENTENCE.repeat(2_000), 0));
+
+        ContextBudgetPlanner.Plan plan = planner.plan(request(), List.of(
+                new ContextBudgetPlanner.Source("snippet", "snippet_s1"),
+                new ContextBudgetPlanner.Source("scene", "scene_a1"))).block();
+
+        assertThat(plan.allocations()).extracting(ContextBudgetPlanner.Allocation::decision)
+                .containsExactly(ContextBudgetPlanner.Decision.MEASURE, ContextBudgetPlanner.Decision.FULL);
+
+        String sceneContent = planner.fetch(plan.allocations().get(1), request()).block();
+        String snippetContent = planner.fetch(plan.allocations().get(0), request()).block();
+
+        assertThat(sceneContent).isEqualTo(scene);
+        assertThat(snippetContent).endsWith("[以下内容超出上下文预算，已省略]");
+        int total = tokenCounter.countTokens(sceneContent, MODEL) + tokenCounter.countTokens(snippetContent, MODEL);
+        assertThat(total).isLessThanOrEqualTo(plan.budgetTokens());
+    }
+
+    @Test
+    void unknownEstimateIsDroppedWhenNoBudgetIsLeft() {
+        // 预估偏大的场景占满预算后，预估不可用的片段获取后无处认领
+        factory.registerProvider("scene", new StubProvider(SENTENCE.repeat(1_000), 1_000_000));
+        factory.registerProvider("snippet", new StubProvider(SENTENCE.repeat(10), 0));
+
+        ContextBudgetPlanner.Plan plan = planner.plan(request(), List.of(
+                new ContextBudgetPlanner.Source("scene", "scene_a1"),
+                new ContextBudgetPlanner.Source("snippet", "snippet_s1"))).block();
+
+        assertThat(plan.allocations()).extracting(ContextBudgetPlanner.Allocation::decision)
+                .containsExactly(ContextBudgetPlanner.Decision.TRUNCATED, ContextBudgetPlanner.Decision.MEASURE);
+
+        String sceneContent = planner.fetch(plan.allocations().get(0), request()).block();
+        String snippetContent = planner.fetch(plan.allocations().get(1), request()).block();
+
+        assertThat(tokenCounter.countTokens(sceneContent, MODEL)).isLessThanOrEqualTo(plan.budgetTokens());
+        assertThat(snippetContent).isEmpty();
+    }
+
+    @Test
+    void unusedAllocationIsReleasedToMeasuredSources() {
+        String scene = SENTENCE.repeat(20);
+        String snippet = SENTENCE.repeat(5);
+        // 场景预估偏大、分到了全部预算，实际用不完的部分退回共享预算
+        factory.registerProvider("scene", new StubProvider(scene, 1_000_000));
+        factory.registerProvider("snippet", new StubProvider(snippet, 0));
+
+        ContextBudgetPlanner.Plan plan = planner.plan(request(), List.of(
+                new ContextBudgetPlanner.Source("scene", "scene_a1"),
+                new ContextBudgetPlanner.Source("snippet", "snippet_s1"))).block();
+
+        assertThat(plan.allocations().get(0).allocatedTokens()).isEqualTo(plan.budgetTokens());
+
+        planner.fetch(plan.allocations().get(0), request()).block();
+        String snippetContent = planner.fetch(plan.allocations().get(1), request()).block();
+
+        assertThat(snippetContent).isEqualTo(snippet);
+    }
+
+    private static UniversalAIRequestDto request() {
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("modelName", MODEL);
+        UniversalAIRequestDto request = new UniversalAIRequestDto();
+        request.setUserId("u-1");
+        request.setNovelId("n-1");
+        request.setMetadata(metadata);
+        return request;
+    }
+
+    private record StubProvider(String content, int estimatedChars) implements ContentProvider {
+
+        @Override
+        public Mono<ContentResult> getContent(String id, UniversalAIRequestDto request) {
+            return Mono.just(new ContentResult(content, "stub", id));
+        }
+
+        @Override
+        public String getType() {
+            return "stub";
+        }
+
+        @Override
+        public Mono<String> getContentForPlaceholder(String userId, String novelId, String contentId,
+                                                     Map<String, Object> parameters) {
+            return Mono.just(content);
+        }
+
+        @Override
+        public Mono<Integer> getEstimatedContentLength(Map<String, Object> contextParameters) {
+            return Mono.just(estimatedChars);
+        }
+    }
+}
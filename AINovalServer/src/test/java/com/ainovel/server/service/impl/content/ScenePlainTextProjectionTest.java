@@ -0,0 +1,50 @@
+package com.ainovel.server.service.impl.content;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import com.ainovel.server.common.util.ScenePlainTextUtil;
+
+/**
+ * ScenePlainTextProjection 补齐任务判断投影是否过期的测试
+ */
+class ScenePlainTextProjectionTest {
+
+    private static final String CONTENT = "[{\"insert\":\"第一段\\n\"}]";
+
+    @Test
+    void projectionMatchingContentIsNotStale() {
+        Document scene = new Document("content", CONTENT)
+                .append("plainTextLength", 4)
+                .append("plainTextSourceHash", ScenePlainTextUtil.sourceHashOf(CONTENT));
+
+        assertThat(ScenePlainTextProjection.isStale(scene)).isFalse();
+    }
+
+    @Test
+    void hashOfOlderContentIsStale() {
+        Document scene = new Document("content", CONTENT)
+                .append("plainTextLength", 4)
+                .append("plainTextSourceHash", ScenePlainTextUtil.sourceHashOf("[{\"insert\":\"旧正文\\n\"}]"));
+
+        assertThat(ScenePlainTextProjection.isStale(scene)).isTrue();
+    }
+
+    @Test
+    void missingOrNumericHashIsStale() {
+        assertThat(ScenePlainTextProjection.isStale(new Document("content", CONTENT))).isTrue();
+        assertThat(ScenePlainTextProjection.isStale(new Document("content", CONTENT)
+                .append("plainTextLength", 4)
+                .append("plainTextSourceHash", 123456789L))).isTrue();
+    }
+
+    @Test
+    void missingLengthIsStale() {
+        Document scene = new Document("content", CONTENT)
+                .append("plainTextSourceHash", ScenePlainTextUtil.sourceHashOf(CONTENT));
+
+        assertThat(ScenePlainTextProjection.isStale(scene)).isTrue();
+    }
+}
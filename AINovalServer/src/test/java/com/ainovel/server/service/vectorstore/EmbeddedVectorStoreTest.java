@@ -0,0 +1,108 @@
+package com.ainovel.server.service.vectorstore;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * EmbeddedVectorStore 的持久化、按需打开分区与压缩测试
+ */
+class EmbeddedVectorStoreTest {
+
+    private static final int DIMENSION = 8;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsSurviveReopenAndContentIsReadFromLog() throws IOException {
+        try (EmbeddedVectorStore store = open()) {
+            store.write(List.of("a", "b"), List.of(data("甲", 0, "n1"), data("乙", 1, "n1")));
+        }
+
+        try (EmbeddedVectorStore store = open()) {
+            List<VectorPartition.Hit> hits = store.searchHits(unit(1), "n1", metadata -> true, 1);
+
+            assertThat(hits).singleElement().satisfies(hit -> {
+                assertThat(hit.entry().id()).isEqualTo("b");
+                assertThat(hit.entry().content()).isEqualTo("乙");
+                assertThat(hit.entry().metadata()).containsEntry("novelId", "n1");
+                assertThat(hit.score()).isCloseTo(1.0, offset(1e-6));
+            });
+        }
+    }
+
+    @Test
+    void compactionSwitchesGenerationWithoutMovingTheDirectory() throws IOException {
+        List<String> ids = new ArrayList<>();
+        List<VectorStore.VectorData> batch = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            ids.add("id-" + i);
+            batch.add(data("内容-" + i, i % DIMENSION, "n1"));
+        }
+        Set<String> removed = new HashSet<>(ids.subList(0, 2_000));
+
+        try (EmbeddedVectorStore store = open()) {
+            store.write(ids, batch);
+            assertThat(store.removeIds(removed)).isEqualTo(2_000);
+
+            List<VectorPartition.Hit> hits = store.searchHits(unit(3), "n1", metadata -> true, 3_000);
+            assertThat(hits).hasSize(1_000);
+            assertThat(hits).allSatisfy(hit -> assertThat(removed).doesNotContain(hit.entry().id()));
+        }
+
+        Path partition = directory.resolve("n1");
+        assertThat(Files.readString(partition.resolve("CURRENT")).trim()).isEqualTo("1");
+        try (Stream<Path> files = Files.list(partition)) {
+            assertThat(files.map(file -> file.getFileName().toString()))
+                    .containsExactlyInAnyOrder("CURRENT", "vectors.1.f32", "records.1.log");
+        }
+
+        try (EmbeddedVectorStore store = open()) {
+            List<VectorPartition.Hit> hits = store.searchHits(unit(3), "n1", metadata -> true, 1);
+            assertThat(hits).singleElement()
+                    .satisfies(hit -> assertThat(hit.entry().content()).isEqualTo("内容-" + hit.entry().id().substring(3)));
+        }
+    }
+
+    @Test
+    void deletedNovelCanBeWrittenAgain() throws IOException {
+        try (EmbeddedVectorStore store = open()) {
+            store.write(List.of("a"), List.of(data("甲", 0, "n1")));
+            store.deleteByNovelId("n1").block();
+            store.write(List.of("b"), List.of(data("乙", 0, "n1")));
+
+            assertThat(store.searchHits(unit(0), "n1", metadata -> true, 10))
+                    .extracting(hit -> hit.entry().id())
+                    .containsExactly("b");
+        }
+    }
+
+    private EmbeddedVectorStore open() {
+        return new EmbeddedVectorStore(directory, DIMENSION, new ObjectMapper());
+    }
+
+    private static VectorStore.VectorData data(String content, int axis, String novelId) {
+        return new VectorStore.VectorData(content, unit(axis), Map.of("novelId", novelId));
+    }
+
+    private static float[] unit(int axis) {
+        float[] vector = new float[DIMENSION];
+        vector[axis] = 1f;
+        return vector;
+    }
+}
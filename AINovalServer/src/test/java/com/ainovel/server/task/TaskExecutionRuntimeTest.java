@@ -0,0 +1,59 @@
+package com.ainovel.server.task;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+/**
+ * TaskExecutionRuntime 对同步模型调用的调度测试：调用方在非阻塞线程上订阅时，同步调用不能在该线程上阻塞
+ */
+class TaskExecutionRuntimeTest {
+
+    private final ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        virtualThreads.shutdownNow();
+    }
+
+    @Test
+    void elasticModeMovesBlockingCallOffNonBlockingThread() {
+        TaskExecutionRuntime runtime = new TaskExecutionRuntime(virtualThreads, "elastic", 8, "");
+
+        StepVerifier.create(runtime.limitBlockingModelCall("openai", blockingModelCall())
+                        .subscribeOn(Schedulers.parallel()))
+                .assertNext(thread -> assertThat(thread).startsWith("boundedElastic"))
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void virtualModeMovesBlockingCallOffNonBlockingThread() {
+        TaskExecutionRuntime runtime = new TaskExecutionRuntime(virtualThreads, "virtual", 1, "");
+
+        StepVerifier.create(runtime.limitBlockingModelCall("openai", blockingModelCall())
+                        .subscribeOn(Schedulers.parallel()))
+                .expectNextCount(1)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    /**
+     * 模拟 ReactorNettyLangChain4jHttpClient 的同步调用：在订阅线程上 block()，非阻塞线程上会直接抛错
+     */
+    private static Mono<String> blockingModelCall() {
+        return Mono.fromCallable(() -> {
+            Mono.delay(Duration.ofMillis(10)).block();
+            return Thread.currentThread().getName();
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.ainovel.server.task.service.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import reactor.test.StepVerifier;
+
+/**
+ * DistributedRateLimitEngine 的路由与 Redis 不可用时的本地降级测试
+ */
+class DistributedRateLimitEngineTest {
+
+    private static final String KEY = "conservative:user:u-1:provider:gemini";
+    private static final Duration MINUTE = Duration.ofMinutes(1);
+
+    @Test
+    void usesLocalEngineWhenRedisIsNotConfigured() {
+        DistributedRateLimitEngine engine = new DistributedRateLimitEngine(provider(null), 30);
+
+        assertThat(engine.getName()).isEqualTo("local");
+        assertThat(engine.isDegraded()).isFalse();
+        StepVerifier.create(engine.tryAcquire(KEY, 1.0, 1)).expectNext(true).verifyComplete();
+        StepVerifier.create(engine.tryAcquire(KEY, 1.0, 1)).expectNext(false).verifyComplete();
+    }
+
+    @Test
+    void localEngineReportsNoPermitsForUnseenKey() {
+        DistributedRateLimitEngine engine = new DistributedRateLimitEngine(provider(null), 30);
+
+        StepVerifier.create(engine.availableTokens(KEY, 1.0, 3)).expectNext(0).verifyComplete();
+        StepVerifier.create(engine.tryAcquire(KEY, 1.0, 3)).expectNext(true).verifyComplete();
+        StepVerifier.create(engine.availableTokens(KEY, 1.0, 3)).expectNext(2).verifyComplete();
+    }
+
+    @Test
+    void routesToRedisWhileAvailable() {
+        LuaRedisStandIn redis = new LuaRedisStandIn(System.currentTimeMillis());
+        DistributedRateLimitEngine engine = engineBackedBy(redis, 30);
+
+        StepVerifier.create(engine.tryAcquireInWindow(KEY, MINUTE, 1)).expectNext(true).verifyComplete();
+        StepVerifier.create(engine.tryAcquireInWindow(KEY, MINUTE, 1)).expectNext(false).verifyComplete();
+
+        assertThat(engine.getName()).isEqualTo("redis");
+        assertThat(redis.scriptCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void fallsBackToLocalCountingWhenRedisFails() {
+        LuaRedisStandIn redis = new LuaRedisStandIn(System.currentTimeMillis());
+        redis.setAvailable(false);
+        DistributedRateLimitEngine engine = engineBackedBy(redis, 30);
+
+        // 失败的这一次直接由本地引擎给出结果，不把错误抛给策略
+        StepVerifier.create(engine.tryAcquire(KEY, 1.0, 2)).expectNext(true).verifyComplete();
+        assertThat(engine.isDegraded()).isTrue();
+        assertThat(engine.getName()).isEqualTo("local");
+
+        // 冷却期内不再访问 Redis，本地桶继续计数
+        StepVerifier.create(engine.tryAcquire(KEY, 1.0, 2)).expectNext(true).verifyComplete();
+        StepVerifier.create(engine.tryAcquire(KEY, 1.0, 2)).expectNext(false).verifyComplete();
+        assertThat(redis.scriptCalls()).isEqualTo(1);
+    }
+
+    @Test
+    void retriesRedisAfterCooldown() throws InterruptedException {
+        LuaRedisStandIn redis = new LuaRedisStandIn(System.currentTimeMillis());
+        redis.setAvailable(false);
+        DistributedRateLimitEngine engine = engineBackedBy(redis, 1);
+
+        engine.tryAcquireInWindow(KEY, MINUTE, 10).block();
+        assertThat(engine.isDegraded()).isTrue();
+
+        redis.setAvailable(true);
+        Thread.sleep(1_100);
+
+        StepVerifier.create(engine.tryAcquireInWindow(KEY, MINUTE, 10)).expectNext(true).verifyComplete();
+        assertThat(engine.isDegraded()).isFalse();
+        assertThat(redis.scriptCalls()).isEqualTo(2);
+    }
+
+    @Test
+    void resetClearsLocalStateEvenWhenRedisFails() {
+        LuaRedisStandIn redis = new LuaRedisStandIn(System.currentTimeMillis());
+        redis.setAvailable(false);
+        DistributedRateLimitEngine engine = engineBackedBy(redis, 30);
+
+        engine.tryAcquire(KEY, 1.0, 1).block();
+        StepVerifier.create(engine.tryAcquire(KEY, 1.0, 1)).expectNext(false).verifyComplete();
+
+        StepVerifier.create(engine.reset(KEY)).verifyComplete();
+        StepVerifier.create(engine.tryAcquire(KEY, 1.0, 1)).expectNext(true).verifyComplete();
+    }
+
+    private static DistributedRateLimitEngine engineBackedBy(LuaRedisStandIn redis, long cooldownSeconds) {
+        RedisRateLimitEngine redisEngine = new RedisRateLimitEngine(redis.template(), "test:rl:", 200);
+        return new DistributedRateLimitEngine(provider(redisEngine), cooldownSeconds);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<RedisRateLimitEngine> provider(RedisRateLimitEngine engine) {
+        ObjectProvider<RedisRateLimitEngine> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(engine);
+        return provider;
+    }
+}
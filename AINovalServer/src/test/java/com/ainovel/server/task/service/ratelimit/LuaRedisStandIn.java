@@ -0,0 +1,156 @@
+package com.ainovel.server.task.service.ratelimit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JsePlatform;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * 测试用 Redis 替身
+ *
+ * 用 luaj 执行引擎里的真实 Lua 脚本，redis.call 只实现脚本用到的 TIME / HMGET / HSET / PEXPIRE，
+ * 数据保存在内存 Hash 中。TIME 返回可手动推进的时钟，脚本调用串行执行以模拟 Redis 的单线程原子性。
+ * 调用 {@link #setAvailable(boolean)} 可模拟连接断开。
+ */
+class LuaRedisStandIn {
+
+    private final Map<String, Map<String, String>> hashes = new HashMap<>();
+    private final AtomicLong clockMillis;
+    private final AtomicInteger scriptCalls = new AtomicInteger();
+    private volatile boolean available = true;
+
+    LuaRedisStandIn(long startMillis) {
+        this.clockMillis = new AtomicLong(startMillis);
+    }
+
+    /**
+     * 返回一个把脚本执行与删除转发到本替身的模板
+     */
+    @SuppressWarnings("unchecked")
+    ReactiveStringRedisTemplate template() {
+        ReactiveStringRedisTemplate template = mock(ReactiveStringRedisTemplate.class);
+        when(template.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenAnswer(invocation -> eval(invocation.getArgument(0), invocation.getArgument(1),
+                        invocation.getArgument(2)));
+        when(template.delete(any(String[].class)))
+                .thenAnswer(invocation -> delete(invocation.getArguments()));
+        return template;
+    }
+
+    void advance(long millis) {
+        clockMillis.addAndGet(millis);
+    }
+
+    void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    int scriptCalls() {
+        return scriptCalls.get();
+    }
+
+    synchronized Map<String, String> hash(String key) {
+        return hashes.get(key);
+    }
+
+    private <T> Flux<T> eval(RedisScript<T> script, List<String> keys, List<?> args) {
+        scriptCalls.incrementAndGet();
+        if (!available) {
+            return Flux.error(new RedisConnectionFailureException("Redis 替身不可用"));
+        }
+        synchronized (this) {
+            Globals globals = JsePlatform.standardGlobals();
+            globals.set("KEYS", toLuaTable(keys));
+            globals.set("ARGV", toLuaTable(args));
+            LuaTable redis = new LuaTable();
+            redis.set("call", new VarArgFunction() {
+                @Override
+                public Varargs invoke(Varargs varargs) {
+                    return call(varargs);
+                }
+            });
+            globals.set("redis", redis);
+            LuaValue result = globals.load(script.getScriptAsString()).call();
+            // Redis 把 Lua 数字转换为整数回复时直接截断小数部分
+            return Flux.just(script.getResultType().cast((long) result.todouble()));
+        }
+    }
+
+    private Mono<Long> delete(Object[] keys) {
+        if (!available) {
+            return Mono.error(new RedisConnectionFailureException("Redis 替身不可用"));
+        }
+        long removed = 0;
+        synchronized (this) {
+            for (Object key : keys) {
+                if (hashes.remove(String.valueOf(key)) != null) {
+                    removed++;
+                }
+            }
+        }
+        return Mono.just(removed);
+    }
+
+    private LuaValue call(Varargs args) {
+        String command = args.checkjstring(1).toUpperCase();
+        switch (command) {
+            case "TIME" -> {
+                long now = clockMillis.get();
+                LuaTable time = new LuaTable();
+                time.set(1, LuaValue.valueOf(String.valueOf(now / 1000)));
+                time.set(2, LuaValue.valueOf(String.valueOf((now % 1000) * 1000)));
+                return time;
+            }
+            case "HMGET" -> {
+                Map<String, String> hash = hashes.getOrDefault(args.checkjstring(2), Map.of());
+                LuaTable values = new LuaTable();
+                for (int i = 3; i <= args.narg(); i++) {
+                    String value = hash.get(args.checkjstring(i));
+                    // 与 Redis 一致：缺失字段转换为 Lua 的 false
+                    values.set(i - 2, value != null ? LuaValue.valueOf(value) : LuaValue.FALSE);
+                }
+                return values;
+            }
+            case "HSET" -> {
+                Map<String, String> hash = hashes.computeIfAbsent(args.checkjstring(2), k -> new HashMap<>());
+                for (int i = 3; i + 1 <= args.narg(); i += 2) {
+                    hash.put(args.checkjstring(i), args.checkjstring(i + 1));
+                }
+                return LuaValue.valueOf(1);
+            }
+            case "PEXPIRE" -> {
+                return LuaValue.valueOf(hashes.containsKey(args.checkjstring(2)) ? 1 : 0);
+            }
+            default -> throw new UnsupportedOperationException("Redis 替身不支持命令: " + command);
+        }
+    }
+
+    private static LuaTable toLuaTable(List<?> values) {
+        List<Object> copy = new ArrayList<>(values);
+        LuaTable table = new LuaTable();
+        for (int i = 0; i < copy.size(); i++) {
+            table.set(i + 1, LuaValue.valueOf(String.valueOf(copy.get(i))));
+        }
+        return table;
+    }
+}
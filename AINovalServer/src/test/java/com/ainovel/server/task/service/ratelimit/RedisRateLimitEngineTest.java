@@ -0,0 +1,133 @@
+package com.ainovel.server.task.service.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.test.StepVerifier;
+
+/**
+ * RedisRateLimitEngine 的 Lua 令牌桶与滑动窗口脚本测试，脚本在 {@link LuaRedisStandIn} 中执行
+ */
+class RedisRateLimitEngineTest {
+
+    private static final String PREFIX = "test:rl:";
+    private static final String KEY = "standard:user:u-1:provider:gemini";
+    private static final Duration MINUTE = Duration.ofMinutes(1);
+    // 对齐到分钟边界，便于推算滑动窗口的加权比例
+    private static final long START = 28_000_000L * 60_000L;
+
+    private LuaRedisStandIn redis;
+    private RedisRateLimitEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        redis = new LuaRedisStandIn(START);
+        engine = new RedisRateLimitEngine(redis.template(), PREFIX, 200);
+    }
+
+    @Test
+    void tokenBucketAllowsBurstUpToCapacity() {
+        for (int i = 0; i < 3; i++) {
+            StepVerifier.create(engine.tryAcquire(KEY, 1.0, 3)).expectNext(true).verifyComplete();
+        }
+        StepVerifier.create(engine.tryAcquire(KEY, 1.0, 3)).expectNext(false).verifyComplete();
+    }
+
+    @Test
+    void tokenBucketRefillsFromRedisTime() {
+        for (int i = 0; i < 3; i++) {
+            engine.tryAcquire(KEY, 2.0, 3).block();
+        }
+        StepVerifier.create(engine.tryAcquire(KEY, 2.0, 3)).expectNext(false).verifyComplete();
+
+        // 2 个/秒，500ms 补充 1 个令牌
+        redis.advance(500);
+        StepVerifier.create(engine.tryAcquire(KEY, 2.0, 3)).expectNext(true).verifyComplete();
+        StepVerifier.create(engine.tryAcquire(KEY, 2.0, 3)).expectNext(false).verifyComplete();
+
+        // 长时间空闲后不会超过容量
+        redis.advance(60_000);
+        StepVerifier.create(engine.availableTokens(KEY, 2.0, 3)).expectNext(3).verifyComplete();
+    }
+
+    @Test
+    void availableTokensDoesNotConsume() {
+        engine.tryAcquire(KEY, 1.0, 5).block();
+
+        StepVerifier.create(engine.availableTokens(KEY, 1.0, 5)).expectNext(4).verifyComplete();
+        StepVerifier.create(engine.availableTokens(KEY, 1.0, 5)).expectNext(4).verifyComplete();
+    }
+
+    @Test
+    void availableTokensIsZeroForUnseenKeyAndDoesNotCreateBucket() {
+        StepVerifier.create(engine.availableTokens(KEY, 1.0, 5)).expectNext(0).verifyComplete();
+
+        assertThat(redis.hash(PREFIX + "tb:{" + KEY + "}")).isNull();
+        // 查询不影响之后的首次获取：桶仍以满容量创建
+        StepVerifier.create(engine.tryAcquire(KEY, 1.0, 5)).expectNext(true).verifyComplete();
+        StepVerifier.create(engine.availableTokens(KEY, 1.0, 5)).expectNext(4).verifyComplete();
+    }
+
+    @Test
+    void tokenBucketStateUsesHashTaggedKey() {
+        engine.tryAcquire(KEY, 1.0, 3).block();
+
+        assertThat(redis.hash(PREFIX + "tb:{" + KEY + "}"))
+                .containsKeys("tokens", "ts")
+                .containsEntry("ts", String.valueOf(START));
+    }
+
+    @Test
+    void slidingWindowRejectsOverLimit() {
+        StepVerifier.create(engine.tryAcquireInWindow(KEY, MINUTE, 2)).expectNext(true).verifyComplete();
+        StepVerifier.create(engine.tryAcquireInWindow(KEY, MINUTE, 2)).expectNext(true).verifyComplete();
+        StepVerifier.create(engine.tryAcquireInWindow(KEY, MINUTE, 2)).expectNext(false).verifyComplete();
+        StepVerifier.create(engine.countInWindow(KEY, MINUTE)).expectNext(2L).verifyComplete();
+    }
+
+    @Test
+    void slidingWindowWeighsPreviousWindow() {
+        engine.tryAcquireInWindow(KEY, MINUTE, 2).block();
+        engine.tryAcquireInWindow(KEY, MINUTE, 2).block();
+
+        // 刚进入下一窗口：上一窗口按 100% 计入
+        redis.advance(60_000);
+        StepVerifier.create(engine.tryAcquireInWindow(KEY, MINUTE, 2)).expectNext(false).verifyComplete();
+
+        // 窗口过半：上一窗口只计入一半，腾出 1 个名额
+        redis.advance(30_000);
+        StepVerifier.create(engine.countInWindow(KEY, MINUTE)).expectNext(1L).verifyComplete();
+        StepVerifier.create(engine.tryAcquireInWindow(KEY, MINUTE, 2)).expectNext(true).verifyComplete();
+        StepVerifier.create(engine.tryAcquireInWindow(KEY, MINUTE, 2)).expectNext(false).verifyComplete();
+
+        // 跳过一个完整窗口后历史计数清零
+        redis.advance(120_000);
+        StepVerifier.create(engine.countInWindow(KEY, MINUTE)).expectNext(0L).verifyComplete();
+    }
+
+    @Test
+    void resetClearsBucketAndWindow() {
+        for (int i = 0; i < 3; i++) {
+            engine.tryAcquire(KEY, 1.0, 3).block();
+        }
+        engine.tryAcquireInWindow(KEY, MINUTE, 1).block();
+
+        StepVerifier.create(engine.reset(KEY)).verifyComplete();
+
+        assertThat(redis.hash(PREFIX + "tb:{" + KEY + "}")).isNull();
+        assertThat(redis.hash(PREFIX + "sw:{" + KEY + "}")).isNull();
+        StepVerifier.create(engine.tryAcquire(KEY, 1.0, 3)).expectNext(true).verifyComplete();
+        StepVerifier.create(engine.tryAcquireInWindow(KEY, MINUTE, 1)).expectNext(true).verifyComplete();
+    }
+
+    @Test
+    void redisFailureSurfacesAsError() {
+        redis.setAvailable(false);
+
+        StepVerifier.create(engine.tryAcquire(KEY, 1.0, 3)).expectError().verify();
+    }
+}